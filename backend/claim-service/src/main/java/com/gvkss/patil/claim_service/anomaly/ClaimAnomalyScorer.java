@@ -0,0 +1,322 @@
+package com.gvkss.patil.claim_service.anomaly;
+
+import com.gvkss.patil.claim_service.codes.CodeSystem;
+import com.gvkss.patil.claim_service.pricing.LongIntHashMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Claim Anomaly Scorer
+ *
+ * Streaming statistics for outlier detection on submitted claims. Per procedure code it keeps an
+ * exponentially weighted mean and variance of log(1 + amount) and a t-digest of amounts; per
+ * provider it keeps claim counts decayed over a short and a long horizon, whose ratio exposes
+ * billing-velocity spikes. Codes hash to 64-bit keys and every statistic lives in flat primitive
+ * arrays indexed through a {@link LongIntHashMap}, so scoring a claim is two primitive probes and a
+ * few floating-point operations. Scoring only reads the statistics; a claim is folded in by a
+ * separate {@link #update} once it is known to stick. Not synchronized.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class ClaimAnomalyScorer {
+
+    private static final int MAGIC = 0x43414E31; // "CAN1"
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long MIN_AGE_MILLIS = 1000L;
+
+    public enum FlagType {
+        AMOUNT_OUTLIER,
+        AMOUNT_PERCENTILE,
+        PROVIDER_VELOCITY
+    }
+
+    public record Flag(FlagType type, double score, String detail) {
+    }
+
+    /**
+     * Tuning of the scorer
+     *
+     * @param alpha               weight of a new amount in the decayed mean and variance
+     * @param compression         t-digest compression
+     * @param minObservations     claims a procedure needs before its amounts are judged
+     * @param zThreshold          z-score of log(1 + amount) above which an amount is an outlier
+     * @param percentileThreshold quantile rank above which an amount is flagged
+     * @param velocityRatio       short-over-long claim rate ratio above which a provider is flagged
+     * @param velocityMinClaims   decayed short-horizon claims a provider needs before it is judged
+     * @param shortHorizonMillis  decay time constant of the short rate
+     * @param longHorizonMillis   decay time constant of the long rate
+     */
+    public record Settings(double alpha, double compression, int minObservations, double zThreshold,
+                           double percentileThreshold, double velocityRatio, double velocityMinClaims,
+                           long shortHorizonMillis, long longHorizonMillis) {
+    }
+
+    private final Settings settings;
+    private final int percentileMinObservations;
+    private long observations;
+
+    private final LongIntHashMap procedureIndex = new LongIntHashMap(1024);
+    private long[] procedureKeys = new long[1024];
+    private double[] means = new double[1024];
+    private double[] variances = new double[1024];
+    private long[] counts = new long[1024];
+    private TDigest[] digests = new TDigest[1024];
+    private int procedures;
+
+    private final LongIntHashMap providerIndex = new LongIntHashMap(1024);
+    private long[] providerKeys = new long[1024];
+    private double[] shortCounts = new double[1024];
+    private double[] longCounts = new double[1024];
+    private long[] firstSeen = new long[1024];
+    private long[] lastSeen = new long[1024];
+    private int providers;
+
+    public ClaimAnomalyScorer(Settings settings) {
+        this.settings = settings;
+        // The top (1 - p) of a small sample is always "new"; wait for enough claims to fill the tail
+        this.percentileMinObservations = Math.max(settings.minObservations(),
+                (int) Math.ceil(2 / (1 - settings.percentileThreshold())));
+    }
+
+    /**
+     * Score a claim against the statistics so far, without changing them
+     */
+    public List<Flag> score(String procedureCode, Long providerId, double amount, long nowMillis) {
+        List<Flag> flags = List.of();
+        if (procedureCode != null && amount >= 0) {
+            flags = scoreAmount(procedureCode, amount, flags);
+        }
+        if (providerId != null && providerId != Long.MIN_VALUE) {
+            flags = scoreVelocity(providerId, nowMillis, flags);
+        }
+        return flags;
+    }
+
+    /**
+     * Fold a claim into the statistics
+     */
+    public void update(String procedureCode, Long providerId, double amount, long nowMillis) {
+        observations++;
+        if (procedureCode != null && amount >= 0) {
+            updateAmount(procedureCode, amount);
+        }
+        if (providerId != null && providerId != Long.MIN_VALUE) {
+            updateVelocity(providerId, nowMillis);
+        }
+    }
+
+    public long getObservations() {
+        return observations;
+    }
+
+    public int getProceduresTracked() {
+        return procedures;
+    }
+
+    public int getProvidersTracked() {
+        return providers;
+    }
+
+    private List<Flag> scoreAmount(String procedureCode, double amount, List<Flag> flags) {
+        int index = procedureIndex.get(procedureKey(CodeSystem.CPT.normalize(procedureCode)), -1);
+        if (index < 0) {
+            return flags;
+        }
+        double x = Math.log1p(amount);
+        double mean = means[index];
+        double variance = variances[index];
+        TDigest digest = digests[index];
+
+        if (counts[index] >= settings.minObservations() && variance > 0) {
+            double z = (x - mean) / Math.sqrt(variance);
+            if (z > settings.zThreshold()) {
+                flags = append(flags, new Flag(FlagType.AMOUNT_OUTLIER, z, String.format(
+                        "Amount %.2f is %.1f standard deviations above typical %.2f for %s",
+                        amount, z, Math.expm1(mean), procedureCode)));
+            }
+        }
+        if (counts[index] >= percentileMinObservations) {
+            double rank = digest.cdf(amount);
+            if (rank > settings.percentileThreshold()) {
+                flags = append(flags, new Flag(FlagType.AMOUNT_PERCENTILE, rank, String.format(
+                        "Amount %.2f is above the %.1fth percentile %.2f for %s",
+                        amount, settings.percentileThreshold() * 100,
+                        digest.quantile(settings.percentileThreshold()), procedureCode)));
+            }
+        }
+        return flags;
+    }
+
+    private void updateAmount(String procedureCode, double amount) {
+        long key = procedureKey(CodeSystem.CPT.normalize(procedureCode));
+        int index = procedureIndex.get(key, -1);
+        if (index < 0) {
+            index = addProcedure(key);
+        }
+        double x = Math.log1p(amount);
+        double mean = means[index];
+        double variance = variances[index];
+
+        // Exponentially weighted update; the first claim seeds the mean
+        if (counts[index] == 0) {
+            means[index] = x;
+        } else {
+            double diff = x - mean;
+            double increment = settings.alpha() * diff;
+            means[index] = mean + increment;
+            variances[index] = (1 - settings.alpha()) * (variance + diff * increment);
+        }
+        counts[index]++;
+        digests[index].add(amount);
+    }
+
+    private List<Flag> scoreVelocity(long providerId, long nowMillis, List<Flag> flags) {
+        // Judge the rates as they would be with this claim counted
+        int index = providerIndex.get(providerId, -1);
+        long firstAt = index < 0 ? nowMillis : firstSeen[index];
+        long now = index < 0 ? nowMillis : Math.max(nowMillis, lastSeen[index]);
+        double elapsed = index < 0 ? 0 : now - lastSeen[index];
+        double shortCount = (index < 0 ? 0 : decayed(shortCounts[index], elapsed, settings.shortHorizonMillis())) + 1;
+        double longCount = (index < 0 ? 0 : decayed(longCounts[index], elapsed, settings.longHorizonMillis())) + 1;
+
+        if (shortCount >= settings.velocityMinClaims()) {
+            // A decayed count divided by its effective window is a rate; the window is shorter
+            // than the time constant while the provider's history is younger than it
+            double age = Math.max(now - firstAt, MIN_AGE_MILLIS);
+            double shortRate = shortCount / window(settings.shortHorizonMillis(), age);
+            double longRate = longCount / window(settings.longHorizonMillis(), age);
+            double ratio = shortRate / longRate;
+            if (ratio > settings.velocityRatio()) {
+                flags = append(flags, new Flag(FlagType.PROVIDER_VELOCITY, ratio, String.format(
+                        "Provider %d is billing %.1f times its usual rate (%.1f claims in the short window)",
+                        providerId, ratio, shortCount)));
+            }
+        }
+        return flags;
+    }
+
+    private void updateVelocity(long providerId, long nowMillis) {
+        int index = providerIndex.get(providerId, -1);
+        if (index < 0) {
+            index = addProvider(providerId, nowMillis);
+        }
+        long now = Math.max(nowMillis, lastSeen[index]);
+        double elapsed = now - lastSeen[index];
+        shortCounts[index] = decayed(shortCounts[index], elapsed, settings.shortHorizonMillis()) + 1;
+        longCounts[index] = decayed(longCounts[index], elapsed, settings.longHorizonMillis()) + 1;
+        lastSeen[index] = now;
+    }
+
+    private int addProcedure(long key) {
+        if (procedures == procedureKeys.length) {
+            int capacity = procedures * 2;
+            procedureKeys = Arrays.copyOf(procedureKeys, capacity);
+            means = Arrays.copyOf(means, capacity);
+            variances = Arrays.copyOf(variances, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            digests = Arrays.copyOf(digests, capacity);
+        }
+        int index = procedures++;
+        procedureKeys[index] = key;
+        digests[index] = new TDigest(settings.compression());
+        procedureIndex.put(key, index);
+        return index;
+    }
+
+    private int addProvider(long providerId, long nowMillis) {
+        if (providers == providerKeys.length) {
+            int capacity = providers * 2;
+            providerKeys = Arrays.copyOf(providerKeys, capacity);
+            shortCounts = Arrays.copyOf(shortCounts, capacity);
+            longCounts = Arrays.copyOf(longCounts, capacity);
+            firstSeen = Arrays.copyOf(firstSeen, capacity);
+            lastSeen = Arrays.copyOf(lastSeen, capacity);
+        }
+        int index = providers++;
+        providerKeys[index] = providerId;
+        firstSeen[index] = nowMillis;
+        lastSeen[index] = nowMillis;
+        providerIndex.put(providerId, index);
+        return index;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeLong(observations);
+        out.writeInt(procedures);
+        for (int i = 0; i < procedures; i++) {
+            out.writeLong(procedureKeys[i]);
+            out.writeDouble(means[i]);
+            out.writeDouble(variances[i]);
+            out.writeLong(counts[i]);
+            digests[i].writeTo(out);
+        }
+        out.writeInt(providers);
+        for (int i = 0; i < providers; i++) {
+            out.writeLong(providerKeys[i]);
+            out.writeDouble(shortCounts[i]);
+            out.writeDouble(longCounts[i]);
+            out.writeLong(firstSeen[i]);
+            out.writeLong(lastSeen[i]);
+        }
+    }
+
+    public static ClaimAnomalyScorer readFrom(DataInput in, Settings settings) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an anomaly scorer snapshot");
+        }
+        ClaimAnomalyScorer scorer = new ClaimAnomalyScorer(settings);
+        scorer.observations = in.readLong();
+        int procedureCount = in.readInt();
+        for (int i = 0; i < procedureCount; i++) {
+            int index = scorer.addProcedure(in.readLong());
+            scorer.means[index] = in.readDouble();
+            scorer.variances[index] = in.readDouble();
+            scorer.counts[index] = in.readLong();
+            scorer.digests[index] = TDigest.readFrom(in, settings.compression());
+        }
+        int providerCount = in.readInt();
+        for (int i = 0; i < providerCount; i++) {
+            int index = scorer.addProvider(in.readLong(), 0L);
+            scorer.shortCounts[index] = in.readDouble();
+            scorer.longCounts[index] = in.readDouble();
+            scorer.firstSeen[index] = in.readLong();
+            scorer.lastSeen[index] = in.readLong();
+        }
+        return scorer;
+    }
+
+    private static double decayed(double count, double elapsedMillis, long horizonMillis) {
+        return count * Math.exp(-elapsedMillis / horizonMillis);
+    }
+
+    private static double window(long horizonMillis, double ageMillis) {
+        return horizonMillis * -Math.expm1(-ageMillis / horizonMillis);
+    }
+
+    private static List<Flag> append(List<Flag> flags, Flag flag) {
+        List<Flag> result = flags.isEmpty() ? new ArrayList<>(2) : flags;
+        result.add(flag);
+        return result;
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters of the normalized code; Long.MIN_VALUE is reserved by the index map
+     */
+    private static long procedureKey(String normalizedCode) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < normalizedCode.length(); i++) {
+            hash ^= normalizedCode.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash == Long.MIN_VALUE ? 0L : hash;
+    }
+}
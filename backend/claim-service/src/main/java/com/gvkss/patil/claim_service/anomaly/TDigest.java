@@ -0,0 +1,215 @@
+package com.gvkss.patil.claim_service.anomaly;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * T-Digest
+ *
+ * Merging t-digest (Dunning) for streaming quantile estimates. Values are buffered and folded into
+ * a sorted set of weighted centroids whose size is bounded by the arcsine scale function, so the
+ * tails, where outliers are judged, keep the finest resolution. State is a handful of primitive
+ * arrays; a digest holds at most a few hundred centroids whatever the number of values added.
+ * Not synchronized.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class TDigest {
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+    private final double[] buffer;
+    private int buffered;
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest(double compression) {
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression * Math.PI / 2) + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.buffer = new double[capacity];
+    }
+
+    public void add(double value) {
+        if (buffered == buffer.length) {
+            merge();
+        }
+        buffer[buffered++] = value;
+        totalWeight++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public long size() {
+        return (long) totalWeight;
+    }
+
+    /**
+     * Fraction of values at or below the given value
+     */
+    public double cdf(double value) {
+        merge();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (value < min) {
+            return 0;
+        }
+        if (value >= max) {
+            return 1;
+        }
+        if (centroids == 1) {
+            return (value - min) / (max - min);
+        }
+        // Interpolate between the centroid midpoints of the cumulative weight curve
+        double previousMid = weights[0] / 2;
+        if (value < means[0]) {
+            return interpolate(value, min, means[0], 0, previousMid) / totalWeight;
+        }
+        double cumulative = weights[0];
+        for (int i = 1; i < centroids; i++) {
+            double mid = cumulative + weights[i] / 2;
+            if (value < means[i]) {
+                return interpolate(value, means[i - 1], means[i], previousMid, mid) / totalWeight;
+            }
+            previousMid = mid;
+            cumulative += weights[i];
+        }
+        return interpolate(value, means[centroids - 1], max, previousMid, totalWeight) / totalWeight;
+    }
+
+    /**
+     * Estimated value at quantile q (0..1)
+     */
+    public double quantile(double q) {
+        merge();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        double target = q * totalWeight;
+        double previousMid = weights[0] / 2;
+        if (target <= previousMid) {
+            return interpolate(target, 0, previousMid, min, means[0]);
+        }
+        double cumulative = weights[0];
+        for (int i = 1; i < centroids; i++) {
+            double mid = cumulative + weights[i] / 2;
+            if (target <= mid) {
+                return interpolate(target, previousMid, mid, means[i - 1], means[i]);
+            }
+            previousMid = mid;
+            cumulative += weights[i];
+        }
+        return interpolate(target, previousMid, totalWeight, means[centroids - 1], max);
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        merge();
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeInt(centroids);
+        for (int i = 0; i < centroids; i++) {
+            out.writeDouble(means[i]);
+            out.writeDouble(weights[i]);
+        }
+    }
+
+    public static TDigest readFrom(DataInput in, double compression) throws IOException {
+        TDigest digest = new TDigest(compression);
+        digest.min = in.readDouble();
+        digest.max = in.readDouble();
+        int count = in.readInt();
+        digest.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            digest.means[i] = in.readDouble();
+            digest.weights[i] = in.readDouble();
+            digest.totalWeight += digest.weights[i];
+        }
+        digest.centroids = count;
+        return digest;
+    }
+
+    /**
+     * Fold buffered values into the centroids
+     */
+    private void merge() {
+        if (buffered == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+
+        // Two-way merge of the sorted centroids and the sorted buffer (buffered values weigh 1)
+        int total = centroids + buffered;
+        double[] mergedMeans = new double[total];
+        double[] mergedWeights = new double[total];
+        int c = 0;
+        int b = 0;
+        for (int i = 0; i < total; i++) {
+            if (b >= buffered || (c < centroids && means[c] <= buffer[b])) {
+                mergedMeans[i] = means[c];
+                mergedWeights[i] = weights[c++];
+            } else {
+                mergedMeans[i] = buffer[b++];
+                mergedWeights[i] = 1;
+            }
+        }
+        buffered = 0;
+
+        // Greedily combine neighbours while the combined centroid spans at most one unit of k,
+        // compacting in place (the write index never passes the read index)
+        int out = 0;
+        double weightSoFar = 0;
+        double currentMean = mergedMeans[0];
+        double currentWeight = mergedWeights[0];
+        double kLeft = scale(0);
+        for (int i = 1; i < total; i++) {
+            double proposed = currentWeight + mergedWeights[i];
+            if (scale((weightSoFar + proposed) / totalWeight) - kLeft <= 1) {
+                currentMean += (mergedMeans[i] - currentMean) * mergedWeights[i] / proposed;
+                currentWeight = proposed;
+            } else {
+                mergedMeans[out] = currentMean;
+                mergedWeights[out++] = currentWeight;
+                weightSoFar += currentWeight;
+                kLeft = scale(weightSoFar / totalWeight);
+                currentMean = mergedMeans[i];
+                currentWeight = mergedWeights[i];
+            }
+        }
+        mergedMeans[out] = currentMean;
+        mergedWeights[out++] = currentWeight;
+        ensureCapacity(out);
+        System.arraycopy(mergedMeans, 0, means, 0, out);
+        System.arraycopy(mergedWeights, 0, weights, 0, out);
+        centroids = out;
+    }
+
+    /**
+     * Arcsine scale function k1
+     */
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, q) - 1);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (means.length < capacity) {
+            means = Arrays.copyOf(means, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+    }
+
+    private static double interpolate(double x, double x0, double x1, double y0, double y1) {
+        if (x1 <= x0) {
+            return (y0 + y1) / 2;
+        }
+        return y0 + (x - x0) / (x1 - x0) * (y1 - y0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.gvkss.patil.claim_service.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Notification Client
+ *
+ * Posts notifications to notification-service. Delivery is best effort: failures are logged and
+ * never propagate to the caller.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+@Slf4j
+public class NotificationClient {
+
+    private final RestClient restClient;
+
+    public NotificationClient(@Value("${app.notifications.url:http://localhost:8086}") String baseUrl,
+                              @Value("${app.notifications.timeout:PT5S}") Duration timeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.restClient = RestClient.builder()
+                .baseUrl(baseUrl)
+                .requestFactory(requestFactory)
+                .build();
+    }
+
+    /**
+     * Send one notification; returns false if it could not be delivered
+     */
+    public boolean send(Map<String, Object> notification) {
+        try {
+            restClient.post()
+                    .uri("/api/notifications")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(notification)
+                    .retrieve()
+                    .toBodilessEntity();
+            return true;
+        } catch (Exception e) {
+            log.warn("Notification delivery failed ({}): {}", notification.get("type"), e.getMessage());
+            return false;
+        }
+    }
+}
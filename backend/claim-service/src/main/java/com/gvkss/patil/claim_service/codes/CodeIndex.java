@@ -0,0 +1,224 @@
+package com.gvkss.patil.claim_service.codes;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Code Index
+ *
+ * Sorted, read-only code dictionary in a memory-mapped file. The file holds an offset table
+ * followed by the entries ({@code [u8 key length][key][u16 description length][description]}),
+ * ordered by key, so exact lookup and prefix scans are binary searches over the mapped pages and
+ * the index costs almost nothing on the Java heap regardless of how many codes it holds.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class CodeIndex {
+
+    private static final int MAGIC = 0x43444958;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_DESCRIPTION_LENGTH = 65535;
+
+    private final ByteBuffer buffer;
+    private final int count;
+
+    private CodeIndex(ByteBuffer buffer) {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a code index file");
+        }
+        this.buffer = buffer;
+        this.count = buffer.getInt(4);
+    }
+
+    /**
+     * Map an existing index file read-only
+     */
+    public static CodeIndex open(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            return new CodeIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Build an index file from "code description" lines (tab or first run of spaces separates them)
+     * and map it. Keys are produced by the normalizer; duplicates keep the first description.
+     */
+    public static CodeIndex build(BufferedReader source, UnaryOperator<String> normalizer, Path indexFile) throws IOException {
+        List<String[]> entries = new ArrayList<>();
+        String line;
+        while ((line = source.readLine()) != null) {
+            line = line.strip();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            int split = line.indexOf('\t');
+            if (split < 0) {
+                split = line.indexOf(' ');
+            }
+            if (split <= 0) {
+                continue;
+            }
+            String key = normalizer.apply(line.substring(0, split));
+            String description = line.substring(split + 1).strip();
+            if (!key.isEmpty() && key.length() <= MAX_KEY_LENGTH) {
+                entries.add(new String[] {key, description});
+            }
+        }
+        String[][] sorted = entries.toArray(new String[0][]);
+        Arrays.sort(sorted, (a, b) -> a[0].compareTo(b[0]));
+
+        Path temp = Files.createTempFile(indexFile.toAbsolutePath().getParent(), indexFile.getFileName().toString(), ".tmp");
+        int unique = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || !sorted[i][0].equals(sorted[i - 1][0])) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            byte[][] keys = new byte[unique][];
+            byte[][] descriptions = new byte[unique][];
+            for (int i = 0; i < unique; i++) {
+                keys[i] = sorted[i][0].getBytes(StandardCharsets.US_ASCII);
+                descriptions[i] = truncate(sorted[i][1].getBytes(StandardCharsets.UTF_8));
+            }
+
+            out.writeInt(MAGIC);
+            out.writeInt(unique);
+            int offset = HEADER_SIZE + unique * Integer.BYTES;
+            for (int i = 0; i < unique; i++) {
+                out.writeInt(offset);
+                offset += 1 + keys[i].length + 2 + descriptions[i].length;
+            }
+            for (int i = 0; i < unique; i++) {
+                out.writeByte(keys[i].length);
+                out.write(keys[i]);
+                out.writeShort(descriptions[i].length);
+                out.write(descriptions[i]);
+            }
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        CodeIndex index = open(indexFile);
+        if (index.size() != unique) {
+            throw new IllegalStateException("Code index " + indexFile + " is inconsistent");
+        }
+        return index;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Bytes mapped for this index
+     */
+    public long sizeBytes() {
+        return buffer.limit();
+    }
+
+    /**
+     * Description of an exact key, or null
+     */
+    public String lookup(String key) {
+        byte[] probe = key.getBytes(StandardCharsets.US_ASCII);
+        int index = lowerBound(probe);
+        if (index < count && compare(entryOffset(index), probe, false) == 0) {
+            return description(entryOffset(index));
+        }
+        return null;
+    }
+
+    /**
+     * Entries whose key starts with the prefix, in key order
+     */
+    public List<Entry> prefix(String prefix, int limit) {
+        byte[] probe = prefix.getBytes(StandardCharsets.US_ASCII);
+        List<Entry> matches = new ArrayList<>(Math.min(limit, 64));
+        for (int i = lowerBound(probe); i < count && matches.size() < limit; i++) {
+            int offset = entryOffset(i);
+            if (compare(offset, probe, true) != 0) {
+                break;
+            }
+            matches.add(new Entry(key(offset), description(offset)));
+        }
+        return matches;
+    }
+
+    /**
+     * First entry whose key is not less than the probe
+     */
+    private int lowerBound(byte[] probe) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(entryOffset(middle), probe, false) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compare the key at offset with the probe; with prefixOnly, a key that starts with the probe is equal
+     */
+    private int compare(int offset, byte[] probe, boolean prefixOnly) {
+        int length = buffer.get(offset) & 0xff;
+        int common = Math.min(length, probe.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (buffer.get(offset + 1 + i) & 0xff) - (probe[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        if (prefixOnly && length >= probe.length) {
+            return 0;
+        }
+        return length - probe.length;
+    }
+
+    private int entryOffset(int index) {
+        return buffer.getInt(HEADER_SIZE + index * Integer.BYTES);
+    }
+
+    private String key(int offset) {
+        byte[] key = new byte[buffer.get(offset) & 0xff];
+        buffer.get(offset + 1, key);
+        return new String(key, StandardCharsets.US_ASCII);
+    }
+
+    private String description(int offset) {
+        int position = offset + 1 + (buffer.get(offset) & 0xff);
+        byte[] description = new byte[buffer.getShort(position) & 0xffff];
+        buffer.get(position + 2, description);
+        return new String(description, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] truncate(byte[] description) {
+        return description.length <= MAX_DESCRIPTION_LENGTH ? description : Arrays.copyOf(description, MAX_DESCRIPTION_LENGTH);
+    }
+
+    /**
+     * Index entry
+     */
+    public record Entry(String key, String description) {
+    }
+}
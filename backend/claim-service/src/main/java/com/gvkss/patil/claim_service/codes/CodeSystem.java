@@ -0,0 +1,40 @@
+package com.gvkss.patil.claim_service.codes;
+
+import java.util.Locale;
+
+/**
+ * Code System Enum
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public enum CodeSystem {
+    ICD10("ICD-10-CM"),
+    CPT("CPT");
+
+    private final String displayName;
+
+    CodeSystem(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Index key for a code as entered: upper case, without the ICD-10 dot or surrounding spaces
+     */
+    public String normalize(String code) {
+        String key = code.strip().toUpperCase(Locale.ROOT);
+        return this == ICD10 ? key.replace(".", "") : key;
+    }
+
+    /**
+     * Display form of an index key (ICD-10 codes get their dot back after the category)
+     */
+    public String format(String key) {
+        return this == ICD10 && key.length() > 3 ? key.substring(0, 3) + "." + key.substring(3) : key;
+    }
+}
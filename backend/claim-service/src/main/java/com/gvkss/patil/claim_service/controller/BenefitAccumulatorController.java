@@ -0,0 +1,67 @@
+package com.gvkss.patil.claim_service.controller;
+
+import com.gvkss.patil.claim_service.dto.AccumulatorResponse;
+import com.gvkss.patil.claim_service.dto.ApiResponse;
+import com.gvkss.patil.claim_service.service.BenefitAccumulatorService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * Benefit Accumulator Controller for deductible and out-of-pocket tracking
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/accumulators")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Benefit Accumulators", description = "Deductible and out-of-pocket accumulator APIs")
+public class BenefitAccumulatorController {
+
+    private final BenefitAccumulatorService benefitAccumulatorService;
+
+    /**
+     * Get a patient's accumulators
+     */
+    @GetMapping("/patient/{patientId}")
+    @Operation(summary = "Get patient accumulators", description = "Deductible and out-of-pocket met for a plan year")
+    public ResponseEntity<ApiResponse<AccumulatorResponse>> getAccumulator(
+            @Parameter(description = "Patient ID") @PathVariable Long patientId,
+            @Parameter(description = "Plan year, defaults to the current year") @RequestParam(required = false) Integer planYear) {
+        try {
+            AccumulatorResponse accumulator = benefitAccumulatorService.getAccumulator(patientId,
+                    planYear != null ? planYear : LocalDate.now().getYear());
+            return ResponseEntity.ok(ApiResponse.success(accumulator, "Accumulators retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving accumulators for patient: {}", patientId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve accumulators: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Recompute a patient's accumulators from their claims
+     */
+    @PostMapping("/patient/{patientId}/recompute")
+    @Operation(summary = "Recompute patient accumulators", description = "Rebuild accumulators from approved and paid claims")
+    public ResponseEntity<ApiResponse<AccumulatorResponse>> recompute(
+            @Parameter(description = "Patient ID") @PathVariable Long patientId,
+            @Parameter(description = "Plan year, defaults to the current year") @RequestParam(required = false) Integer planYear) {
+        try {
+            AccumulatorResponse accumulator = benefitAccumulatorService.recompute(patientId,
+                    planYear != null ? planYear : LocalDate.now().getYear());
+            return ResponseEntity.ok(ApiResponse.success(accumulator, "Accumulators recomputed successfully"));
+        } catch (Exception e) {
+            log.error("Error recomputing accumulators for patient: {}", patientId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to recompute accumulators: " + e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.gvkss.patil.claim_service.controller;
+
+import com.gvkss.patil.claim_service.dto.AnomalyFlagResponse;
+import com.gvkss.patil.claim_service.dto.AnomalyStatsResponse;
+import com.gvkss.patil.claim_service.dto.ApiResponse;
+import com.gvkss.patil.claim_service.service.ClaimAnomalyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Claim Anomaly Controller for reviewing flags raised on submitted claims
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/claims/anomalies")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Claim Anomalies", description = "Claim amount and billing-velocity anomaly APIs")
+public class ClaimAnomalyController {
+
+    private final ClaimAnomalyService claimAnomalyService;
+
+    /**
+     * Get unreviewed anomaly flags
+     */
+    @GetMapping
+    @Operation(summary = "Get open anomaly flags", description = "Unreviewed anomaly flags, newest first")
+    public ResponseEntity<ApiResponse<List<AnomalyFlagResponse>>> getOpenFlags(
+            @Parameter(description = "Maximum number of flags") @RequestParam(defaultValue = "50") int limit) {
+        try {
+            List<AnomalyFlagResponse> flags = claimAnomalyService.getOpenFlags(Math.max(1, Math.min(limit, 500)));
+            return ResponseEntity.ok(ApiResponse.success(flags, "Anomaly flags retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving anomaly flags", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve anomaly flags: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get anomaly flags of a claim
+     */
+    @GetMapping("/claim/{claimId}")
+    @Operation(summary = "Get claim anomaly flags", description = "All anomaly flags raised on a claim")
+    public ResponseEntity<ApiResponse<List<AnomalyFlagResponse>>> getFlagsForClaim(
+            @Parameter(description = "Claim ID") @PathVariable Long claimId) {
+        try {
+            List<AnomalyFlagResponse> flags = claimAnomalyService.getFlagsForClaim(claimId);
+            return ResponseEntity.ok(ApiResponse.success(flags, "Anomaly flags retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving anomaly flags for claim: {}", claimId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve anomaly flags: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Mark an anomaly flag as reviewed
+     */
+    @PutMapping("/{flagId}/review")
+    @Operation(summary = "Review anomaly flag", description = "Mark an anomaly flag as reviewed")
+    public ResponseEntity<ApiResponse<AnomalyFlagResponse>> reviewFlag(
+            @Parameter(description = "Flag ID") @PathVariable Long flagId) {
+        try {
+            AnomalyFlagResponse flag = claimAnomalyService.reviewFlag(flagId);
+            return ResponseEntity.ok(ApiResponse.success(flag, "Anomaly flag reviewed successfully"));
+        } catch (Exception e) {
+            log.error("Error reviewing anomaly flag: {}", flagId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to review anomaly flag: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get anomaly scorer statistics
+     */
+    @GetMapping("/stats")
+    @Operation(summary = "Get anomaly scorer statistics", description = "Tracked codes and providers and scoring latency")
+    public ResponseEntity<ApiResponse<AnomalyStatsResponse>> getStats() {
+        try {
+            AnomalyStatsResponse stats = claimAnomalyService.getStats();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Anomaly statistics retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving anomaly statistics", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve anomaly statistics: " + e.getMessage()));
+        }
+    }
+}
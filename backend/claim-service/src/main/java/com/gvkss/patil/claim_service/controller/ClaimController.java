@@ -3,6 +3,7 @@ package com.gvkss.patil.claim_service.controller;
 import com.gvkss.patil.claim_service.dto.*;
 import com.gvkss.patil.claim_service.entity.InsuranceClaim;
 import com.gvkss.patil.claim_service.service.ClaimService;
+import com.gvkss.patil.claim_service.service.ClaimStatusBatchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -11,10 +12,11 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -32,7 +34,13 @@ import java.util.Map;
 @Tag(name = "Claims Management", description = "Healthcare insurance claims management APIs")
 public class ClaimController {
     
+    private static final Map<String, String> HEALTH = Map.of(
+            "status", "UP",
+            "service", "claim-service",
+            "message", "Healthcare Claim Service is running");
+    
     private final ClaimService claimService;
+    private final ClaimStatusBatchService claimStatusBatchService;
     
     /**
      * Health check endpoint
@@ -40,11 +48,7 @@ public class ClaimController {
     @GetMapping("/health")
     @Operation(summary = "Health check", description = "Check if the claim service is running")
     public ResponseEntity<Map<String, String>> health() {
-        Map<String, String> response = new HashMap<>();
-        response.put("status", "UP");
-        response.put("service", "claim-service");
-        response.put("message", "Healthcare Claim Service is running");
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(HEALTH);
     }
     
     /**
@@ -57,20 +61,13 @@ public class ClaimController {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid request data"),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<Map<String, Object>> createClaim(@Valid @RequestBody CreateClaimRequest request) {
+    public ResponseEntity<ApiResponse<ClaimResponse>> createClaim(@Valid @RequestBody CreateClaimRequest request) {
         try {
             ClaimResponse claim = claimService.createClaim(request);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Claim created successfully");
-            response.put("data", claim);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(claim, "Claim created successfully"));
         } catch (Exception e) {
             log.error("Error creating claim", e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to create claim: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to create claim: " + e.getMessage()));
         }
     }
     
@@ -84,21 +81,14 @@ public class ClaimController {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Claim not found"),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<Map<String, Object>> getClaimById(
+    public ResponseEntity<ApiResponse<ClaimResponse>> getClaimById(
             @Parameter(description = "Claim ID") @PathVariable Long id) {
         try {
             ClaimResponse claim = claimService.getClaimById(id);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Claim retrieved successfully");
-            response.put("data", claim);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(claim, "Claim retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving claim: {}", id, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve claim: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve claim: " + e.getMessage()));
         }
     }
     
@@ -107,21 +97,14 @@ public class ClaimController {
      */
     @GetMapping("/number/{claimNumber}")
     @Operation(summary = "Get claim by number", description = "Retrieve a specific claim by its claim number")
-    public ResponseEntity<Map<String, Object>> getClaimByNumber(
+    public ResponseEntity<ApiResponse<ClaimResponse>> getClaimByNumber(
             @Parameter(description = "Claim number") @PathVariable String claimNumber) {
         try {
             ClaimResponse claim = claimService.getClaimByNumber(claimNumber);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Claim retrieved successfully");
-            response.put("data", claim);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(claim, "Claim retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving claim: {}", claimNumber, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve claim: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve claim: " + e.getMessage()));
         }
     }
     
@@ -130,27 +113,17 @@ public class ClaimController {
      */
     @GetMapping
     @Operation(summary = "Get all claims", description = "Retrieve all claims with pagination and sorting")
-    public ResponseEntity<Map<String, Object>> getAllClaims(
+    public ResponseEntity<ApiResponse<List<InsuranceClaim>>> getAllClaims(
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
             @Parameter(description = "Sort field") @RequestParam(defaultValue = "id") String sortBy,
             @Parameter(description = "Sort direction") @RequestParam(defaultValue = "asc") String sortDir) {
         try {
-            Page<ClaimResponse> claims = claimService.getAllClaims(page, size, sortBy, sortDir);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Claims retrieved successfully");
-            response.put("data", claims.getContent());
-            response.put("totalElements", claims.getTotalElements());
-            response.put("totalPages", claims.getTotalPages());
-            response.put("currentPage", claims.getNumber());
-            return ResponseEntity.ok(response);
+            Page<InsuranceClaim> claims = claimService.getAllClaims(page, size, sortBy, sortDir);
+            return ResponseEntity.ok(ApiResponse.page(claims, "Claims retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving claims", e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve claims: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve claims: " + e.getMessage()));
         }
     }
     
@@ -159,28 +132,18 @@ public class ClaimController {
      */
     @GetMapping("/patient/{patientId}")
     @Operation(summary = "Get claims by patient ID", description = "Retrieve all claims for a specific patient")
-    public ResponseEntity<Map<String, Object>> getClaimsByPatientId(
+    public ResponseEntity<ApiResponse<List<InsuranceClaim>>> getClaimsByPatientId(
             @Parameter(description = "Patient ID") @PathVariable Long patientId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir) {
         try {
-            Page<ClaimResponse> claims = claimService.getClaimsByPatientId(patientId, page, size, sortBy, sortDir);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Patient claims retrieved successfully");
-            response.put("data", claims.getContent());
-            response.put("totalElements", claims.getTotalElements());
-            response.put("totalPages", claims.getTotalPages());
-            response.put("currentPage", claims.getNumber());
-            return ResponseEntity.ok(response);
+            Page<InsuranceClaim> claims = claimService.getClaimsByPatientId(patientId, page, size, sortBy, sortDir);
+            return ResponseEntity.ok(ApiResponse.page(claims, "Patient claims retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving claims for patient: {}", patientId, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve patient claims: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve patient claims: " + e.getMessage()));
         }
     }
     
@@ -189,28 +152,18 @@ public class ClaimController {
      */
     @GetMapping("/doctor/{doctorId}")
     @Operation(summary = "Get claims by doctor ID", description = "Retrieve all claims for a specific doctor")
-    public ResponseEntity<Map<String, Object>> getClaimsByDoctorId(
+    public ResponseEntity<ApiResponse<List<InsuranceClaim>>> getClaimsByDoctorId(
             @Parameter(description = "Doctor ID") @PathVariable Long doctorId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir) {
         try {
-            Page<ClaimResponse> claims = claimService.getClaimsByDoctorId(doctorId, page, size, sortBy, sortDir);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Doctor claims retrieved successfully");
-            response.put("data", claims.getContent());
-            response.put("totalElements", claims.getTotalElements());
-            response.put("totalPages", claims.getTotalPages());
-            response.put("currentPage", claims.getNumber());
-            return ResponseEntity.ok(response);
+            Page<InsuranceClaim> claims = claimService.getClaimsByDoctorId(doctorId, page, size, sortBy, sortDir);
+            return ResponseEntity.ok(ApiResponse.page(claims, "Doctor claims retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving claims for doctor: {}", doctorId, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve doctor claims: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve doctor claims: " + e.getMessage()));
         }
     }
     
@@ -219,28 +172,116 @@ public class ClaimController {
      */
     @GetMapping("/status/{status}")
     @Operation(summary = "Get claims by status", description = "Retrieve all claims with a specific status")
-    public ResponseEntity<Map<String, Object>> getClaimsByStatus(
+    public ResponseEntity<ApiResponse<List<InsuranceClaim>>> getClaimsByStatus(
             @Parameter(description = "Claim status") @PathVariable InsuranceClaim.ClaimStatus status,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir) {
         try {
-            Page<ClaimResponse> claims = claimService.getClaimsByStatus(status, page, size, sortBy, sortDir);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Claims retrieved successfully");
-            response.put("data", claims.getContent());
-            response.put("totalElements", claims.getTotalElements());
-            response.put("totalPages", claims.getTotalPages());
-            response.put("currentPage", claims.getNumber());
-            return ResponseEntity.ok(response);
+            Page<InsuranceClaim> claims = claimService.getClaimsByStatus(status, page, size, sortBy, sortDir);
+            return ResponseEntity.ok(ApiResponse.page(claims, "Claims retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving claims with status: {}", status, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve claims: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve claims: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get claim summaries with pagination
+     */
+    @GetMapping("/summary")
+    @Operation(summary = "Get claim summaries", description = "Retrieve lightweight claim summaries with pagination and sorting")
+    public ResponseEntity<ApiResponse<List<ClaimSummary>>> getClaimSummaries(
+            @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Sort field") @RequestParam(defaultValue = "id") String sortBy,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "asc") String sortDir) {
+        try {
+            Page<ClaimSummary> claims = claimService.getClaimSummaries(page, size, sortBy, sortDir);
+            return ResponseEntity.ok(ApiResponse.page(claims, "Claim summaries retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving claim summaries", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve claim summaries: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get claim summaries by patient ID
+     */
+    @GetMapping("/patient/{patientId}/summary")
+    @Operation(summary = "Get claim summaries by patient ID", description = "Retrieve lightweight claim summaries for a specific patient")
+    public ResponseEntity<ApiResponse<List<ClaimSummary>>> getClaimSummariesByPatientId(
+            @Parameter(description = "Patient ID") @PathVariable Long patientId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+        try {
+            Page<ClaimSummary> claims = claimService.getClaimSummariesByPatientId(patientId, page, size, sortBy, sortDir);
+            return ResponseEntity.ok(ApiResponse.page(claims, "Patient claim summaries retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving claim summaries for patient: {}", patientId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve patient claim summaries: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get claim timeline page by patient ID
+     */
+    @GetMapping("/patient/{patientId}/timeline")
+    @Operation(summary = "Get claim timeline by patient ID", description = "Claim summaries submitted before a (submittedAt, id) position, newest first")
+    public ResponseEntity<ApiResponse<List<ClaimSummary>>> getClaimTimelineByPatientId(
+            @Parameter(description = "Patient ID") @PathVariable Long patientId,
+            @Parameter(description = "Only claims submitted before this time") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @Parameter(description = "Tie-break: claims submitted exactly at 'before' need an ID below this") @RequestParam(defaultValue = "0") Long beforeId,
+            @Parameter(description = "Maximum number of claims") @RequestParam(defaultValue = "20") int limit) {
+        try {
+            List<ClaimSummary> claims = claimService.getClaimSummariesByPatientIdBefore(patientId, before, beforeId, Math.min(limit, 100));
+            return ResponseEntity.ok(ApiResponse.success(claims, "Patient claim timeline retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving claim timeline for patient: {}", patientId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve patient claim timeline: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get claim summaries by doctor ID
+     */
+    @GetMapping("/doctor/{doctorId}/summary")
+    @Operation(summary = "Get claim summaries by doctor ID", description = "Retrieve lightweight claim summaries for a specific doctor")
+    public ResponseEntity<ApiResponse<List<ClaimSummary>>> getClaimSummariesByDoctorId(
+            @Parameter(description = "Doctor ID") @PathVariable Long doctorId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+        try {
+            Page<ClaimSummary> claims = claimService.getClaimSummariesByDoctorId(doctorId, page, size, sortBy, sortDir);
+            return ResponseEntity.ok(ApiResponse.page(claims, "Doctor claim summaries retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving claim summaries for doctor: {}", doctorId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve doctor claim summaries: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get claim summaries by status
+     */
+    @GetMapping("/status/{status}/summary")
+    @Operation(summary = "Get claim summaries by status", description = "Retrieve lightweight claim summaries with a specific status")
+    public ResponseEntity<ApiResponse<List<ClaimSummary>>> getClaimSummariesByStatus(
+            @Parameter(description = "Claim status") @PathVariable InsuranceClaim.ClaimStatus status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+        try {
+            Page<ClaimSummary> claims = claimService.getClaimSummariesByStatus(status, page, size, sortBy, sortDir);
+            return ResponseEntity.ok(ApiResponse.page(claims, "Claim summaries retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving claim summaries with status: {}", status, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve claim summaries: " + e.getMessage()));
         }
     }
     
@@ -249,22 +290,15 @@ public class ClaimController {
      */
     @PutMapping("/{id}")
     @Operation(summary = "Update claim", description = "Update an existing claim")
-    public ResponseEntity<Map<String, Object>> updateClaim(
+    public ResponseEntity<ApiResponse<ClaimResponse>> updateClaim(
             @Parameter(description = "Claim ID") @PathVariable Long id,
             @Valid @RequestBody UpdateClaimRequest request) {
         try {
             ClaimResponse claim = claimService.updateClaim(id, request);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Claim updated successfully");
-            response.put("data", claim);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(claim, "Claim updated successfully"));
         } catch (Exception e) {
             log.error("Error updating claim: {}", id, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to update claim: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to update claim: " + e.getMessage()));
         }
     }
     
@@ -273,22 +307,31 @@ public class ClaimController {
      */
     @PutMapping("/{id}/status")
     @Operation(summary = "Update claim status", description = "Update the status of a claim")
-    public ResponseEntity<Map<String, Object>> updateClaimStatus(
+    public ResponseEntity<ApiResponse<ClaimResponse>> updateClaimStatus(
             @Parameter(description = "Claim ID") @PathVariable Long id,
             @Valid @RequestBody UpdateStatusRequest request) {
         try {
             ClaimResponse claim = claimService.updateClaimStatus(id, request);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Claim status updated successfully");
-            response.put("data", claim);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(claim, "Claim status updated successfully"));
         } catch (Exception e) {
             log.error("Error updating claim status: {}", id, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to update claim status: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to update claim status: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Update the status of many claims
+     */
+    @PutMapping("/status/batch")
+    @Operation(summary = "Batch update claim status", description = "Apply status transitions to many claims and report the outcome of each")
+    public ResponseEntity<ApiResponse<BatchStatusUpdateResponse>> updateClaimStatuses(
+            @Valid @RequestBody BatchStatusUpdateRequest request) {
+        try {
+            BatchStatusUpdateResponse response = claimStatusBatchService.updateStatuses(request);
+            return ResponseEntity.ok(ApiResponse.success(response, "Claim statuses updated successfully"));
+        } catch (Exception e) {
+            log.error("Error updating claim statuses in batch", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to update claim statuses: " + e.getMessage()));
         }
     }
     
@@ -297,20 +340,14 @@ public class ClaimController {
      */
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete claim", description = "Delete a claim by ID")
-    public ResponseEntity<Map<String, Object>> deleteClaim(
+    public ResponseEntity<ApiResponse<Void>> deleteClaim(
             @Parameter(description = "Claim ID") @PathVariable Long id) {
         try {
             claimService.deleteClaim(id);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Claim deleted successfully");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success("Claim deleted successfully"));
         } catch (Exception e) {
             log.error("Error deleting claim: {}", id, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to delete claim: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to delete claim: " + e.getMessage()));
         }
     }
     
@@ -319,22 +356,15 @@ public class ClaimController {
      */
     @GetMapping("/patient/{patientId}/recent")
     @Operation(summary = "Get recent claims for patient", description = "Get recent claims for a specific patient")
-    public ResponseEntity<Map<String, Object>> getRecentClaimsByPatientId(
+    public ResponseEntity<ApiResponse<List<InsuranceClaim>>> getRecentClaimsByPatientId(
             @Parameter(description = "Patient ID") @PathVariable Long patientId,
             @RequestParam(defaultValue = "5") int limit) {
         try {
-            List<ClaimResponse> claims = claimService.getRecentClaimsByPatientId(patientId, limit);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Recent claims retrieved successfully");
-            response.put("data", claims);
-            return ResponseEntity.ok(response);
+            List<InsuranceClaim> claims = claimService.getRecentClaimsByPatientId(patientId, limit);
+            return ResponseEntity.ok(ApiResponse.success(claims, "Recent claims retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving recent claims for patient: {}", patientId, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve recent claims: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve recent claims: " + e.getMessage()));
         }
     }
     
@@ -343,21 +373,14 @@ public class ClaimController {
      */
     @GetMapping("/doctor/{doctorId}/pending")
     @Operation(summary = "Get pending claims for doctor", description = "Get pending claims for doctor verification")
-    public ResponseEntity<Map<String, Object>> getPendingClaimsForDoctor(
+    public ResponseEntity<ApiResponse<List<InsuranceClaim>>> getPendingClaimsForDoctor(
             @Parameter(description = "Doctor ID") @PathVariable Long doctorId) {
         try {
-            List<ClaimResponse> claims = claimService.getPendingClaimsForDoctor(doctorId);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Pending claims retrieved successfully");
-            response.put("data", claims);
-            return ResponseEntity.ok(response);
+            List<InsuranceClaim> claims = claimService.getPendingClaimsForDoctor(doctorId);
+            return ResponseEntity.ok(ApiResponse.success(claims, "Pending claims retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving pending claims for doctor: {}", doctorId, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve pending claims: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve pending claims: " + e.getMessage()));
         }
     }
     
@@ -366,25 +389,15 @@ public class ClaimController {
      */
     @GetMapping("/insurance/review")
     @Operation(summary = "Get claims for insurance review", description = "Get claims pending insurance provider review")
-    public ResponseEntity<Map<String, Object>> getClaimsForInsuranceReview(
+    public ResponseEntity<ApiResponse<List<InsuranceClaim>>> getClaimsForInsuranceReview(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         try {
-            Page<ClaimResponse> claims = claimService.getClaimsForInsuranceReview(page, size);
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-            response.put("message", "Claims for review retrieved successfully");
-            response.put("data", claims.getContent());
-            response.put("totalElements", claims.getTotalElements());
-            response.put("totalPages", claims.getTotalPages());
-            response.put("currentPage", claims.getNumber());
-        return ResponseEntity.ok(response);
+            Page<InsuranceClaim> claims = claimService.getClaimsForInsuranceReview(page, size);
+            return ResponseEntity.ok(ApiResponse.page(claims, "Claims for review retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving claims for insurance review", e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve claims for review: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve claims for review: " + e.getMessage()));
         }
     }
     
@@ -393,21 +406,14 @@ public class ClaimController {
      */
     @GetMapping("/patient/{patientId}/statistics")
     @Operation(summary = "Get claim statistics for patient", description = "Get claim statistics for a specific patient")
-    public ResponseEntity<Map<String, Object>> getClaimStatisticsForPatient(
+    public ResponseEntity<ApiResponse<ClaimStatisticsResponse>> getClaimStatisticsForPatient(
             @Parameter(description = "Patient ID") @PathVariable Long patientId) {
         try {
             ClaimStatisticsResponse statistics = claimService.getClaimStatisticsForPatient(patientId);
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-            response.put("message", "Claim statistics retrieved successfully");
-            response.put("data", statistics);
-        return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(statistics, "Claim statistics retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving claim statistics for patient: {}", patientId, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve claim statistics: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve claim statistics: " + e.getMessage()));
         }
     }
 }
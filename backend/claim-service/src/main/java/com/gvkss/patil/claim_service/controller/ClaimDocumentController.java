@@ -0,0 +1,213 @@
+package com.gvkss.patil.claim_service.controller;
+
+import com.gvkss.patil.claim_service.dto.ApiResponse;
+import com.gvkss.patil.claim_service.dto.ClaimDocumentResponse;
+import com.gvkss.patil.claim_service.dto.StartUploadRequest;
+import com.gvkss.patil.claim_service.dto.UploadSessionResponse;
+import com.gvkss.patil.claim_service.service.ClaimDocumentService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Claim Document Controller for supporting document uploads and downloads
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/claims/{claimId}/documents")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Claim Documents", description = "Claim supporting document APIs")
+public class ClaimDocumentController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ClaimDocumentService claimDocumentService;
+
+    /**
+     * Start a resumable upload
+     */
+    @PostMapping("/uploads")
+    @Operation(summary = "Start upload", description = "Create a resumable upload session for a claim document")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> startUpload(
+            @Parameter(description = "Claim ID") @PathVariable Long claimId,
+            @Valid @RequestBody StartUploadRequest request) {
+        try {
+            UploadSessionResponse upload = claimDocumentService.startUpload(claimId, request);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(ApiResponse.success(upload, "Upload started successfully"));
+        } catch (Exception e) {
+            log.error("Error starting upload for claim: {}", claimId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to start upload: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Upload a chunk as the raw request body
+     */
+    @PutMapping("/uploads/{uploadId}")
+    @Operation(summary = "Upload chunk", description = "Upload the byte range given by the Content-Range header")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> uploadChunk(
+            @Parameter(description = "Claim ID") @PathVariable Long claimId,
+            @Parameter(description = "Upload ID") @PathVariable String uploadId,
+            @Parameter(description = "bytes start-end/total") @RequestHeader(HttpHeaders.CONTENT_RANGE) String contentRange,
+            HttpServletRequest request) {
+        try {
+            UploadSessionResponse upload = claimDocumentService.uploadChunk(claimId, uploadId, contentRange,
+                    request.getInputStream());
+            return ResponseEntity.ok(ApiResponse.success(upload, "Chunk uploaded successfully"));
+        } catch (Exception e) {
+            log.error("Error uploading chunk {} of upload {}", contentRange, uploadId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to upload chunk: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get upload progress
+     */
+    @GetMapping("/uploads/{uploadId}")
+    @Operation(summary = "Get upload", description = "Bytes received so far, to resume an interrupted upload")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> getUpload(
+            @Parameter(description = "Claim ID") @PathVariable Long claimId,
+            @Parameter(description = "Upload ID") @PathVariable String uploadId) {
+        try {
+            UploadSessionResponse upload = claimDocumentService.getUpload(claimId, uploadId);
+            return ResponseEntity.ok(ApiResponse.success(upload, "Upload retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving upload: {}", uploadId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve upload: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get documents of a claim
+     */
+    @GetMapping
+    @Operation(summary = "Get claim documents", description = "Documents attached to a claim, newest first")
+    public ResponseEntity<ApiResponse<List<ClaimDocumentResponse>>> getDocuments(
+            @Parameter(description = "Claim ID") @PathVariable Long claimId) {
+        try {
+            List<ClaimDocumentResponse> documents = claimDocumentService.getDocuments(claimId);
+            return ResponseEntity.ok(ApiResponse.success(documents, "Documents retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving documents for claim: {}", claimId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve documents: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Delete document
+     */
+    @DeleteMapping("/{documentId}")
+    @Operation(summary = "Delete document", description = "Delete a claim document")
+    public ResponseEntity<ApiResponse<String>> deleteDocument(
+            @Parameter(description = "Claim ID") @PathVariable Long claimId,
+            @Parameter(description = "Document ID") @PathVariable Long documentId) {
+        try {
+            claimDocumentService.deleteDocument(claimId, documentId);
+            return ResponseEntity.ok(ApiResponse.success("Document deleted", "Document deleted successfully"));
+        } catch (Exception e) {
+            log.error("Error deleting document: {}", documentId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to delete document: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Download document content; supports a single byte range and uses sendfile when the connector offers it
+     */
+    @GetMapping("/{documentId}/content")
+    @Operation(summary = "Download document", description = "Stream document content with Range support")
+    public ResponseEntity<?> downloadContent(
+            @Parameter(description = "Claim ID") @PathVariable Long claimId,
+            @Parameter(description = "Document ID") @PathVariable Long documentId,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        ClaimDocumentService.DocumentContent content;
+        try {
+            content = claimDocumentService.getContent(claimId, documentId);
+        } catch (Exception e) {
+            log.error("Error downloading document: {}", documentId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to download document: " + e.getMessage()));
+        }
+
+        String etag = content.sha256() != null ? "\"" + content.sha256() + "\"" : null;
+        if (etag != null && new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return null;
+        }
+
+        long length = content.size();
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // Multi-range requests are answered with the whole document
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    if (start >= length || end < start) {
+                        throw new IllegalArgumentException("Range outside the document: " + rangeHeader);
+                    }
+                    response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).build();
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(content.mimeType());
+        response.setContentLengthLong(count);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.inline().filename(content.fileName()).build().toString());
+
+        try {
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                // Tomcat copies the file to the socket in the kernel once this handler returns
+                request.setAttribute(SENDFILE_FILENAME, content.path().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end + 1);
+            } else {
+                try (FileChannel file = FileChannel.open(content.path(), StandardOpenOption.READ)) {
+                    WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                    long position = start;
+                    while (position <= end) {
+                        position += file.transferTo(position, end + 1 - position, out);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Download of document {} aborted: {}", documentId, e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+package com.gvkss.patil.claim_service.controller;
+
+import com.gvkss.patil.claim_service.dto.ApiResponse;
+import com.gvkss.patil.claim_service.dto.IngestionJobResponse;
+import com.gvkss.patil.claim_service.service.ClaimIngestionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+/**
+ * Claim Ingestion Controller for clearinghouse claim files
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/claims/ingest")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Claim Ingestion", description = "Clearinghouse claim file ingestion APIs")
+public class ClaimIngestionController {
+
+    private final ClaimIngestionService claimIngestionService;
+
+    /**
+     * Upload an X12 837 claim file
+     */
+    @PostMapping(value = "/837", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Ingest 837 file", description = "Start an ingestion job for an X12 837 claim file")
+    public ResponseEntity<ApiResponse<IngestionJobResponse>> ingest837(
+            @Parameter(description = "X12 837 file") @RequestParam("file") MultipartFile file) {
+        try {
+            IngestionJobResponse job = claimIngestionService.submit837(file);
+            return ResponseEntity.accepted().body(ApiResponse.success(job, "Ingestion job started"));
+        } catch (Exception e) {
+            log.error("Error starting ingestion job", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to start ingestion job: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get ingestion job progress
+     */
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "Get ingestion job", description = "Progress, errors and throughput of an ingestion job")
+    public ResponseEntity<ApiResponse<IngestionJobResponse>> getJob(
+            @Parameter(description = "Job ID") @PathVariable String jobId) {
+        try {
+            IngestionJobResponse job = claimIngestionService.getJob(jobId);
+            return ResponseEntity.ok(ApiResponse.success(job, "Ingestion job retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving ingestion job: {}", jobId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve ingestion job: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get recent ingestion jobs
+     */
+    @GetMapping("/jobs")
+    @Operation(summary = "Get ingestion jobs", description = "Recent ingestion jobs, newest first")
+    public ResponseEntity<ApiResponse<List<IngestionJobResponse>>> getJobs() {
+        try {
+            List<IngestionJobResponse> jobs = claimIngestionService.getJobs();
+            return ResponseEntity.ok(ApiResponse.success(jobs, "Ingestion jobs retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving ingestion jobs", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve ingestion jobs: " + e.getMessage()));
+        }
+    }
+}
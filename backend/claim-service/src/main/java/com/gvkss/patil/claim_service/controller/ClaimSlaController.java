@@ -0,0 +1,65 @@
+package com.gvkss.patil.claim_service.controller;
+
+import com.gvkss.patil.claim_service.dto.ApiResponse;
+import com.gvkss.patil.claim_service.dto.SlaStatsResponse;
+import com.gvkss.patil.claim_service.service.ClaimSlaService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Claim SLA Controller for processing deadline timers
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/claims/sla")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Claim SLA", description = "Claim processing deadline APIs")
+public class ClaimSlaController {
+
+    private final ClaimSlaService claimSlaService;
+
+    /**
+     * Get the processing deadline of an open claim
+     */
+    @GetMapping("/claim/{claimId}")
+    @Operation(summary = "Get claim SLA deadline", description = "Pending processing deadline of an open claim")
+    public ResponseEntity<ApiResponse<LocalDateTime>> getDeadline(
+            @Parameter(description = "Claim ID") @PathVariable Long claimId) {
+        try {
+            LocalDateTime deadline = claimSlaService.getDeadline(claimId);
+            if (deadline == null) {
+                return ResponseEntity.badRequest().body(ApiResponse.error("No pending SLA deadline for claim: " + claimId));
+            }
+            return ResponseEntity.ok(ApiResponse.success(deadline, "SLA deadline retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving SLA deadline for claim: {}", claimId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve SLA deadline: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get SLA timer statistics
+     */
+    @GetMapping("/stats")
+    @Operation(summary = "Get SLA statistics", description = "Pending deadline timers and escalations so far")
+    public ResponseEntity<ApiResponse<SlaStatsResponse>> getStats() {
+        try {
+            SlaStatsResponse stats = claimSlaService.getStats();
+            return ResponseEntity.ok(ApiResponse.success(stats, "SLA statistics retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving SLA statistics", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve SLA statistics: " + e.getMessage()));
+        }
+    }
+}
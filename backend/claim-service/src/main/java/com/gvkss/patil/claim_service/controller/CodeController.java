@@ -0,0 +1,85 @@
+package com.gvkss.patil.claim_service.controller;
+
+import com.gvkss.patil.claim_service.codes.CodeSystem;
+import com.gvkss.patil.claim_service.dto.ApiResponse;
+import com.gvkss.patil.claim_service.dto.CodeDictionaryStatsResponse;
+import com.gvkss.patil.claim_service.dto.CodeResponse;
+import com.gvkss.patil.claim_service.service.CodeDictionaryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Code Controller for ICD-10-CM and CPT code lookup
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/codes")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Codes", description = "Diagnosis and procedure code lookup APIs")
+public class CodeController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final CodeDictionaryService codeDictionaryService;
+
+    /**
+     * Search codes by prefix
+     */
+    @GetMapping
+    @Operation(summary = "Search codes", description = "Autocomplete codes starting with the given prefix")
+    public ResponseEntity<ApiResponse<List<CodeResponse>>> searchCodes(
+            @Parameter(description = "Code system") @RequestParam(defaultValue = "ICD10") CodeSystem system,
+            @Parameter(description = "Code prefix") @RequestParam String q,
+            @Parameter(description = "Maximum results") @RequestParam(defaultValue = "20") int limit) {
+        try {
+            List<CodeResponse> codes = codeDictionaryService.search(system, q, Math.max(1, Math.min(limit, MAX_LIMIT)));
+            return ResponseEntity.ok(ApiResponse.success(codes, "Codes retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error searching {} codes: {}", system, q, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to search codes: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get a code by value
+     */
+    @GetMapping("/{system}/{code}")
+    @Operation(summary = "Get code", description = "Look up the description of a code")
+    public ResponseEntity<ApiResponse<CodeResponse>> getCode(
+            @Parameter(description = "Code system") @PathVariable CodeSystem system,
+            @Parameter(description = "Code") @PathVariable String code) {
+        try {
+            CodeResponse response = codeDictionaryService.getCode(system, code);
+            return ResponseEntity.ok(ApiResponse.success(response, "Code retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving {} code: {}", system, code, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve code: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get code dictionary statistics
+     */
+    @GetMapping("/stats")
+    @Operation(summary = "Get code dictionary statistics", description = "Entries, mapped size and load time per code system")
+    public ResponseEntity<ApiResponse<List<CodeDictionaryStatsResponse>>> getStats() {
+        try {
+            List<CodeDictionaryStatsResponse> stats = codeDictionaryService.getStats();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Code dictionary statistics retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving code dictionary statistics", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve code dictionary statistics: " + e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.gvkss.patil.claim_service.controller;
+
+import com.gvkss.patil.claim_service.dto.*;
+import com.gvkss.patil.claim_service.service.FeeScheduleService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Fee Schedule Controller for allowed amount pricing
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/fee-schedules")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Fee Schedules", description = "Fee schedule and claim pricing APIs")
+public class FeeScheduleController {
+
+    private final FeeScheduleService feeScheduleService;
+
+    /**
+     * Create a draft fee schedule version
+     */
+    @PostMapping
+    @Operation(summary = "Create fee schedule version", description = "Create a draft version from a list of rates")
+    public ResponseEntity<ApiResponse<FeeScheduleVersionResponse>> createVersion(
+            @Valid @RequestBody CreateFeeScheduleRequest request) {
+        try {
+            FeeScheduleVersionResponse version = feeScheduleService.createVersion(request);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(ApiResponse.success(version, "Fee schedule version created successfully"));
+        } catch (Exception e) {
+            log.error("Error creating fee schedule version", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to create fee schedule version: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get fee schedule versions
+     */
+    @GetMapping
+    @Operation(summary = "Get fee schedule versions", description = "All fee schedule versions, newest first")
+    public ResponseEntity<ApiResponse<List<FeeScheduleVersionResponse>>> getVersions() {
+        try {
+            List<FeeScheduleVersionResponse> versions = feeScheduleService.getVersions();
+            return ResponseEntity.ok(ApiResponse.success(versions, "Fee schedule versions retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving fee schedule versions", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve fee schedule versions: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Activate a fee schedule version
+     */
+    @PostMapping("/{versionId}/activate")
+    @Operation(summary = "Activate fee schedule version", description = "Make a version active and swap it into memory")
+    public ResponseEntity<ApiResponse<FeeScheduleVersionResponse>> activate(
+            @Parameter(description = "Version ID") @PathVariable Long versionId) {
+        try {
+            FeeScheduleVersionResponse version = feeScheduleService.activate(versionId);
+            return ResponseEntity.ok(ApiResponse.success(version, "Fee schedule version activated successfully"));
+        } catch (Exception e) {
+            log.error("Error activating fee schedule version: {}", versionId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to activate fee schedule version: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Reload the active fee schedule version
+     */
+    @PostMapping("/reload")
+    @Operation(summary = "Reload fee schedule", description = "Reload the active version from the database")
+    public ResponseEntity<ApiResponse<FeeScheduleVersionResponse>> reload() {
+        try {
+            FeeScheduleVersionResponse version = feeScheduleService.reload();
+            return ResponseEntity.ok(ApiResponse.success(version, "Fee schedule reloaded successfully"));
+        } catch (Exception e) {
+            log.error("Error reloading fee schedule", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to reload fee schedule: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Quote allowed amounts
+     */
+    @PostMapping("/quote")
+    @Operation(summary = "Quote allowed amounts", description = "Price lines against the active fee schedule")
+    public ResponseEntity<ApiResponse<PriceQuoteResponse>> quote(@Valid @RequestBody PriceQuoteRequest request) {
+        try {
+            PriceQuoteResponse quote = feeScheduleService.quote(request);
+            return ResponseEntity.ok(ApiResponse.success(quote, "Quote calculated successfully"));
+        } catch (Exception e) {
+            log.error("Error calculating quote", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to calculate quote: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Price all open claims without an allowed amount
+     */
+    @PostMapping("/price-claims")
+    @Operation(summary = "Price open claims", description = "Set the allowed amount of submitted and in-review claims")
+    public ResponseEntity<ApiResponse<PricingRunResponse>> priceOpenClaims() {
+        try {
+            PricingRunResponse run = feeScheduleService.priceOpenClaims();
+            return ResponseEntity.ok(ApiResponse.success(run, "Claims priced successfully"));
+        } catch (Exception e) {
+            log.error("Error pricing open claims", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to price claims: " + e.getMessage()));
+        }
+    }
+}
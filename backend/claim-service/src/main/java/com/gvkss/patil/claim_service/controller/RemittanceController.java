@@ -0,0 +1,71 @@
+package com.gvkss.patil.claim_service.controller;
+
+import com.gvkss.patil.claim_service.dto.ApiResponse;
+import com.gvkss.patil.claim_service.dto.RemittanceRunResponse;
+import com.gvkss.patil.claim_service.service.RemittanceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * Remittance Controller for X12 835 remittance advice files
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/claims/remittance")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Remittance", description = "X12 835 remittance advice APIs")
+public class RemittanceController {
+
+    private final RemittanceService remittanceService;
+
+    /**
+     * Generate 835 files for a payment cycle
+     */
+    @PostMapping("/835")
+    @Operation(summary = "Generate 835 remittance", description = "Generate one 835 file per provider for claims paid in the cycle")
+    public ResponseEntity<ApiResponse<RemittanceRunResponse>> generate(
+            @Parameter(description = "First paid date of the cycle") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate cycleStart,
+            @Parameter(description = "Last paid date of the cycle") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate cycleEnd) {
+        try {
+            RemittanceRunResponse run = remittanceService.generate(cycleStart, cycleEnd);
+            return ResponseEntity.ok(ApiResponse.success(run, "Remittance files generated successfully"));
+        } catch (Exception e) {
+            log.error("Error generating remittance for {} to {}", cycleStart, cycleEnd, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to generate remittance: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Download a generated 835 file
+     */
+    @GetMapping("/files/{fileName}")
+    @Operation(summary = "Download 835 file", description = "Download a generated remittance file")
+    public ResponseEntity<?> download(@Parameter(description = "File name") @PathVariable String fileName) {
+        try {
+            Resource file = remittanceService.getFile(fileName);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                    .body(file);
+        } catch (Exception e) {
+            log.error("Error downloading remittance file: {}", fileName, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to download remittance file: " + e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.gvkss.patil.claim_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Benefit Accumulator Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccumulatorResponse {
+    
+    private Long patientId;
+    private int planYear;
+    private BigDecimal deductibleLimit;
+    private BigDecimal deductibleMet;
+    private BigDecimal deductibleRemaining;
+    private BigDecimal outOfPocketLimit;
+    private BigDecimal outOfPocketMet;
+    private BigDecimal outOfPocketRemaining;
+    private LocalDateTime updatedAt;
+}
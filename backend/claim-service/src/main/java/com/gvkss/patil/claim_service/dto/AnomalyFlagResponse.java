@@ -0,0 +1,34 @@
+package com.gvkss.patil.claim_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Claim Anomaly Flag Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnomalyFlagResponse {
+    
+    private Long id;
+    private Long claimId;
+    private String claimNumber;
+    private Long providerId;
+    private String procedureCode;
+    private String flagType;
+    private double score;
+    private String detail;
+    private boolean reviewed;
+    private LocalDateTime reviewedAt;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,31 @@
+package com.gvkss.patil.claim_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Claim Anomaly Scorer Statistics Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnomalyStatsResponse {
+    
+    private boolean enabled;
+    private long observations;
+    private int proceduresTracked;
+    private int providersTracked;
+    private long claimsScored;
+    private long flagsRaised;
+    private double averageScoringMicros;
+    private LocalDateTime lastSnapshotAt;
+}
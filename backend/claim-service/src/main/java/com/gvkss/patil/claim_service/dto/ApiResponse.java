@@ -0,0 +1,85 @@
+package com.gvkss.patil.claim_service.dto;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Typed response envelope for claim APIs.
+ * Replaces the per-request HashMap envelope; serialized by {@link ApiResponseSerializer}
+ * which writes the fixed keys as pre-encoded bytes and streams {@code data} directly.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Getter
+@JsonSerialize(using = ApiResponseSerializer.class)
+public final class ApiResponse<T> {
+
+    /**
+     * Pre-encoded success messages. Success messages are compile-time literals,
+     * so this cache stays as small as the number of endpoints.
+     */
+    private static final Map<String, SerializedString> ENCODED_MESSAGES = new ConcurrentHashMap<>();
+
+    private final boolean success;
+    private final String message;
+    private final SerializableString encodedMessage;
+    private final T data;
+    private final boolean hasData;
+    private final Long totalElements;
+    private final Integer totalPages;
+    private final Integer currentPage;
+
+    private ApiResponse(boolean success, String message, SerializableString encodedMessage, T data, boolean hasData,
+                        Long totalElements, Integer totalPages, Integer currentPage) {
+        this.success = success;
+        this.message = message;
+        this.encodedMessage = encodedMessage;
+        this.data = data;
+        this.hasData = hasData;
+        this.totalElements = totalElements;
+        this.totalPages = totalPages;
+        this.currentPage = currentPage;
+    }
+
+    /**
+     * Create success response with data; a null data is written as "data": null
+     */
+    public static <T> ApiResponse<T> success(T data, String message) {
+        return new ApiResponse<>(true, message, encode(message), data, true, null, null, null);
+    }
+
+    /**
+     * Create success response without a data field
+     */
+    public static <T> ApiResponse<T> success(String message) {
+        return new ApiResponse<>(true, message, encode(message), null, false, null, null, null);
+    }
+
+    /**
+     * Create success response from a page, including pagination fields
+     */
+    public static <T> ApiResponse<List<T>> page(Page<T> page, String message) {
+        return new ApiResponse<>(true, message, encode(message), page.getContent(), true,
+                page.getTotalElements(), page.getTotalPages(), page.getNumber());
+    }
+
+    /**
+     * Create error response
+     */
+    public static <T> ApiResponse<T> error(String message) {
+        return new ApiResponse<>(false, message, null, null, false, null, null, null);
+    }
+
+    private static SerializedString encode(String message) {
+        return ENCODED_MESSAGES.computeIfAbsent(message, SerializedString::new);
+    }
+}
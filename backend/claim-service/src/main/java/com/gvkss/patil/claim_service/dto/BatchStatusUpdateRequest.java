@@ -0,0 +1,28 @@
+package com.gvkss.patil.claim_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Batch Claim Status Update Request DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchStatusUpdateRequest {
+    
+    @NotEmpty(message = "At least one transition is required")
+    @Valid
+    private List<StatusTransitionRequest> transitions;
+}
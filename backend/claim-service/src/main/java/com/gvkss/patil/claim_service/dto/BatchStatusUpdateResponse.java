@@ -0,0 +1,29 @@
+package com.gvkss.patil.claim_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Batch Claim Status Update Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchStatusUpdateResponse {
+    
+    private int requested;
+    private int updated;
+    private int notFound;
+    private int failed;
+    private long elapsedMillis;
+    private List<StatusTransitionResult> results;
+}
@@ -0,0 +1,38 @@
+package com.gvkss.patil.claim_service.dto;
+
+import com.gvkss.patil.claim_service.entity.ClaimDocument;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Claim Document Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaimDocumentResponse {
+    
+    private Long id;
+    private Long claimId;
+    private ClaimDocument.DocumentType documentType;
+    private String fileName;
+    private Long fileSize;
+    private String mimeType;
+    private String contentSha256;
+    private LocalDateTime uploadedAt;
+    private Long uploadedBy;
+    private Boolean isVerified;
+    private String verificationNotes;
+    
+    // Additional fields for UI
+    private String documentTypeDisplayName;
+}
@@ -32,6 +32,7 @@ public class ClaimResponse {
     private InsuranceClaim.ClaimStatus claimStatus;
     private BigDecimal totalAmount;
     private BigDecimal approvedAmount;
+    private BigDecimal allowedAmount;
     private BigDecimal deductibleAmount;
     private BigDecimal copayAmount;
     private BigDecimal coinsuranceAmount;
@@ -39,6 +40,8 @@ public class ClaimResponse {
     private String serviceDescription;
     private String diagnosisCode;
     private String procedureCode;
+    private String diagnosisDescription;
+    private String procedureDescription;
     private Boolean isEmergency;
     private InsuranceClaim.ClaimPriority priority;
     private LocalDateTime submittedAt;
@@ -0,0 +1,64 @@
+package com.gvkss.patil.claim_service.dto;
+
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Claim Summary Projection
+ *
+ * Closed projection used by the summary list endpoints. Only these columns are selected,
+ * so the TEXT columns (service description, rejection reason, notes) are never read and
+ * no managed entities are created.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public interface ClaimSummary {
+
+    Long getId();
+
+    String getClaimNumber();
+
+    Long getPatientId();
+
+    Long getDoctorId();
+
+    Long getProviderId();
+
+    InsuranceClaim.ClaimType getClaimType();
+
+    InsuranceClaim.ClaimStatus getClaimStatus();
+
+    BigDecimal getTotalAmount();
+
+    BigDecimal getApprovedAmount();
+
+    LocalDate getTreatmentDate();
+
+    String getDiagnosisCode();
+
+    String getProcedureCode();
+
+    Boolean getIsEmergency();
+
+    InsuranceClaim.ClaimPriority getPriority();
+
+    LocalDateTime getSubmittedAt();
+
+    // Additional fields for UI (not selected from the database)
+    default String getStatusDisplayName() {
+        return getClaimStatus() != null ? getClaimStatus().getDisplayName() : null;
+    }
+
+    default String getTypeDisplayName() {
+        return getClaimType() != null ? getClaimType().getDisplayName() : null;
+    }
+
+    default String getPriorityDisplayName() {
+        return getPriority() != null ? getPriority().getDisplayName() : null;
+    }
+}
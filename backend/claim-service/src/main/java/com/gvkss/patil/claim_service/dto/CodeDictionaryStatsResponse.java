@@ -0,0 +1,29 @@
+package com.gvkss.patil.claim_service.dto;
+
+import com.gvkss.patil.claim_service.codes.CodeSystem;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Code Dictionary Statistics Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CodeDictionaryStatsResponse {
+    
+    private CodeSystem system;
+    private String source;
+    private boolean loaded;
+    private int entries;
+    private long mappedBytes;
+    private long loadMillis;
+    private boolean indexReused;
+}
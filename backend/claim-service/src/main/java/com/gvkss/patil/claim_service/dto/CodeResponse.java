@@ -0,0 +1,25 @@
+package com.gvkss.patil.claim_service.dto;
+
+import com.gvkss.patil.claim_service.codes.CodeSystem;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Code Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CodeResponse {
+    
+    private CodeSystem system;
+    private String code;
+    private String description;
+}
@@ -0,0 +1,37 @@
+package com.gvkss.patil.claim_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Create Fee Schedule Request DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateFeeScheduleRequest {
+    
+    @NotBlank(message = "Name is required")
+    @Size(max = 100, message = "Name cannot exceed 100 characters")
+    private String name;
+    
+    @Size(max = 100, message = "Created by cannot exceed 100 characters")
+    private String createdBy;
+    
+    @NotEmpty(message = "At least one entry is required")
+    @Valid
+    private List<FeeScheduleEntryRequest> entries;
+}
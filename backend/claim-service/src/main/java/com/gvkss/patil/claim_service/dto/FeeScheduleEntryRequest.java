@@ -0,0 +1,43 @@
+package com.gvkss.patil.claim_service.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Fee Schedule Entry Request DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeScheduleEntryRequest {
+    
+    /**
+     * Contracted provider; null for the default rate
+     */
+    private Long providerId;
+    
+    @NotBlank(message = "Procedure code is required")
+    @Size(max = 20, message = "Procedure code cannot exceed 20 characters")
+    private String procedureCode;
+    
+    @NotNull(message = "Effective from date is required")
+    private LocalDate effectiveFrom;
+    
+    private LocalDate effectiveTo;
+    
+    @NotNull(message = "Allowed amount is required")
+    @DecimalMin(value = "0.00", message = "Allowed amount cannot be negative")
+    @Digits(integer = 8, fraction = 2, message = "Allowed amount must have at most 8 integer digits and 2 decimal places")
+    private BigDecimal allowedAmount;
+}
@@ -0,0 +1,33 @@
+package com.gvkss.patil.claim_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fee Schedule Version Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeScheduleVersionResponse {
+    
+    private Long id;
+    private String name;
+    private String status;
+    private int entryCount;
+    private String createdBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime activatedAt;
+    
+    // Whether this version is the one currently priced in memory
+    private boolean loaded;
+}
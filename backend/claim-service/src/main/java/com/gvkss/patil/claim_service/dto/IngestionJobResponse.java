@@ -0,0 +1,50 @@
+package com.gvkss.patil.claim_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Claim File Ingestion Job Response DTO
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionJobResponse {
+
+    private String jobId;
+    private String fileName;
+    private JobStatus status;
+    private long fileSize;
+    private long bytesRead;
+    private int progressPercent;
+    private long segmentsRead;
+    private long claimsParsed;
+    private long claimsInserted;
+    private long claimsRejected;
+    private long claimsFailed;
+    private double claimsPerSecond;
+    private double bytesPerSecond;
+    private long errorCount;
+    private List<String> errors;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        COMPLETED_WITH_ERRORS,
+        FAILED
+    }
+}
@@ -0,0 +1,187 @@
+package com.gvkss.patil.claim_service.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.gvkss.patil.claim_service.codes.CodeSystem;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import com.gvkss.patil.claim_service.service.CodeDictionaryService;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.function.Function;
+
+/**
+ * Direct entity to JSON writer for claim list endpoints.
+ * Produces the same document as {@link ClaimResponse} without allocating the DTO or its builder;
+ * field names, enum names and display names are written from pre-encoded strings.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@JsonComponent
+public class InsuranceClaimSerializer extends StdSerializer<InsuranceClaim> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString CLAIM_NUMBER = new SerializedString("claimNumber");
+    private static final SerializedString PATIENT_ID = new SerializedString("patientId");
+    private static final SerializedString DOCTOR_ID = new SerializedString("doctorId");
+    private static final SerializedString PROVIDER_ID = new SerializedString("providerId");
+    private static final SerializedString CLAIM_TYPE = new SerializedString("claimType");
+    private static final SerializedString CLAIM_STATUS = new SerializedString("claimStatus");
+    private static final SerializedString TOTAL_AMOUNT = new SerializedString("totalAmount");
+    private static final SerializedString APPROVED_AMOUNT = new SerializedString("approvedAmount");
+    private static final SerializedString ALLOWED_AMOUNT = new SerializedString("allowedAmount");
+    private static final SerializedString DEDUCTIBLE_AMOUNT = new SerializedString("deductibleAmount");
+    private static final SerializedString COPAY_AMOUNT = new SerializedString("copayAmount");
+    private static final SerializedString COINSURANCE_AMOUNT = new SerializedString("coinsuranceAmount");
+    private static final SerializedString TREATMENT_DATE = new SerializedString("treatmentDate");
+    private static final SerializedString SERVICE_DESCRIPTION = new SerializedString("serviceDescription");
+    private static final SerializedString DIAGNOSIS_CODE = new SerializedString("diagnosisCode");
+    private static final SerializedString PROCEDURE_CODE = new SerializedString("procedureCode");
+    private static final SerializedString DIAGNOSIS_DESCRIPTION = new SerializedString("diagnosisDescription");
+    private static final SerializedString PROCEDURE_DESCRIPTION = new SerializedString("procedureDescription");
+    private static final SerializedString IS_EMERGENCY = new SerializedString("isEmergency");
+    private static final SerializedString PRIORITY = new SerializedString("priority");
+    private static final SerializedString SUBMITTED_AT = new SerializedString("submittedAt");
+    private static final SerializedString REVIEWED_AT = new SerializedString("reviewedAt");
+    private static final SerializedString APPROVED_AT = new SerializedString("approvedAt");
+    private static final SerializedString PAID_AT = new SerializedString("paidAt");
+    private static final SerializedString REJECTION_REASON = new SerializedString("rejectionReason");
+    private static final SerializedString NOTES = new SerializedString("notes");
+    private static final SerializedString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializedString UPDATED_AT = new SerializedString("updatedAt");
+    private static final SerializedString PATIENT_NAME = new SerializedString("patientName");
+    private static final SerializedString DOCTOR_NAME = new SerializedString("doctorName");
+    private static final SerializedString PROVIDER_NAME = new SerializedString("providerName");
+    private static final SerializedString STATUS_DISPLAY_NAME = new SerializedString("statusDisplayName");
+    private static final SerializedString TYPE_DISPLAY_NAME = new SerializedString("typeDisplayName");
+    private static final SerializedString PRIORITY_DISPLAY_NAME = new SerializedString("priorityDisplayName");
+
+    private static final EnumMap<InsuranceClaim.ClaimType, SerializedString> TYPE_NAMES =
+            encode(InsuranceClaim.ClaimType.class, Enum::name);
+    private static final EnumMap<InsuranceClaim.ClaimType, SerializedString> TYPE_DISPLAY_NAMES =
+            encode(InsuranceClaim.ClaimType.class, InsuranceClaim.ClaimType::getDisplayName);
+    private static final EnumMap<InsuranceClaim.ClaimStatus, SerializedString> STATUS_NAMES =
+            encode(InsuranceClaim.ClaimStatus.class, Enum::name);
+    private static final EnumMap<InsuranceClaim.ClaimStatus, SerializedString> STATUS_DISPLAY_NAMES =
+            encode(InsuranceClaim.ClaimStatus.class, InsuranceClaim.ClaimStatus::getDisplayName);
+    private static final EnumMap<InsuranceClaim.ClaimPriority, SerializedString> PRIORITY_NAMES =
+            encode(InsuranceClaim.ClaimPriority.class, Enum::name);
+    private static final EnumMap<InsuranceClaim.ClaimPriority, SerializedString> PRIORITY_DISPLAY_NAMES =
+            encode(InsuranceClaim.ClaimPriority.class, InsuranceClaim.ClaimPriority::getDisplayName);
+
+    private final CodeDictionaryService codeDictionaryService;
+
+    public InsuranceClaimSerializer(CodeDictionaryService codeDictionaryService) {
+        super(InsuranceClaim.class);
+        this.codeDictionaryService = codeDictionaryService;
+    }
+
+    @Override
+    public void serialize(InsuranceClaim claim, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(claim);
+
+        writeNumber(gen, ID, claim.getId());
+        writeString(gen, CLAIM_NUMBER, claim.getClaimNumber());
+        writeNumber(gen, PATIENT_ID, claim.getPatientId());
+        writeNumber(gen, DOCTOR_ID, claim.getDoctorId());
+        writeNumber(gen, PROVIDER_ID, claim.getProviderId());
+        writeEncoded(gen, CLAIM_TYPE, TYPE_NAMES, claim.getClaimType());
+        writeEncoded(gen, CLAIM_STATUS, STATUS_NAMES, claim.getClaimStatus());
+        writeDecimal(gen, TOTAL_AMOUNT, claim.getTotalAmount());
+        writeDecimal(gen, APPROVED_AMOUNT, claim.getApprovedAmount());
+        writeDecimal(gen, ALLOWED_AMOUNT, claim.getAllowedAmount());
+        writeDecimal(gen, DEDUCTIBLE_AMOUNT, claim.getDeductibleAmount());
+        writeDecimal(gen, COPAY_AMOUNT, claim.getCopayAmount());
+        writeDecimal(gen, COINSURANCE_AMOUNT, claim.getCoinsuranceAmount());
+        writeValue(gen, provider, TREATMENT_DATE, claim.getTreatmentDate());
+        writeString(gen, SERVICE_DESCRIPTION, claim.getServiceDescription());
+        writeString(gen, DIAGNOSIS_CODE, claim.getDiagnosisCode());
+        writeString(gen, PROCEDURE_CODE, claim.getProcedureCode());
+        writeString(gen, DIAGNOSIS_DESCRIPTION, codeDictionaryService.describe(CodeSystem.ICD10, claim.getDiagnosisCode()));
+        writeString(gen, PROCEDURE_DESCRIPTION, codeDictionaryService.describe(CodeSystem.CPT, claim.getProcedureCode()));
+        gen.writeFieldName(IS_EMERGENCY);
+        if (claim.getIsEmergency() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeBoolean(claim.getIsEmergency());
+        }
+        writeEncoded(gen, PRIORITY, PRIORITY_NAMES, claim.getPriority());
+        writeValue(gen, provider, SUBMITTED_AT, claim.getSubmittedAt());
+        writeValue(gen, provider, REVIEWED_AT, claim.getReviewedAt());
+        writeValue(gen, provider, APPROVED_AT, claim.getApprovedAt());
+        writeValue(gen, provider, PAID_AT, claim.getPaidAt());
+        writeString(gen, REJECTION_REASON, claim.getRejectionReason());
+        writeString(gen, NOTES, claim.getNotes());
+        writeValue(gen, provider, CREATED_AT, claim.getCreatedAt());
+        writeValue(gen, provider, UPDATED_AT, claim.getUpdatedAt());
+
+        // Additional fields for UI, matching ClaimResponse
+        gen.writeFieldName(PATIENT_NAME);
+        gen.writeNull();
+        gen.writeFieldName(DOCTOR_NAME);
+        gen.writeNull();
+        gen.writeFieldName(PROVIDER_NAME);
+        gen.writeNull();
+        writeEncoded(gen, STATUS_DISPLAY_NAME, STATUS_DISPLAY_NAMES, claim.getClaimStatus());
+        writeEncoded(gen, TYPE_DISPLAY_NAME, TYPE_DISPLAY_NAMES, claim.getClaimType());
+        writeEncoded(gen, PRIORITY_DISPLAY_NAME, PRIORITY_DISPLAY_NAMES, claim.getPriority());
+
+        gen.writeEndObject();
+    }
+
+    private static void writeNumber(JsonGenerator gen, SerializedString name, Long value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    private static void writeDecimal(JsonGenerator gen, SerializedString name, BigDecimal value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    private static void writeString(JsonGenerator gen, SerializedString name, String value) throws IOException {
+        gen.writeFieldName(name);
+        gen.writeString(value);
+    }
+
+    private static <E extends Enum<E>> void writeEncoded(JsonGenerator gen, SerializedString name,
+                                                         EnumMap<E, SerializedString> values, E value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(values.get(value));
+        }
+    }
+
+    /**
+     * Dates go through the configured serializers so the output follows the application's Jackson settings
+     */
+    private static void writeValue(JsonGenerator gen, SerializerProvider provider, SerializedString name,
+                                   Object value) throws IOException {
+        gen.writeFieldName(name);
+        provider.defaultSerializeValue(value, gen);
+    }
+
+    private static <E extends Enum<E>> EnumMap<E, SerializedString> encode(Class<E> type, Function<E, String> text) {
+        EnumMap<E, SerializedString> encoded = new EnumMap<>(type);
+        for (E constant : type.getEnumConstants()) {
+            encoded.put(constant, new SerializedString(text.apply(constant)));
+        }
+        return encoded;
+    }
+}
@@ -0,0 +1,30 @@
+package com.gvkss.patil.claim_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Price Quote Request DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceQuoteRequest {
+    
+    @NotEmpty(message = "At least one line is required")
+    @Size(max = 10000, message = "A quote cannot exceed 10000 lines")
+    @Valid
+    private List<PricingLineRequest> lines;
+}
@@ -0,0 +1,35 @@
+package com.gvkss.patil.claim_service.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Pricing Line Request DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricingLineRequest {
+    
+    private Long providerId;
+    
+    @NotBlank(message = "Procedure code is required")
+    private String procedureCode;
+    
+    @NotNull(message = "Service date is required")
+    private LocalDate serviceDate;
+    
+    @DecimalMin(value = "0.00", message = "Billed amount cannot be negative")
+    private BigDecimal billedAmount;
+}
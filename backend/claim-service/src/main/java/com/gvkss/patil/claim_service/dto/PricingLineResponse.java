@@ -0,0 +1,31 @@
+package com.gvkss.patil.claim_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Pricing Line Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricingLineResponse {
+    
+    private Long providerId;
+    private String procedureCode;
+    private LocalDate serviceDate;
+    private BigDecimal billedAmount;
+    private BigDecimal scheduledAmount;
+    private BigDecimal allowedAmount;
+    private boolean priced;
+}
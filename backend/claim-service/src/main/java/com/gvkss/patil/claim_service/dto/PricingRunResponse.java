@@ -0,0 +1,27 @@
+package com.gvkss.patil.claim_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Pricing Run Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricingRunResponse {
+    
+    private long versionId;
+    private long claimsScanned;
+    private long claimsPriced;
+    private long claimsUnscheduled;
+    private long elapsedMillis;
+    private long claimsPerSecond;
+}
@@ -0,0 +1,28 @@
+package com.gvkss.patil.claim_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Remittance File Response DTO
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RemittanceFileResponse {
+
+    private Long providerId;
+    private String fileName;
+    private long claimCount;
+    private BigDecimal totalPaid;
+    private long sizeBytes;
+}
@@ -0,0 +1,32 @@
+package com.gvkss.patil.claim_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Remittance Run Response DTO
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RemittanceRunResponse {
+
+    private LocalDate cycleStart;
+    private LocalDate cycleEnd;
+    private long totalClaims;
+    private BigDecimal totalPaid;
+    private List<RemittanceFileResponse> files;
+    private long elapsedMillis;
+    private double claimsPerSecond;
+}
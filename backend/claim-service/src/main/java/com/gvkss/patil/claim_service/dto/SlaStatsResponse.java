@@ -0,0 +1,28 @@
+package com.gvkss.patil.claim_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Claim SLA Statistics Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlaStatsResponse {
+    
+    private boolean enabled;
+    private int processingTimeDays;
+    private int emergencyProcessingTimeDays;
+    private int pendingTimers;
+    private long tickMillis;
+    private long escalations;
+    private long notificationsFailed;
+}
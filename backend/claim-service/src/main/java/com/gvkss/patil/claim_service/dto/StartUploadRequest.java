@@ -0,0 +1,41 @@
+package com.gvkss.patil.claim_service.dto;
+
+import com.gvkss.patil.claim_service.entity.ClaimDocument;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Start Document Upload Request DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StartUploadRequest {
+    
+    @NotBlank(message = "File name is required")
+    @Size(max = 200, message = "File name cannot exceed 200 characters")
+    private String fileName;
+    
+    @NotNull(message = "Document type is required")
+    private ClaimDocument.DocumentType documentType;
+    
+    @Size(max = 100, message = "MIME type cannot exceed 100 characters")
+    private String mimeType;
+    
+    @NotNull(message = "Total size is required")
+    @Min(value = 1, message = "Total size must be greater than 0")
+    private Long totalSize;
+    
+    private Long uploadedBy;
+}
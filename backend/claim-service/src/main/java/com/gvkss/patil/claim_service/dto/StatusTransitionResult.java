@@ -0,0 +1,33 @@
+package com.gvkss.patil.claim_service.dto;
+
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Claim Status Transition Result DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatusTransitionResult {
+    
+    private Long claimId;
+    private InsuranceClaim.ClaimStatus claimStatus;
+    private Outcome outcome;
+    private String message;
+    
+    public enum Outcome {
+        UPDATED,
+        NOT_FOUND,
+        DUPLICATE,
+        FAILED
+    }
+}
@@ -0,0 +1,36 @@
+package com.gvkss.patil.claim_service.dto;
+
+import com.gvkss.patil.claim_service.entity.ClaimDocument;
+import com.gvkss.patil.claim_service.entity.DocumentUploadSession;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Document Upload Session Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionResponse {
+    
+    private String uploadId;
+    private Long claimId;
+    private String fileName;
+    private ClaimDocument.DocumentType documentType;
+    private long totalSize;
+    private long receivedBytes;
+    private DocumentUploadSession.UploadStatus status;
+    private LocalDateTime expiresAt;
+    
+    // Set once the upload is complete
+    private ClaimDocumentResponse document;
+}
@@ -0,0 +1,84 @@
+package com.gvkss.patil.claim_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Claim Document Entity
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Entity
+@Table(name = "claim_documents")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaimDocument {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "claim_id", nullable = false)
+    private Long claimId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", nullable = false, length = 50)
+    private DocumentType documentType;
+    
+    @Column(name = "file_name", nullable = false, length = 200)
+    private String fileName;
+    
+    // Relative path of the shared content-addressed object
+    @Column(name = "file_path", nullable = false, length = 500)
+    private String filePath;
+    
+    @Column(name = "file_size")
+    private Long fileSize;
+    
+    @Column(name = "mime_type", length = 100)
+    private String mimeType;
+    
+    @Column(name = "content_sha256", length = 64)
+    private String contentSha256;
+    
+    @CreationTimestamp
+    @Column(name = "uploaded_at", nullable = false, updatable = false)
+    private LocalDateTime uploadedAt;
+    
+    @Column(name = "uploaded_by")
+    private Long uploadedBy;
+    
+    @Column(name = "is_verified", nullable = false)
+    private Boolean isVerified;
+    
+    @Column(name = "verification_notes", columnDefinition = "TEXT")
+    private String verificationNotes;
+    
+    // Enums
+    public enum DocumentType {
+        RECEIPT("Receipt"),
+        PRESCRIPTION("Prescription"),
+        LAB_RESULT("Lab Result"),
+        MEDICAL_REPORT("Medical Report");
+        
+        private final String displayName;
+        
+        DocumentType(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.gvkss.patil.claim_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Document Upload Session Entity
+ * 
+ * Tracks a chunked upload so it can be resumed from {@code receivedBytes} after a failure.
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Entity
+@Table(name = "document_upload_sessions")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentUploadSession {
+    
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+    
+    @Column(name = "claim_id", nullable = false)
+    private Long claimId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", nullable = false, length = 50)
+    private ClaimDocument.DocumentType documentType;
+    
+    @Column(name = "file_name", nullable = false, length = 200)
+    private String fileName;
+    
+    @Column(name = "mime_type", length = 100)
+    private String mimeType;
+    
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+    
+    @Column(name = "received_bytes", nullable = false)
+    private Long receivedBytes;
+    
+    @Column(name = "uploaded_by")
+    private Long uploadedBy;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private UploadStatus status;
+    
+    @Column(name = "document_id")
+    private Long documentId;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    
+    // Enums
+    public enum UploadStatus {
+        IN_PROGRESS,
+        COMPLETED
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -21,6 +22,9 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "insurance_claims")
+// Only changed columns are written, so saving an entity loaded before an SLA escalation keeps
+// the priority that ClaimSlaService set in SQL
+@DynamicUpdate
 @Data
 @Builder
 @NoArgsConstructor
@@ -57,6 +61,9 @@ public class InsuranceClaim {
     @Column(name = "approved_amount", precision = 10, scale = 2)
     private BigDecimal approvedAmount;
     
+    @Column(name = "allowed_amount", precision = 10, scale = 2)
+    private BigDecimal allowedAmount;
+    
     @Column(name = "deductible_amount", precision = 10, scale = 2)
     private BigDecimal deductibleAmount = BigDecimal.ZERO;
     
@@ -111,16 +118,70 @@ public class InsuranceClaim {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
     
+    // Partition key maintained by the database; new claims default to HOT and are moved by archival
+    @Enumerated(EnumType.STRING)
+    @Column(name = "storage_tier", nullable = false, length = 10, insertable = false, updatable = false)
+    private StorageTier storageTier;
+    
     // Enums
     public enum ClaimType {
-        MEDICAL, DENTAL, VISION, PHARMACY, LABORATORY, IMAGING, EMERGENCY
+        MEDICAL("Medical"),
+        DENTAL("Dental"),
+        VISION("Vision"),
+        PHARMACY("Pharmacy"),
+        LABORATORY("Laboratory"),
+        IMAGING("Imaging"),
+        EMERGENCY("Emergency");
+        
+        private final String displayName;
+        
+        ClaimType(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
     }
     
     public enum ClaimStatus {
-        SUBMITTED, UNDER_REVIEW, APPROVED, REJECTED, PAID, CANCELLED
+        SUBMITTED("Submitted"),
+        UNDER_REVIEW("Under Review"),
+        APPROVED("Approved"),
+        REJECTED("Rejected"),
+        PAID("Paid"),
+        CANCELLED("Cancelled");
+        
+        private final String displayName;
+        
+        ClaimStatus(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+    
+    public enum StorageTier {
+        HOT,
+        ARCHIVE
     }
     
     public enum ClaimPriority {
-        LOW, NORMAL, HIGH, URGENT
+        LOW("Low"),
+        NORMAL("Normal"),
+        HIGH("High"),
+        URGENT("Urgent");
+        
+        private final String displayName;
+        
+        ClaimPriority(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
     }
 }
@@ -0,0 +1,208 @@
+package com.gvkss.patil.claim_service.pricing;
+
+import com.gvkss.patil.claim_service.codes.CodeSystem;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fee Schedule
+ *
+ * Immutable in-memory snapshot of one fee schedule version. Procedure codes are interned to small
+ * integers once; (provider, code) pairs map through a {@link LongIntHashMap} to a run of date
+ * ranges held in flat primitive arrays, so pricing a line is one string hash lookup, one primitive
+ * probe and a scan of a few ranges. Snapshots are swapped whole when a new version is activated.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class FeeSchedule {
+
+    /**
+     * Returned when neither a contracted nor a default rate covers the line
+     */
+    public static final long NOT_SCHEDULED = -1L;
+
+    /**
+     * Provider key of the default rates
+     */
+    private static final long DEFAULT_PROVIDER = 0L;
+    private static final int OPEN_ENDED = Integer.MAX_VALUE;
+
+    private final long versionId;
+    private final Map<String, Integer> codeIds;
+    private final LongIntHashMap rateGroups;
+    private final int[] groupStarts;
+    private final int[] fromDays;
+    private final int[] toDays;
+    private final long[] amountCents;
+
+    private FeeSchedule(long versionId, Map<String, Integer> codeIds, LongIntHashMap rateGroups, int[] groupStarts,
+                        int[] fromDays, int[] toDays, long[] amountCents) {
+        this.versionId = versionId;
+        this.codeIds = codeIds;
+        this.rateGroups = rateGroups;
+        this.groupStarts = groupStarts;
+        this.fromDays = fromDays;
+        this.toDays = toDays;
+        this.amountCents = amountCents;
+    }
+
+    /**
+     * Schedule with no rates, used until a version is activated
+     */
+    public static FeeSchedule empty() {
+        return new Builder(0L).build();
+    }
+
+    public static Builder builder(long versionId) {
+        return new Builder(versionId);
+    }
+
+    public long getVersionId() {
+        return versionId;
+    }
+
+    /**
+     * Number of rate entries
+     */
+    public int size() {
+        return amountCents.length;
+    }
+
+    /**
+     * Interned id of a procedure code, or -1 when no rate uses it
+     */
+    public int codeId(String procedureCode) {
+        if (procedureCode == null) {
+            return -1;
+        }
+        Integer id = codeIds.get(CodeSystem.CPT.normalize(procedureCode));
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Scheduled rate in cents; the provider's contracted rate wins over the default rate
+     */
+    public long rateCents(Long providerId, String procedureCode, LocalDate serviceDate) {
+        return rateCents(providerId != null ? providerId : DEFAULT_PROVIDER, codeId(procedureCode),
+                (int) serviceDate.toEpochDay());
+    }
+
+    /**
+     * Scheduled rate in cents for an interned code id
+     */
+    public long rateCents(long providerId, int codeId, int epochDay) {
+        if (codeId < 0) {
+            return NOT_SCHEDULED;
+        }
+        if (providerId > DEFAULT_PROVIDER && providerId <= Integer.MAX_VALUE) {
+            long contracted = find(key(providerId, codeId), epochDay);
+            if (contracted != NOT_SCHEDULED) {
+                return contracted;
+            }
+        }
+        return find(key(DEFAULT_PROVIDER, codeId), epochDay);
+    }
+
+    /**
+     * Allowed amount in cents: the lesser of the billed amount and the scheduled rate
+     */
+    public long allowedCents(long providerId, int codeId, int epochDay, long billedCents) {
+        long rate = rateCents(providerId, codeId, epochDay);
+        return rate == NOT_SCHEDULED ? NOT_SCHEDULED : Math.min(rate, billedCents);
+    }
+
+    private long find(long key, int epochDay) {
+        int group = rateGroups.get(key, -1);
+        if (group < 0) {
+            return NOT_SCHEDULED;
+        }
+        // Ranges are ordered by start date; the latest range that covers the day wins
+        for (int i = groupStarts[group + 1] - 1; i >= groupStarts[group]; i--) {
+            if (fromDays[i] <= epochDay && epochDay <= toDays[i]) {
+                return amountCents[i];
+            }
+        }
+        return NOT_SCHEDULED;
+    }
+
+    private static long key(long providerId, int codeId) {
+        return providerId << 32 | codeId;
+    }
+
+    /**
+     * Collects rate entries and builds the snapshot
+     */
+    public static final class Builder {
+
+        private final long versionId;
+        private final Map<String, Integer> codeIds = new HashMap<>();
+        private long[] keys = new long[1024];
+        private int[] fromDays = new int[1024];
+        private int[] toDays = new int[1024];
+        private long[] amountCents = new long[1024];
+        private int count;
+
+        private Builder(long versionId) {
+            this.versionId = versionId;
+        }
+
+        /**
+         * Add a rate; a null provider is the default rate and a null end date is open-ended
+         */
+        public Builder add(Long providerId, String procedureCode, LocalDate effectiveFrom, LocalDate effectiveTo,
+                           long cents) {
+            long provider = providerId != null ? providerId : DEFAULT_PROVIDER;
+            if (provider < DEFAULT_PROVIDER || provider > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Provider id out of range: " + providerId);
+            }
+            Integer codeId = codeIds.computeIfAbsent(CodeSystem.CPT.normalize(procedureCode), code -> codeIds.size());
+            if (count == keys.length) {
+                int capacity = count * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                fromDays = Arrays.copyOf(fromDays, capacity);
+                toDays = Arrays.copyOf(toDays, capacity);
+                amountCents = Arrays.copyOf(amountCents, capacity);
+            }
+            keys[count] = key(provider, codeId);
+            fromDays[count] = (int) effectiveFrom.toEpochDay();
+            toDays[count] = effectiveTo != null ? (int) effectiveTo.toEpochDay() : OPEN_ENDED;
+            amountCents[count] = cents;
+            count++;
+            return this;
+        }
+
+        public FeeSchedule build() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> keys[a] != keys[b]
+                    ? Long.compare(keys[a], keys[b]) : Integer.compare(fromDays[a], fromDays[b]));
+
+            int[] sortedFrom = new int[count];
+            int[] sortedTo = new int[count];
+            long[] sortedCents = new long[count];
+            int[] starts = new int[count + 1];
+            LongIntHashMap groups = new LongIntHashMap(count);
+            int groupCount = 0;
+            for (int i = 0; i < count; i++) {
+                int entry = order[i];
+                if (i == 0 || keys[entry] != keys[order[i - 1]]) {
+                    groups.put(keys[entry], groupCount);
+                    starts[groupCount++] = i;
+                }
+                sortedFrom[i] = fromDays[entry];
+                sortedTo[i] = toDays[entry];
+                sortedCents[i] = amountCents[entry];
+            }
+            starts[groupCount] = count;
+            return new FeeSchedule(versionId, Map.copyOf(codeIds), groups, Arrays.copyOf(starts, groupCount + 1),
+                    sortedFrom, sortedTo, sortedCents);
+        }
+    }
+}
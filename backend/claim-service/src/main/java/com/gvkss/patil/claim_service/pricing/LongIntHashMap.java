@@ -0,0 +1,129 @@
+package com.gvkss.patil.claim_service.pricing;
+
+import java.util.Arrays;
+
+/**
+ * Long Int Hash Map
+ *
+ * Open-addressing hash map from primitive long keys to int values with linear probing. Keys and
+ * values live in two flat arrays, so a lookup touches no boxed objects. The table doubles when it
+ * is half full; removal shifts the rest of the probe run back instead of leaving tombstones. Not
+ * synchronized: share it between threads only once it is no longer written.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class LongIntHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int shift;
+    private int size;
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1);
+    }
+
+    /**
+     * Associate a value with a key; Long.MIN_VALUE is reserved
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Reserved key");
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            if (size + 1 > (keys.length >> 1)) {
+                grow();
+                put(key, value);
+                return;
+            }
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    /**
+     * Value for a key, or the given default
+     */
+    public int get(long key, int defaultValue) {
+        int slot = slot(key);
+        long current;
+        while ((current = keys[slot]) != EMPTY) {
+            if (current == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Remove a key; returns false if it was not present
+     */
+    public boolean remove(long key) {
+        int slot = slot(key);
+        long current;
+        while ((current = keys[slot]) != key) {
+            if (current == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // Pull back every later entry of the run whose home slot is at or before the gap
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while ((current = keys[next]) != EMPTY) {
+            if (((next - slot(current)) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = current;
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        shift = Long.numberOfLeadingZeros(capacity) + 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private int slot(long key) {
+        // Fibonacci hashing spreads sequential ids across the table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+}
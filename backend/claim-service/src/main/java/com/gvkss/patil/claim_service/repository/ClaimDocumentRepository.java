@@ -0,0 +1,29 @@
+package com.gvkss.patil.claim_service.repository;
+
+import com.gvkss.patil.claim_service.entity.ClaimDocument;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Claim Document Repository Interface
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Repository
+public interface ClaimDocumentRepository extends JpaRepository<ClaimDocument, Long> {
+    
+    /**
+     * Find documents of a claim, newest first (served by idx_claim_documents_claim_uploaded)
+     */
+    List<ClaimDocument> findByClaimIdOrderByUploadedAtDesc(Long claimId);
+    
+    /**
+     * Find document by ID within a claim
+     */
+    Optional<ClaimDocument> findByIdAndClaimId(Long id, Long claimId);
+}
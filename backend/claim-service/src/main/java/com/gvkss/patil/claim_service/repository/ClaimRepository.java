@@ -1,5 +1,6 @@
 package com.gvkss.patil.claim_service.repository;
 
+import com.gvkss.patil.claim_service.dto.ClaimSummary;
 import com.gvkss.patil.claim_service.entity.InsuranceClaim;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -9,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -47,6 +49,11 @@ public interface ClaimRepository extends JpaRepository<InsuranceClaim, Long> {
      */
     Page<InsuranceClaim> findByClaimStatus(InsuranceClaim.ClaimStatus status, Pageable pageable);
     
+    /**
+     * Find claims by status within one storage tier (prunes the other tier's partitions)
+     */
+    Page<InsuranceClaim> findByClaimStatusAndStorageTier(InsuranceClaim.ClaimStatus status, InsuranceClaim.StorageTier storageTier, Pageable pageable);
+    
     /**
      * Find all claims by type
      */
@@ -87,6 +94,11 @@ public interface ClaimRepository extends JpaRepository<InsuranceClaim, Long> {
      */
     long countByClaimStatus(InsuranceClaim.ClaimStatus status);
     
+    /**
+     * Count claims by status within one storage tier
+     */
+    long countByClaimStatusAndStorageTier(InsuranceClaim.ClaimStatus status, InsuranceClaim.StorageTier storageTier);
+    
     /**
      * Count claims by patient ID
      */
@@ -118,12 +130,52 @@ public interface ClaimRepository extends JpaRepository<InsuranceClaim, Long> {
     /**
      * Find pending claims for doctor verification
      */
-    @Query("SELECT c FROM InsuranceClaim c WHERE c.doctorId = :doctorId AND c.claimStatus = 'SUBMITTED' ORDER BY c.priority DESC, c.createdAt ASC")
+    @Query("SELECT c FROM InsuranceClaim c WHERE c.doctorId = :doctorId AND c.claimStatus = 'SUBMITTED' AND c.storageTier = 'HOT' ORDER BY c.priority DESC, c.createdAt ASC")
     List<InsuranceClaim> findPendingClaimsForDoctor(@Param("doctorId") Long doctorId);
     
     /**
      * Find claims for insurance provider review
      */
-    @Query("SELECT c FROM InsuranceClaim c WHERE c.claimStatus = 'UNDER_REVIEW' ORDER BY c.priority DESC, c.submittedAt ASC")
+    @Query("SELECT c FROM InsuranceClaim c WHERE c.claimStatus = 'UNDER_REVIEW' AND c.storageTier = 'HOT' ORDER BY c.priority DESC, c.submittedAt ASC")
     Page<InsuranceClaim> findClaimsForInsuranceReview(Pageable pageable);
+    
+    /**
+     * Find claim summaries (projection, no TEXT columns)
+     */
+    Page<ClaimSummary> findAllProjectedBy(Pageable pageable);
+    
+    /**
+     * Find claim summaries by patient ID
+     */
+    Page<ClaimSummary> findSummariesByPatientId(Long patientId, Pageable pageable);
+    
+    /**
+     * Find claim summaries by doctor ID
+     */
+    Page<ClaimSummary> findSummariesByDoctorId(Long doctorId, Pageable pageable);
+    
+    /**
+     * Find claim summaries by status
+     */
+    Page<ClaimSummary> findSummariesByClaimStatus(InsuranceClaim.ClaimStatus status, Pageable pageable);
+    
+    /**
+     * Find claim summaries by status within one storage tier
+     */
+    Page<ClaimSummary> findSummariesByClaimStatusAndStorageTier(InsuranceClaim.ClaimStatus status, InsuranceClaim.StorageTier storageTier, Pageable pageable);
+    
+    /**
+     * Find claim summaries of a patient submitted before a (submittedAt, id) position, newest first
+     */
+    @Query("SELECT c.id AS id, c.claimNumber AS claimNumber, c.patientId AS patientId, c.doctorId AS doctorId, " +
+           "c.providerId AS providerId, c.claimType AS claimType, c.claimStatus AS claimStatus, " +
+           "c.totalAmount AS totalAmount, c.approvedAmount AS approvedAmount, c.treatmentDate AS treatmentDate, " +
+           "c.diagnosisCode AS diagnosisCode, c.procedureCode AS procedureCode, c.isEmergency AS isEmergency, " +
+           "c.priority AS priority, c.submittedAt AS submittedAt FROM InsuranceClaim c " +
+           "WHERE c.patientId = :patientId AND (c.submittedAt < :before OR (c.submittedAt = :before AND c.id < :beforeId)) " +
+           "ORDER BY c.submittedAt DESC, c.id DESC")
+    List<ClaimSummary> findSummariesByPatientIdBefore(@Param("patientId") Long patientId,
+                                                      @Param("before") LocalDateTime before,
+                                                      @Param("beforeId") Long beforeId,
+                                                      Pageable pageable);
 }
@@ -0,0 +1,42 @@
+package com.gvkss.patil.claim_service.repository;
+
+import com.gvkss.patil.claim_service.entity.DocumentUploadSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Document Upload Session Repository Interface
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Repository
+public interface DocumentUploadSessionRepository extends JpaRepository<DocumentUploadSession, String> {
+    
+    /**
+     * Find upload session within a claim
+     */
+    Optional<DocumentUploadSession> findByIdAndClaimId(String id, Long claimId);
+    
+    /**
+     * Find and lock upload session so chunks of one upload are written one at a time
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM DocumentUploadSession s WHERE s.id = :id AND s.claimId = :claimId")
+    Optional<DocumentUploadSession> findByIdAndClaimIdForUpdate(@Param("id") String id, @Param("claimId") Long claimId);
+    
+    /**
+     * Find expired uploads that never completed
+     */
+    @Query("SELECT s FROM DocumentUploadSession s WHERE s.status = 'IN_PROGRESS' AND s.expiresAt < :now")
+    List<DocumentUploadSession> findExpiredSessions(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,424 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.dto.AccumulatorResponse;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Benefit Accumulator Service
+ *
+ * Tracks how much of each patient's annual deductible and out-of-pocket maximum has been met.
+ * Every approved or paid claim posts its cost share once (the posting row keyed by claim id makes
+ * this idempotent). The counters are changed with a versioned compare-and-set update, so two nodes
+ * applying claims for the same patient can never push a counter past its limit; within a node a
+ * lock stripe held until commit keeps those updates from racing in the first place. A claim that
+ * is rejected or cancelled after being applied has its posting reversed; claims that were capped
+ * by the limits meanwhile are trued up by the nightly recompute. Reads are served from a small
+ * cache that is invalidated on commit on this node and expires after a short TTL, which bounds
+ * how long postings made on other nodes go unseen.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class BenefitAccumulatorService {
+
+    private static final int MAX_UPDATE_ATTEMPTS = 20;
+    private static final long LOCK_TIMEOUT_SECONDS = 30;
+
+    private static final String ENSURE_ACCUMULATOR_SQL =
+            "INSERT INTO benefit_accumulators (patient_id, plan_year, deductible_limit, out_of_pocket_limit) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String SELECT_ACCUMULATOR_SQL =
+            "SELECT deductible_limit, deductible_met, out_of_pocket_limit, out_of_pocket_met, version, updated_at " +
+            "FROM benefit_accumulators WHERE patient_id = ? AND plan_year = ?";
+    private static final String COMPARE_AND_SET_SQL =
+            "UPDATE benefit_accumulators SET deductible_met = ?, out_of_pocket_met = ?, version = version + 1, " +
+            "updated_at = CURRENT_TIMESTAMP WHERE patient_id = ? AND plan_year = ? AND version = ?";
+    private static final String CLAIM_POSTING_SQL =
+            "INSERT INTO benefit_accumulator_postings (claim_id, patient_id, plan_year, deductible_applied, out_of_pocket_applied) " +
+            "VALUES (?, ?, ?, 0, 0) ON CONFLICT DO NOTHING";
+    private static final String COMPLETE_POSTING_SQL =
+            "UPDATE benefit_accumulator_postings SET deductible_applied = ?, out_of_pocket_applied = ? WHERE claim_id = ?";
+    private static final String SELECT_POSTING_SQL =
+            "SELECT patient_id, plan_year, deductible_applied, out_of_pocket_applied " +
+            "FROM benefit_accumulator_postings WHERE claim_id = ? FOR UPDATE";
+    private static final String DELETE_POSTING_SQL =
+            "DELETE FROM benefit_accumulator_postings WHERE claim_id = ?";
+
+    private static final String DELETE_POSTINGS_SQL =
+            "DELETE FROM benefit_accumulator_postings WHERE patient_id = ? AND plan_year = ?";
+    private static final String INSERT_POSTING_SQL =
+            "INSERT INTO benefit_accumulator_postings (claim_id, patient_id, plan_year, deductible_applied, out_of_pocket_applied) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    private static final String RESET_ACCUMULATOR_SQL =
+            "UPDATE benefit_accumulators SET deductible_limit = ?, deductible_met = ?, out_of_pocket_limit = ?, " +
+            "out_of_pocket_met = ?, version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE patient_id = ? AND plan_year = ?";
+    private static final String APPLIED_CLAIMS_SQL =
+            "SELECT id, (COALESCE(deductible_amount, 0) * 100)::bigint AS deductible_cents, " +
+            "((COALESCE(copay_amount, 0) + COALESCE(coinsurance_amount, 0)) * 100)::bigint AS other_cents " +
+            "FROM insurance_claims WHERE patient_id = ? AND claim_status IN ('APPROVED', 'PAID') " +
+            "AND treatment_date >= ? AND treatment_date < ? ORDER BY COALESCE(approved_at, paid_at), id";
+    private static final String PATIENTS_FOR_YEAR_SQL =
+            "SELECT patient_id FROM benefit_accumulators WHERE plan_year = ? UNION " +
+            "SELECT DISTINCT patient_id FROM insurance_claims WHERE claim_status IN ('APPROVED', 'PAID') " +
+            "AND treatment_date >= ? AND treatment_date < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long deductibleLimitCents;
+    private final long outOfPocketLimitCents;
+    private final int cacheSize;
+    private final long cacheTtlNanos;
+    private final ReentrantLock[] stripes;
+    private final Map<AccumulatorKey, CachedAccumulator> cache = new ConcurrentHashMap<>();
+    // Bumped after every local commit that changes counters, before the cache entry is dropped
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public BenefitAccumulatorService(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.claims.accumulators.deductible-limit:1500.00}") BigDecimal deductibleLimit,
+                                     @Value("${app.claims.accumulators.out-of-pocket-limit:6000.00}") BigDecimal outOfPocketLimit,
+                                     @Value("${app.claims.accumulators.lock-stripes:64}") int lockStripes,
+                                     @Value("${app.claims.accumulators.cache-size:10000}") int cacheSize,
+                                     @Value("${app.claims.accumulators.cache-ttl-seconds:30}") long cacheTtlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.deductibleLimitCents = toCents(deductibleLimit);
+        this.outOfPocketLimitCents = toCents(outOfPocketLimit);
+        this.cacheSize = cacheSize;
+        this.cacheTtlNanos = TimeUnit.SECONDS.toNanos(cacheTtlSeconds);
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Apply a claim's cost share to its patient's accumulators; returns false if it was already applied
+     */
+    @Transactional
+    public boolean post(InsuranceClaim claim) {
+        long patientId = claim.getPatientId();
+        int planYear = claim.getTreatmentDate().getYear();
+        lockUntilCompletion(patientId, planYear);
+
+        if (jdbcTemplate.update(CLAIM_POSTING_SQL, claim.getId(), patientId, planYear) == 0) {
+            log.debug("Claim {} already applied to accumulators", claim.getId());
+            return false;
+        }
+        jdbcTemplate.update(ENSURE_ACCUMULATOR_SQL, patientId, planYear,
+                fromCents(deductibleLimitCents), fromCents(outOfPocketLimitCents));
+
+        long deductible = toCents(claim.getDeductibleAmount());
+        long otherCostShare = toCents(claim.getCopayAmount()) + toCents(claim.getCoinsuranceAmount());
+        for (int attempt = 1; ; attempt++) {
+            Counters counters = readCounters(patientId, planYear, false);
+            long deductibleApplied = Math.min(deductible, counters.deductibleLimit() - counters.deductibleMet());
+            long outOfPocketApplied = Math.min(deductibleApplied + otherCostShare,
+                    counters.outOfPocketLimit() - counters.outOfPocketMet());
+
+            int updated = jdbcTemplate.update(COMPARE_AND_SET_SQL,
+                    fromCents(counters.deductibleMet() + deductibleApplied),
+                    fromCents(counters.outOfPocketMet() + outOfPocketApplied),
+                    patientId, planYear, counters.version());
+            if (updated == 1) {
+                jdbcTemplate.update(COMPLETE_POSTING_SQL, fromCents(deductibleApplied), fromCents(outOfPocketApplied),
+                        claim.getId());
+                log.info("Claim {} applied {} deductible and {} out-of-pocket for patient {} ({})", claim.getId(),
+                        fromCents(deductibleApplied), fromCents(outOfPocketApplied), patientId, planYear);
+                return true;
+            }
+            // Another node changed the counters between our read and write
+            if (attempt == MAX_UPDATE_ATTEMPTS) {
+                throw new RuntimeException("Accumulator update conflict for patient " + patientId + " in " + planYear);
+            }
+        }
+    }
+
+    /**
+     * Apply several claims in the surrounding transaction; returns how many were newly applied
+     */
+    @Transactional
+    public int postAll(List<InsuranceClaim> claims) {
+        // Taking stripes in index order keeps concurrent batches from deadlocking on each other
+        List<InsuranceClaim> ordered = new ArrayList<>(claims);
+        ordered.sort(Comparator.comparingInt(claim ->
+                stripeIndex(claim.getPatientId(), claim.getTreatmentDate().getYear())));
+        int posted = 0;
+        for (InsuranceClaim claim : ordered) {
+            if (post(claim)) {
+                posted++;
+            }
+        }
+        return posted;
+    }
+
+    /**
+     * Take back the cost share a claim applied, when it is rejected or cancelled after approval;
+     * returns false if the claim was not applied
+     */
+    @Transactional
+    public boolean reverse(InsuranceClaim claim) {
+        lockUntilCompletion(claim.getPatientId(), claim.getTreatmentDate().getYear());
+
+        List<Posting> postings = jdbcTemplate.query(SELECT_POSTING_SQL, (rs, rowNum) -> new Posting(
+                rs.getLong("patient_id"), rs.getInt("plan_year"),
+                toCents(rs.getBigDecimal("deductible_applied")), toCents(rs.getBigDecimal("out_of_pocket_applied"))),
+                claim.getId());
+        if (postings.isEmpty()) {
+            return false;
+        }
+        // The posting records what was applied, even if the claim's patient or date changed since
+        Posting posting = postings.get(0);
+        if (posting.patientId() != claim.getPatientId() || posting.planYear() != claim.getTreatmentDate().getYear()) {
+            lockUntilCompletion(posting.patientId(), posting.planYear());
+        }
+        jdbcTemplate.update(DELETE_POSTING_SQL, claim.getId());
+
+        for (int attempt = 1; ; attempt++) {
+            Counters counters = readCounters(posting.patientId(), posting.planYear(), false);
+            int updated = jdbcTemplate.update(COMPARE_AND_SET_SQL,
+                    fromCents(Math.max(0, counters.deductibleMet() - posting.deductibleApplied())),
+                    fromCents(Math.max(0, counters.outOfPocketMet() - posting.outOfPocketApplied())),
+                    posting.patientId(), posting.planYear(), counters.version());
+            if (updated == 1) {
+                log.info("Claim {} reversed {} deductible and {} out-of-pocket for patient {} ({})", claim.getId(),
+                        fromCents(posting.deductibleApplied()), fromCents(posting.outOfPocketApplied()),
+                        posting.patientId(), posting.planYear());
+                return true;
+            }
+            if (attempt == MAX_UPDATE_ATTEMPTS) {
+                throw new RuntimeException("Accumulator update conflict for patient " + posting.patientId()
+                        + " in " + posting.planYear());
+            }
+        }
+    }
+
+    /**
+     * Reverse several claims in the surrounding transaction; returns how many had been applied
+     */
+    @Transactional
+    public int reverseAll(List<InsuranceClaim> claims) {
+        List<InsuranceClaim> ordered = new ArrayList<>(claims);
+        ordered.sort(Comparator.comparingInt(claim ->
+                stripeIndex(claim.getPatientId(), claim.getTreatmentDate().getYear())));
+        int reversed = 0;
+        for (InsuranceClaim claim : ordered) {
+            if (reverse(claim)) {
+                reversed++;
+            }
+        }
+        return reversed;
+    }
+
+    /**
+     * Get accumulators of a patient for a plan year
+     */
+    public AccumulatorResponse getAccumulator(Long patientId, int planYear) {
+        AccumulatorKey key = new AccumulatorKey(patientId, planYear);
+        long now = System.nanoTime();
+        CachedAccumulator cached = cache.get(key);
+        if (cached != null && now - cached.loadedAt() < cacheTtlNanos) {
+            return cached.response();
+        }
+
+        long invalidationsBefore = invalidations.get();
+        AccumulatorResponse response = load(patientId, planYear);
+        if (cache.size() >= cacheSize) {
+            // Entries are cheap to rebuild; dropping them all keeps the cache bounded without LRU bookkeeping
+            cache.clear();
+        }
+        CachedAccumulator entry = new CachedAccumulator(response, now);
+        cache.put(key, entry);
+        // A commit that finished while we were reading may have removed the key before our put
+        // re-inserted what could be the pre-commit value; drop the entry so the next read reloads
+        if (invalidations.get() != invalidationsBefore) {
+            cache.remove(key, entry);
+        }
+        return response;
+    }
+
+    /**
+     * Rebuild a patient's accumulators and postings for a plan year from their approved and paid claims
+     */
+    public AccumulatorResponse recompute(Long patientId, int planYear) {
+        AccumulatorResponse before = load(patientId, planYear);
+        transactionTemplate.executeWithoutResult(status -> {
+            lockUntilCompletion(patientId, planYear);
+            jdbcTemplate.update(ENSURE_ACCUMULATOR_SQL, patientId, planYear,
+                    fromCents(deductibleLimitCents), fromCents(outOfPocketLimitCents));
+            // Lock the counters row so a concurrent posting on another node waits for the rebuild
+            readCounters(patientId, planYear, true);
+            jdbcTemplate.update(DELETE_POSTINGS_SQL, patientId, planYear);
+
+            long deductibleMet = 0;
+            long outOfPocketMet = 0;
+            List<Object[]> postings = new ArrayList<>();
+            LocalDate from = LocalDate.of(planYear, 1, 1);
+            for (Map<String, Object> claim : jdbcTemplate.queryForList(APPLIED_CLAIMS_SQL, patientId,
+                    Date.valueOf(from), Date.valueOf(from.plusYears(1)))) {
+                long deductibleApplied = Math.min(((Number) claim.get("deductible_cents")).longValue(),
+                        deductibleLimitCents - deductibleMet);
+                long outOfPocketApplied = Math.min(deductibleApplied + ((Number) claim.get("other_cents")).longValue(),
+                        outOfPocketLimitCents - outOfPocketMet);
+                deductibleMet += deductibleApplied;
+                outOfPocketMet += outOfPocketApplied;
+                postings.add(new Object[] {claim.get("id"), patientId, planYear,
+                        fromCents(deductibleApplied), fromCents(outOfPocketApplied)});
+            }
+            jdbcTemplate.batchUpdate(INSERT_POSTING_SQL, postings);
+            jdbcTemplate.update(RESET_ACCUMULATOR_SQL, fromCents(deductibleLimitCents), fromCents(deductibleMet),
+                    fromCents(outOfPocketLimitCents), fromCents(outOfPocketMet), patientId, planYear);
+        });
+
+        AccumulatorResponse after = load(patientId, planYear);
+        if (before.getDeductibleMet().compareTo(after.getDeductibleMet()) != 0
+                || before.getOutOfPocketMet().compareTo(after.getOutOfPocketMet()) != 0) {
+            log.warn("Accumulators of patient {} ({}) corrected from {}/{} to {}/{}", patientId, planYear,
+                    before.getDeductibleMet(), before.getOutOfPocketMet(), after.getDeductibleMet(), after.getOutOfPocketMet());
+        }
+        return after;
+    }
+
+    /**
+     * Nightly rebuild of the current plan year, one patient per transaction
+     */
+    @Scheduled(cron = "${app.claims.accumulators.recompute-cron:0 45 3 * * *}")
+    public void recomputeCurrentYear() {
+        int planYear = LocalDate.now().getYear();
+        LocalDate from = LocalDate.of(planYear, 1, 1);
+        List<Long> patientIds = jdbcTemplate.queryForList(PATIENTS_FOR_YEAR_SQL, Long.class, planYear,
+                Date.valueOf(from), Date.valueOf(from.plusYears(1)));
+        log.info("Recomputing {} accumulators for {} patients", planYear, patientIds.size());
+
+        int failed = 0;
+        for (Long patientId : patientIds) {
+            try {
+                recompute(patientId, planYear);
+            } catch (Exception e) {
+                failed++;
+                log.error("Accumulator recompute failed for patient {} ({})", patientId, planYear, e);
+            }
+        }
+        log.info("Accumulator recompute for {} finished, {} failures", planYear, failed);
+    }
+
+    /**
+     * Take the patient's lock stripe and hold it until the surrounding transaction completes
+     */
+    private void lockUntilCompletion(long patientId, int planYear) {
+        ReentrantLock lock = stripes[stripeIndex(patientId, planYear)];
+        try {
+            // Bounded wait: a caller already holding claim row locks must not hang on a stripe forever
+            if (!lock.tryLock(LOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new RuntimeException("Timed out waiting for accumulator lock of patient " + patientId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for accumulator lock of patient " + patientId, e);
+        }
+        AccumulatorKey key = new AccumulatorKey(patientId, planYear);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            lock.unlock();
+            throw new IllegalStateException("Accumulator updates require a transaction");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidations.incrementAndGet();
+                cache.remove(key);
+                lock.unlock();
+            }
+        });
+    }
+
+    private AccumulatorResponse load(Long patientId, int planYear) {
+        List<Counters> rows = jdbcTemplate.query(SELECT_ACCUMULATOR_SQL, (rs, rowNum) -> mapCounters(rs),
+                patientId, planYear);
+        Counters counters = rows.isEmpty()
+                ? new Counters(deductibleLimitCents, 0, outOfPocketLimitCents, 0, 0, null)
+                : rows.get(0);
+        return convertToResponse(patientId, planYear, counters);
+    }
+
+    private int stripeIndex(long patientId, int planYear) {
+        return (Long.hashCode(patientId) * 31 + planYear) & (stripes.length - 1);
+    }
+
+    private Counters readCounters(long patientId, int planYear, boolean forUpdate) {
+        return jdbcTemplate.queryForObject(forUpdate ? SELECT_ACCUMULATOR_SQL + " FOR UPDATE" : SELECT_ACCUMULATOR_SQL,
+                (rs, rowNum) -> mapCounters(rs), patientId, planYear);
+    }
+
+    private static Counters mapCounters(ResultSet rs) throws SQLException {
+        return new Counters(toCents(rs.getBigDecimal("deductible_limit")), toCents(rs.getBigDecimal("deductible_met")),
+                toCents(rs.getBigDecimal("out_of_pocket_limit")), toCents(rs.getBigDecimal("out_of_pocket_met")),
+                rs.getLong("version"), rs.getTimestamp("updated_at"));
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Convert counters to response DTO
+     */
+    private AccumulatorResponse convertToResponse(Long patientId, int planYear, Counters counters) {
+        return AccumulatorResponse.builder()
+                .patientId(patientId)
+                .planYear(planYear)
+                .deductibleLimit(fromCents(counters.deductibleLimit()))
+                .deductibleMet(fromCents(counters.deductibleMet()))
+                .deductibleRemaining(fromCents(counters.deductibleLimit() - counters.deductibleMet()))
+                .outOfPocketLimit(fromCents(counters.outOfPocketLimit()))
+                .outOfPocketMet(fromCents(counters.outOfPocketMet()))
+                .outOfPocketRemaining(fromCents(counters.outOfPocketLimit() - counters.outOfPocketMet()))
+                .updatedAt(counters.updatedAt() != null ? counters.updatedAt().toLocalDateTime() : null)
+                .build();
+    }
+
+    private record AccumulatorKey(long patientId, int planYear) {
+    }
+
+    private record CachedAccumulator(AccumulatorResponse response, long loadedAt) {
+    }
+
+    private record Posting(long patientId, int planYear, long deductibleApplied, long outOfPocketApplied) {
+    }
+
+    private record Counters(long deductibleLimit, long deductibleMet, long outOfPocketLimit, long outOfPocketMet,
+                            long version, Timestamp updatedAt) {
+    }
+}
@@ -0,0 +1,303 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.anomaly.ClaimAnomalyScorer;
+import com.gvkss.patil.claim_service.anomaly.ClaimAnomalyScorer.Flag;
+import com.gvkss.patil.claim_service.dto.AnomalyFlagResponse;
+import com.gvkss.patil.claim_service.dto.AnomalyStatsResponse;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Claim Anomaly Service
+ *
+ * Scores every submitted claim with the in-memory {@link ClaimAnomalyScorer} and records the flags
+ * it raises for review. Scoring happens under a short lock and never touches the database. The
+ * claim is folded into the statistics, and its flags written, only once the claim's transaction
+ * commits, so rolled-back claims leave no trace. The scorer state is snapshotted to the
+ * database periodically so a restarted node resumes with its statistics instead of rescanning
+ * claim history.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class ClaimAnomalyService {
+
+    private static final String INSERT_FLAG_SQL =
+            "INSERT INTO claim_anomaly_flags (claim_id, claim_number, provider_id, procedure_code, flag_type, score, detail) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_FLAGS_SQL =
+            "SELECT id, claim_id, claim_number, provider_id, procedure_code, flag_type, score, detail, reviewed, " +
+            "reviewed_at, created_at FROM claim_anomaly_flags ";
+    private static final String REVIEW_FLAG_SQL =
+            "UPDATE claim_anomaly_flags SET reviewed = true, reviewed_at = CURRENT_TIMESTAMP WHERE id = ?";
+    private static final String SAVE_SNAPSHOT_SQL =
+            "INSERT INTO claim_anomaly_snapshots (node_id, observations, state, taken_at) VALUES (?, ?, ?, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (node_id) DO UPDATE SET observations = EXCLUDED.observations, state = EXCLUDED.state, " +
+            "taken_at = EXCLUDED.taken_at";
+    // This node's own snapshot, or else the most recent one taken by any node
+    private static final String LOAD_SNAPSHOT_SQL =
+            "SELECT node_id, state FROM claim_anomaly_snapshots ORDER BY (node_id = ?) DESC, taken_at DESC LIMIT 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClaimAnomalyScorer.Settings settings;
+    private final boolean enabled;
+    private final int nodeId;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder claimsScored = new LongAdder();
+    private final LongAdder scoringNanos = new LongAdder();
+    private final LongAdder flagsRaised = new LongAdder();
+    private ClaimAnomalyScorer scorer;
+    private volatile LocalDateTime lastSnapshotAt;
+
+    public ClaimAnomalyService(JdbcTemplate jdbcTemplate,
+                               @Value("${app.claims.anomaly.enabled:true}") boolean enabled,
+                               @Value("${app.numbers.node-id:0}") int nodeId,
+                               @Value("${app.claims.anomaly.alpha:0.02}") double alpha,
+                               @Value("${app.claims.anomaly.compression:100}") double compression,
+                               @Value("${app.claims.anomaly.min-observations:30}") int minObservations,
+                               @Value("${app.claims.anomaly.z-threshold:4.0}") double zThreshold,
+                               @Value("${app.claims.anomaly.percentile-threshold:0.995}") double percentileThreshold,
+                               @Value("${app.claims.anomaly.velocity-ratio:5.0}") double velocityRatio,
+                               @Value("${app.claims.anomaly.velocity-min-claims:10}") double velocityMinClaims,
+                               @Value("${app.claims.anomaly.short-horizon:PT1H}") Duration shortHorizon,
+                               @Value("${app.claims.anomaly.long-horizon:P7D}") Duration longHorizon) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.nodeId = nodeId;
+        this.settings = new ClaimAnomalyScorer.Settings(alpha, compression, minObservations, zThreshold,
+                percentileThreshold, velocityRatio, velocityMinClaims, shortHorizon.toMillis(), longHorizon.toMillis());
+        this.scorer = new ClaimAnomalyScorer(settings);
+    }
+
+    /**
+     * Score a newly submitted claim; the claim is learned from and its flags stored when the
+     * surrounding transaction commits
+     */
+    public List<Flag> score(InsuranceClaim claim) {
+        if (!enabled || claim.getTotalAmount() == null) {
+            return List.of();
+        }
+        long started = System.nanoTime();
+        long now = System.currentTimeMillis();
+        double amount = claim.getTotalAmount().doubleValue();
+        List<Flag> flags;
+        lock.lock();
+        try {
+            flags = scorer.score(claim.getProcedureCode(), claim.getProviderId(), amount, now);
+        } finally {
+            lock.unlock();
+        }
+        scoringNanos.add(System.nanoTime() - started);
+        claimsScored.increment();
+        if (!flags.isEmpty()) {
+            flagsRaised.add(flags.size());
+            flags.forEach(flag -> log.warn("Claim {} flagged {}: {}", claim.getClaimNumber(), flag.type(), flag.detail()));
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    learn(claim, amount, now, flags);
+                }
+            });
+        } else {
+            learn(claim, amount, now, flags);
+        }
+        return flags;
+    }
+
+    /**
+     * Get unreviewed flags, newest first
+     */
+    public List<AnomalyFlagResponse> getOpenFlags(int limit) {
+        return jdbcTemplate.query(SELECT_FLAGS_SQL + "WHERE reviewed = false ORDER BY created_at DESC LIMIT ?",
+                (rs, rowNum) -> convertToResponse(rs), limit);
+    }
+
+    /**
+     * Get all flags raised on a claim
+     */
+    public List<AnomalyFlagResponse> getFlagsForClaim(Long claimId) {
+        return jdbcTemplate.query(SELECT_FLAGS_SQL + "WHERE claim_id = ? ORDER BY id",
+                (rs, rowNum) -> convertToResponse(rs), claimId);
+    }
+
+    /**
+     * Mark a flag as reviewed
+     */
+    public AnomalyFlagResponse reviewFlag(Long flagId) {
+        log.info("Marking anomaly flag {} as reviewed", flagId);
+        if (jdbcTemplate.update(REVIEW_FLAG_SQL, flagId) == 0) {
+            throw new RuntimeException("Anomaly flag not found with ID: " + flagId);
+        }
+        return jdbcTemplate.queryForObject(SELECT_FLAGS_SQL + "WHERE id = ?", (rs, rowNum) -> convertToResponse(rs), flagId);
+    }
+
+    /**
+     * Get scorer statistics
+     */
+    public AnomalyStatsResponse getStats() {
+        long observations;
+        int procedures;
+        int providers;
+        lock.lock();
+        try {
+            observations = scorer.getObservations();
+            procedures = scorer.getProceduresTracked();
+            providers = scorer.getProvidersTracked();
+        } finally {
+            lock.unlock();
+        }
+        long scored = claimsScored.sum();
+        return AnomalyStatsResponse.builder()
+                .enabled(enabled)
+                .observations(observations)
+                .proceduresTracked(procedures)
+                .providersTracked(providers)
+                .claimsScored(scored)
+                .flagsRaised(flagsRaised.sum())
+                .averageScoringMicros(scored > 0 ? scoringNanos.sum() / 1000.0 / scored : 0)
+                .lastSnapshotAt(lastSnapshotAt)
+                .build();
+    }
+
+    /**
+     * Restore the scorer from the latest snapshot at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<ClaimAnomalyScorer> restored = jdbcTemplate.query(LOAD_SNAPSHOT_SQL, (rs, rowNum) -> {
+                try (DataInputStream in = new DataInputStream(
+                        new GZIPInputStream(new ByteArrayInputStream(rs.getBytes("state"))))) {
+                    log.info("Restoring anomaly scorer from the snapshot of node {}", rs.getInt("node_id"));
+                    return ClaimAnomalyScorer.readFrom(in, settings);
+                } catch (IOException e) {
+                    throw new SQLException("Unreadable anomaly scorer snapshot", e);
+                }
+            }, nodeId);
+            if (restored.isEmpty()) {
+                log.info("No anomaly scorer snapshot found, starting with empty statistics");
+                return;
+            }
+            lock.lock();
+            try {
+                scorer = restored.get(0);
+            } finally {
+                lock.unlock();
+            }
+            log.info("Anomaly scorer restored: {} observations, {} procedures, {} providers",
+                    restored.get(0).getObservations(), restored.get(0).getProceduresTracked(),
+                    restored.get(0).getProvidersTracked());
+        } catch (Exception e) {
+            log.error("Anomaly scorer restore failed, starting with empty statistics", e);
+        }
+    }
+
+    /**
+     * Periodically snapshot the scorer so its statistics survive restarts
+     */
+    @Scheduled(initialDelayString = "${app.claims.anomaly.snapshot-interval-ms:600000}",
+            fixedDelayString = "${app.claims.anomaly.snapshot-interval-ms:600000}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            long observations;
+            // Serialization holds the lock (a few milliseconds for thousands of codes); the write does not
+            lock.lock();
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+                observations = scorer.getObservations();
+                scorer.writeTo(out);
+            } finally {
+                lock.unlock();
+            }
+            jdbcTemplate.update(SAVE_SNAPSHOT_SQL, nodeId, observations, bytes.toByteArray());
+            lastSnapshotAt = LocalDateTime.now();
+            log.debug("Anomaly scorer snapshot saved: {} observations, {} bytes", observations, bytes.size());
+        } catch (Exception e) {
+            log.error("Anomaly scorer snapshot failed", e);
+        }
+    }
+
+    private void learn(InsuranceClaim claim, double amount, long nowMillis, List<Flag> flags) {
+        lock.lock();
+        try {
+            scorer.update(claim.getProcedureCode(), claim.getProviderId(), amount, nowMillis);
+        } finally {
+            lock.unlock();
+        }
+        if (!flags.isEmpty()) {
+            saveFlags(claim, flags);
+        }
+    }
+
+    private void saveFlags(InsuranceClaim claim, List<Flag> flags) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_FLAG_SQL, flags, flags.size(), (ps, flag) -> {
+                ps.setLong(1, claim.getId());
+                ps.setString(2, claim.getClaimNumber());
+                ps.setObject(3, claim.getProviderId());
+                ps.setString(4, claim.getProcedureCode());
+                ps.setString(5, flag.type().name());
+                ps.setDouble(6, flag.score());
+                ps.setString(7, flag.detail());
+            });
+        } catch (Exception e) {
+            log.error("Failed to save anomaly flags for claim {}", claim.getId(), e);
+        }
+    }
+
+    /**
+     * Convert a flag row to response DTO
+     */
+    private static AnomalyFlagResponse convertToResponse(ResultSet rs) throws SQLException {
+        Timestamp reviewedAt = rs.getTimestamp("reviewed_at");
+        return AnomalyFlagResponse.builder()
+                .id(rs.getLong("id"))
+                .claimId(rs.getLong("claim_id"))
+                .claimNumber(rs.getString("claim_number"))
+                .providerId(rs.getObject("provider_id") != null ? rs.getLong("provider_id") : null)
+                .procedureCode(rs.getString("procedure_code"))
+                .flagType(rs.getString("flag_type"))
+                .score(rs.getDouble("score"))
+                .detail(rs.getString("detail"))
+                .reviewed(rs.getBoolean("reviewed"))
+                .reviewedAt(reviewedAt != null ? reviewedAt.toLocalDateTime() : null)
+                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .build();
+    }
+}
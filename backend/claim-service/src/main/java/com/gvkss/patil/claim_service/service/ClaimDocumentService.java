@@ -0,0 +1,515 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.dto.ClaimDocumentResponse;
+import com.gvkss.patil.claim_service.dto.StartUploadRequest;
+import com.gvkss.patil.claim_service.dto.UploadSessionResponse;
+import com.gvkss.patil.claim_service.entity.ClaimDocument;
+import com.gvkss.patil.claim_service.entity.DocumentUploadSession;
+import com.gvkss.patil.claim_service.repository.ClaimDocumentRepository;
+import com.gvkss.patil.claim_service.repository.ClaimRepository;
+import com.gvkss.patil.claim_service.repository.DocumentUploadSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Claim Document Service
+ *
+ * Chunked, resumable uploads are written straight from the request stream into a part file
+ * with {@link FileChannel#transferFrom}; the SHA-256 is computed as the bytes pass through.
+ * Completed uploads are stored once per content under {@code objects/ab/cd/<sha256>} and
+ * shared by every claim document with the same content (reference counted in document_blobs).
+ * Files are only removed once the transaction that stops referencing them has committed, and a
+ * completed upload keeps its part file until then, so a rolled-back completion can be retried.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+@Transactional
+public class ClaimDocumentService {
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private static final String ADD_BLOB_REFERENCE_SQL =
+            "INSERT INTO document_blobs (sha256, size_bytes, ref_count) VALUES (?, ?, 1) " +
+            "ON CONFLICT (sha256) DO UPDATE SET ref_count = document_blobs.ref_count + 1";
+    private static final String RELEASE_BLOB_REFERENCE_SQL =
+            "UPDATE document_blobs SET ref_count = ref_count - 1 WHERE sha256 = ? RETURNING ref_count";
+    private static final String DELETE_BLOB_SQL =
+            "DELETE FROM document_blobs WHERE sha256 = ? AND ref_count <= 0";
+    private static final String BLOB_EXISTS_SQL =
+            "SELECT COUNT(*) FROM document_blobs WHERE sha256 = ?";
+
+    private final ClaimRepository claimRepository;
+    private final ClaimDocumentRepository claimDocumentRepository;
+    private final DocumentUploadSessionRepository uploadSessionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Path storageDirectory;
+    private final long maxFileSize;
+    private final Set<String> allowedFileTypes;
+    private final long sessionTtlHours;
+
+    /**
+     * Running digests of uploads whose chunks arrived in order on this node
+     */
+    private final Map<String, UploadDigest> digests = new ConcurrentHashMap<>();
+
+    public ClaimDocumentService(ClaimRepository claimRepository,
+                                ClaimDocumentRepository claimDocumentRepository,
+                                DocumentUploadSessionRepository uploadSessionRepository,
+                                JdbcTemplate jdbcTemplate,
+                                @Value("${app.claims.documents.storage-dir:${java.io.tmpdir}/claim-documents}") String storageDirectory,
+                                @Value("${app.claims.documents.max-file-size:10485760}") long maxFileSize,
+                                @Value("${app.claims.documents.allowed-file-types:pdf,jpg,jpeg,png,doc,docx}") String allowedFileTypes,
+                                @Value("${app.claims.documents.session-ttl-hours:24}") long sessionTtlHours) {
+        this.claimRepository = claimRepository;
+        this.claimDocumentRepository = claimDocumentRepository;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.storageDirectory = Paths.get(storageDirectory).toAbsolutePath().normalize();
+        this.maxFileSize = maxFileSize;
+        this.allowedFileTypes = Arrays.stream(allowedFileTypes.split(","))
+                .map(type -> type.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.sessionTtlHours = sessionTtlHours;
+    }
+
+    /**
+     * Start a resumable upload
+     */
+    public UploadSessionResponse startUpload(Long claimId, StartUploadRequest request) {
+        log.info("Starting document upload for claim: {}", claimId);
+
+        if (!claimRepository.existsById(claimId)) {
+            throw new RuntimeException("Claim not found with ID: " + claimId);
+        }
+        if (request.getTotalSize() > maxFileSize) {
+            throw new RuntimeException("File exceeds the maximum size of " + maxFileSize + " bytes");
+        }
+        String extension = extensionOf(request.getFileName());
+        if (!allowedFileTypes.contains(extension)) {
+            throw new RuntimeException("File type not allowed: " + extension);
+        }
+
+        String mimeType = request.getMimeType() != null ? request.getMimeType()
+                : URLConnection.guessContentTypeFromName(request.getFileName());
+
+        DocumentUploadSession session = DocumentUploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .claimId(claimId)
+                .documentType(request.getDocumentType())
+                .fileName(request.getFileName())
+                .mimeType(mimeType != null ? mimeType : "application/octet-stream")
+                .totalSize(request.getTotalSize())
+                .receivedBytes(0L)
+                .uploadedBy(request.getUploadedBy())
+                .status(DocumentUploadSession.UploadStatus.IN_PROGRESS)
+                .expiresAt(LocalDateTime.now().plusHours(sessionTtlHours))
+                .build();
+
+        DocumentUploadSession savedSession = uploadSessionRepository.save(session);
+        log.info("Upload session created: {}", savedSession.getId());
+
+        return convertToResponse(savedSession, null);
+    }
+
+    /**
+     * Get upload progress; clients resume from receivedBytes
+     */
+    @Transactional(readOnly = true)
+    public UploadSessionResponse getUpload(Long claimId, String uploadId) {
+        DocumentUploadSession session = uploadSessionRepository.findByIdAndClaimId(uploadId, claimId)
+                .orElseThrow(() -> new RuntimeException("Upload not found with ID: " + uploadId));
+        ClaimDocument document = session.getDocumentId() != null
+                ? claimDocumentRepository.findById(session.getDocumentId()).orElse(null) : null;
+        return convertToResponse(session, document);
+    }
+
+    /**
+     * Write one chunk described by a Content-Range header; completes the upload on the last byte
+     */
+    public UploadSessionResponse uploadChunk(Long claimId, String uploadId, String contentRange,
+                                             InputStream body) throws IOException {
+        DocumentUploadSession session = uploadSessionRepository.findByIdAndClaimIdForUpdate(uploadId, claimId)
+                .orElseThrow(() -> new RuntimeException("Upload not found with ID: " + uploadId));
+        if (session.getStatus() != DocumentUploadSession.UploadStatus.IN_PROGRESS) {
+            throw new RuntimeException("Upload is already complete: " + uploadId);
+        }
+
+        Matcher range = contentRange != null ? CONTENT_RANGE.matcher(contentRange.trim()) : null;
+        if (range == null || !range.matches()) {
+            throw new RuntimeException("Content-Range header must be 'bytes start-end/total'");
+        }
+        long start = Long.parseLong(range.group(1));
+        long end = Long.parseLong(range.group(2));
+        long total = session.getTotalSize();
+        if (!"*".equals(range.group(3)) && Long.parseLong(range.group(3)) != total) {
+            throw new RuntimeException("Content-Range total does not match upload size " + total);
+        }
+        if (end < start || end >= total) {
+            throw new RuntimeException("Invalid Content-Range: " + contentRange);
+        }
+        if (start > session.getReceivedBytes()) {
+            throw new RuntimeException("Chunk starts at " + start + " but only " + session.getReceivedBytes()
+                    + " bytes have been received");
+        }
+
+        // Keep hashing incrementally only while chunks arrive in order on this node
+        UploadDigest digest = start == 0 ? new UploadDigest(sha256()) : digests.get(uploadId);
+        if (digest != null && digest.offset != start) {
+            digest = null;
+        }
+        if (digest == null) {
+            digests.remove(uploadId);
+        }
+
+        long expected = end - start + 1;
+        long written = 0;
+        Path part = partPath(uploadId);
+        Files.createDirectories(part.getParent());
+        ReadableByteChannel source = Channels.newChannel(body);
+        if (digest != null) {
+            source = new DigestingChannel(source, digest.messageDigest);
+        }
+        try (FileChannel file = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            while (written < expected) {
+                long transferred = file.transferFrom(source, start + written, expected - written);
+                if (transferred <= 0) {
+                    break;
+                }
+                written += transferred;
+            }
+        }
+
+        if (digest != null) {
+            digest.offset = start + written;
+            digests.put(uploadId, digest);
+        }
+        session.setReceivedBytes(Math.max(session.getReceivedBytes(), start + written));
+        if (written < expected) {
+            log.warn("Upload {} chunk ended early: {} of {} bytes", uploadId, written, expected);
+        }
+
+        ClaimDocument document = null;
+        if (session.getReceivedBytes() == total) {
+            document = completeUpload(session, part, digest);
+        }
+        DocumentUploadSession savedSession = uploadSessionRepository.save(session);
+        return convertToResponse(savedSession, document);
+    }
+
+    /**
+     * Get documents of a claim, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<ClaimDocumentResponse> getDocuments(Long claimId) {
+        log.info("Fetching documents for claim: {}", claimId);
+
+        return claimDocumentRepository.findByClaimIdOrderByUploadedAtDesc(claimId).stream()
+                .map(this::convertToResponse)
+                .toList();
+    }
+
+    /**
+     * Resolve a document's stored content for download
+     */
+    @Transactional(readOnly = true)
+    public DocumentContent getContent(Long claimId, Long documentId) {
+        ClaimDocument document = claimDocumentRepository.findByIdAndClaimId(documentId, claimId)
+                .orElseThrow(() -> new RuntimeException("Document not found with ID: " + documentId));
+        Path path = storageDirectory.resolve(document.getFilePath()).normalize();
+        if (!path.startsWith(storageDirectory) || !Files.isRegularFile(path)) {
+            throw new RuntimeException("Document content missing for ID: " + documentId);
+        }
+        return new DocumentContent(path, document.getFileSize() != null ? document.getFileSize() : path.toFile().length(),
+                document.getMimeType(), document.getFileName(), document.getContentSha256());
+    }
+
+    /**
+     * Delete document; the stored object is removed with its last reference
+     */
+    public void deleteDocument(Long claimId, Long documentId) {
+        log.info("Deleting document {} of claim {}", documentId, claimId);
+
+        ClaimDocument document = claimDocumentRepository.findByIdAndClaimId(documentId, claimId)
+                .orElseThrow(() -> new RuntimeException("Document not found with ID: " + documentId));
+        claimDocumentRepository.delete(document);
+
+        String sha256 = document.getContentSha256();
+        if (sha256 == null) {
+            return;
+        }
+        List<Integer> remaining = jdbcTemplate.queryForList(RELEASE_BLOB_REFERENCE_SQL, Integer.class, sha256);
+        if (!remaining.isEmpty() && remaining.get(0) <= 0) {
+            jdbcTemplate.update(DELETE_BLOB_SQL, sha256);
+            afterCommit(() -> deleteObject(sha256));
+        }
+    }
+
+    /**
+     * Remove uploads that were abandoned before completion
+     */
+    @Scheduled(fixedDelayString = "${app.claims.documents.cleanup-interval-ms:3600000}")
+    public void purgeExpiredUploads() {
+        List<DocumentUploadSession> expired = uploadSessionRepository.findExpiredSessions(LocalDateTime.now());
+        for (DocumentUploadSession session : expired) {
+            try {
+                Files.deleteIfExists(partPath(session.getId()));
+            } catch (IOException e) {
+                log.warn("Could not delete part file of upload {}", session.getId(), e);
+            }
+            digests.remove(session.getId());
+            uploadSessionRepository.delete(session);
+        }
+        if (!expired.isEmpty()) {
+            log.info("Purged {} expired uploads", expired.size());
+        }
+    }
+
+    private ClaimDocument completeUpload(DocumentUploadSession session, Path part, UploadDigest digest) throws IOException {
+        String sha256 = digest != null && digest.offset == session.getTotalSize()
+                ? HexFormat.of().formatHex(digest.messageDigest.digest())
+                : hashFile(part);
+        digests.remove(session.getId());
+
+        // The blob row lock serializes this with a concurrent delete of the same content
+        jdbcTemplate.update(ADD_BLOB_REFERENCE_SQL, sha256, session.getTotalSize());
+        Path object = objectPath(sha256);
+        if (Files.exists(object)) {
+            log.info("Upload {} deduplicated to existing object {}", session.getId(), sha256);
+        } else {
+            storeObject(part, object);
+        }
+        afterCommit(() -> deleteQuietly(part));
+
+        ClaimDocument document = ClaimDocument.builder()
+                .claimId(session.getClaimId())
+                .documentType(session.getDocumentType())
+                .fileName(session.getFileName())
+                .filePath(storageDirectory.relativize(object).toString())
+                .fileSize(session.getTotalSize())
+                .mimeType(session.getMimeType())
+                .contentSha256(sha256)
+                .uploadedBy(session.getUploadedBy())
+                .isVerified(false)
+                .build();
+        ClaimDocument savedDocument = claimDocumentRepository.save(document);
+
+        session.setStatus(DocumentUploadSession.UploadStatus.COMPLETED);
+        session.setDocumentId(savedDocument.getId());
+        log.info("Document {} stored for claim {}", savedDocument.getId(), session.getClaimId());
+        return savedDocument;
+    }
+
+    /**
+     * Copy a part file to its object path through a temporary file; the part is left in place,
+     * and an object already stored by an earlier attempt is simply replaced with the same content
+     */
+    private void storeObject(Path part, Path object) throws IOException {
+        Files.createDirectories(object.getParent());
+        Path staging = object.resolveSibling(object.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.copy(part, staging);
+            Files.move(staging, object, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    /**
+     * Remove an object whose last reference was deleted, unless an upload has referenced it since
+     */
+    private void deleteObject(String sha256) {
+        Integer references = jdbcTemplate.queryForObject(BLOB_EXISTS_SQL, Integer.class, sha256);
+        if (references != null && references > 0) {
+            log.info("Document object {} was referenced again and is kept", sha256);
+            return;
+        }
+        deleteQuietly(objectPath(sha256));
+        log.info("Deleted document object {}", sha256);
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", file, e);
+        }
+    }
+
+    /**
+     * Run a file operation once the current transaction commits, or right away without one
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private String hashFile(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private Path partPath(String uploadId) {
+        return storageDirectory.resolve("uploads").resolve(uploadId + ".part");
+    }
+
+    private Path objectPath(String sha256) {
+        return storageDirectory.resolve("objects").resolve(sha256.substring(0, 2))
+                .resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    private static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Convert session to response DTO
+     */
+    private UploadSessionResponse convertToResponse(DocumentUploadSession session, ClaimDocument document) {
+        return UploadSessionResponse.builder()
+                .uploadId(session.getId())
+                .claimId(session.getClaimId())
+                .fileName(session.getFileName())
+                .documentType(session.getDocumentType())
+                .totalSize(session.getTotalSize())
+                .receivedBytes(session.getReceivedBytes())
+                .status(session.getStatus())
+                .expiresAt(session.getExpiresAt())
+                .document(document != null ? convertToResponse(document) : null)
+                .build();
+    }
+
+    /**
+     * Convert entity to response DTO
+     */
+    private ClaimDocumentResponse convertToResponse(ClaimDocument document) {
+        return ClaimDocumentResponse.builder()
+                .id(document.getId())
+                .claimId(document.getClaimId())
+                .documentType(document.getDocumentType())
+                .fileName(document.getFileName())
+                .fileSize(document.getFileSize())
+                .mimeType(document.getMimeType())
+                .contentSha256(document.getContentSha256())
+                .uploadedAt(document.getUploadedAt())
+                .uploadedBy(document.getUploadedBy())
+                .isVerified(document.getIsVerified())
+                .verificationNotes(document.getVerificationNotes())
+                .documentTypeDisplayName(document.getDocumentType().getDisplayName())
+                .build();
+    }
+
+    /**
+     * Stored content of a document
+     */
+    public record DocumentContent(Path path, long size, String mimeType, String fileName, String sha256) {
+    }
+
+    private static final class UploadDigest {
+
+        private final MessageDigest messageDigest;
+        private long offset;
+
+        UploadDigest(MessageDigest messageDigest) {
+            this.messageDigest = messageDigest;
+        }
+    }
+
+    /**
+     * Updates a digest with every byte read from the wrapped channel
+     */
+    private static final class DigestingChannel implements ReadableByteChannel {
+
+        private final ReadableByteChannel source;
+        private final MessageDigest digest;
+
+        DigestingChannel(ReadableByteChannel source, MessageDigest digest) {
+            this.source = source;
+            this.digest = digest;
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            int start = destination.position();
+            int read = source.read(destination);
+            if (read > 0) {
+                ByteBuffer view = destination.duplicate();
+                view.position(start).limit(start + read);
+                digest.update(view);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return source.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.codes.CodeSystem;
+import com.gvkss.patil.claim_service.dto.IngestionJobResponse;
+import com.gvkss.patil.claim_service.dto.IngestionJobResponse.JobStatus;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import com.gvkss.patil.claim_service.x12.Claim837Parser;
+import com.gvkss.patil.claim_service.x12.X12FormatException;
+import com.gvkss.patil.claim_service.x12.X12SegmentReader;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Claim Ingestion Service
+ *
+ * Runs X12 837 file ingestion jobs. The uploaded file is spooled to disk and memory-mapped;
+ * the parser thread maps claims and hands fixed-size batches to writer threads through a
+ * bounded queue, so parsing blocks (back-pressure) whenever inserts fall behind. Each batch
+ * gets its claim numbers in one allocation and is inserted with a single JDBC batch.
+ *
+ * Ingested claims go through the same checks as claims created through the API: codes are
+ * validated as they are parsed, each batch is scored for anomalies in its transaction, and SLA
+ * timers start once it commits. If a writer stops, the parser stops waiting on the queue and the
+ * job fails rather than hanging.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class ClaimIngestionService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO insurance_claims (claim_number, patient_id, doctor_id, provider_id, claim_type, " +
+            "claim_status, total_amount, deductible_amount, copay_amount, coinsurance_amount, treatment_date, " +
+            "service_description, diagnosis_code, procedure_code, is_emergency, priority, submitted_at, notes, " +
+            "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Marks the end of input for one writer; compared by identity
+     */
+    private static final List<InsuranceClaim> END_OF_INPUT = List.of();
+
+    /**
+     * How often a blocked hand-off checks that the writers are still running
+     */
+    private static final long HAND_OFF_CHECK_MILLIS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NumberAllocator numberAllocator;
+    private final CodeDictionaryService codeDictionaryService;
+    private final ClaimAnomalyService claimAnomalyService;
+    private final ClaimSlaService claimSlaService;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final int writerThreads;
+    private final int maxErrors;
+    private final int retainedJobs;
+    private final ExecutorService jobExecutor;
+    private final ExecutorService writerExecutor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public ClaimIngestionService(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 NumberAllocator numberAllocator,
+                                 CodeDictionaryService codeDictionaryService,
+                                 ClaimAnomalyService claimAnomalyService,
+                                 ClaimSlaService claimSlaService,
+                                 @Value("${app.claims.ingest.batch-size:500}") int batchSize,
+                                 @Value("${app.claims.ingest.queue-capacity:8}") int queueCapacity,
+                                 @Value("${app.claims.ingest.writer-threads:2}") int writerThreads,
+                                 @Value("${app.claims.ingest.concurrent-jobs:2}") int concurrentJobs,
+                                 @Value("${app.claims.ingest.max-errors:200}") int maxErrors,
+                                 @Value("${app.claims.ingest.retained-jobs:100}") int retainedJobs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.numberAllocator = numberAllocator;
+        this.codeDictionaryService = codeDictionaryService;
+        this.claimAnomalyService = claimAnomalyService;
+        this.claimSlaService = claimSlaService;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.writerThreads = writerThreads;
+        this.maxErrors = maxErrors;
+        this.retainedJobs = retainedJobs;
+        this.jobExecutor = Executors.newFixedThreadPool(concurrentJobs);
+        this.writerExecutor = Executors.newFixedThreadPool(concurrentJobs * writerThreads);
+    }
+
+    /**
+     * Accept an 837 file and start an ingestion job
+     */
+    public IngestionJobResponse submit837(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("837 file is required");
+        }
+        log.info("Accepting 837 file: {} ({} bytes)", file.getOriginalFilename(), file.getSize());
+
+        Path spool = Files.createTempFile("claims-837-", ".x12");
+        try {
+            file.transferTo(spool);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), file.getOriginalFilename(), Files.size(spool), maxErrors);
+        pruneFinishedJobs();
+        jobs.put(job.id, job);
+        jobExecutor.execute(() -> run(job, spool));
+        return job.toResponse();
+    }
+
+    /**
+     * Get ingestion job progress
+     */
+    public IngestionJobResponse getJob(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("Ingestion job not found with ID: " + jobId);
+        }
+        return job.toResponse();
+    }
+
+    /**
+     * Get all retained ingestion jobs, newest first
+     */
+    public List<IngestionJobResponse> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing((Job job) -> job.createdAt).reversed())
+                .map(Job::toResponse)
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        writerExecutor.shutdownNow();
+    }
+
+    private void run(Job job, Path spool) {
+        job.start();
+        log.info("Ingestion job {} started for {}", job.id, job.fileName);
+
+        BlockingQueue<List<InsuranceClaim>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        List<Future<?>> writers = new ArrayList<>(writerThreads);
+        for (int i = 0; i < writerThreads; i++) {
+            writers.add(writerExecutor.submit(() -> write(job, queue)));
+        }
+
+        // The reader is closed, and the spool unmapped, before the spool is deleted below
+        try (X12SegmentReader reader = X12SegmentReader.open(spool)) {
+            BatchingListener listener = new BatchingListener(job, reader, queue, writers);
+            new Claim837Parser(LocalDate.now()).parse(reader, listener);
+            listener.flush();
+            job.progress(reader);
+        } catch (X12FormatException | IOException e) {
+            log.error("Ingestion job {} failed: {}", job.id, e.getMessage());
+            job.fail(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Ingestion interrupted");
+        } catch (RuntimeException e) {
+            log.error("Ingestion job {} failed", job.id, e);
+            job.fail(e.getMessage());
+        } finally {
+            awaitWriters(job, queue, writers);
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                log.warn("Could not delete spool file {}", spool, e);
+            }
+            job.finish();
+            log.info("Ingestion job {} finished: {} inserted, {} rejected, {} failed in {} ms",
+                    job.id, job.inserted.get(), job.rejected.get(), job.failed.get(), job.elapsed().toMillis());
+        }
+    }
+
+    private void write(Job job, BlockingQueue<List<InsuranceClaim>> queue) {
+        while (true) {
+            List<InsuranceClaim> batch;
+            try {
+                batch = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch == END_OF_INPUT) {
+                return;
+            }
+            try {
+                insertBatch(job, batch);
+                job.inserted.addAndGet(batch.size());
+            } catch (RuntimeException e) {
+                log.error("Ingestion job {}: batch of {} claims failed", job.id, batch.size(), e);
+                job.failed.addAndGet(batch.size());
+                job.error("Batch of " + batch.size() + " claims failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Insert a batch in one transaction, scoring each claim before it commits and starting its SLA
+     * timer after
+     */
+    private void insertBatch(Job job, List<InsuranceClaim> batch) {
+        List<String> numbers = numberAllocator.allocate(ClaimService.CLAIM_NUMBER_PREFIX,
+                ClaimService.CLAIM_NUMBER_SEQUENCE, batch.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, new String[] {"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            bind(ps, batch.get(i), numbers.get(i), now);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batch.size();
+                        }
+                    }, keyHolder);
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < batch.size(); i++) {
+                InsuranceClaim claim = batch.get(i);
+                claim.setId(((Number) keys.get(i).get("id")).longValue());
+                claim.setClaimNumber(numbers.get(i));
+                claim.setCreatedAt(now);
+                claim.setUpdatedAt(now);
+                // Anomaly scoring is advisory and must never fail a batch
+                try {
+                    claimAnomalyService.score(claim);
+                } catch (RuntimeException e) {
+                    log.error("Ingestion job {}: anomaly scoring failed for claim {}", job.id, claim.getClaimNumber(), e);
+                }
+            }
+        });
+        batch.forEach(claimSlaService::track);
+    }
+
+    private static void bind(PreparedStatement ps, InsuranceClaim claim, String claimNumber, LocalDateTime now)
+            throws SQLException {
+        ps.setString(1, claimNumber);
+        ps.setLong(2, claim.getPatientId());
+        ps.setObject(3, claim.getDoctorId(), Types.BIGINT);
+        ps.setObject(4, claim.getProviderId(), Types.BIGINT);
+        ps.setString(5, claim.getClaimType().name());
+        ps.setString(6, claim.getClaimStatus().name());
+        ps.setBigDecimal(7, claim.getTotalAmount());
+        ps.setBigDecimal(8, claim.getDeductibleAmount());
+        ps.setBigDecimal(9, claim.getCopayAmount());
+        ps.setBigDecimal(10, claim.getCoinsuranceAmount());
+        ps.setObject(11, claim.getTreatmentDate());
+        ps.setString(12, claim.getServiceDescription());
+        ps.setString(13, claim.getDiagnosisCode());
+        ps.setString(14, claim.getProcedureCode());
+        ps.setBoolean(15, claim.getIsEmergency());
+        ps.setString(16, claim.getPriority().name());
+        ps.setObject(17, claim.getSubmittedAt());
+        ps.setString(18, claim.getNotes());
+        ps.setObject(19, now);
+        ps.setObject(20, now);
+    }
+
+    private void awaitWriters(Job job, BlockingQueue<List<InsuranceClaim>> queue, List<Future<?>> writers) {
+        try {
+            for (int i = 0; i < writers.size(); i++) {
+                handOff(queue, END_OF_INPUT, writers);
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writers.forEach(writer -> writer.cancel(true));
+            job.fail("Ingestion interrupted");
+        } catch (WritersStoppedException e) {
+            // The rest are waiting on a queue nobody will fill again
+            writers.forEach(writer -> writer.cancel(true));
+            job.fail(e.getMessage());
+        } catch (ExecutionException e) {
+            job.fail(e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Put a batch on the queue, waiting while it is full, unless a writer has stopped: writers only
+     * return after END_OF_INPUT, so one that is done before then has died and the queue may never
+     * drain
+     */
+    private static void handOff(BlockingQueue<List<InsuranceClaim>> queue, List<InsuranceClaim> batch,
+                                List<Future<?>> writers) throws InterruptedException {
+        while (!queue.offer(batch, HAND_OFF_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+            for (Future<?> writer : writers) {
+                if (writer.isDone()) {
+                    throw new WritersStoppedException(writer);
+                }
+            }
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        if (jobs.size() < retainedJobs) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(job -> job.finishedAt != null)
+                .sorted(Comparator.comparing((Job job) -> job.finishedAt))
+                .limit(jobs.size() - retainedJobs + 1L)
+                .forEach(job -> jobs.remove(job.id));
+    }
+
+    /**
+     * Collects parsed claims into batches and blocks on the queue when writers are behind
+     */
+    private final class BatchingListener implements Claim837Parser.Listener {
+
+        private final Job job;
+        private final X12SegmentReader reader;
+        private final BlockingQueue<List<InsuranceClaim>> queue;
+        private final List<Future<?>> writers;
+        private List<InsuranceClaim> batch = new ArrayList<>(batchSize);
+
+        BatchingListener(Job job, X12SegmentReader reader, BlockingQueue<List<InsuranceClaim>> queue,
+                         List<Future<?>> writers) {
+            this.job = job;
+            this.reader = reader;
+            this.queue = queue;
+            this.writers = writers;
+        }
+
+        @Override
+        public void onClaim(InsuranceClaim claim) throws InterruptedException {
+            try {
+                codeDictionaryService.validate(CodeSystem.ICD10, claim.getDiagnosisCode());
+                codeDictionaryService.validate(CodeSystem.CPT, claim.getProcedureCode());
+            } catch (RuntimeException e) {
+                job.rejected.incrementAndGet();
+                job.error(claim.getNotes() + ": " + e.getMessage());
+                return;
+            }
+            batch.add(claim);
+            job.parsed.incrementAndGet();
+            if (batch.size() == batchSize) {
+                job.progress(reader);
+                flush();
+            }
+        }
+
+        @Override
+        public void onRejected(String patientControlNumber, long segment, String reason) {
+            job.rejected.incrementAndGet();
+            job.error("Claim " + patientControlNumber + " (segment " + segment + "): " + reason);
+        }
+
+        void flush() throws InterruptedException {
+            if (!batch.isEmpty()) {
+                handOff(queue, batch, writers);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    /**
+     * Raised when a writer has stopped before the end of input
+     */
+    private static final class WritersStoppedException extends RuntimeException {
+
+        WritersStoppedException(Future<?> writer) {
+            super("Claim writer stopped unexpectedly" + cause(writer));
+        }
+
+        private static String cause(Future<?> writer) {
+            try {
+                writer.get();
+                return "";
+            } catch (ExecutionException e) {
+                return ": " + e.getCause();
+            } catch (Exception e) {
+                return "";
+            }
+        }
+    }
+
+    /**
+     * In-memory job state, updated by the parser and writer threads
+     */
+    private static final class Job {
+
+        private final String id;
+        private final String fileName;
+        private final long fileSize;
+        private final int maxErrors;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong segments = new AtomicLong();
+        private final AtomicLong parsed = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final List<String> errors = new ArrayList<>();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile String failure;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile long startNanos;
+        private volatile long endNanos;
+
+        Job(String id, String fileName, long fileSize, int maxErrors) {
+            this.id = id;
+            this.fileName = fileName;
+            this.fileSize = fileSize;
+            this.maxErrors = maxErrors;
+        }
+
+        void start() {
+            startNanos = System.nanoTime();
+            startedAt = LocalDateTime.now();
+            status = JobStatus.RUNNING;
+        }
+
+        void progress(X12SegmentReader reader) {
+            bytesRead.set(reader.position());
+            segments.set(reader.segmentCount());
+        }
+
+        void error(String message) {
+            errorCount.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(message);
+                }
+            }
+        }
+
+        void fail(String message) {
+            failure = message;
+            error(message);
+        }
+
+        void finish() {
+            endNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+            if (failure != null) {
+                status = JobStatus.FAILED;
+            } else if (rejected.get() > 0 || failed.get() > 0) {
+                status = JobStatus.COMPLETED_WITH_ERRORS;
+            } else {
+                status = JobStatus.COMPLETED;
+            }
+        }
+
+        Duration elapsed() {
+            if (startNanos == 0) {
+                return Duration.ZERO;
+            }
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            return Duration.ofNanos(end - startNanos);
+        }
+
+        IngestionJobResponse toResponse() {
+            double seconds = elapsed().toNanos() / 1_000_000_000.0;
+            long read = bytesRead.get();
+            List<String> errorList;
+            synchronized (errors) {
+                errorList = List.copyOf(errors);
+            }
+            return IngestionJobResponse.builder()
+                    .jobId(id)
+                    .fileName(fileName)
+                    .status(status)
+                    .fileSize(fileSize)
+                    .bytesRead(read)
+                    .progressPercent(fileSize > 0 ? (int) (read * 100 / fileSize) : 0)
+                    .segmentsRead(segments.get())
+                    .claimsParsed(parsed.get())
+                    .claimsInserted(inserted.get())
+                    .claimsRejected(rejected.get())
+                    .claimsFailed(failed.get())
+                    .claimsPerSecond(seconds > 0 ? inserted.get() / seconds : 0)
+                    .bytesPerSecond(seconds > 0 ? read / seconds : 0)
+                    .errorCount(errorCount.get())
+                    .errors(errorList)
+                    .createdAt(createdAt)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Claim Partition Maintenance Service
+ *
+ * Keeps monthly HOT partitions of insurance_claims created ahead of time and moves
+ * closed-out claims older than the configured age to the ARCHIVE tier in small batches.
+ * Each statement runs in its own transaction so archival never holds long locks.
+ * A claim moved out of a closed-out status is moved back to HOT, so open claims are
+ * always found in the HOT tier.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ClaimPartitionService {
+
+    /**
+     * Statuses that close out a claim and make it eligible for archival
+     */
+    public static final Set<InsuranceClaim.ClaimStatus> ARCHIVABLE_STATUSES =
+            EnumSet.of(InsuranceClaim.ClaimStatus.PAID, InsuranceClaim.ClaimStatus.REJECTED);
+
+    private static final String ARCHIVABLE_STATUS_LIST = ARCHIVABLE_STATUSES.stream()
+            .map(status -> "'" + status.name() + "'")
+            .collect(Collectors.joining(", "));
+
+    private static final String FIND_ARCHIVE_YEARS_SQL =
+            "SELECT DISTINCT date_trunc('year', treatment_date)::date FROM insurance_claims " +
+            "WHERE storage_tier = 'HOT' AND treatment_date < ? AND claim_status IN (" + ARCHIVABLE_STATUS_LIST + ")";
+
+    private static final String ARCHIVE_BATCH_SQL =
+            "UPDATE insurance_claims SET storage_tier = 'ARCHIVE' " +
+            "WHERE storage_tier = 'HOT' AND treatment_date < ? AND (id, treatment_date) IN (" +
+            "SELECT id, treatment_date FROM insurance_claims " +
+            "WHERE storage_tier = 'HOT' AND treatment_date < ? AND claim_status IN (" + ARCHIVABLE_STATUS_LIST + ") " +
+            "LIMIT ?)";
+
+    private static final String RESTORE_SQL =
+            "UPDATE insurance_claims SET storage_tier = 'HOT' WHERE id = ? AND treatment_date = ? AND storage_tier = 'ARCHIVE'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.claims.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${app.claims.archive.enabled:true}")
+    private boolean archiveEnabled;
+
+    @Value("${app.claims.archive.after-days:365}")
+    private int archiveAfterDays;
+
+    @Value("${app.claims.archive.batch-size:5000}")
+    private int archiveBatchSize;
+
+    /**
+     * Make sure upcoming partitions exist before the first claim is accepted
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            ensureFuturePartitions();
+        } catch (Exception e) {
+            log.error("Error creating claim partitions at startup: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Nightly partition maintenance and archival
+     */
+    @Scheduled(cron = "${app.claims.partitioning.maintenance-cron:0 15 2 * * *}")
+    public void runMaintenance() {
+        try {
+            ensureFuturePartitions();
+            if (archiveEnabled) {
+                archiveClosedClaims();
+            }
+        } catch (Exception e) {
+            log.error("Error during claim partition maintenance: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Create monthly HOT partitions from the current month through the configured horizon
+     */
+    public int ensureFuturePartitions() {
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        int created = 0;
+        for (int i = 0; i <= monthsAhead; i++) {
+            Boolean result = jdbcTemplate.queryForObject("SELECT ensure_insurance_claims_month(?)",
+                    Boolean.class, Date.valueOf(month.plusMonths(i)));
+            if (Boolean.TRUE.equals(result)) {
+                created++;
+            }
+        }
+        if (created > 0) {
+            log.info("Created {} claim partitions", created);
+        }
+        return created;
+    }
+
+    /**
+     * Move closed-out claims older than the configured age to the ARCHIVE tier
+     */
+    public long archiveClosedClaims() {
+        LocalDate cutoff = LocalDate.now().minusDays(archiveAfterDays);
+        Date cutoffDate = Date.valueOf(cutoff);
+        log.info("Archiving {} claims with treatment date before {}", ARCHIVABLE_STATUSES, cutoff);
+
+        List<Date> years = jdbcTemplate.queryForList(FIND_ARCHIVE_YEARS_SQL, Date.class, cutoffDate);
+        for (Date year : years) {
+            jdbcTemplate.queryForObject("SELECT ensure_insurance_claims_archive_year(?)", Boolean.class, year);
+        }
+
+        long archived = 0;
+        int moved;
+        do {
+            moved = jdbcTemplate.update(ARCHIVE_BATCH_SQL, cutoffDate, cutoffDate, archiveBatchSize);
+            archived += moved;
+        } while (moved == archiveBatchSize);
+
+        log.info("Archived {} claims", archived);
+        return archived;
+    }
+
+    /**
+     * Move an archived claim back to the HOT tier when it is reopened
+     */
+    public boolean restoreToHot(InsuranceClaim claim) {
+        int moved = jdbcTemplate.update(RESTORE_SQL, claim.getId(), Date.valueOf(claim.getTreatmentDate()));
+        if (moved > 0) {
+            log.info("Moved reopened claim {} back to the HOT tier", claim.getId());
+        }
+        return moved > 0;
+    }
+}
@@ -1,5 +1,6 @@
 package com.gvkss.patil.claim_service.service;
 
+import com.gvkss.patil.claim_service.codes.CodeSystem;
 import com.gvkss.patil.claim_service.dto.*;
 import com.gvkss.patil.claim_service.entity.InsuranceClaim;
 import com.gvkss.patil.claim_service.repository.ClaimRepository;
@@ -14,10 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * Claim Service Implementation
@@ -32,7 +30,17 @@ import java.util.stream.Collectors;
 @Transactional
 public class ClaimService {
     
+    static final String CLAIM_NUMBER_PREFIX = "CLM";
+    static final String CLAIM_NUMBER_SEQUENCE = "claim_number_seq";
+    
     private final ClaimRepository claimRepository;
+    private final NumberAllocator numberAllocator;
+    private final CodeDictionaryService codeDictionaryService;
+    private final FeeScheduleService feeScheduleService;
+    private final BenefitAccumulatorService benefitAccumulatorService;
+    private final ClaimAnomalyService claimAnomalyService;
+    private final ClaimSlaService claimSlaService;
+    private final ClaimPartitionService claimPartitionService;
     
     /**
      * Create a new claim
@@ -40,6 +48,9 @@ public class ClaimService {
     public ClaimResponse createClaim(CreateClaimRequest request) {
         log.info("Creating new claim for patient: {}", request.getPatientId());
         
+        codeDictionaryService.validate(CodeSystem.ICD10, request.getDiagnosisCode());
+        codeDictionaryService.validate(CodeSystem.CPT, request.getProcedureCode());
+        
         // Generate unique claim number
         String claimNumber = generateClaimNumber();
         
@@ -67,6 +78,14 @@ public class ClaimService {
         
         InsuranceClaim savedClaim = claimRepository.save(claim);
         log.info("Claim created successfully with ID: {}", savedClaim.getId());
+        claimSlaService.track(savedClaim);
+        
+        // Anomaly scoring is advisory and must never block a submission
+        try {
+            claimAnomalyService.score(savedClaim);
+        } catch (Exception e) {
+            log.error("Anomaly scoring failed for claim: {}", savedClaim.getId(), e);
+        }
         
         return convertToResponse(savedClaim);
     }
@@ -101,60 +120,113 @@ public class ClaimService {
      * Get all claims with pagination
      */
     @Transactional(readOnly = true)
-    public Page<ClaimResponse> getAllClaims(int page, int size, String sortBy, String sortDir) {
+    public Page<InsuranceClaim> getAllClaims(int page, int size, String sortBy, String sortDir) {
         log.info("Fetching all claims - page: {}, size: {}, sortBy: {}, sortDir: {}", page, size, sortBy, sortDir);
         
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
         
-        Page<InsuranceClaim> claims = claimRepository.findAll(pageable);
-        return claims.map(this::convertToResponse);
+        return claimRepository.findAll(pageable);
     }
     
     /**
      * Get claims by patient ID
      */
     @Transactional(readOnly = true)
-    public Page<ClaimResponse> getClaimsByPatientId(Long patientId, int page, int size, String sortBy, String sortDir) {
+    public Page<InsuranceClaim> getClaimsByPatientId(Long patientId, int page, int size, String sortBy, String sortDir) {
         log.info("Fetching claims for patient: {}", patientId);
         
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
         
-        Page<InsuranceClaim> claims = claimRepository.findByPatientId(patientId, pageable);
-        return claims.map(this::convertToResponse);
+        return claimRepository.findByPatientId(patientId, pageable);
     }
     
     /**
      * Get claims by doctor ID
      */
     @Transactional(readOnly = true)
-    public Page<ClaimResponse> getClaimsByDoctorId(Long doctorId, int page, int size, String sortBy, String sortDir) {
+    public Page<InsuranceClaim> getClaimsByDoctorId(Long doctorId, int page, int size, String sortBy, String sortDir) {
         log.info("Fetching claims for doctor: {}", doctorId);
         
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
         
-        Page<InsuranceClaim> claims = claimRepository.findByDoctorId(doctorId, pageable);
-        return claims.map(this::convertToResponse);
+        return claimRepository.findByDoctorId(doctorId, pageable);
     }
     
     /**
      * Get claims by status
      */
     @Transactional(readOnly = true)
-    public Page<ClaimResponse> getClaimsByStatus(InsuranceClaim.ClaimStatus status, int page, int size, String sortBy, String sortDir) {
+    public Page<InsuranceClaim> getClaimsByStatus(InsuranceClaim.ClaimStatus status, int page, int size, String sortBy, String sortDir) {
         log.info("Fetching claims with status: {}", status);
         
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
         
-        Page<InsuranceClaim> claims = claimRepository.findByClaimStatus(status, pageable);
-        return claims.map(this::convertToResponse);
+        if (isHotOnly(status)) {
+            return claimRepository.findByClaimStatusAndStorageTier(status, InsuranceClaim.StorageTier.HOT, pageable);
+        }
+        return claimRepository.findByClaimStatus(status, pageable);
+    }
+    
+    /**
+     * Get claim summaries with pagination
+     */
+    @Transactional(readOnly = true)
+    public Page<ClaimSummary> getClaimSummaries(int page, int size, String sortBy, String sortDir) {
+        log.info("Fetching claim summaries - page: {}, size: {}, sortBy: {}, sortDir: {}", page, size, sortBy, sortDir);
+        
+        return claimRepository.findAllProjectedBy(buildPageable(page, size, sortBy, sortDir));
+    }
+    
+    /**
+     * Get claim summaries by patient ID
+     */
+    @Transactional(readOnly = true)
+    public Page<ClaimSummary> getClaimSummariesByPatientId(Long patientId, int page, int size, String sortBy, String sortDir) {
+        log.info("Fetching claim summaries for patient: {}", patientId);
+        
+        return claimRepository.findSummariesByPatientId(patientId, buildPageable(page, size, sortBy, sortDir));
+    }
+    
+    /**
+     * Get claim summaries of a patient submitted before a (submittedAt, id) position, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<ClaimSummary> getClaimSummariesByPatientIdBefore(Long patientId, LocalDateTime before, Long beforeId, int limit) {
+        log.info("Fetching claim timeline for patient: {} before {}", patientId, before);
+        
+        return claimRepository.findSummariesByPatientIdBefore(patientId, before, beforeId, PageRequest.of(0, limit));
+    }
+    
+    /**
+     * Get claim summaries by doctor ID
+     */
+    @Transactional(readOnly = true)
+    public Page<ClaimSummary> getClaimSummariesByDoctorId(Long doctorId, int page, int size, String sortBy, String sortDir) {
+        log.info("Fetching claim summaries for doctor: {}", doctorId);
+        
+        return claimRepository.findSummariesByDoctorId(doctorId, buildPageable(page, size, sortBy, sortDir));
+    }
+    
+    /**
+     * Get claim summaries by status
+     */
+    @Transactional(readOnly = true)
+    public Page<ClaimSummary> getClaimSummariesByStatus(InsuranceClaim.ClaimStatus status, int page, int size, String sortBy, String sortDir) {
+        log.info("Fetching claim summaries with status: {}", status);
+        
+        Pageable pageable = buildPageable(page, size, sortBy, sortDir);
+        if (isHotOnly(status)) {
+            return claimRepository.findSummariesByClaimStatusAndStorageTier(status, InsuranceClaim.StorageTier.HOT, pageable);
+        }
+        return claimRepository.findSummariesByClaimStatus(status, pageable);
     }
     
     /**
@@ -195,9 +267,11 @@ public class ClaimService {
             existingClaim.setServiceDescription(request.getServiceDescription());
         }
         if (request.getDiagnosisCode() != null) {
+            codeDictionaryService.validate(CodeSystem.ICD10, request.getDiagnosisCode());
             existingClaim.setDiagnosisCode(request.getDiagnosisCode());
         }
         if (request.getProcedureCode() != null) {
+            codeDictionaryService.validate(CodeSystem.CPT, request.getProcedureCode());
             existingClaim.setProcedureCode(request.getProcedureCode());
         }
         if (request.getIsEmergency() != null) {
@@ -209,9 +283,18 @@ public class ClaimService {
         if (request.getNotes() != null) {
             existingClaim.setNotes(request.getNotes());
         }
+        if (request.getProviderId() != null || request.getProcedureCode() != null
+                || request.getTotalAmount() != null || request.getTreatmentDate() != null) {
+            // Pricing inputs changed; the claim is priced again at review or by the next bulk run
+            existingClaim.setAllowedAmount(null);
+        }
         
         InsuranceClaim updatedClaim = claimRepository.save(existingClaim);
         log.info("Claim updated successfully: {}", updatedClaim.getId());
+        if (request.getIsEmergency() != null) {
+            // The emergency deadline is shorter; move the timer
+            claimSlaService.track(updatedClaim);
+        }
         
         return convertToResponse(updatedClaim);
     }
@@ -226,24 +309,40 @@ public class ClaimService {
                 .orElseThrow(() -> new RuntimeException("Claim not found with ID: " + id));
         
         existingClaim.setClaimStatus(request.getClaimStatus());
+        if (existingClaim.getStorageTier() == InsuranceClaim.StorageTier.ARCHIVE && isHotOnly(request.getClaimStatus())) {
+            // A reopened claim leaves the archive, where queries for open claims do not look
+            claimPartitionService.restoreToHot(existingClaim);
+            existingClaim.setStorageTier(InsuranceClaim.StorageTier.HOT);
+        }
         
         // Set timestamps based on status
         LocalDateTime now = LocalDateTime.now();
         switch (request.getClaimStatus()) {
             case UNDER_REVIEW:
                 existingClaim.setReviewedAt(now);
+                if (existingClaim.getAllowedAmount() == null && !feeScheduleService.priceClaim(existingClaim)) {
+                    log.info("No fee schedule rate for claim {} ({})", id, existingClaim.getProcedureCode());
+                }
                 break;
             case APPROVED:
                 existingClaim.setApprovedAt(now);
                 if (request.getApprovedAmount() != null) {
                     existingClaim.setApprovedAmount(request.getApprovedAmount());
                 }
+                benefitAccumulatorService.post(existingClaim);
                 break;
             case REJECTED:
                 existingClaim.setRejectionReason(request.getRejectionReason());
+                // Takes back the cost share of a claim rejected after approval; no-op otherwise
+                benefitAccumulatorService.reverse(existingClaim);
                 break;
             case PAID:
                 existingClaim.setPaidAt(now);
+                // No-op when the claim was already applied at approval
+                benefitAccumulatorService.post(existingClaim);
+                break;
+            case CANCELLED:
+                benefitAccumulatorService.reverse(existingClaim);
                 break;
         }
         
@@ -253,6 +352,7 @@ public class ClaimService {
         
         InsuranceClaim updatedClaim = claimRepository.save(existingClaim);
         log.info("Claim status updated successfully: {}", updatedClaim.getId());
+        claimSlaService.track(updatedClaim);
         
         return convertToResponse(updatedClaim);
     }
@@ -268,6 +368,7 @@ public class ClaimService {
         }
         
         claimRepository.deleteById(id);
+        claimSlaService.untrack(id);
         log.info("Claim deleted successfully: {}", id);
     }
     
@@ -275,42 +376,32 @@ public class ClaimService {
      * Get recent claims for patient
      */
     @Transactional(readOnly = true)
-    public List<ClaimResponse> getRecentClaimsByPatientId(Long patientId, int limit) {
+    public List<InsuranceClaim> getRecentClaimsByPatientId(Long patientId, int limit) {
         log.info("Fetching recent claims for patient: {}", patientId);
         
         Pageable pageable = PageRequest.of(0, limit, Sort.by("createdAt").descending());
-        List<InsuranceClaim> claims = claimRepository.findRecentClaimsByPatientId(patientId, pageable);
-        
-        return claims.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return claimRepository.findRecentClaimsByPatientId(patientId, pageable);
     }
     
     /**
      * Get pending claims for doctor
      */
     @Transactional(readOnly = true)
-    public List<ClaimResponse> getPendingClaimsForDoctor(Long doctorId) {
+    public List<InsuranceClaim> getPendingClaimsForDoctor(Long doctorId) {
         log.info("Fetching pending claims for doctor: {}", doctorId);
         
-        List<InsuranceClaim> claims = claimRepository.findPendingClaimsForDoctor(doctorId);
-        
-        return claims.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return claimRepository.findPendingClaimsForDoctor(doctorId);
     }
     
     /**
      * Get claims for insurance review
      */
     @Transactional(readOnly = true)
-    public Page<ClaimResponse> getClaimsForInsuranceReview(int page, int size) {
+    public Page<InsuranceClaim> getClaimsForInsuranceReview(int page, int size) {
         log.info("Fetching claims for insurance review");
         
         Pageable pageable = PageRequest.of(page, size, Sort.by("submittedAt").ascending());
-        Page<InsuranceClaim> claims = claimRepository.findClaimsForInsuranceReview(pageable);
-        
-        return claims.map(this::convertToResponse);
+        return claimRepository.findClaimsForInsuranceReview(pageable);
     }
     
     /**
@@ -321,8 +412,8 @@ public class ClaimService {
         log.info("Fetching claim statistics for patient: {}", patientId);
         
         long totalClaims = claimRepository.countByPatientId(patientId);
-        long pendingClaims = claimRepository.countByClaimStatus(InsuranceClaim.ClaimStatus.SUBMITTED);
-        long approvedClaims = claimRepository.countByClaimStatus(InsuranceClaim.ClaimStatus.APPROVED);
+        long pendingClaims = claimRepository.countByClaimStatusAndStorageTier(InsuranceClaim.ClaimStatus.SUBMITTED, InsuranceClaim.StorageTier.HOT);
+        long approvedClaims = claimRepository.countByClaimStatusAndStorageTier(InsuranceClaim.ClaimStatus.APPROVED, InsuranceClaim.StorageTier.HOT);
         long rejectedClaims = claimRepository.countByClaimStatus(InsuranceClaim.ClaimStatus.REJECTED);
         
         Double totalAmount = claimRepository.getTotalAmountByPatientId(patientId);
@@ -342,9 +433,23 @@ public class ClaimService {
      * Generate unique claim number
      */
     private String generateClaimNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String randomSuffix = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        return "CLM-" + timestamp + "-" + randomSuffix;
+        return numberAllocator.next(CLAIM_NUMBER_PREFIX, CLAIM_NUMBER_SEQUENCE);
+    }
+    
+    /**
+     * Claims in a status that is never archived can only live in the HOT tier
+     */
+    private boolean isHotOnly(InsuranceClaim.ClaimStatus status) {
+        return !ClaimPartitionService.ARCHIVABLE_STATUSES.contains(status);
+    }
+    
+    /**
+     * Build page request from paging and sorting parameters
+     */
+    private Pageable buildPageable(int page, int size, String sortBy, String sortDir) {
+        Sort sort = sortDir.equalsIgnoreCase("desc") ? 
+                Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+        return PageRequest.of(page, size, sort);
     }
     
     /**
@@ -361,6 +466,7 @@ public class ClaimService {
                 .claimStatus(claim.getClaimStatus())
                 .totalAmount(claim.getTotalAmount())
                 .approvedAmount(claim.getApprovedAmount())
+                .allowedAmount(claim.getAllowedAmount())
                 .deductibleAmount(claim.getDeductibleAmount())
                 .copayAmount(claim.getCopayAmount())
                 .coinsuranceAmount(claim.getCoinsuranceAmount())
@@ -368,6 +474,8 @@ public class ClaimService {
                 .serviceDescription(claim.getServiceDescription())
                 .diagnosisCode(claim.getDiagnosisCode())
                 .procedureCode(claim.getProcedureCode())
+                .diagnosisDescription(codeDictionaryService.describe(CodeSystem.ICD10, claim.getDiagnosisCode()))
+                .procedureDescription(codeDictionaryService.describe(CodeSystem.CPT, claim.getProcedureCode()))
                 .isEmergency(claim.getIsEmergency())
                 .priority(claim.getPriority())
                 .submittedAt(claim.getSubmittedAt())
@@ -378,44 +486,9 @@ public class ClaimService {
                 .notes(claim.getNotes())
                 .createdAt(claim.getCreatedAt())
                 .updatedAt(claim.getUpdatedAt())
-                .statusDisplayName(getStatusDisplayName(claim.getClaimStatus()))
-                .typeDisplayName(getTypeDisplayName(claim.getClaimType()))
-                .priorityDisplayName(getPriorityDisplayName(claim.getPriority()))
+                .statusDisplayName(claim.getClaimStatus().getDisplayName())
+                .typeDisplayName(claim.getClaimType().getDisplayName())
+                .priorityDisplayName(claim.getPriority().getDisplayName())
                 .build();
     }
-    
-    private String getStatusDisplayName(InsuranceClaim.ClaimStatus status) {
-        switch (status) {
-            case SUBMITTED: return "Submitted";
-            case UNDER_REVIEW: return "Under Review";
-            case APPROVED: return "Approved";
-            case REJECTED: return "Rejected";
-            case PAID: return "Paid";
-            case CANCELLED: return "Cancelled";
-            default: return status.toString();
-        }
-    }
-    
-    private String getTypeDisplayName(InsuranceClaim.ClaimType type) {
-        switch (type) {
-            case MEDICAL: return "Medical";
-            case DENTAL: return "Dental";
-            case VISION: return "Vision";
-            case PHARMACY: return "Pharmacy";
-            case LABORATORY: return "Laboratory";
-            case IMAGING: return "Imaging";
-            case EMERGENCY: return "Emergency";
-            default: return type.toString();
-        }
-    }
-    
-    private String getPriorityDisplayName(InsuranceClaim.ClaimPriority priority) {
-        switch (priority) {
-            case LOW: return "Low";
-            case NORMAL: return "Normal";
-            case HIGH: return "High";
-            case URGENT: return "Urgent";
-            default: return priority.toString();
-        }
-    }
 }
@@ -0,0 +1,352 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.client.NotificationClient;
+import com.gvkss.patil.claim_service.dto.SlaStatsResponse;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import com.gvkss.patil.claim_service.sla.TimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Claim SLA Service
+ *
+ * Enforces the claim processing deadlines (processing-time-days, or emergency-processing-time-days
+ * for emergency claims, counted from submission). Every open claim has a timer in an in-memory
+ * {@link TimingWheel}: open claims are loaded once at startup, new claims are picked up as they
+ * are created or by an incremental scan of claims created since the previous scan, and status
+ * changes cancel or move the timer. Ids do not commit in order (ingestion writers and other nodes
+ * insert in parallel), so the incremental scan goes back by sync-overlap before the previous scan
+ * started and skips claims that already have a timer. When a timer fires the claim is escalated to URGENT and a
+ * notification is sent. The escalation update re-checks status and deadline in the database, so
+ * a stale timer on any node is harmless and each breach is escalated exactly once.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class ClaimSlaService {
+
+    private static final String OPEN_STATUS_LIST = "'SUBMITTED', 'UNDER_REVIEW'";
+    private static final int ESCALATION_CHUNK = 1000;
+
+    // Open claims are never archived and reopened claims are moved back, so they are all in the HOT tier
+    private static final String OPEN_CLAIMS_SQL =
+            "SELECT id, submitted_at, is_emergency FROM insurance_claims " +
+            "WHERE storage_tier = 'HOT' AND claim_status IN (" + OPEN_STATUS_LIST + ") AND sla_escalated_at IS NULL " +
+            "AND id > ? ORDER BY id LIMIT ?";
+    private static final String RECENT_CLAIMS_SQL =
+            "SELECT id, submitted_at, is_emergency FROM insurance_claims " +
+            "WHERE storage_tier = 'HOT' AND claim_status IN (" + OPEN_STATUS_LIST + ") AND sla_escalated_at IS NULL " +
+            "AND created_at >= ? AND id > ? ORDER BY id LIMIT ?";
+    /**
+     * Claims among the given ids still open, unescalated and submitted before the emergency or
+     * standard cutoff; the cutoffs are computed like the timer deadlines
+     */
+    static final String OVERDUE_CLAIMS_PREDICATE =
+            "storage_tier = 'HOT' AND id = ANY (?) AND claim_status IN (" + OPEN_STATUS_LIST + ") " +
+            "AND sla_escalated_at IS NULL " +
+            "AND submitted_at <= CASE WHEN is_emergency THEN ? ELSE ? END";
+    private static final String ESCALATE_SQL =
+            "UPDATE insurance_claims SET priority = 'URGENT', sla_escalated_at = ?, updated_at = ? " +
+            "WHERE " + OVERDUE_CLAIMS_PREDICATE + " " +
+            "RETURNING id, claim_number, patient_id, doctor_id, is_emergency, submitted_at";
+    private static final String PENDING_CLAIMS_SQL =
+            "SELECT id, submitted_at, is_emergency FROM insurance_claims " +
+            "WHERE storage_tier = 'HOT' AND id = ANY (?) AND claim_status IN (" + OPEN_STATUS_LIST + ") " +
+            "AND sla_escalated_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationClient notificationClient;
+    private final boolean enabled;
+    private final int processingDays;
+    private final int emergencyProcessingDays;
+    private final int loadBatchSize;
+    private final Duration syncOverlap;
+    private final TimingWheel wheel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder escalations = new LongAdder();
+    private final LongAdder notificationsFailed = new LongAdder();
+    private volatile LocalDateTime lastScanStartedAt;
+
+    public ClaimSlaService(JdbcTemplate jdbcTemplate,
+                           NotificationClient notificationClient,
+                           @Value("${app.claims.sla.enabled:true}") boolean enabled,
+                           @Value("${app.healthcare.claim.processing-time-days:7}") int processingDays,
+                           @Value("${app.healthcare.claim.emergency-processing-time-days:1}") int emergencyProcessingDays,
+                           @Value("${app.claims.sla.tick-ms:60000}") long tickMillis,
+                           @Value("${app.claims.sla.load-batch-size:10000}") int loadBatchSize,
+                           @Value("${app.claims.sla.expected-open-claims:100000}") int expectedOpenClaims,
+                           @Value("${app.claims.sla.sync-overlap:PT10M}") Duration syncOverlap) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationClient = notificationClient;
+        this.enabled = enabled;
+        this.processingDays = processingDays;
+        this.emergencyProcessingDays = emergencyProcessingDays;
+        this.loadBatchSize = loadBatchSize;
+        this.syncOverlap = syncOverlap;
+        this.wheel = new TimingWheel(tickMillis, System.currentTimeMillis(), expectedOpenClaims);
+    }
+
+    /**
+     * Start (or move) the deadline timer of an open claim, or cancel it once the claim is closed
+     */
+    public void track(InsuranceClaim claim) {
+        if (!enabled || claim.getId() == null) {
+            return;
+        }
+        if (isOpen(claim.getClaimStatus()) && claim.getSubmittedAt() != null) {
+            long deadline = deadlineMillis(claim.getSubmittedAt(), Boolean.TRUE.equals(claim.getIsEmergency()));
+            withLock(() -> wheel.schedule(claim.getId(), deadline));
+        } else {
+            untrack(claim.getId());
+        }
+    }
+
+    /**
+     * Drop the deadline timer of a claim
+     */
+    public void untrack(Long claimId) {
+        if (enabled) {
+            withLock(() -> wheel.cancel(claimId));
+        }
+    }
+
+    /**
+     * Load timers for every open claim at startup, one keyset batch at a time
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOpenClaims() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime scanStartedAt = LocalDateTime.now();
+            long started = System.currentTimeMillis();
+            int count = loadClaims(OPEN_CLAIMS_SQL, null);
+            lastScanStartedAt = scanStartedAt;
+            log.info("Loaded SLA timers for {} open claims in {} ms", count, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Loading SLA timers failed", e);
+        }
+    }
+
+    /**
+     * Pick up claims created since the last scan, e.g. by file ingestion or on another node. The
+     * window reaches back by sync-overlap, so claims whose transaction was still running when the
+     * previous scan read are found now; claims already tracked keep their timer.
+     */
+    @Scheduled(initialDelayString = "${app.claims.sla.sync-interval-ms:300000}",
+            fixedDelayString = "${app.claims.sla.sync-interval-ms:300000}")
+    public void syncNewClaims() {
+        LocalDateTime previousScanStartedAt = lastScanStartedAt;
+        if (!enabled || previousScanStartedAt == null) {
+            return;
+        }
+        try {
+            LocalDateTime scanStartedAt = LocalDateTime.now();
+            int count = loadClaims(RECENT_CLAIMS_SQL, Timestamp.valueOf(previousScanStartedAt.minus(syncOverlap)));
+            lastScanStartedAt = scanStartedAt;
+            if (count > 0) {
+                log.debug("Picked up SLA timers for {} new claims", count);
+            }
+        } catch (Exception e) {
+            log.error("Syncing SLA timers failed", e);
+        }
+    }
+
+    /**
+     * Advance the wheel and escalate claims whose deadline has passed
+     */
+    @Scheduled(fixedDelayString = "${app.claims.sla.tick-ms:60000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> expired = new ArrayList<>();
+        withLock(() -> wheel.advance(System.currentTimeMillis(), expired::add));
+        for (int from = 0; from < expired.size(); from += ESCALATION_CHUNK) {
+            try {
+                escalate(expired.subList(from, Math.min(from + ESCALATION_CHUNK, expired.size())));
+            } catch (Exception e) {
+                log.error("SLA escalation failed for {} claims", Math.min(ESCALATION_CHUNK, expired.size() - from), e);
+            }
+        }
+    }
+
+    /**
+     * Get SLA timer statistics
+     */
+    public SlaStatsResponse getStats() {
+        int pending;
+        lock.lock();
+        try {
+            pending = wheel.size();
+        } finally {
+            lock.unlock();
+        }
+        return SlaStatsResponse.builder()
+                .enabled(enabled)
+                .processingTimeDays(processingDays)
+                .emergencyProcessingTimeDays(emergencyProcessingDays)
+                .pendingTimers(pending)
+                .tickMillis(wheel.getTickMillis())
+                .escalations(escalations.sum())
+                .notificationsFailed(notificationsFailed.sum())
+                .build();
+    }
+
+    /**
+     * Get the SLA deadline of an open claim, or null when no timer is pending
+     */
+    public LocalDateTime getDeadline(Long claimId) {
+        long deadline;
+        lock.lock();
+        try {
+            deadline = wheel.deadline(claimId);
+        } finally {
+            lock.unlock();
+        }
+        return deadline < 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(deadline), ZoneId.systemDefault());
+    }
+
+    /**
+     * Start timers for the open claims the query returns, one id keyset batch at a time, leaving
+     * claims that already have one alone; createdSince is bound first when given
+     */
+    private int loadClaims(String sql, Timestamp createdSince) {
+        int total = 0;
+        long lastId = 0;
+        while (true) {
+            RowMapper<long[]> mapper = (rs, rowNum) -> new long[] {
+                    rs.getLong("id"),
+                    deadlineMillis(rs.getTimestamp("submitted_at").toLocalDateTime(), rs.getBoolean("is_emergency"))
+            };
+            List<long[]> timers = createdSince == null
+                    ? jdbcTemplate.query(sql, mapper, lastId, loadBatchSize)
+                    : jdbcTemplate.query(sql, mapper, createdSince, lastId, loadBatchSize);
+            if (timers.isEmpty()) {
+                break;
+            }
+            int[] started = new int[1];
+            withLock(() -> timers.forEach(timer -> {
+                if (wheel.deadline(timer[0]) < 0) {
+                    wheel.schedule(timer[0], timer[1]);
+                    started[0]++;
+                }
+            }));
+            total += started[0];
+            lastId = timers.get(timers.size() - 1)[0];
+            if (timers.size() < loadBatchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private void escalate(List<Long> claimIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Map<String, Object>> escalated = jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(ESCALATE_SQL);
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            ps.setTimestamp(2, Timestamp.valueOf(now));
+            bindOverdue(ps, 3, connection, claimIds, now);
+            return ps;
+        }, (rs, rowNum) -> {
+            Map<String, Object> claim = new HashMap<>();
+            claim.put("claimId", rs.getLong("id"));
+            claim.put("claimNumber", rs.getString("claim_number"));
+            claim.put("patientId", rs.getLong("patient_id"));
+            claim.put("doctorId", rs.getObject("doctor_id") != null ? rs.getLong("doctor_id") : null);
+            claim.put("isEmergency", rs.getBoolean("is_emergency"));
+            claim.put("submittedAt", rs.getTimestamp("submitted_at").toLocalDateTime().toString());
+            return claim;
+        });
+
+        Set<Long> escalatedIds = new HashSet<>();
+        for (Map<String, Object> claim : escalated) {
+            escalatedIds.add((Long) claim.get("claimId"));
+            escalations.increment();
+            log.warn("Claim {} breached its processing SLA and was escalated to URGENT", claim.get("claimNumber"));
+            claim.put("type", "CLAIM_SLA_BREACH");
+            claim.put("title", "Claim processing deadline missed");
+            claim.put("message", "Claim " + claim.get("claimNumber") + " was not processed within "
+                    + (Boolean.TRUE.equals(claim.get("isEmergency")) ? emergencyProcessingDays : processingDays)
+                    + " days and has been escalated to URGENT");
+            if (!notificationClient.send(claim)) {
+                notificationsFailed.increment();
+            }
+        }
+
+        // Claims that were neither closed nor escalated had their deadline moved (e.g. on another node)
+        if (escalatedIds.size() < claimIds.size()) {
+            List<Long> remaining = claimIds.stream().filter(id -> !escalatedIds.contains(id)).toList();
+            List<long[]> timers = jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(PENDING_CLAIMS_SQL);
+                ps.setArray(1, idArray(connection, remaining));
+                return ps;
+            }, (rs, rowNum) -> new long[] {
+                    rs.getLong("id"),
+                    deadlineMillis(rs.getTimestamp("submitted_at").toLocalDateTime(), rs.getBoolean("is_emergency"))
+            });
+            withLock(() -> timers.forEach(timer -> wheel.schedule(timer[0], timer[1])));
+        }
+    }
+
+    /**
+     * Bind the parameters of {@link #OVERDUE_CLAIMS_PREDICATE} starting at the given index
+     */
+    void bindOverdue(PreparedStatement ps, int index, Connection connection, List<Long> claimIds,
+                     LocalDateTime now) throws SQLException {
+        ps.setArray(index, idArray(connection, claimIds));
+        ps.setTimestamp(index + 1, Timestamp.valueOf(now.minusDays(emergencyProcessingDays)));
+        ps.setTimestamp(index + 2, Timestamp.valueOf(now.minusDays(processingDays)));
+    }
+
+    private long deadlineMillis(LocalDateTime submittedAt, boolean emergency) {
+        return submittedAt.plusDays(emergency ? emergencyProcessingDays : processingDays)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void withLock(Runnable action) {
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isOpen(InsuranceClaim.ClaimStatus status) {
+        return status == InsuranceClaim.ClaimStatus.SUBMITTED || status == InsuranceClaim.ClaimStatus.UNDER_REVIEW;
+    }
+
+    private static Array idArray(Connection connection, List<Long> ids) throws SQLException {
+        return connection.createArrayOf("bigint", ids.toArray());
+    }
+}
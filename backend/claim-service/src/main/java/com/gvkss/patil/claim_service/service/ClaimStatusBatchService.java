@@ -0,0 +1,280 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.dto.BatchStatusUpdateRequest;
+import com.gvkss.patil.claim_service.dto.BatchStatusUpdateResponse;
+import com.gvkss.patil.claim_service.dto.StatusTransitionRequest;
+import com.gvkss.patil.claim_service.dto.StatusTransitionResult;
+import com.gvkss.patil.claim_service.dto.StatusTransitionResult.Outcome;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim.ClaimStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Claim Status Batch Service
+ *
+ * Applies many status transitions at once. Transitions are grouped by target status and each
+ * group is applied in chunks, one set-based UPDATE ... FROM unnest(...) per chunk in its own
+ * transaction, so row locks are held only for the length of a chunk. The UPDATE takes its row
+ * locks in whatever order its join plan visits the rows, so each chunk first locks its rows in id
+ * order; two batches then queue behind each other instead of deadlocking. Single updates and SLA
+ * escalations lock in their own order, so a chunk that still loses a deadlock (SQLSTATE 40P01)
+ * or times out on a lock is rolled back and run again a few times. The side effects of
+ * {@link ClaimService#updateClaimStatus} are kept: the status timestamps, pricing on review,
+ * accumulator postings on approval and payment, the SLA timers, and the move of reopened
+ * archived claims back to the HOT tier.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class ClaimStatusBatchService {
+
+    private static final String UPDATE_STATUS_SQL =
+            "UPDATE insurance_claims c SET claim_status = ?, updated_at = t.now, notes = COALESCE(u.notes, c.notes)%s%s " +
+            "FROM unnest(?::bigint[], ?::numeric[], ?::text[], ?::text[]) AS u(id, approved_amount, rejection_reason, notes), " +
+            "(SELECT ?::timestamp AS now) t " +
+            "WHERE c.id = u.id " +
+            "RETURNING c.id, c.patient_id, c.provider_id, c.procedure_code, c.treatment_date, c.total_amount, " +
+            "c.allowed_amount, c.deductible_amount, c.copay_amount, c.coinsurance_amount, c.is_emergency, c.submitted_at";
+    private static final String LOCK_CLAIMS_SQL =
+            "SELECT id FROM insurance_claims WHERE id = ANY (?) ORDER BY id FOR UPDATE";
+    private static final String UPDATE_ALLOWED_SQL =
+            "UPDATE insurance_claims SET allowed_amount = ? WHERE id = ? AND treatment_date = ?";
+
+    /**
+     * Status-specific columns, matching the timestamps set by a single status update
+     */
+    private static final Map<ClaimStatus, String> STATUS_COLUMNS = new EnumMap<>(Map.of(
+            ClaimStatus.UNDER_REVIEW, ", reviewed_at = t.now",
+            ClaimStatus.APPROVED, ", approved_at = t.now, approved_amount = COALESCE(u.approved_amount, c.approved_amount)",
+            ClaimStatus.REJECTED, ", rejection_reason = u.rejection_reason",
+            ClaimStatus.PAID, ", paid_at = t.now"));
+
+    /**
+     * Statuses that are never archived move a reopened archived claim back to the HOT tier,
+     * as a single status update does
+     */
+    private static final String RESTORE_TIER_COLUMN = ", storage_tier = 'HOT'";
+
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FeeScheduleService feeScheduleService;
+    private final BenefitAccumulatorService benefitAccumulatorService;
+    private final ClaimSlaService claimSlaService;
+    private final int chunkSize;
+    private final int maxTransitions;
+
+    public ClaimStatusBatchService(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   FeeScheduleService feeScheduleService,
+                                   BenefitAccumulatorService benefitAccumulatorService,
+                                   ClaimSlaService claimSlaService,
+                                   @Value("${app.claims.status-batch.chunk-size:200}") int chunkSize,
+                                   @Value("${app.claims.status-batch.max-transitions:5000}") int maxTransitions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.feeScheduleService = feeScheduleService;
+        this.benefitAccumulatorService = benefitAccumulatorService;
+        this.claimSlaService = claimSlaService;
+        this.chunkSize = chunkSize;
+        this.maxTransitions = maxTransitions;
+    }
+
+    /**
+     * Apply a batch of status transitions and report the outcome of each
+     */
+    public BatchStatusUpdateResponse updateStatuses(BatchStatusUpdateRequest request) {
+        List<StatusTransitionRequest> transitions = request.getTransitions();
+        if (transitions.size() > maxTransitions) {
+            throw new RuntimeException("Batch exceeds the maximum of " + maxTransitions + " transitions");
+        }
+        long started = System.currentTimeMillis();
+        log.info("Applying {} claim status transitions", transitions.size());
+
+        // One result per requested transition, in request order; a repeated claim id is applied once
+        List<StatusTransitionResult> results = new ArrayList<>(transitions.size());
+        Map<Long, StatusTransitionResult> resultsById = new LinkedHashMap<>();
+        Map<ClaimStatus, List<StatusTransitionRequest>> groups = new EnumMap<>(ClaimStatus.class);
+        for (StatusTransitionRequest transition : transitions) {
+            StatusTransitionResult result = StatusTransitionResult.builder()
+                    .claimId(transition.getClaimId())
+                    .claimStatus(transition.getClaimStatus())
+                    .build();
+            results.add(result);
+            if (resultsById.putIfAbsent(transition.getClaimId(), result) != null) {
+                result.setOutcome(Outcome.DUPLICATE);
+                result.setMessage("Claim appears earlier in the batch");
+                continue;
+            }
+            groups.computeIfAbsent(transition.getClaimStatus(), status -> new ArrayList<>()).add(transition);
+        }
+
+        for (Map.Entry<ClaimStatus, List<StatusTransitionRequest>> group : groups.entrySet()) {
+            List<StatusTransitionRequest> members = group.getValue();
+            // Ascending ids keep each chunk's lock range apart from the next one's
+            members.sort(Comparator.comparing(StatusTransitionRequest::getClaimId));
+            for (int from = 0; from < members.size(); from += chunkSize) {
+                List<StatusTransitionRequest> chunk = members.subList(from, Math.min(from + chunkSize, members.size()));
+                applyChunk(group.getKey(), chunk, resultsById);
+            }
+        }
+
+        int updated = 0;
+        int notFound = 0;
+        int failed = 0;
+        for (StatusTransitionResult result : results) {
+            switch (result.getOutcome()) {
+                case UPDATED -> updated++;
+                case NOT_FOUND -> notFound++;
+                case FAILED -> failed++;
+                default -> { }
+            }
+        }
+        long elapsed = System.currentTimeMillis() - started;
+        log.info("Claim status batch finished in {} ms: {} updated, {} not found, {} failed",
+                elapsed, updated, notFound, failed);
+
+        return BatchStatusUpdateResponse.builder()
+                .requested(transitions.size())
+                .updated(updated)
+                .notFound(notFound)
+                .failed(failed)
+                .elapsedMillis(elapsed)
+                .results(results)
+                .build();
+    }
+
+    private void applyChunk(ClaimStatus status, List<StatusTransitionRequest> chunk,
+                            Map<Long, StatusTransitionResult> resultsById) {
+        List<InsuranceClaim> updated;
+        try {
+            updated = executeChunk(status, chunk);
+        } catch (Exception e) {
+            log.error("Status batch chunk of {} claims to {} failed", chunk.size(), status, e);
+            chunk.forEach(transition -> {
+                StatusTransitionResult result = resultsById.get(transition.getClaimId());
+                result.setOutcome(Outcome.FAILED);
+                result.setMessage(e.getMessage());
+            });
+            return;
+        }
+
+        for (InsuranceClaim claim : updated) {
+            resultsById.get(claim.getId()).setOutcome(Outcome.UPDATED);
+            claimSlaService.track(claim);
+        }
+        for (StatusTransitionRequest transition : chunk) {
+            StatusTransitionResult result = resultsById.get(transition.getClaimId());
+            if (result.getOutcome() == null) {
+                result.setOutcome(Outcome.NOT_FOUND);
+                result.setMessage("Claim not found with ID: " + transition.getClaimId());
+            }
+        }
+    }
+
+    /**
+     * Run a chunk in its own transaction, again if it lost a deadlock or lock wait; the failed
+     * attempt rolled back entirely, so nothing of it is applied twice
+     */
+    private List<InsuranceClaim> executeChunk(ClaimStatus status, List<StatusTransitionRequest> chunk) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(tx -> {
+                    List<InsuranceClaim> claims = updateChunk(status, chunk);
+                    if (status == ClaimStatus.UNDER_REVIEW) {
+                        priceUnpriced(claims);
+                    } else if (status == ClaimStatus.APPROVED || status == ClaimStatus.PAID) {
+                        // Already-applied claims are skipped, as for a single PAID update after approval
+                        benefitAccumulatorService.postAll(claims);
+                    } else if (status == ClaimStatus.REJECTED || status == ClaimStatus.CANCELLED) {
+                        // Claims rejected or cancelled after approval give their cost share back
+                        benefitAccumulatorService.reverseAll(claims);
+                    }
+                    return claims;
+                });
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt == MAX_CHUNK_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("Status batch chunk of {} claims to {} hit a lock conflict, retrying: {}",
+                        chunk.size(), status, e.getMessage());
+            }
+        }
+    }
+
+    private List<InsuranceClaim> updateChunk(ClaimStatus status, List<StatusTransitionRequest> chunk) {
+        Long[] ids = new Long[chunk.size()];
+        BigDecimal[] approvedAmounts = new BigDecimal[chunk.size()];
+        String[] rejectionReasons = new String[chunk.size()];
+        String[] notes = new String[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            StatusTransitionRequest transition = chunk.get(i);
+            ids[i] = transition.getClaimId();
+            approvedAmounts[i] = transition.getApprovedAmount();
+            rejectionReasons[i] = transition.getRejectionReason();
+            notes[i] = transition.getNotes();
+        }
+        // Chunks arrive sorted, so the ids are in lock order already
+        jdbcTemplate.queryForList(LOCK_CLAIMS_SQL, Long.class, (Object) ids);
+        String sql = String.format(UPDATE_STATUS_SQL, STATUS_COLUMNS.getOrDefault(status, ""),
+                ClaimPartitionService.ARCHIVABLE_STATUSES.contains(status) ? "" : RESTORE_TIER_COLUMN);
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setString(1, status.name());
+            ps.setArray(2, connection.createArrayOf("bigint", ids));
+            ps.setArray(3, connection.createArrayOf("numeric", approvedAmounts));
+            ps.setArray(4, connection.createArrayOf("text", rejectionReasons));
+            ps.setArray(5, connection.createArrayOf("text", notes));
+            ps.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+            return ps;
+        }, (rs, rowNum) -> InsuranceClaim.builder()
+                .id(rs.getLong("id"))
+                .claimStatus(status)
+                .patientId(rs.getLong("patient_id"))
+                .providerId(rs.getObject("provider_id") != null ? rs.getLong("provider_id") : null)
+                .procedureCode(rs.getString("procedure_code"))
+                .treatmentDate(rs.getDate("treatment_date").toLocalDate())
+                .totalAmount(rs.getBigDecimal("total_amount"))
+                .allowedAmount(rs.getBigDecimal("allowed_amount"))
+                .deductibleAmount(rs.getBigDecimal("deductible_amount"))
+                .copayAmount(rs.getBigDecimal("copay_amount"))
+                .coinsuranceAmount(rs.getBigDecimal("coinsurance_amount"))
+                .isEmergency(rs.getBoolean("is_emergency"))
+                .submittedAt(rs.getTimestamp("submitted_at").toLocalDateTime())
+                .build());
+    }
+
+    private void priceUnpriced(List<InsuranceClaim> claims) {
+        List<Object[]> updates = new ArrayList<>();
+        for (InsuranceClaim claim : claims) {
+            if (claim.getAllowedAmount() == null && feeScheduleService.priceClaim(claim)) {
+                updates.add(new Object[] {claim.getAllowedAmount(), claim.getId(), Date.valueOf(claim.getTreatmentDate())});
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_ALLOWED_SQL, updates);
+        }
+    }
+}
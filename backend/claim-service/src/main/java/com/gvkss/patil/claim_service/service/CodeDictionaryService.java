@@ -0,0 +1,191 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.codes.CodeIndex;
+import com.gvkss.patil.claim_service.codes.CodeSystem;
+import com.gvkss.patil.claim_service.dto.CodeDictionaryStatsResponse;
+import com.gvkss.patil.claim_service.dto.CodeResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Code Dictionary Service
+ *
+ * Loads the ICD-10-CM and CPT code lists into memory-mapped {@link CodeIndex} files at startup
+ * and answers lookups, prefix searches and claim code validation from them. An index built from a
+ * source file is reused on the next start while the source is unchanged.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class CodeDictionaryService {
+
+    /**
+     * What happens to a claim carrying a code that is not in the dictionary
+     */
+    public enum ValidationMode {
+        OFF,
+        WARN,
+        REJECT
+    }
+
+    private final ResourceLoader resourceLoader;
+    private final Map<CodeSystem, String> sources = new EnumMap<>(CodeSystem.class);
+    private final Path indexDirectory;
+    private final ValidationMode validationMode;
+    private final Map<CodeSystem, LoadedIndex> indexes = new EnumMap<>(CodeSystem.class);
+
+    public CodeDictionaryService(ResourceLoader resourceLoader,
+                                 @Value("${app.codes.icd10-file:classpath:codes/icd10cm-sample.tsv}") String icd10File,
+                                 @Value("${app.codes.cpt-file:classpath:codes/cpt-sample.tsv}") String cptFile,
+                                 @Value("${app.codes.index-dir:${java.io.tmpdir}/code-index}") String indexDirectory,
+                                 @Value("${app.codes.validation:OFF}") ValidationMode validationMode) {
+        this.resourceLoader = resourceLoader;
+        this.sources.put(CodeSystem.ICD10, icd10File);
+        this.sources.put(CodeSystem.CPT, cptFile);
+        this.indexDirectory = Paths.get(indexDirectory);
+        this.validationMode = validationMode;
+    }
+
+    /**
+     * Load every configured code list; a list that fails to load is left out and not validated
+     */
+    @PostConstruct
+    public void load() {
+        for (Map.Entry<CodeSystem, String> source : sources.entrySet()) {
+            try {
+                indexes.put(source.getKey(), load(source.getKey(), source.getValue()));
+            } catch (Exception e) {
+                log.error("Could not load {} codes from {}", source.getKey(), source.getValue(), e);
+            }
+        }
+    }
+
+    /**
+     * Description of a code, or null when unknown
+     */
+    public String describe(CodeSystem system, String code) {
+        LoadedIndex loaded = indexes.get(system);
+        if (loaded == null || code == null || code.isBlank()) {
+            return null;
+        }
+        return loaded.index().lookup(system.normalize(code));
+    }
+
+    /**
+     * Exact code lookup
+     */
+    public CodeResponse getCode(CodeSystem system, String code) {
+        String description = describe(system, code);
+        if (description == null) {
+            throw new RuntimeException(system.getDisplayName() + " code not found: " + code);
+        }
+        return CodeResponse.builder()
+                .system(system)
+                .code(system.format(system.normalize(code)))
+                .description(description)
+                .build();
+    }
+
+    /**
+     * Codes starting with the given prefix, for autocomplete
+     */
+    public List<CodeResponse> search(CodeSystem system, String prefix, int limit) {
+        LoadedIndex loaded = indexes.get(system);
+        if (loaded == null) {
+            throw new RuntimeException(system.getDisplayName() + " code list is not loaded");
+        }
+        return loaded.index().prefix(system.normalize(prefix), limit).stream()
+                .map(entry -> CodeResponse.builder()
+                        .system(system)
+                        .code(system.format(entry.key()))
+                        .description(entry.description())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Check a claim code against the dictionary according to the validation mode
+     */
+    public void validate(CodeSystem system, String code) {
+        if (validationMode == ValidationMode.OFF || code == null || !indexes.containsKey(system)) {
+            return;
+        }
+        if (describe(system, code) == null) {
+            if (validationMode == ValidationMode.REJECT) {
+                throw new RuntimeException("Unknown " + system.getDisplayName() + " code: " + code);
+            }
+            log.warn("Unknown {} code on claim: {}", system.getDisplayName(), code);
+        }
+    }
+
+    /**
+     * Load time and size of each code list
+     */
+    public List<CodeDictionaryStatsResponse> getStats() {
+        List<CodeDictionaryStatsResponse> stats = new ArrayList<>();
+        for (Map.Entry<CodeSystem, String> source : sources.entrySet()) {
+            LoadedIndex loaded = indexes.get(source.getKey());
+            stats.add(CodeDictionaryStatsResponse.builder()
+                    .system(source.getKey())
+                    .source(source.getValue())
+                    .loaded(loaded != null)
+                    .entries(loaded != null ? loaded.index().size() : 0)
+                    .mappedBytes(loaded != null ? loaded.index().sizeBytes() : 0)
+                    .loadMillis(loaded != null ? loaded.loadMillis() : 0)
+                    .indexReused(loaded != null && loaded.reused())
+                    .build());
+        }
+        return stats;
+    }
+
+    private LoadedIndex load(CodeSystem system, String location) throws IOException {
+        long started = System.nanoTime();
+        Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists()) {
+            throw new IOException("Code list not found: " + location);
+        }
+        Files.createDirectories(indexDirectory);
+        Path indexFile = indexDirectory.resolve(system.name().toLowerCase(Locale.ROOT) + "-"
+                + Integer.toHexString(location.hashCode()) + ".idx");
+
+        // A classpath list may live inside the jar, so only file sources can prove the index is current
+        boolean reused = resource.isFile() && Files.exists(indexFile)
+                && Files.getLastModifiedTime(indexFile).toMillis() >= resource.lastModified();
+        CodeIndex index;
+        if (reused) {
+            index = CodeIndex.open(indexFile);
+        } else {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8), 1 << 16)) {
+                index = CodeIndex.build(reader, system::normalize, indexFile);
+            }
+        }
+        long loadMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Loaded {} {} codes in {} ms ({} KB mapped, index {})", index.size(), system.getDisplayName(),
+                loadMillis, index.sizeBytes() / 1024, reused ? "reused" : "built");
+        return new LoadedIndex(index, loadMillis, reused);
+    }
+
+    private record LoadedIndex(CodeIndex index, long loadMillis, boolean reused) {
+    }
+}
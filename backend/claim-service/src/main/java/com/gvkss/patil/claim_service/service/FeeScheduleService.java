@@ -0,0 +1,323 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.dto.*;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import com.gvkss.patil.claim_service.pricing.FeeSchedule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fee Schedule Service
+ *
+ * Keeps the active fee schedule version in memory as an immutable {@link FeeSchedule} snapshot
+ * behind an atomic reference. Activating a version builds the new snapshot off to the side and
+ * swaps it in one step, so pricing never sees a half-loaded schedule and never blocks on a reload.
+ * Other nodes pick up the activation on their next refresh.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class FeeScheduleService {
+
+    private static final String INSERT_VERSION_SQL =
+            "INSERT INTO fee_schedule_versions (name, status, entry_count, created_by) VALUES (?, 'DRAFT', ?, ?) RETURNING id";
+    private static final String INSERT_ENTRY_SQL =
+            "INSERT INTO fee_schedule_entries (version_id, provider_id, procedure_code, effective_from, effective_to, allowed_amount) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String VERSIONS_SQL =
+            "SELECT id, name, status, entry_count, created_by, created_at, activated_at FROM fee_schedule_versions ORDER BY id DESC";
+    private static final String ACTIVE_VERSION_SQL =
+            "SELECT id FROM fee_schedule_versions WHERE status = 'ACTIVE'";
+    private static final String VERSION_EXISTS_SQL =
+            "SELECT COUNT(*) FROM fee_schedule_versions WHERE id = ?";
+    private static final String RETIRE_ACTIVE_SQL =
+            "UPDATE fee_schedule_versions SET status = 'RETIRED' WHERE status = 'ACTIVE' AND id <> ?";
+    private static final String ACTIVATE_SQL =
+            "UPDATE fee_schedule_versions SET status = 'ACTIVE', activated_at = CURRENT_TIMESTAMP WHERE id = ? AND status <> 'ACTIVE'";
+    private static final String ENTRIES_SQL =
+            "SELECT provider_id, procedure_code, effective_from, effective_to, (allowed_amount * 100)::bigint AS cents " +
+            "FROM fee_schedule_entries WHERE version_id = ?";
+
+    // Open claims are never archived and reopened claims are moved back, so they are all in the HOT tier
+    private static final String UNPRICED_CLAIMS_SQL =
+            "SELECT id, treatment_date, COALESCE(provider_id, 0) AS provider_key, procedure_code, " +
+            "(total_amount * 100)::bigint AS billed_cents FROM insurance_claims " +
+            "WHERE allowed_amount IS NULL AND claim_status IN ('SUBMITTED', 'UNDER_REVIEW') AND procedure_code IS NOT NULL " +
+            "AND storage_tier = 'HOT' AND id > ? ORDER BY id LIMIT ?";
+    private static final String UPDATE_ALLOWED_SQL =
+            "UPDATE insurance_claims SET allowed_amount = ? WHERE id = ? AND treatment_date = ? AND storage_tier = 'HOT'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int batchSize;
+    private final int fetchSize;
+    private final AtomicReference<FeeSchedule> current = new AtomicReference<>(FeeSchedule.empty());
+
+    public FeeScheduleService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.claims.pricing.batch-size:5000}") int batchSize,
+                              @Value("${app.claims.pricing.fetch-size:10000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.batchSize = batchSize;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Load the active version at startup and whenever another node activates a different one
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.claims.pricing.refresh-interval-ms:60000}",
+            fixedDelayString = "${app.claims.pricing.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        try {
+            List<Long> active = jdbcTemplate.queryForList(ACTIVE_VERSION_SQL, Long.class);
+            long activeId = active.isEmpty() ? 0L : active.get(0);
+            if (activeId != current.get().getVersionId()) {
+                load(activeId);
+            }
+        } catch (Exception e) {
+            log.error("Fee schedule refresh failed", e);
+        }
+    }
+
+    /**
+     * Create a draft version from a list of rates
+     */
+    public FeeScheduleVersionResponse createVersion(CreateFeeScheduleRequest request) {
+        log.info("Creating fee schedule version '{}' with {} entries", request.getName(), request.getEntries().size());
+
+        Long versionId = transactionTemplate.execute(status -> {
+            Long id = jdbcTemplate.queryForObject(INSERT_VERSION_SQL, Long.class,
+                    request.getName(), request.getEntries().size(), request.getCreatedBy());
+            jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, request.getEntries(), batchSize, (ps, entry) -> {
+                ps.setLong(1, id);
+                ps.setObject(2, entry.getProviderId());
+                ps.setString(3, entry.getProcedureCode().strip());
+                ps.setDate(4, Date.valueOf(entry.getEffectiveFrom()));
+                ps.setDate(5, entry.getEffectiveTo() != null ? Date.valueOf(entry.getEffectiveTo()) : null);
+                ps.setBigDecimal(6, entry.getAllowedAmount());
+            });
+            return id;
+        });
+        log.info("Fee schedule version created with ID: {}", versionId);
+
+        return getVersion(versionId);
+    }
+
+    /**
+     * Make a version the active one and swap it in
+     */
+    public synchronized FeeScheduleVersionResponse activate(Long versionId) {
+        log.info("Activating fee schedule version: {}", versionId);
+
+        Integer exists = jdbcTemplate.queryForObject(VERSION_EXISTS_SQL, Integer.class, versionId);
+        if (exists == null || exists == 0) {
+            throw new RuntimeException("Fee schedule version not found with ID: " + versionId);
+        }
+        // Build the snapshot first so a version that cannot be loaded is never marked active
+        FeeSchedule schedule = buildSnapshot(versionId);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(RETIRE_ACTIVE_SQL, versionId);
+            jdbcTemplate.update(ACTIVATE_SQL, versionId);
+        });
+        current.set(schedule);
+        log.info("Fee schedule version {} active with {} rates", versionId, schedule.size());
+
+        return getVersion(versionId);
+    }
+
+    /**
+     * Reload the active version from the database
+     */
+    public synchronized FeeScheduleVersionResponse reload() {
+        List<Long> active = jdbcTemplate.queryForList(ACTIVE_VERSION_SQL, Long.class);
+        if (active.isEmpty()) {
+            throw new RuntimeException("No active fee schedule version");
+        }
+        load(active.get(0));
+        return getVersion(active.get(0));
+    }
+
+    /**
+     * Get all versions, newest first
+     */
+    public List<FeeScheduleVersionResponse> getVersions() {
+        long loadedId = current.get().getVersionId();
+        return jdbcTemplate.query(VERSIONS_SQL, (rs, rowNum) -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            Timestamp activatedAt = rs.getTimestamp("activated_at");
+            return FeeScheduleVersionResponse.builder()
+                    .id(rs.getLong("id"))
+                    .name(rs.getString("name"))
+                    .status(rs.getString("status"))
+                    .entryCount(rs.getInt("entry_count"))
+                    .createdBy(rs.getString("created_by"))
+                    .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                    .activatedAt(activatedAt != null ? activatedAt.toLocalDateTime() : null)
+                    .loaded(rs.getLong("id") == loadedId)
+                    .build();
+        });
+    }
+
+    /**
+     * Price lines against the active schedule without touching any claim
+     */
+    public PriceQuoteResponse quote(PriceQuoteRequest request) {
+        FeeSchedule schedule = current.get();
+        List<PricingLineResponse> lines = new ArrayList<>(request.getLines().size());
+        for (PricingLineRequest line : request.getLines()) {
+            long rate = schedule.rateCents(line.getProviderId(), line.getProcedureCode(), line.getServiceDate());
+            boolean priced = rate != FeeSchedule.NOT_SCHEDULED;
+            BigDecimal scheduled = priced ? BigDecimal.valueOf(rate, 2) : null;
+            BigDecimal allowed = scheduled;
+            if (priced && line.getBilledAmount() != null && line.getBilledAmount().compareTo(scheduled) < 0) {
+                allowed = line.getBilledAmount();
+            }
+            lines.add(PricingLineResponse.builder()
+                    .providerId(line.getProviderId())
+                    .procedureCode(line.getProcedureCode())
+                    .serviceDate(line.getServiceDate())
+                    .billedAmount(line.getBilledAmount())
+                    .scheduledAmount(scheduled)
+                    .allowedAmount(allowed)
+                    .priced(priced)
+                    .build());
+        }
+        return PriceQuoteResponse.builder()
+                .versionId(schedule.getVersionId())
+                .lines(lines)
+                .build();
+    }
+
+    /**
+     * Set the allowed amount of a claim; returns false when no rate covers it
+     */
+    public boolean priceClaim(InsuranceClaim claim) {
+        FeeSchedule schedule = current.get();
+        int codeId = schedule.codeId(claim.getProcedureCode());
+        if (codeId < 0 || claim.getTreatmentDate() == null || claim.getTotalAmount() == null) {
+            return false;
+        }
+        long allowed = schedule.allowedCents(claim.getProviderId() != null ? claim.getProviderId() : 0L, codeId,
+                (int) claim.getTreatmentDate().toEpochDay(), toCents(claim.getTotalAmount()));
+        if (allowed == FeeSchedule.NOT_SCHEDULED) {
+            return false;
+        }
+        claim.setAllowedAmount(BigDecimal.valueOf(allowed, 2));
+        return true;
+    }
+
+    /**
+     * Price every open claim that has no allowed amount yet, one batch per transaction
+     */
+    public PricingRunResponse priceOpenClaims() {
+        FeeSchedule schedule = current.get();
+        long started = System.nanoTime();
+        long scanned = 0;
+        long priced = 0;
+        long lastId = 0;
+        log.info("Bulk pricing open claims with fee schedule version {}", schedule.getVersionId());
+
+        while (true) {
+            List<Object[]> updates = new ArrayList<>(batchSize);
+            long[] cursor = {lastId, 0};
+            jdbcTemplate.query(UNPRICED_CLAIMS_SQL, rs -> {
+                cursor[0] = rs.getLong("id");
+                cursor[1]++;
+                long allowed = schedule.allowedCents(rs.getLong("provider_key"),
+                        schedule.codeId(rs.getString("procedure_code")),
+                        (int) rs.getDate("treatment_date").toLocalDate().toEpochDay(),
+                        rs.getLong("billed_cents"));
+                if (allowed != FeeSchedule.NOT_SCHEDULED) {
+                    updates.add(new Object[] {BigDecimal.valueOf(allowed, 2), cursor[0], rs.getDate("treatment_date")});
+                }
+            }, lastId, batchSize);
+
+            if (cursor[1] == 0) {
+                break;
+            }
+            if (!updates.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_ALLOWED_SQL, updates));
+            }
+            scanned += cursor[1];
+            priced += updates.size();
+            lastId = cursor[0];
+        }
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Bulk pricing priced {} of {} claims in {} ms", priced, scanned, elapsedMillis);
+        return PricingRunResponse.builder()
+                .versionId(schedule.getVersionId())
+                .claimsScanned(scanned)
+                .claimsPriced(priced)
+                .claimsUnscheduled(scanned - priced)
+                .elapsedMillis(elapsedMillis)
+                .claimsPerSecond(elapsedMillis > 0 ? scanned * 1000 / elapsedMillis : scanned)
+                .build();
+    }
+
+    private FeeScheduleVersionResponse getVersion(Long versionId) {
+        return getVersions().stream()
+                .filter(version -> version.getId().equals(versionId))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Fee schedule version not found with ID: " + versionId));
+    }
+
+    private void load(long versionId) {
+        FeeSchedule schedule = versionId == 0L ? FeeSchedule.empty() : buildSnapshot(versionId);
+        current.set(schedule);
+        log.info("Fee schedule version {} loaded with {} rates", versionId, schedule.size());
+    }
+
+    /**
+     * Stream a version's rates through a cursor into a new snapshot
+     */
+    private FeeSchedule buildSnapshot(long versionId) {
+        long started = System.nanoTime();
+        FeeSchedule.Builder builder = FeeSchedule.builder(versionId);
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ENTRIES_SQL);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, versionId);
+            return statement;
+        }, rs -> {
+            Date effectiveTo = rs.getDate("effective_to");
+            builder.add(rs.getObject("provider_id") != null ? rs.getLong("provider_id") : null,
+                    rs.getString("procedure_code"),
+                    rs.getDate("effective_from").toLocalDate(),
+                    effectiveTo != null ? effectiveTo.toLocalDate() : null,
+                    rs.getLong("cents"));
+        }));
+        FeeSchedule schedule = builder.build();
+        log.info("Built fee schedule version {} ({} rates) in {} ms", versionId, schedule.size(),
+                (System.nanoTime() - started) / 1_000_000);
+        return schedule;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,302 @@
+package com.gvkss.patil.claim_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number Allocator
+ *
+ * Issues business numbers of the form {@code PREFIX-yyyyMMdd-NNSSSSSSSSSC}: day stamp, two digit
+ * node id, sequence value (at least nine digits) and a Luhn check digit.
+ *
+ * Sequence values come from a database sequence whose INCREMENT BY is the block size: one
+ * {@code nextval} reserves a whole block, which is then handed out in memory with a lock-free
+ * cursor. Numbers are unique across nodes without any unique-constraint retries, and monotonic
+ * within a node. The increment is read again with every reservation, in the same transaction as
+ * the {@code nextval}; the lock {@code nextval} holds until commit keeps ALTER SEQUENCE out in
+ * between, so the block size used is the one the reservation was made with. Block sizes are
+ * changed with {@code resize_number_block()}, which also moves the sequence past blocks already
+ * handed out.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+@Slf4j
+public class NumberAllocator {
+
+    private static final String INCREMENT_SQL =
+            "SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = ?";
+    private static final String NEXT_BLOCK_SQL = "SELECT nextval(?::regclass)";
+    private static final String NEXT_BLOCKS_SQL = "SELECT nextval(?::regclass) FROM generate_series(1, ?)";
+
+    private static final int SEQUENCE_DIGITS = 9;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    private volatile DayStamp dayStamp;
+
+    public NumberAllocator(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.numbers.node-id:0}") int nodeId) {
+        if (nodeId < 0 || nodeId > 99) {
+            throw new IllegalArgumentException("app.numbers.node-id must be between 0 and 99: " + nodeId);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.nodeId = nodeId < 10 ? "0" + nodeId : Integer.toString(nodeId);
+        this.dayStamp = DayStamp.at(System.currentTimeMillis(), zone);
+    }
+
+    /**
+     * Allocate a single number from the given sequence
+     */
+    public String next(String prefix, String sequenceName) {
+        return format(prefix, currentDay(), series(sequenceName).nextValue());
+    }
+
+    /**
+     * Allocate numbers in bulk for batch inserts; reserves as many blocks as needed in one round trip
+     */
+    public List<String> allocate(String prefix, String sequenceName, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        String day = currentDay();
+        List<String> numbers = new ArrayList<>(count);
+        for (long value : series(sequenceName).nextValues(count)) {
+            numbers.add(format(prefix, day, value));
+        }
+        return numbers;
+    }
+
+    /**
+     * Check the Luhn digit of a number issued by this allocator
+     */
+    public static boolean isValid(String number) {
+        if (number == null) {
+            return false;
+        }
+        StringBuilder digits = new StringBuilder(number.length());
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        if (digits.length() < 2) {
+            return false;
+        }
+        char check = digits.charAt(digits.length() - 1);
+        digits.setLength(digits.length() - 1);
+        return luhnDigit(digits) == check - '0';
+    }
+
+    private Series series(String sequenceName) {
+        return series.computeIfAbsent(sequenceName, Series::new);
+    }
+
+    private String currentDay() {
+        DayStamp day = dayStamp;
+        long now = System.currentTimeMillis();
+        if (now >= day.validUntil) {
+            day = DayStamp.at(now, zone);
+            dayStamp = day;
+        }
+        return day.text;
+    }
+
+    private String format(String prefix, String day, long value) {
+        String sequence = Long.toString(value);
+        StringBuilder digits = new StringBuilder(day.length() + 2 + SEQUENCE_DIGITS + 1);
+        digits.append(day).append(nodeId);
+        for (int i = sequence.length(); i < SEQUENCE_DIGITS; i++) {
+            digits.append('0');
+        }
+        digits.append(sequence);
+        int check = luhnDigit(digits);
+
+        return new StringBuilder(prefix.length() + digits.length() + 3)
+                .append(prefix).append('-')
+                .append(digits, 0, day.length()).append('-')
+                .append(digits, day.length(), digits.length())
+                .append((char) ('0' + check))
+                .toString();
+    }
+
+    /**
+     * Luhn check digit for a string of decimal digits
+     */
+    private static int luhnDigit(CharSequence digits) {
+        int sum = 0;
+        boolean doubleIt = true;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int d = digits.charAt(i) - '0';
+            if (doubleIt) {
+                d *= 2;
+                if (d > 9) {
+                    d -= 9;
+                }
+            }
+            sum += d;
+            doubleIt = !doubleIt;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * One database sequence and the block currently being handed out
+     */
+    private final class Series {
+
+        private final String sequenceName;
+        private volatile Block block = Block.EXHAUSTED;
+        private volatile long lastSize;
+
+        Series(String sequenceName) {
+            this.sequenceName = sequenceName;
+        }
+
+        long nextValue() {
+            while (true) {
+                Block current = block;
+                long value = current.cursor.getAndIncrement();
+                if (value < current.end) {
+                    return value;
+                }
+                refill(current);
+            }
+        }
+
+        long[] nextValues(int count) {
+            long[] values = new long[count];
+            int filled = block.take(values, 0);
+            if (filled < count) {
+                synchronized (this) {
+                    filled = block.take(values, filled);
+                    while (filled < count) {
+                        // Sized with the increment seen last time; a smaller one after a resize only means another round trip
+                        long size = lastSize;
+                        int blocks = size == 0 ? 1 : (int) ((count - filled + size - 1) / size);
+                        Reservation reservation = reserve(blocks);
+                        Block last = Block.EXHAUSTED;
+                        for (Long start : reservation.starts()) {
+                            last = new Block(start, start + reservation.size());
+                            filled = last.take(values, filled);
+                        }
+                        // The unused tail of the last reserved block becomes the current block
+                        block = last;
+                    }
+                }
+            }
+            return values;
+        }
+
+        private synchronized void refill(Block exhausted) {
+            if (block == exhausted) {
+                Reservation reservation = reserve(1);
+                long start = reservation.starts().get(0);
+                block = new Block(start, start + reservation.size());
+                log.debug("Reserved {} block [{}, {})", sequenceName, start, start + reservation.size());
+            }
+        }
+
+        /**
+         * Reserve blocks and read the increment they were reserved with, in one transaction
+         */
+        private Reservation reserve(int blocks) {
+            Reservation reservation = transactionTemplate.execute(status -> {
+                List<Long> starts = blocks == 1
+                        ? List.of(jdbcTemplate.queryForObject(NEXT_BLOCK_SQL, Long.class, sequenceName))
+                        : jdbcTemplate.queryForList(NEXT_BLOCKS_SQL, Long.class, sequenceName, blocks);
+                Long increment = jdbcTemplate.queryForObject(INCREMENT_SQL, Long.class, sequenceName);
+                if (increment == null || increment <= 0) {
+                    throw new IllegalStateException("Sequence " + sequenceName + " must have a positive increment");
+                }
+                return new Reservation(starts, increment);
+            });
+            lastSize = reservation.size();
+            return reservation;
+        }
+    }
+
+    /**
+     * Block starts returned by nextval and the sequence increment at the time
+     */
+    private record Reservation(List<Long> starts, long size) {
+    }
+
+    /**
+     * Half-open range [cursor, end) reserved from the database
+     */
+    private static final class Block {
+
+        static final Block EXHAUSTED = new Block(0, 0);
+
+        final AtomicLong cursor;
+        final long end;
+
+        Block(long start, long end) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+        }
+
+        /**
+         * Claim as many values as fit into values[from..], returning the new fill position
+         */
+        int take(long[] values, int from) {
+            while (true) {
+                long start = cursor.get();
+                int available = (int) Math.min(Math.max(end - start, 0), values.length - from);
+                if (available == 0) {
+                    return from;
+                }
+                if (cursor.compareAndSet(start, start + available)) {
+                    for (int i = 0; i < available; i++) {
+                        values[from + i] = start + i;
+                    }
+                    return from + available;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cached yyyyMMdd text for the current day
+     */
+    private static final class DayStamp {
+
+        final String text;
+        final long validUntil;
+
+        private DayStamp(String text, long validUntil) {
+            this.text = text;
+            this.validUntil = validUntil;
+        }
+
+        static DayStamp at(long epochMilli, ZoneId zone) {
+            LocalDate date = Instant.ofEpochMilli(epochMilli).atZone(zone).toLocalDate();
+            int yyyymmdd = date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+            long nextDay = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            return new DayStamp(Integer.toString(yyyymmdd), nextDay);
+        }
+    }
+}
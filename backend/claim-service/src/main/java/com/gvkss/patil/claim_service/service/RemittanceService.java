@@ -0,0 +1,350 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.dto.RemittanceFileResponse;
+import com.gvkss.patil.claim_service.dto.RemittanceRunResponse;
+import com.gvkss.patil.claim_service.x12.X12Writer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Remittance Service
+ *
+ * Generates X12 835 remittance advice files for the claims paid in a payment cycle, one file
+ * per provider. Provider totals (needed up front for BPR) come from one aggregate query; claims
+ * are then streamed through a server-side cursor ordered by provider and written with
+ * {@link X12Writer}, so memory stays constant regardless of how many claims were paid. Both
+ * queries share one read-only REPEATABLE READ snapshot, so BPR02 always equals the sum of the
+ * CLP payments, and the interchange control numbers are reserved in a separate read-write
+ * transaction before the cursor is opened. With a replica configured the snapshot is read there,
+ * so a claim paid within app.datasource.replica.max-lag-ms of the cycle's end may only appear in
+ * a cycle generated after the replica has caught up.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class RemittanceService {
+
+    private static final String PROVIDER_TOTALS_SQL =
+            "SELECT COALESCE(provider_id, 0) AS provider_key, COUNT(*) AS claim_count, " +
+            "SUM((COALESCE(approved_amount, total_amount) * 100)::bigint) AS paid_cents " +
+            "FROM insurance_claims WHERE claim_status = 'PAID' AND paid_at >= ? AND paid_at < ? " +
+            "GROUP BY COALESCE(provider_id, 0) ORDER BY provider_key";
+
+    private static final String PAID_CLAIMS_SQL =
+            "SELECT COALESCE(provider_id, 0) AS provider_key, id, claim_number, patient_id, " +
+            "(total_amount * 100)::bigint AS charge_cents, " +
+            "(COALESCE(approved_amount, total_amount) * 100)::bigint AS paid_cents, " +
+            "((COALESCE(deductible_amount, 0) + COALESCE(copay_amount, 0) + COALESCE(coinsurance_amount, 0)) * 100)::bigint AS patient_cents, " +
+            "to_char(treatment_date, 'YYYYMMDD')::int AS service_date " +
+            "FROM insurance_claims WHERE claim_status = 'PAID' AND paid_at >= ? AND paid_at < ? " +
+            "ORDER BY provider_key, paid_at, id";
+
+    private static final String RESERVE_CONTROL_NUMBERS_SQL =
+            "SELECT nextval('remittance_interchange_seq') FROM generate_series(1, ?)";
+
+    private static final Pattern FILE_NAME = Pattern.compile("835_[0-9A-Za-z_-]+\\.x12");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate reserveTransaction;
+    private final Path outputDirectory;
+    private final int fetchSize;
+    private final int bufferSize;
+    private final String payerId;
+    private final String payerName;
+
+    public RemittanceService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.claims.remittance.output-dir:${java.io.tmpdir}/remittance}") String outputDirectory,
+                             @Value("${app.claims.remittance.fetch-size:2000}") int fetchSize,
+                             @Value("${app.claims.remittance.buffer-size:65536}") int bufferSize,
+                             @Value("${app.claims.remittance.payer-id:GVKSSHEALTH}") String payerId,
+                             @Value("${app.claims.remittance.payer-name:GVKSS HEALTH PLAN}") String payerName) {
+        this.jdbcTemplate = jdbcTemplate;
+        // The PostgreSQL driver only streams with a cursor inside a transaction
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        // Sequences cannot be advanced in a read-only transaction, nor on a replica
+        this.reserveTransaction = new TransactionTemplate(transactionManager);
+        this.reserveTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.outputDirectory = Paths.get(outputDirectory).toAbsolutePath().normalize();
+        this.fetchSize = fetchSize;
+        this.bufferSize = bufferSize;
+        this.payerId = payerId;
+        this.payerName = payerName;
+    }
+
+    /**
+     * Generate remittance for the previous day's payments
+     */
+    @Scheduled(cron = "${app.claims.remittance.cron:-}")
+    public void generateDailyRemittance() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        try {
+            generate(yesterday, yesterday);
+        } catch (Exception e) {
+            log.error("Error generating daily remittance for {}: {}", yesterday, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Generate 835 files for claims paid between cycleStart and cycleEnd (inclusive)
+     */
+    public RemittanceRunResponse generate(LocalDate cycleStart, LocalDate cycleEnd) {
+        if (cycleEnd.isBefore(cycleStart)) {
+            throw new RuntimeException("Cycle end must not be before cycle start");
+        }
+        log.info("Generating 835 remittance for payment cycle {} to {}", cycleStart, cycleEnd);
+        long start = System.nanoTime();
+
+        Timestamp from = Timestamp.valueOf(cycleStart.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(cycleEnd.plusDays(1).atStartOfDay());
+
+        try {
+            Files.createDirectories(outputDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        RemittanceStream stream = new RemittanceStream(cycleStart, cycleEnd);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                stream.totals = providerTotals(from, to);
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(PAID_CLAIMS_SQL,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(fetchSize);
+                    statement.setTimestamp(1, from);
+                    statement.setTimestamp(2, to);
+                    return statement;
+                }, stream);
+            });
+            stream.finish();
+        } catch (RuntimeException e) {
+            stream.abort();
+            throw e;
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        long totalClaims = stream.files.stream().mapToLong(RemittanceFileResponse::getClaimCount).sum();
+        BigDecimal totalPaid = stream.files.stream().map(RemittanceFileResponse::getTotalPaid)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        log.info("Generated {} remittance files for {} claims in {} ms",
+                stream.files.size(), totalClaims, elapsedNanos / 1_000_000);
+
+        return RemittanceRunResponse.builder()
+                .cycleStart(cycleStart)
+                .cycleEnd(cycleEnd)
+                .totalClaims(totalClaims)
+                .totalPaid(totalPaid)
+                .files(stream.files)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .claimsPerSecond(elapsedNanos > 0 ? totalClaims * 1_000_000_000.0 / elapsedNanos : 0)
+                .build();
+    }
+
+    /**
+     * Resolve a generated remittance file for download
+     */
+    public Resource getFile(String fileName) {
+        if (!FILE_NAME.matcher(fileName).matches()) {
+            throw new RuntimeException("Invalid remittance file name: " + fileName);
+        }
+        Path file = outputDirectory.resolve(fileName).normalize();
+        if (!file.startsWith(outputDirectory) || !Files.isRegularFile(file)) {
+            throw new RuntimeException("Remittance file not found: " + fileName);
+        }
+        return new FileSystemResource(file);
+    }
+
+    /**
+     * Totals of each provider paid in the cycle, each with the control number of its file
+     */
+    private Map<Long, ProviderTotals> providerTotals(Timestamp from, Timestamp to) {
+        Map<Long, long[]> sums = new LinkedHashMap<>();
+        jdbcTemplate.query(PROVIDER_TOTALS_SQL, rs -> {
+            sums.put(rs.getLong("provider_key"), new long[] {rs.getLong("claim_count"), rs.getLong("paid_cents")});
+        }, from, to);
+
+        List<Long> controlNumbers = sums.isEmpty() ? List.of() : reserveTransaction.execute(status ->
+                jdbcTemplate.queryForList(RESERVE_CONTROL_NUMBERS_SQL, Long.class, sums.size()));
+        Map<Long, ProviderTotals> totals = new LinkedHashMap<>();
+        int index = 0;
+        for (Map.Entry<Long, long[]> entry : sums.entrySet()) {
+            totals.put(entry.getKey(), new ProviderTotals(entry.getValue()[0], entry.getValue()[1],
+                    controlNumbers.get(index++)));
+        }
+        return totals;
+    }
+
+    private record ProviderTotals(long claimCount, long paidCents, long controlNumber) {
+    }
+
+    /**
+     * Writes the streamed rows, switching files whenever the provider changes
+     */
+    private final class RemittanceStream implements RowCallbackHandler {
+
+        private final LocalDate cycleStart;
+        private final LocalDate cycleEnd;
+        private final List<RemittanceFileResponse> files = new ArrayList<>();
+        private final List<Path> written = new ArrayList<>();
+        private final int productionDate;
+        private final int productionTime;
+
+        private Map<Long, ProviderTotals> totals;
+        private X12Writer writer;
+        private Path currentFile;
+        private long currentProvider = -1;
+        private long controlNumber;
+        private long claimCount;
+
+        RemittanceStream(LocalDate cycleStart, LocalDate cycleEnd) {
+            this.cycleStart = cycleStart;
+            this.cycleEnd = cycleEnd;
+            LocalDateTime now = LocalDateTime.now();
+            this.productionDate = now.getYear() * 10000 + now.getMonthValue() * 100 + now.getDayOfMonth();
+            this.productionTime = now.getHour() * 100 + now.getMinute();
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long provider = rs.getLong(1);
+            if (provider != currentProvider) {
+                closeFile();
+                openFile(provider);
+            }
+            long chargeCents = rs.getLong(5);
+            long paidCents = rs.getLong(6);
+            long patientCents = rs.getLong(7);
+            long contractualCents = chargeCents - paidCents - patientCents;
+
+            writer.segment("CLP").element(rs.getString(3)).element("1")
+                    .amount(chargeCents).amount(paidCents).amount(patientCents)
+                    .element("CI").element(rs.getLong(2)).end();
+            if (patientCents > 0) {
+                writer.segment("CAS").element("PR").element("1").amount(patientCents).end();
+            }
+            if (contractualCents > 0) {
+                writer.segment("CAS").element("CO").element("45").amount(contractualCents).end();
+            }
+            writer.segment("NM1").element("QC").element("1").empty(5)
+                    .element("MI").element(rs.getLong(4)).end();
+            writer.segment("DTM").element("232").element(rs.getInt(8)).end();
+            claimCount++;
+        }
+
+        void finish() {
+            closeFile();
+        }
+
+        void abort() {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                log.warn("Could not close remittance file {}", currentFile, e);
+            }
+            for (Path path : written) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("Could not delete partial remittance file {}", path, e);
+                }
+            }
+            files.clear();
+        }
+
+        private void openFile(long provider) {
+            // Every streamed provider has totals, as both queries read the same snapshot
+            ProviderTotals providerTotals = totals.get(provider);
+            currentProvider = provider;
+            controlNumber = providerTotals.controlNumber();
+            String providerKey = provider == 0 ? "UNASSIGNED" : Long.toString(provider);
+            currentFile = outputDirectory.resolve("835_" + cycleStart + "_" + cycleEnd + "_P" + providerKey
+                    + "_" + controlNumber + ".x12");
+            written.add(currentFile);
+            claimCount = 0;
+            try {
+                writer = new X12Writer(currentFile, bufferSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            writer.segment("ISA").element("00").fixed("", 10).element("00").fixed("", 10)
+                    .element("ZZ").fixed(payerId, 15).element("ZZ").fixed(providerKey, 15)
+                    .fixed(productionDate % 1_000_000, 6).fixed(productionTime, 4)
+                    .separator('^').element("00501").fixed(controlNumber, 9)
+                    .element("0").element("P").separator(':').end();
+            writer.segment("GS").element("HP").element(payerId).element(providerKey)
+                    .element(productionDate).fixed(productionTime, 4).element(controlNumber)
+                    .element("X").element("005010X221A1").end();
+            writer.beginTransaction();
+            writer.segment("ST").element("835").element("0001").end();
+            writer.segment("BPR").element("I").amount(providerTotals.paidCents()).element("C").element("CHK")
+                    .empty(11).element(productionDate).end();
+            writer.segment("TRN").element("1").element(controlNumber).element("1" + payerId).end();
+            writer.segment("DTM").element("405").element(productionDate).end();
+            writer.segment("N1").element("PR").element(payerName).end();
+            writer.segment("N1").element("PE").element(provider == 0 ? "UNASSIGNED PROVIDER" : "PROVIDER " + provider)
+                    .element("PI").element(providerKey).end();
+            writer.segment("LX").element(1).end();
+        }
+
+        private void closeFile() {
+            if (writer == null) {
+                return;
+            }
+            writer.segment("SE").element(writer.transactionSegmentCount()).element("0001").end();
+            writer.segment("GE").element(1).element(controlNumber).end();
+            writer.segment("IEA").element(1).fixed(controlNumber, 9).end();
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            ProviderTotals providerTotals = totals.get(currentProvider);
+            files.add(RemittanceFileResponse.builder()
+                    .providerId(currentProvider == 0 ? null : currentProvider)
+                    .fileName(currentFile.getFileName().toString())
+                    .claimCount(claimCount)
+                    .totalPaid(BigDecimal.valueOf(providerTotals.paidCents(), 2))
+                    .sizeBytes(writer.bytesWritten())
+                    .build());
+            writer = null;
+        }
+    }
+}
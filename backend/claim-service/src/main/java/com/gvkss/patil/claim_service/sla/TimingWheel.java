@@ -0,0 +1,203 @@
+package com.gvkss.patil.claim_service.sla;
+
+import com.gvkss.patil.claim_service.pricing.LongIntHashMap;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Timing Wheel
+ *
+ * Hierarchical timing wheel of deadlines keyed by a long id. Four levels of 64 slots cover 64^4
+ * ticks (about 32 years at one-minute ticks); a timer sits in the coarsest level that holds its
+ * deadline and cascades one level down each time the finer wheel wraps, so scheduling,
+ * cancelling and expiring are all O(1) however many timers are pending. Timers are slots in flat
+ * arrays chained into doubly linked per-slot lists and found by id through a
+ * {@link LongIntHashMap}; a million timers cost a few tens of megabytes and no per-timer objects.
+ * Not synchronized.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+    private static final int NONE = -1;
+
+    private final long tickMillis;
+    private long currentTick;
+    private final int[] heads = new int[LEVELS * SLOTS];
+    private final LongIntHashMap index;
+
+    private long[] ids;
+    private long[] deadlineTicks;
+    private int[] next;
+    private int[] prev;
+    private int[] buckets;
+    private int allocated;
+    private int freeHead = NONE;
+    private int size;
+
+    public TimingWheel(long tickMillis, long startMillis, int expectedSize) {
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        int capacity = Math.max(16, expectedSize);
+        this.index = new LongIntHashMap(capacity);
+        this.ids = new long[capacity];
+        this.deadlineTicks = new long[capacity];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.buckets = new int[capacity];
+        Arrays.fill(heads, NONE);
+    }
+
+    /**
+     * Schedule or reschedule the timer of an id; a deadline already passed fires on the next tick
+     */
+    public void schedule(long id, long deadlineMillis) {
+        cancel(id);
+        // Round up so a timer never fires before its deadline
+        long deadlineTick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        int entry = allocate();
+        ids[entry] = id;
+        deadlineTicks[entry] = deadlineTick;
+        index.put(id, entry);
+        link(entry);
+        size++;
+    }
+
+    /**
+     * Cancel the timer of an id; returns false if none was pending
+     */
+    public boolean cancel(long id) {
+        int entry = index.get(id, NONE);
+        if (entry == NONE) {
+            return false;
+        }
+        index.remove(id);
+        unlink(entry);
+        release(entry);
+        size--;
+        return true;
+    }
+
+    /**
+     * Deadline of an id's pending timer in epoch millis, or -1
+     */
+    public long deadline(long id) {
+        int entry = index.get(id, NONE);
+        return entry == NONE ? -1 : deadlineTicks[entry] * tickMillis;
+    }
+
+    /**
+     * Move the wheel up to the given time, handing every expired id to the consumer
+     */
+    public int advance(long nowMillis, LongConsumer expired) {
+        long targetTick = nowMillis / tickMillis;
+        int fired = 0;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Coarser slots whose span starts at this tick move their timers down a level
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+                }
+            }
+            int bucket = (int) currentTick & SLOT_MASK;
+            int entry;
+            while ((entry = heads[bucket]) != NONE) {
+                long id = ids[entry];
+                index.remove(id);
+                unlink(entry);
+                release(entry);
+                size--;
+                fired++;
+                expired.accept(id);
+            }
+        }
+        return fired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    private void cascade(int level, int slot) {
+        int bucket = level * SLOTS + slot;
+        int entry = heads[bucket];
+        heads[bucket] = NONE;
+        while (entry != NONE) {
+            int following = next[entry];
+            link(entry);
+            entry = following;
+        }
+    }
+
+    /**
+     * Put an entry in the slot of the coarsest level whose span still contains its deadline
+     */
+    private void link(int entry) {
+        long deadlineTick = deadlineTicks[entry];
+        long delta = deadlineTick - currentTick;
+        if (delta > MAX_DELTA) {
+            // Beyond the wheel: park in the farthest slot and cascade again when it comes round
+            deadlineTick = currentTick + MAX_DELTA;
+            delta = MAX_DELTA;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int bucket = level * SLOTS + ((int) (deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        int head = heads[bucket];
+        next[entry] = head;
+        prev[entry] = NONE;
+        if (head != NONE) {
+            prev[head] = entry;
+        }
+        heads[bucket] = entry;
+        buckets[entry] = bucket;
+    }
+
+    private void unlink(int entry) {
+        if (prev[entry] != NONE) {
+            next[prev[entry]] = next[entry];
+        } else {
+            heads[buckets[entry]] = next[entry];
+        }
+        if (next[entry] != NONE) {
+            prev[next[entry]] = prev[entry];
+        }
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int entry = freeHead;
+            freeHead = next[entry];
+            return entry;
+        }
+        if (allocated == ids.length) {
+            int capacity = allocated * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            deadlineTicks = Arrays.copyOf(deadlineTicks, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            buckets = Arrays.copyOf(buckets, capacity);
+        }
+        return allocated++;
+    }
+
+    private void release(int entry) {
+        next[entry] = freeHead;
+        freeHead = entry;
+    }
+}
@@ -0,0 +1,303 @@
+package com.gvkss.patil.claim_service.x12;
+
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Claim 837 Parser
+ *
+ * Maps the loops of an X12 837 (professional, institutional or dental) interchange to
+ * {@link InsuranceClaim} entities, one per CLM segment. Identifiers follow our trading
+ * partner convention:
+ * <ul>
+ *   <li>patient ID: subscriber member identifier, NM1*IL element 09 (loop 2010BA)</li>
+ *   <li>provider ID: billing provider secondary identifier, REF*G2 after NM1*85 (loop 2010AA)</li>
+ *   <li>doctor ID: rendering provider secondary identifier, REF*G2 after NM1*82 (loop 2310B)</li>
+ * </ul>
+ * Claims that fail the same checks as {@code CreateClaimRequest} are reported and skipped;
+ * claim numbers are assigned by the caller at insert time.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class Claim837Parser {
+
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("99999999.99");
+    private static final int MAX_CODE_LENGTH = 20;
+    private static final int MAX_TEXT_LENGTH = 2000;
+    private static final String EMERGENCY_ROOM_PLACE_OF_SERVICE = "23";
+    private static final String EMERGENCY_ADMISSION_TYPE = "1";
+
+    /**
+     * Receives parsed claims and rejections
+     */
+    public interface Listener {
+
+        void onClaim(InsuranceClaim claim) throws InterruptedException;
+
+        void onRejected(String patientControlNumber, long segment, String reason);
+    }
+
+    private final LocalDate today;
+
+    // Interchange / hierarchy state
+    private InsuranceClaim.ClaimType transactionType = InsuranceClaim.ClaimType.MEDICAL;
+    private String lastEntity;
+    private Long billingProviderId;
+    private String subscriberId;
+
+    // Current claim state
+    private boolean inClaim;
+    private long claimSegment;
+    private String controlNumber;
+    private InsuranceClaim.ClaimType claimType;
+    private BigDecimal totalAmount;
+    private boolean emergency;
+    private String diagnosisCode;
+    private String procedureCode;
+    private StringBuilder procedures;
+    private LocalDate claimServiceDate;
+    private LocalDate lineServiceDate;
+    private Long renderingProviderId;
+    private String note;
+
+    public Claim837Parser(LocalDate today) {
+        this.today = today;
+    }
+
+    /**
+     * Parse the whole interchange, calling the listener for every claim
+     */
+    public void parse(X12SegmentReader reader, Listener listener) throws InterruptedException {
+        while (reader.next()) {
+            if (reader.is("ST")) {
+                finishClaim(listener);
+                if (reader.element(3) != null) {
+                    transactionType = typeFor(reader.element(3));
+                }
+            } else if (reader.is("GS")) {
+                transactionType = typeFor(reader.element(8));
+            } else if (reader.is("HL")) {
+                finishClaim(listener);
+                onHierarchyLevel(reader);
+            } else if (reader.is("NM1")) {
+                onName(reader);
+            } else if (reader.is("REF")) {
+                onReference(reader);
+            } else if (reader.is("CLM")) {
+                finishClaim(listener);
+                startClaim(reader);
+            } else if (inClaim) {
+                onClaimSegment(reader);
+            }
+            if (reader.is("SE") || reader.is("GE") || reader.is("IEA")) {
+                finishClaim(listener);
+            }
+        }
+        finishClaim(listener);
+    }
+
+    private void onHierarchyLevel(X12SegmentReader reader) {
+        // HL03: 20 = billing provider, 22 = subscriber, 23 = patient
+        if (reader.elementEquals(3, "20")) {
+            billingProviderId = null;
+            subscriberId = null;
+        } else if (reader.elementEquals(3, "22")) {
+            subscriberId = null;
+        }
+        lastEntity = null;
+    }
+
+    private void onName(X12SegmentReader reader) {
+        lastEntity = reader.element(1);
+        if ("IL".equals(lastEntity)) {
+            subscriberId = reader.element(9);
+        }
+    }
+
+    private void onReference(X12SegmentReader reader) {
+        if (!reader.elementEquals(1, "G2")) {
+            return;
+        }
+        Long id = parseId(reader.element(2));
+        if ("85".equals(lastEntity)) {
+            billingProviderId = id;
+        } else if ("82".equals(lastEntity) && inClaim) {
+            renderingProviderId = id;
+        }
+    }
+
+    private void startClaim(X12SegmentReader reader) {
+        inClaim = true;
+        claimSegment = reader.segmentCount();
+        controlNumber = reader.element(1);
+        claimType = transactionType;
+        totalAmount = decimalOrNull(reader, 2);
+        // CLM05-1: place of service (professional) or facility type code (institutional)
+        emergency = EMERGENCY_ROOM_PLACE_OF_SERVICE.equals(reader.component(5, 1));
+        diagnosisCode = null;
+        procedureCode = null;
+        procedures = new StringBuilder();
+        claimServiceDate = null;
+        lineServiceDate = null;
+        renderingProviderId = null;
+        note = null;
+    }
+
+    private void onClaimSegment(X12SegmentReader reader) {
+        if (reader.is("HI")) {
+            // First HI carries the principal diagnosis (ABK/BK) as component 2
+            if (diagnosisCode == null) {
+                diagnosisCode = reader.component(1, 2);
+            }
+        } else if (reader.is("DTP")) {
+            // 472 = service date, 434 = statement dates (institutional)
+            if (reader.elementEquals(1, "472") || reader.elementEquals(1, "434")) {
+                LocalDate date = dateOrNull(reader, 3);
+                if (procedures.length() == 0 && claimServiceDate == null) {
+                    claimServiceDate = date;
+                } else if (lineServiceDate == null) {
+                    lineServiceDate = date;
+                }
+            }
+        } else if (reader.is("SV1")) {
+            addProcedure(reader.component(1, 2));
+        } else if (reader.is("SV3")) {
+            // Dental service lines make this claim dental whatever the transaction type
+            addProcedure(reader.component(1, 2));
+            claimType = InsuranceClaim.ClaimType.DENTAL;
+        } else if (reader.is("SV2")) {
+            addProcedure(reader.component(2, 2));
+        } else if (reader.is("CL1")) {
+            emergency |= reader.elementEquals(1, EMERGENCY_ADMISSION_TYPE);
+        } else if (reader.is("NTE")) {
+            if (note == null) {
+                note = reader.element(2);
+            }
+        }
+    }
+
+    private void addProcedure(String code) {
+        if (code == null) {
+            return;
+        }
+        if (procedureCode == null) {
+            procedureCode = code;
+        }
+        if (procedures.length() < MAX_TEXT_LENGTH) {
+            if (procedures.length() > 0) {
+                procedures.append(", ");
+            }
+            procedures.append(code);
+        }
+    }
+
+    private void finishClaim(Listener listener) throws InterruptedException {
+        if (!inClaim) {
+            return;
+        }
+        inClaim = false;
+
+        Long patientId = parseId(subscriberId);
+        LocalDate treatmentDate = claimServiceDate != null ? claimServiceDate : lineServiceDate;
+        String rejection = validate(patientId, treatmentDate);
+        if (rejection != null) {
+            listener.onRejected(controlNumber, claimSegment, rejection);
+            return;
+        }
+
+        String description = note != null ? note
+                : "837 claim " + controlNumber + (procedures.length() > 0 ? ": " + procedures : "");
+
+        InsuranceClaim claim = InsuranceClaim.builder()
+                .patientId(patientId)
+                .doctorId(renderingProviderId)
+                .providerId(billingProviderId)
+                .claimType(claimType)
+                .claimStatus(InsuranceClaim.ClaimStatus.SUBMITTED)
+                .totalAmount(totalAmount)
+                .deductibleAmount(BigDecimal.ZERO)
+                .copayAmount(BigDecimal.ZERO)
+                .coinsuranceAmount(BigDecimal.ZERO)
+                .treatmentDate(treatmentDate)
+                .serviceDescription(truncate(description))
+                .diagnosisCode(diagnosisCode)
+                .procedureCode(procedureCode)
+                .isEmergency(emergency)
+                .priority(emergency ? InsuranceClaim.ClaimPriority.HIGH : InsuranceClaim.ClaimPriority.NORMAL)
+                .submittedAt(LocalDateTime.now())
+                .notes("Patient control number: " + controlNumber)
+                .build();
+        listener.onClaim(claim);
+    }
+
+    private String validate(Long patientId, LocalDate treatmentDate) {
+        if (patientId == null) {
+            return "Subscriber member ID (NM1*IL) is missing or not a patient ID";
+        }
+        if (totalAmount == null || totalAmount.signum() <= 0 || totalAmount.compareTo(MAX_AMOUNT) > 0
+                || totalAmount.scale() > 2) {
+            return "Total amount must be between 0.01 and 99999999.99";
+        }
+        if (treatmentDate == null) {
+            return "Service date (DTP*472) is required";
+        }
+        if (treatmentDate.isAfter(today)) {
+            return "Treatment date cannot be in the future";
+        }
+        if (diagnosisCode != null && diagnosisCode.length() > MAX_CODE_LENGTH) {
+            return "Diagnosis code cannot exceed 20 characters";
+        }
+        if (procedureCode != null && procedureCode.length() > MAX_CODE_LENGTH) {
+            return "Procedure code cannot exceed 20 characters";
+        }
+        return null;
+    }
+
+    /**
+     * Malformed values reject the claim rather than abort the file
+     */
+    private static BigDecimal decimalOrNull(X12SegmentReader reader, int index) {
+        try {
+            return reader.decimal(index);
+        } catch (X12FormatException e) {
+            return null;
+        }
+    }
+
+    private static LocalDate dateOrNull(X12SegmentReader reader, int index) {
+        try {
+            return reader.date(index);
+        } catch (X12FormatException e) {
+            return null;
+        }
+    }
+
+    private static InsuranceClaim.ClaimType typeFor(String implementationReference) {
+        // 005010X224 is the dental guide; professional (X222) and institutional (X223) are medical
+        if (implementationReference != null && implementationReference.contains("X224")) {
+            return InsuranceClaim.ClaimType.DENTAL;
+        }
+        return InsuranceClaim.ClaimType.MEDICAL;
+    }
+
+    private static Long parseId(String value) {
+        if (value == null || value.isEmpty() || value.length() > 18) {
+            return null;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return null;
+            }
+        }
+        return Long.parseLong(value);
+    }
+
+    private static String truncate(String text) {
+        return text.length() > MAX_TEXT_LENGTH ? text.substring(0, MAX_TEXT_LENGTH) : text;
+    }
+}
@@ -0,0 +1,15 @@
+package com.gvkss.patil.claim_service.x12;
+
+/**
+ * Raised when an X12 interchange cannot be tokenized or a required value is malformed
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public class X12FormatException extends RuntimeException {
+
+    public X12FormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,310 @@
+package com.gvkss.patil.claim_service.x12;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * X12 Segment Reader
+ *
+ * Streaming tokenizer over a memory-mapped X12 interchange. Delimiters are taken from the ISA
+ * header. The reader keeps only element offsets into the mapped file for the current segment;
+ * element values are decoded on demand, so nothing is materialized for segments the caller skips.
+ * Closing a reader from {@link #open} releases the mapping right away instead of at garbage
+ * collection, so the file can then be deleted on platforms that refuse to delete mapped files.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class X12SegmentReader implements AutoCloseable {
+
+    private static final int ISA_ELEMENT_COUNT = 16;
+
+    private final ByteBuffer buffer;
+    private final boolean mapped;
+    private final int limit;
+    private final byte elementSeparator;
+    private final byte componentSeparator;
+    private final byte segmentTerminator;
+
+    private int position;
+    private int[] starts = new int[64];
+    private int[] ends = new int[64];
+    private int elementCount;
+    private long segmentCount;
+    private boolean closed;
+
+    public X12SegmentReader(ByteBuffer buffer) {
+        this(buffer, false);
+    }
+
+    private X12SegmentReader(ByteBuffer buffer, boolean mapped) {
+        this.buffer = buffer;
+        this.mapped = mapped;
+        this.limit = buffer.limit();
+        if (limit < 106 || buffer.get(0) != 'I' || buffer.get(1) != 'S' || buffer.get(2) != 'A') {
+            throw new X12FormatException("File does not start with an ISA segment");
+        }
+        this.elementSeparator = buffer.get(3);
+
+        // ISA16 is the component separator, immediately followed by the segment terminator
+        int separators = 0;
+        int i = 3;
+        while (i < limit && separators < ISA_ELEMENT_COUNT) {
+            if (buffer.get(i) == elementSeparator) {
+                separators++;
+            }
+            i++;
+        }
+        if (i + 1 >= limit) {
+            throw new X12FormatException("Truncated ISA segment");
+        }
+        this.componentSeparator = buffer.get(i);
+        this.segmentTerminator = buffer.get(i + 1);
+    }
+
+    /**
+     * Map a file read-only and open a reader over it
+     */
+    public static X12SegmentReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new X12FormatException("X12 file too large to map: " + size + " bytes");
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            try {
+                return new X12SegmentReader(mapped, true);
+            } catch (X12FormatException e) {
+                unmap(mapped);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Stop reading; a reader from {@link #open} unmaps its file. No segment is available afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // With no current segment and nothing left to read, no accessor touches the buffer again
+        position = limit;
+        elementCount = 0;
+        if (mapped) {
+            unmap(buffer);
+        }
+    }
+
+    /**
+     * Advance to the next segment; returns false at end of input
+     */
+    public boolean next() {
+        // Skip line breaks and padding some senders put between segments
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if (b != '\r' && b != '\n' && b != ' ' && b != '\t') {
+                break;
+            }
+            position++;
+        }
+        if (position >= limit) {
+            elementCount = 0;
+            return false;
+        }
+
+        elementCount = 0;
+        int start = position;
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if (b == segmentTerminator) {
+                break;
+            }
+            if (b == elementSeparator) {
+                addElement(start, position);
+                start = position + 1;
+            }
+            position++;
+        }
+        addElement(start, position);
+        position++;
+        segmentCount++;
+        return true;
+    }
+
+    /**
+     * Check the segment identifier (element 0)
+     */
+    public boolean is(String segmentId) {
+        return elementEquals(0, segmentId);
+    }
+
+    /**
+     * Compare an element with an ASCII literal without decoding it
+     */
+    public boolean elementEquals(int index, String value) {
+        if (index >= elementCount) {
+            return false;
+        }
+        int start = starts[index];
+        int length = ends[index] - start;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Element value, or null when absent or empty
+     */
+    public String element(int index) {
+        if (index >= elementCount || ends[index] == starts[index]) {
+            return null;
+        }
+        return decode(starts[index], ends[index]);
+    }
+
+    /**
+     * Component of a composite element (both indexes as in the X12 notation, component from 1), or null
+     */
+    public String component(int index, int component) {
+        if (index >= elementCount) {
+            return null;
+        }
+        int start = starts[index];
+        int end = ends[index];
+        int current = 1;
+        int componentStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer.get(i) == componentSeparator) {
+                if (current == component) {
+                    return i == componentStart ? null : decode(componentStart, i);
+                }
+                current++;
+                componentStart = i + 1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decimal element value, or null when absent
+     */
+    public BigDecimal decimal(int index) {
+        String value = element(index);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new X12FormatException("Invalid amount '" + value + "' in segment " + segmentCount);
+        }
+    }
+
+    /**
+     * Date element in CCYYMMDD (D8) form, or the start of a CCYYMMDD-CCYYMMDD (RD8) range
+     */
+    public LocalDate date(int index) {
+        if (index >= elementCount || ends[index] - starts[index] < 8) {
+            return null;
+        }
+        int start = starts[index];
+        try {
+            return LocalDate.of(digits(start, 4), digits(start + 4, 2), digits(start + 6, 2));
+        } catch (RuntimeException e) {
+            throw new X12FormatException("Invalid date '" + element(index) + "' in segment " + segmentCount);
+        }
+    }
+
+    /**
+     * Number of elements in the current segment, including the segment identifier
+     */
+    public int elementCount() {
+        return elementCount;
+    }
+
+    /**
+     * Number of segments read so far
+     */
+    public long segmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Bytes consumed so far
+     */
+    public long position() {
+        return Math.min(position, limit);
+    }
+
+    /**
+     * Total input size in bytes
+     */
+    public long size() {
+        return limit;
+    }
+
+    private void addElement(int start, int end) {
+        if (elementCount == starts.length) {
+            int[] grownStarts = new int[starts.length * 2];
+            int[] grownEnds = new int[ends.length * 2];
+            System.arraycopy(starts, 0, grownStarts, 0, elementCount);
+            System.arraycopy(ends, 0, grownEnds, 0, elementCount);
+            starts = grownStarts;
+            ends = grownEnds;
+        }
+        starts[elementCount] = start;
+        ends[elementCount] = end;
+        elementCount++;
+    }
+
+    private int digits(int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int d = buffer.get(i) - '0';
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException();
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    /**
+     * Release a mapping through the JDK's cleaner; without access to it the mapping is left to the GC
+     */
+    private static void unmap(ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Unmapped when the buffer is collected
+        }
+    }
+
+    private String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1).trim();
+    }
+}
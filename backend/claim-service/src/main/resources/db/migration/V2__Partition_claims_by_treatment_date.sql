@@ -0,0 +1,202 @@
+-- Partition insurance_claims by storage tier and treatment date
+--
+-- insurance_claims                     LIST (storage_tier)
+--   insurance_claims_hot               RANGE (treatment_date), one partition per month
+--   insurance_claims_archive           RANGE (treatment_date), one partition per year
+--
+-- New claims always land in the HOT tier. The claim service moves closed-out claims
+-- (PAID / REJECTED) older than the configured age to the ARCHIVE tier and creates
+-- upcoming monthly partitions ahead of time.
+--
+-- Unique constraints on a partitioned table must contain every partition key, so the
+-- primary key becomes (id, storage_tier, treatment_date). claim_number uniqueness moves to
+-- the unpartitioned claim_numbers table, which a trigger keeps in step with every insert,
+-- delete, renumbering and tier move in the same transaction.
+-- Foreign keys cannot reference insurance_claims(id) any more for the same reason.
+
+ALTER TABLE IF EXISTS claim_documents DROP CONSTRAINT IF EXISTS claim_documents_claim_id_fkey;
+
+ALTER TABLE insurance_claims RENAME TO insurance_claims_unpartitioned;
+ALTER TABLE insurance_claims_unpartitioned RENAME CONSTRAINT insurance_claims_pkey TO insurance_claims_unpartitioned_pkey;
+ALTER SEQUENCE insurance_claims_id_seq OWNED BY NONE;
+
+CREATE TABLE insurance_claims (
+    id BIGINT NOT NULL DEFAULT nextval('insurance_claims_id_seq'),
+    claim_number VARCHAR(50) NOT NULL,
+    patient_id BIGINT NOT NULL,
+    doctor_id BIGINT,
+    provider_id BIGINT,
+    claim_type VARCHAR(50) NOT NULL,
+    claim_status VARCHAR(50) NOT NULL DEFAULT 'SUBMITTED',
+    total_amount DECIMAL(10,2) NOT NULL,
+    approved_amount DECIMAL(10,2),
+    deductible_amount DECIMAL(10,2) DEFAULT 0.00,
+    copay_amount DECIMAL(10,2) DEFAULT 0.00,
+    coinsurance_amount DECIMAL(10,2) DEFAULT 0.00,
+    treatment_date DATE NOT NULL,
+    service_description TEXT NOT NULL,
+    diagnosis_code VARCHAR(20),
+    procedure_code VARCHAR(20),
+    is_emergency BOOLEAN NOT NULL DEFAULT FALSE,
+    priority VARCHAR(20) NOT NULL DEFAULT 'NORMAL',
+    submitted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    reviewed_at TIMESTAMP,
+    approved_at TIMESTAMP,
+    paid_at TIMESTAMP,
+    rejection_reason TEXT,
+    notes TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    storage_tier VARCHAR(10) NOT NULL DEFAULT 'HOT',
+    PRIMARY KEY (id, storage_tier, treatment_date)
+) PARTITION BY LIST (storage_tier);
+
+ALTER SEQUENCE insurance_claims_id_seq OWNED BY insurance_claims.id;
+
+CREATE TABLE insurance_claims_hot PARTITION OF insurance_claims
+    FOR VALUES IN ('HOT') PARTITION BY RANGE (treatment_date);
+CREATE TABLE insurance_claims_archive PARTITION OF insurance_claims
+    FOR VALUES IN ('ARCHIVE') PARTITION BY RANGE (treatment_date);
+
+-- Catch-all partitions so an insert never fails for a month that has not been created yet
+CREATE TABLE insurance_claims_hot_default PARTITION OF insurance_claims_hot DEFAULT;
+CREATE TABLE insurance_claims_archive_default PARTITION OF insurance_claims_archive DEFAULT;
+
+-- One row per claim number; its primary key is what keeps claim numbers unique
+CREATE TABLE claim_numbers (
+    claim_number VARCHAR(50) PRIMARY KEY,
+    claim_id BIGINT NOT NULL
+);
+
+-- A tier move is a DELETE and an INSERT as far as row triggers are concerned, so it releases and
+-- re-takes the number
+CREATE OR REPLACE FUNCTION sync_claim_numbers()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        DELETE FROM claim_numbers WHERE claim_number = OLD.claim_number AND claim_id = OLD.id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO claim_numbers (claim_number, claim_id) VALUES (NEW.claim_number, NEW.id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER insurance_claims_numbers_insert_delete
+    AFTER INSERT OR DELETE ON insurance_claims
+    FOR EACH ROW EXECUTE FUNCTION sync_claim_numbers();
+CREATE TRIGGER insurance_claims_numbers_update
+    AFTER UPDATE OF claim_number ON insurance_claims
+    FOR EACH ROW WHEN (OLD.claim_number IS DISTINCT FROM NEW.claim_number)
+    EXECUTE FUNCTION sync_claim_numbers();
+
+-- Create (or no-op) one range partition of a tier.
+-- Rows that already landed in the tier's default partition for that range are moved
+-- into the new table before it is attached, otherwise ATTACH would be rejected.
+CREATE OR REPLACE FUNCTION create_insurance_claims_partition(p_tier TEXT, p_from DATE, p_to DATE, p_name TEXT)
+RETURNS BOOLEAN AS $$
+DECLARE
+    v_parent TEXT := CASE p_tier WHEN 'HOT' THEN 'insurance_claims_hot' ELSE 'insurance_claims_archive' END;
+BEGIN
+    -- Nodes run this at startup and nightly; without the lock two of them can both see the
+    -- partition missing and the second CREATE TABLE fails
+    PERFORM pg_advisory_xact_lock(hashtext('create_insurance_claims_partition'));
+    IF to_regclass(p_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', p_name, v_parent);
+    EXECUTE format('WITH moved AS (DELETE FROM %I WHERE treatment_date >= %L AND treatment_date < %L RETURNING *) '
+                   || 'INSERT INTO %I SELECT * FROM moved',
+                   v_parent || '_default', p_from, p_to, p_name);
+    -- The new table is not a partition yet, so only the DELETE reached the claim_numbers trigger
+    EXECUTE format('INSERT INTO claim_numbers (claim_number, claim_id) SELECT claim_number, id FROM %I', p_name);
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   v_parent, p_name, p_from, p_to);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Monthly HOT partition containing the given date, e.g. insurance_claims_p2024_05
+CREATE OR REPLACE FUNCTION ensure_insurance_claims_month(p_date DATE)
+RETURNS BOOLEAN AS $$
+DECLARE
+    v_from DATE := date_trunc('month', p_date)::DATE;
+BEGIN
+    RETURN create_insurance_claims_partition('HOT', v_from, (v_from + INTERVAL '1 month')::DATE,
+                                             'insurance_claims_p' || to_char(v_from, 'YYYY_MM'));
+END;
+$$ LANGUAGE plpgsql;
+
+-- Yearly ARCHIVE partition containing the given date, e.g. insurance_claims_archive_p2023
+CREATE OR REPLACE FUNCTION ensure_insurance_claims_archive_year(p_date DATE)
+RETURNS BOOLEAN AS $$
+DECLARE
+    v_from DATE := date_trunc('year', p_date)::DATE;
+BEGIN
+    RETURN create_insurance_claims_partition('ARCHIVE', v_from, (v_from + INTERVAL '1 year')::DATE,
+                                             'insurance_claims_archive_p' || to_char(v_from, 'YYYY'));
+END;
+$$ LANGUAGE plpgsql;
+
+-- Monthly partitions covering existing data through three months ahead
+DO $$
+DECLARE
+    v_month DATE;
+    v_last DATE := (date_trunc('month', CURRENT_DATE) + INTERVAL '3 months')::DATE;
+BEGIN
+    SELECT date_trunc('month', LEAST(MIN(treatment_date), CURRENT_DATE))::DATE
+    INTO v_month
+    FROM insurance_claims_unpartitioned;
+
+    WHILE v_month <= v_last LOOP
+        PERFORM ensure_insurance_claims_month(v_month);
+        v_month := (v_month + INTERVAL '1 month')::DATE;
+    END LOOP;
+END;
+$$;
+
+INSERT INTO insurance_claims (
+    id, claim_number, patient_id, doctor_id, provider_id, claim_type, claim_status,
+    total_amount, approved_amount, deductible_amount, copay_amount, coinsurance_amount,
+    treatment_date, service_description, diagnosis_code, procedure_code, is_emergency, priority,
+    submitted_at, reviewed_at, approved_at, paid_at, rejection_reason, notes, created_at, updated_at
+)
+SELECT
+    id, claim_number, patient_id, doctor_id, provider_id, claim_type, claim_status,
+    total_amount, approved_amount, deductible_amount, copay_amount, coinsurance_amount,
+    treatment_date, service_description, diagnosis_code, procedure_code, is_emergency, priority,
+    submitted_at, reviewed_at, approved_at, paid_at, rejection_reason, notes, created_at, updated_at
+FROM insurance_claims_unpartitioned;
+
+DROP TABLE insurance_claims_unpartitioned;
+
+-- Indexes are declared on the parent and created on every partition, present and future
+CREATE INDEX IF NOT EXISTS idx_claims_patient_id ON insurance_claims(patient_id);
+CREATE INDEX IF NOT EXISTS idx_claims_doctor_id ON insurance_claims(doctor_id);
+CREATE INDEX IF NOT EXISTS idx_claims_provider_id ON insurance_claims(provider_id);
+CREATE INDEX IF NOT EXISTS idx_claims_status ON insurance_claims(claim_status);
+CREATE INDEX IF NOT EXISTS idx_claims_type ON insurance_claims(claim_type);
+CREATE INDEX IF NOT EXISTS idx_claims_priority ON insurance_claims(priority);
+CREATE INDEX IF NOT EXISTS idx_claims_treatment_date ON insurance_claims(treatment_date);
+CREATE INDEX IF NOT EXISTS idx_claims_created_at ON insurance_claims(created_at);
+CREATE INDEX IF NOT EXISTS idx_claims_emergency ON insurance_claims(is_emergency);
+CREATE INDEX IF NOT EXISTS idx_claims_claim_number ON insurance_claims(claim_number);
+
+-- Add comments for documentation
+COMMENT ON TABLE insurance_claims IS 'Insurance claims for healthcare services, partitioned by storage tier and treatment date';
+COMMENT ON COLUMN insurance_claims.claim_number IS 'Unique claim identifier, enforced through claim_numbers';
+COMMENT ON TABLE claim_numbers IS 'Claim numbers in use across all partitions of insurance_claims; maintained by trigger';
+COMMENT ON COLUMN insurance_claims.patient_id IS 'Reference to patient user ID';
+COMMENT ON COLUMN insurance_claims.doctor_id IS 'Reference to doctor user ID';
+COMMENT ON COLUMN insurance_claims.provider_id IS 'Reference to healthcare provider ID';
+COMMENT ON COLUMN insurance_claims.claim_type IS 'Type of claim: MEDICAL, DENTAL, VISION, PHARMACY';
+COMMENT ON COLUMN insurance_claims.claim_status IS 'Status: SUBMITTED, UNDER_REVIEW, APPROVED, REJECTED, PAID';
+COMMENT ON COLUMN insurance_claims.priority IS 'Priority level: LOW, NORMAL, HIGH, URGENT';
+COMMENT ON COLUMN insurance_claims.is_emergency IS 'Whether this is an emergency claim';
+COMMENT ON COLUMN insurance_claims.treatment_date IS 'Date when treatment was provided';
+COMMENT ON COLUMN insurance_claims.service_description IS 'Description of the medical service';
+COMMENT ON COLUMN insurance_claims.diagnosis_code IS 'Medical diagnosis code (ICD-10)';
+COMMENT ON COLUMN insurance_claims.procedure_code IS 'Medical procedure code (CPT)';
+COMMENT ON COLUMN insurance_claims.storage_tier IS 'Storage tier: HOT for active claims, ARCHIVE for closed-out history';
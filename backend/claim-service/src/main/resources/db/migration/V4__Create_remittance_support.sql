@@ -0,0 +1,9 @@
+-- Remittance (835) generation support
+
+-- Payment cycle scans read PAID claims by paid_at
+CREATE INDEX IF NOT EXISTS idx_claims_paid_at ON insurance_claims(paid_at) WHERE claim_status = 'PAID';
+
+-- Interchange control numbers (ISA13 / GS06) for generated 835 files
+CREATE SEQUENCE IF NOT EXISTS remittance_interchange_seq START WITH 1 INCREMENT BY 1 MAXVALUE 999999999 CYCLE;
+
+COMMENT ON SEQUENCE remittance_interchange_seq IS 'Interchange control numbers for generated 835 remittance files';
@@ -0,0 +1,53 @@
+-- Claim document store: content-addressed blobs and resumable upload sessions
+
+-- claim_documents is also created by the user service; make sure it exists with the same shape
+CREATE TABLE IF NOT EXISTS claim_documents (
+    id BIGSERIAL PRIMARY KEY,
+    claim_id BIGINT NOT NULL,
+    document_type VARCHAR(50) NOT NULL,
+    file_name VARCHAR(200) NOT NULL,
+    file_path VARCHAR(500) NOT NULL,
+    file_size BIGINT,
+    mime_type VARCHAR(100),
+    uploaded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    uploaded_by BIGINT,
+    is_verified BOOLEAN NOT NULL DEFAULT FALSE,
+    verification_notes TEXT
+);
+
+ALTER TABLE claim_documents ADD COLUMN IF NOT EXISTS content_sha256 VARCHAR(64);
+
+-- Per-claim listing reads newest first
+CREATE INDEX IF NOT EXISTS idx_claim_documents_claim_uploaded ON claim_documents(claim_id, uploaded_at DESC);
+CREATE INDEX IF NOT EXISTS idx_claim_documents_sha256 ON claim_documents(content_sha256);
+
+-- One row per stored object; ref_count is the number of claim_documents pointing at it
+CREATE TABLE IF NOT EXISTS document_blobs (
+    sha256 VARCHAR(64) PRIMARY KEY,
+    size_bytes BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS document_upload_sessions (
+    id VARCHAR(36) PRIMARY KEY,
+    claim_id BIGINT NOT NULL,
+    document_type VARCHAR(50) NOT NULL,
+    file_name VARCHAR(200) NOT NULL,
+    mime_type VARCHAR(100),
+    total_size BIGINT NOT NULL,
+    received_bytes BIGINT NOT NULL DEFAULT 0,
+    uploaded_by BIGINT,
+    status VARCHAR(20) NOT NULL DEFAULT 'IN_PROGRESS',
+    document_id BIGINT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_expires ON document_upload_sessions(expires_at) WHERE status = 'IN_PROGRESS';
+
+-- Add comments for documentation
+COMMENT ON COLUMN claim_documents.content_sha256 IS 'SHA-256 of the content; file_path points at the shared object';
+COMMENT ON TABLE document_blobs IS 'Content-addressed document objects shared across claims';
+COMMENT ON TABLE document_upload_sessions IS 'Chunked, resumable document uploads in progress';
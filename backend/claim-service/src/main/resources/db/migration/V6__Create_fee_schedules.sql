@@ -0,0 +1,41 @@
+-- Versioned fee schedules used to price the allowed amount of claims
+
+CREATE TABLE IF NOT EXISTS fee_schedule_versions (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'DRAFT',
+    entry_count INTEGER NOT NULL DEFAULT 0,
+    created_by VARCHAR(100),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    activated_at TIMESTAMP,
+    CONSTRAINT chk_fee_schedule_status CHECK (status IN ('DRAFT', 'ACTIVE', 'RETIRED'))
+);
+
+-- At most one version is active at a time
+CREATE UNIQUE INDEX IF NOT EXISTS idx_fee_schedule_versions_active ON fee_schedule_versions(status) WHERE status = 'ACTIVE';
+
+-- provider_id NULL is the default rate for providers without a contracted rate
+CREATE TABLE IF NOT EXISTS fee_schedule_entries (
+    id BIGSERIAL PRIMARY KEY,
+    version_id BIGINT NOT NULL REFERENCES fee_schedule_versions(id) ON DELETE CASCADE,
+    provider_id BIGINT,
+    procedure_code VARCHAR(20) NOT NULL,
+    effective_from DATE NOT NULL,
+    effective_to DATE,
+    allowed_amount DECIMAL(10,2) NOT NULL,
+    CONSTRAINT chk_fee_schedule_entry_dates CHECK (effective_to IS NULL OR effective_to >= effective_from),
+    CONSTRAINT chk_fee_schedule_entry_amount CHECK (allowed_amount >= 0)
+);
+
+CREATE INDEX IF NOT EXISTS idx_fee_schedule_entries_version ON fee_schedule_entries(version_id);
+
+-- Priced allowed amount of a claim (lesser of billed amount and scheduled rate)
+ALTER TABLE insurance_claims ADD COLUMN IF NOT EXISTS allowed_amount DECIMAL(10,2);
+
+-- Bulk pricing picks up open claims that have not been priced yet
+CREATE INDEX IF NOT EXISTS idx_claims_unpriced ON insurance_claims(id)
+    WHERE allowed_amount IS NULL AND claim_status IN ('SUBMITTED', 'UNDER_REVIEW');
+
+COMMENT ON TABLE fee_schedule_versions IS 'Fee schedule versions; exactly one ACTIVE version prices claims';
+COMMENT ON TABLE fee_schedule_entries IS 'Allowed amount per provider and procedure code for an effective date range (effective_to inclusive)';
+COMMENT ON COLUMN insurance_claims.allowed_amount IS 'Allowed amount priced from the active fee schedule';
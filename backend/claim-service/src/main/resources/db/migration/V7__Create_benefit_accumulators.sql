@@ -0,0 +1,31 @@
+-- Patient benefit accumulators (deductible and out-of-pocket met per plan year)
+
+CREATE TABLE IF NOT EXISTS benefit_accumulators (
+    patient_id BIGINT NOT NULL,
+    plan_year INTEGER NOT NULL,
+    deductible_limit DECIMAL(10,2) NOT NULL,
+    deductible_met DECIMAL(10,2) NOT NULL DEFAULT 0,
+    out_of_pocket_limit DECIMAL(10,2) NOT NULL,
+    out_of_pocket_met DECIMAL(10,2) NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (patient_id, plan_year),
+    -- Last line of defence: a counter can never pass its limit
+    CONSTRAINT chk_accumulator_deductible CHECK (deductible_met >= 0 AND deductible_met <= deductible_limit),
+    CONSTRAINT chk_accumulator_out_of_pocket CHECK (out_of_pocket_met >= 0 AND out_of_pocket_met <= out_of_pocket_limit)
+);
+
+-- One posting per claim makes applying a claim idempotent
+CREATE TABLE IF NOT EXISTS benefit_accumulator_postings (
+    claim_id BIGINT PRIMARY KEY,
+    patient_id BIGINT NOT NULL,
+    plan_year INTEGER NOT NULL,
+    deductible_applied DECIMAL(10,2) NOT NULL,
+    out_of_pocket_applied DECIMAL(10,2) NOT NULL,
+    posted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_accumulator_postings_patient_year ON benefit_accumulator_postings(patient_id, plan_year);
+
+COMMENT ON TABLE benefit_accumulators IS 'Deductible and out-of-pocket amounts met per patient and plan year';
+COMMENT ON TABLE benefit_accumulator_postings IS 'Cost share each approved or paid claim applied to the accumulators';
@@ -0,0 +1,30 @@
+-- Anomaly flags raised when claims are submitted, and snapshots of the streaming scorer state
+
+CREATE TABLE IF NOT EXISTS claim_anomaly_flags (
+    id BIGSERIAL PRIMARY KEY,
+    claim_id BIGINT NOT NULL,
+    claim_number VARCHAR(50),
+    provider_id BIGINT,
+    procedure_code VARCHAR(20),
+    flag_type VARCHAR(30) NOT NULL,
+    score DOUBLE PRECISION NOT NULL,
+    detail VARCHAR(500),
+    reviewed BOOLEAN NOT NULL DEFAULT false,
+    reviewed_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_anomaly_flags_claim ON claim_anomaly_flags(claim_id);
+-- Review queue: open flags, newest first
+CREATE INDEX IF NOT EXISTS idx_anomaly_flags_open ON claim_anomaly_flags(created_at DESC) WHERE reviewed = false;
+
+-- One row per claim-service node; the newest snapshot seeds a node that has none of its own
+CREATE TABLE IF NOT EXISTS claim_anomaly_snapshots (
+    node_id INTEGER PRIMARY KEY,
+    observations BIGINT NOT NULL,
+    state BYTEA NOT NULL,
+    taken_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+COMMENT ON TABLE claim_anomaly_flags IS 'Amount and billing-velocity anomalies raised on claim submission';
+COMMENT ON TABLE claim_anomaly_snapshots IS 'Gzipped state of the streaming claim anomaly scorer per node';
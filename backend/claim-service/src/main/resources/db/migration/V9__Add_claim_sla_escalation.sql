@@ -0,0 +1,13 @@
+-- SLA escalation marker: set once when an open claim misses its processing deadline
+
+ALTER TABLE insurance_claims ADD COLUMN IF NOT EXISTS sla_escalated_at TIMESTAMP;
+
+-- The startup SLA timer load scans open, unescalated claims by id
+CREATE INDEX IF NOT EXISTS idx_claims_sla_open ON insurance_claims(id)
+    WHERE claim_status IN ('SUBMITTED', 'UNDER_REVIEW') AND sla_escalated_at IS NULL;
+
+-- The incremental load rescans those created since shortly before its previous run
+CREATE INDEX IF NOT EXISTS idx_claims_sla_open_created ON insurance_claims(created_at)
+    WHERE claim_status IN ('SUBMITTED', 'UNDER_REVIEW') AND sla_escalated_at IS NULL;
+
+COMMENT ON COLUMN insurance_claims.sla_escalated_at IS 'When the claim breached its processing SLA and was escalated to URGENT';
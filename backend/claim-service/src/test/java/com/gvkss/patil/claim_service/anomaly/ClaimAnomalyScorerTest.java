@@ -0,0 +1,127 @@
+package com.gvkss.patil.claim_service.anomaly;
+
+import com.gvkss.patil.claim_service.anomaly.ClaimAnomalyScorer.Flag;
+import com.gvkss.patil.claim_service.anomaly.ClaimAnomalyScorer.FlagType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link ClaimAnomalyScorer}: outliers and velocity spikes are flagged, scoring leaves the
+ * statistics alone, and a snapshot restores a scorer that judges claims exactly as the original.
+ */
+class ClaimAnomalyScorerTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long START = 1_700_000_000_000L;
+    private static final ClaimAnomalyScorer.Settings SETTINGS = new ClaimAnomalyScorer.Settings(
+            0.02, 100, 30, 4.0, 0.995, 5.0, 10, HOUR, 7 * 24 * HOUR);
+
+    @Test
+    void flagsAnAmountFarAboveTheUsual() {
+        ClaimAnomalyScorer scorer = trained(new Random(1));
+
+        List<Flag> typical = scorer.score("99213", 501L, 150, START + 1000 * HOUR);
+        List<Flag> outlier = scorer.score("99213", 501L, 25_000, START + 1000 * HOUR);
+
+        assertTrue(typical.isEmpty(), typical.toString());
+        assertTrue(outlier.stream().anyMatch(flag -> flag.type() == FlagType.AMOUNT_OUTLIER), outlier.toString());
+        assertTrue(outlier.stream().anyMatch(flag -> flag.type() == FlagType.AMOUNT_PERCENTILE), outlier.toString());
+    }
+
+    @Test
+    void flagsABillingSpike() {
+        ClaimAnomalyScorer scorer = new ClaimAnomalyScorer(SETTINGS);
+        // Two claims a day for two weeks, then a burst within one hour
+        long now = START;
+        for (int i = 0; i < 28; i++, now += 12 * HOUR) {
+            scorer.update("99213", 900L, 150, now);
+        }
+        List<Flag> flags = List.of();
+        for (int i = 0; i < 30 && flags.isEmpty(); i++, now += 60_000) {
+            flags = scorer.score("99213", 900L, 150, now);
+            scorer.update("99213", 900L, 150, now);
+        }
+
+        assertEquals(FlagType.PROVIDER_VELOCITY, flags.get(0).type());
+    }
+
+    @Test
+    void scoringDoesNotChangeTheStatistics() throws IOException {
+        ClaimAnomalyScorer scorer = trained(new Random(2));
+        byte[] before = snapshot(scorer);
+
+        for (int i = 0; i < 100; i++) {
+            scorer.score("99213", 501L, 25_000, START + 1000 * HOUR + i);
+            scorer.score("NEW01", 999L, 10, START + 1000 * HOUR + i);
+        }
+
+        assertArrayEquals(before, snapshot(scorer));
+        assertEquals(2, scorer.getProceduresTracked());
+    }
+
+    @Test
+    void snapshotRoundTripScoresTheSame() throws IOException {
+        ClaimAnomalyScorer original = trained(new Random(3));
+
+        ClaimAnomalyScorer restored = ClaimAnomalyScorer.readFrom(
+                new DataInputStream(new ByteArrayInputStream(snapshot(original))), SETTINGS);
+
+        assertEquals(original.getObservations(), restored.getObservations());
+        assertEquals(original.getProceduresTracked(), restored.getProceduresTracked());
+        assertEquals(original.getProvidersTracked(), restored.getProvidersTracked());
+        // Both keep learning the same way from the same claims
+        Random random = new Random(4);
+        long now = START + 1000 * HOUR;
+        for (int i = 0; i < 500; i++, now += 60_000) {
+            String code = random.nextBoolean() ? "99213" : "70450";
+            long provider = 500 + random.nextInt(5);
+            double amount = i % 50 == 0 ? 40_000 : 100 + random.nextInt(400);
+            assertEquals(original.score(code, provider, amount, now), restored.score(code, provider, amount, now));
+            original.update(code, provider, amount, now);
+            restored.update(code, provider, amount, now);
+        }
+        assertArrayEquals(snapshot(original), snapshot(restored));
+    }
+
+    @Test
+    void rejectsSomethingThatIsNotASnapshot() {
+        byte[] garbage = {1, 2, 3, 4, 5, 6, 7, 8};
+
+        assertThrows(IOException.class, () -> ClaimAnomalyScorer.readFrom(
+                new DataInputStream(new ByteArrayInputStream(garbage)), SETTINGS));
+    }
+
+    /**
+     * A few weeks of ordinary claims for two procedures and five providers
+     */
+    private static ClaimAnomalyScorer trained(Random random) {
+        ClaimAnomalyScorer scorer = new ClaimAnomalyScorer(SETTINGS);
+        long now = START;
+        for (int i = 0; i < 2000; i++, now += HOUR / 2) {
+            boolean office = random.nextBoolean();
+            double amount = office ? 120 + random.nextInt(60) : 2000 + random.nextInt(800);
+            scorer.update(office ? "99213" : "70450", 500L + random.nextInt(5), amount, now);
+        }
+        return scorer;
+    }
+
+    private static byte[] snapshot(ClaimAnomalyScorer scorer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            scorer.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+}
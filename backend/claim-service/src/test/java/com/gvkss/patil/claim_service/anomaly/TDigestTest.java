@@ -0,0 +1,142 @@
+package com.gvkss.patil.claim_service.anomaly;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link TDigest} accuracy against exact ranks of the same data, with a tighter bound in
+ * the tails where claim amounts are judged, and for snapshot round trips.
+ */
+class TDigestTest {
+
+    private static final double COMPRESSION = 100;
+    private static final double[] QUANTILES = {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.995, 0.999};
+
+    @Test
+    void quantilesOfUniformValues() {
+        Random random = new Random(1);
+        assertAccurate(random.doubles(100_000).toArray());
+    }
+
+    @Test
+    void quantilesOfSkewedAmounts() {
+        // Claim amounts are roughly log-normal: many small bills and a long expensive tail
+        Random random = new Random(2);
+        double[] values = new double[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.round(Math.exp(5 + random.nextGaussian()) * 100) / 100.0;
+        }
+        assertAccurate(values);
+    }
+
+    @Test
+    void quantilesOfSortedInput() {
+        // Worst case for merging: every buffer lands beyond the existing centroids
+        double[] values = new double[50_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        assertAccurate(values);
+    }
+
+    @Test
+    void smallAndEmptyDigests() {
+        TDigest digest = new TDigest(COMPRESSION);
+        assertTrue(Double.isNaN(digest.quantile(0.5)));
+        assertTrue(Double.isNaN(digest.cdf(1)));
+
+        digest.add(10);
+        assertEquals(10, digest.quantile(0.5));
+        assertEquals(0, digest.cdf(9.99));
+        assertEquals(1, digest.cdf(10));
+
+        digest.add(20);
+        assertEquals(1, digest.cdf(20));
+        assertEquals(0, digest.cdf(5));
+        assertEquals(2, digest.size());
+    }
+
+    @Test
+    void staysSmallWhateverTheNumberOfValues() throws Exception {
+        TDigest digest = new TDigest(COMPRESSION);
+        new Random(3).doubles(1_000_000).forEach(digest::add);
+
+        // Eight bytes for min, max and each centroid's mean and weight, plus the count
+        int centroids = (serialize(digest).length - 20) / 16;
+        assertTrue(centroids <= Math.ceil(COMPRESSION * Math.PI / 2), "centroids: " + centroids);
+        assertEquals(1_000_000, digest.size());
+    }
+
+    @Test
+    void roundTripsThroughASnapshot() throws Exception {
+        TDigest digest = new TDigest(COMPRESSION);
+        new Random(4).doubles(20_000).map(value -> value * 1000).forEach(digest::add);
+
+        TDigest restored = TDigest.readFrom(new DataInputStream(new ByteArrayInputStream(serialize(digest))), COMPRESSION);
+
+        assertEquals(digest.size(), restored.size());
+        for (double q : QUANTILES) {
+            assertEquals(digest.quantile(q), restored.quantile(q), 1e-9);
+        }
+        assertEquals(digest.cdf(500), restored.cdf(500), 1e-12);
+        // A restored digest keeps learning
+        restored.add(5000);
+        assertEquals(1, restored.cdf(5000));
+        assertTrue(restored.cdf(1000) < 1);
+    }
+
+    private static void assertAccurate(double[] values) {
+        TDigest digest = new TDigest(COMPRESSION);
+        for (double value : values) {
+            digest.add(value);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        for (double q : QUANTILES) {
+            // Rank error: how far the estimate's true rank is from the quantile asked for
+            double rank = rank(sorted, digest.quantile(q));
+            double tolerance = q < 0.01 || q > 0.99 ? 0.002 : 0.01;
+            assertEquals(q, rank, tolerance, "quantile " + q);
+
+            double value = sorted[(int) (q * (sorted.length - 1))];
+            assertEquals(rank(sorted, value), digest.cdf(value), tolerance, "cdf at quantile " + q);
+        }
+    }
+
+    private static double rank(double[] sorted, double value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            // Mid-rank over ties, as the digest spreads equal values across their centroid
+            int first = index;
+            while (first > 0 && sorted[first - 1] == value) {
+                first--;
+            }
+            int last = index;
+            while (last < sorted.length - 1 && sorted[last + 1] == value) {
+                last++;
+            }
+            index = (first + last + 1) / 2;
+        }
+        return (double) index / sorted.length;
+    }
+
+    private static byte[] serialize(TDigest digest) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            digest.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+}
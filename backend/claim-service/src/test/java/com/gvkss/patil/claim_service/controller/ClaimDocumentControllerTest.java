@@ -0,0 +1,127 @@
+package com.gvkss.patil.claim_service.controller;
+
+import com.gvkss.patil.claim_service.service.ClaimDocumentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for document downloads through {@link ClaimDocumentController}: whole documents, single
+ * byte ranges, unsatisfiable ranges and conditional requests. Mock requests do not offer Tomcat's
+ * sendfile, so the content is always streamed through the channel copy.
+ */
+class ClaimDocumentControllerTest {
+
+    private static final String SHA256 = "ab".repeat(32);
+
+    @TempDir
+    Path directory;
+
+    private byte[] content;
+    private ClaimDocumentController controller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        content = new byte[1000];
+        new Random(1).nextBytes(content);
+        Path file = directory.resolve("object");
+        Files.write(file, content);
+
+        ClaimDocumentService service = mock(ClaimDocumentService.class);
+        when(service.getContent(1L, 2L)).thenReturn(
+                new ClaimDocumentService.DocumentContent(file, content.length, "application/pdf", "scan.pdf", SHA256));
+        controller = new ClaimDocumentController(service);
+    }
+
+    @Test
+    void downloadsTheWholeDocument() {
+        MockHttpServletResponse response = download(null);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(content.length, response.getContentLengthLong());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals("\"" + SHA256 + "\"", response.getHeader(HttpHeaders.ETAG));
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void downloadsASingleRange() {
+        MockHttpServletResponse response = download("bytes=100-199");
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+        assertEquals("bytes 100-199/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(100, response.getContentLengthLong());
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 200), response.getContentAsByteArray());
+
+        // Open-ended and suffix ranges, clipped to the document
+        response = download("bytes=900-5000");
+        assertEquals("bytes 900-999/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 900, 1000), response.getContentAsByteArray());
+        response = download("bytes=-50");
+        assertEquals("bytes 950-999/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 950, 1000), response.getContentAsByteArray());
+    }
+
+    @Test
+    void answersMultipleRangesWithTheWholeDocument() {
+        MockHttpServletResponse response = download("bytes=0-9,20-29");
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void rejectsUnsatisfiableRanges() {
+        for (String range : new String[] {"bytes=1000-", "bytes=2000-2100", "lines=1-2"}) {
+            MockHttpServletRequest request = request(range);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            ResponseEntity<?> result = controller.downloadContent(1L, 2L, request, response);
+
+            assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, result.getStatusCode(), range);
+            assertEquals("bytes */1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        }
+    }
+
+    @Test
+    void answersNotModifiedForAMatchingEtag() {
+        MockHttpServletRequest request = request(null);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"" + SHA256 + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertNull(controller.downloadContent(1L, 2L, request, response));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private MockHttpServletResponse download(String range) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNull(controller.downloadContent(1L, 2L, request(range), response));
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/claims/1/documents/2/content");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        return request;
+    }
+}
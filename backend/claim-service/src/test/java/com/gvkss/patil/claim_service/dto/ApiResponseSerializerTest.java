@@ -0,0 +1,196 @@
+package com.gvkss.patil.claim_service.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.gvkss.patil.claim_service.codes.CodeSystem;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import com.gvkss.patil.claim_service.service.CodeDictionaryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that {@link ApiResponseSerializer} and {@link InsuranceClaimSerializer} write the same JSON as
+ * the HashMap envelopes and ClaimResponse DTOs they replaced, serialized by plain Jackson.
+ */
+class ApiResponseSerializerTest {
+
+    private static final String AWKWARD = "Said \"urgent\"\\ on\nline two\t\u0001 </script> café 😀";
+
+    private ObjectMapper mapper;
+    private CodeDictionaryService codeDictionaryService;
+
+    @BeforeEach
+    void setUp() {
+        codeDictionaryService = mock(CodeDictionaryService.class);
+        when(codeDictionaryService.describe(CodeSystem.ICD10, "J06.9")).thenReturn("Acute upper respiratory infection");
+        when(codeDictionaryService.describe(CodeSystem.CPT, "99213")).thenReturn("Office visit, \"established\"");
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(InsuranceClaim.class, new InsuranceClaimSerializer(codeDictionaryService));
+        mapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(module).build();
+    }
+
+    @Test
+    void pageMatchesMapEnvelopeOfClaimResponses() throws Exception {
+        List<InsuranceClaim> claims = List.of(fullClaim(), sparseClaim());
+        PageImpl<InsuranceClaim> page = new PageImpl<>(claims, PageRequest.of(2, 2), 17);
+
+        Map<String, Object> old = new HashMap<>();
+        old.put("success", true);
+        old.put("message", "Claims retrieved successfully");
+        old.put("data", claims.stream().map(this::toResponse).toList());
+        old.put("totalElements", page.getTotalElements());
+        old.put("totalPages", page.getTotalPages());
+        old.put("currentPage", page.getNumber());
+
+        assertSameJson(old, ApiResponse.page(page, "Claims retrieved successfully"));
+    }
+
+    @Test
+    void singleResultsMatchMapEnvelope() throws Exception {
+        Map<String, Object> old = new HashMap<>();
+        old.put("success", true);
+        old.put("message", "Claim retrieved successfully");
+        old.put("data", toResponse(fullClaim()));
+        assertSameJson(old, ApiResponse.success(toResponse(fullClaim()), "Claim retrieved successfully"));
+    }
+
+    @Test
+    void nullDataIsStillWritten() throws Exception {
+        Map<String, Object> old = new HashMap<>();
+        old.put("success", true);
+        old.put("message", "Claims retrieved successfully");
+        old.put("data", null);
+        String json = mapper.writeValueAsString(ApiResponse.success(null, "Claims retrieved successfully"));
+        assertTrue(json.contains("\"data\":null"), json);
+        assertSameJson(old, ApiResponse.success(null, "Claims retrieved successfully"));
+    }
+
+    @Test
+    void messagesWithoutDataMatchMapEnvelope() throws Exception {
+        Map<String, Object> deleted = new HashMap<>();
+        deleted.put("success", true);
+        deleted.put("message", "Claim deleted successfully");
+        assertSameJson(deleted, ApiResponse.success("Claim deleted successfully"));
+
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        error.put("message", "Failed to create claim: " + AWKWARD);
+        assertSameJson(error, ApiResponse.error("Failed to create claim: " + AWKWARD));
+        assertFalse(mapper.writeValueAsString(ApiResponse.error("x")).contains("data"));
+
+        // Success messages go through the pre-encoded cache; escaping must survive it
+        Map<String, Object> encoded = new HashMap<>();
+        encoded.put("success", true);
+        encoded.put("message", AWKWARD);
+        assertSameJson(encoded, ApiResponse.success(AWKWARD));
+        assertSameJson(encoded, ApiResponse.success(AWKWARD));
+    }
+
+    private void assertSameJson(Object expected, ApiResponse<?> actual) throws Exception {
+        String expectedJson = mapper.writeValueAsString(expected);
+        String actualJson = mapper.writeValueAsString(actual);
+        JsonNode expectedTree = mapper.readTree(expectedJson);
+        JsonNode actualTree = mapper.readTree(actualJson);
+        assertEquals(expectedTree, actualTree, () -> "expected " + expectedJson + "\nbut was  " + actualJson);
+    }
+
+    private InsuranceClaim fullClaim() {
+        InsuranceClaim claim = new InsuranceClaim();
+        claim.setId(7L);
+        claim.setClaimNumber("CLM-20240301-001234");
+        claim.setPatientId(42L);
+        claim.setDoctorId(9L);
+        claim.setProviderId(3L);
+        claim.setClaimType(InsuranceClaim.ClaimType.MEDICAL);
+        claim.setClaimStatus(InsuranceClaim.ClaimStatus.APPROVED);
+        claim.setTotalAmount(new BigDecimal("1250.50"));
+        claim.setApprovedAmount(new BigDecimal("1000.00"));
+        claim.setAllowedAmount(new BigDecimal("1100.25"));
+        claim.setDeductibleAmount(new BigDecimal("100.00"));
+        claim.setCopayAmount(new BigDecimal("25.00"));
+        claim.setCoinsuranceAmount(new BigDecimal("0.20"));
+        claim.setTreatmentDate(LocalDate.of(2024, 3, 1));
+        claim.setServiceDescription(AWKWARD);
+        claim.setDiagnosisCode("J06.9");
+        claim.setProcedureCode("99213");
+        claim.setIsEmergency(true);
+        claim.setPriority(InsuranceClaim.ClaimPriority.URGENT);
+        claim.setSubmittedAt(LocalDateTime.of(2024, 3, 2, 9, 30, 15));
+        claim.setReviewedAt(LocalDateTime.of(2024, 3, 3, 10, 0, 0, 123_000_000));
+        claim.setApprovedAt(LocalDateTime.of(2024, 3, 4, 11, 0));
+        claim.setNotes("Line one\r\nLine two");
+        claim.setCreatedAt(LocalDateTime.of(2024, 3, 2, 9, 30, 15));
+        claim.setUpdatedAt(LocalDateTime.of(2024, 3, 4, 11, 0));
+        return claim;
+    }
+
+    private InsuranceClaim sparseClaim() {
+        InsuranceClaim claim = new InsuranceClaim();
+        claim.setId(8L);
+        claim.setClaimNumber("CLM-20240301-001235");
+        claim.setPatientId(43L);
+        claim.setDoctorId(9L);
+        claim.setClaimType(InsuranceClaim.ClaimType.DENTAL);
+        claim.setTotalAmount(new BigDecimal("80"));
+        claim.setTreatmentDate(LocalDate.of(2024, 2, 29));
+        claim.setIsEmergency(null);
+        return claim;
+    }
+
+    /**
+     * ClaimResponse as ClaimService built it for list pages before the direct serializer
+     */
+    private ClaimResponse toResponse(InsuranceClaim claim) {
+        return ClaimResponse.builder()
+                .id(claim.getId())
+                .claimNumber(claim.getClaimNumber())
+                .patientId(claim.getPatientId())
+                .doctorId(claim.getDoctorId())
+                .providerId(claim.getProviderId())
+                .claimType(claim.getClaimType())
+                .claimStatus(claim.getClaimStatus())
+                .totalAmount(claim.getTotalAmount())
+                .approvedAmount(claim.getApprovedAmount())
+                .allowedAmount(claim.getAllowedAmount())
+                .deductibleAmount(claim.getDeductibleAmount())
+                .copayAmount(claim.getCopayAmount())
+                .coinsuranceAmount(claim.getCoinsuranceAmount())
+                .treatmentDate(claim.getTreatmentDate())
+                .serviceDescription(claim.getServiceDescription())
+                .diagnosisCode(claim.getDiagnosisCode())
+                .procedureCode(claim.getProcedureCode())
+                .diagnosisDescription(codeDictionaryService.describe(CodeSystem.ICD10, claim.getDiagnosisCode()))
+                .procedureDescription(codeDictionaryService.describe(CodeSystem.CPT, claim.getProcedureCode()))
+                .isEmergency(claim.getIsEmergency())
+                .priority(claim.getPriority())
+                .submittedAt(claim.getSubmittedAt())
+                .reviewedAt(claim.getReviewedAt())
+                .approvedAt(claim.getApprovedAt())
+                .paidAt(claim.getPaidAt())
+                .rejectionReason(claim.getRejectionReason())
+                .notes(claim.getNotes())
+                .createdAt(claim.getCreatedAt())
+                .updatedAt(claim.getUpdatedAt())
+                .statusDisplayName(claim.getClaimStatus().getDisplayName())
+                .typeDisplayName(claim.getClaimType().getDisplayName())
+                .priorityDisplayName(claim.getPriority().getDisplayName())
+                .build();
+    }
+}
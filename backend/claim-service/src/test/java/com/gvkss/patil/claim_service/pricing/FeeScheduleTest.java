@@ -0,0 +1,115 @@
+package com.gvkss.patil.claim_service.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link FeeSchedule} lookups: contracted rates before default rates, overlapping and
+ * open-ended date ranges, and snapshots large enough to grow the builder.
+ */
+class FeeScheduleTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2024, 1, 1);
+    private static final LocalDate JUN_30 = LocalDate.of(2024, 6, 30);
+    private static final LocalDate DEC_31 = LocalDate.of(2024, 12, 31);
+
+    @Test
+    void contractedRateWinsOverTheDefault() {
+        FeeSchedule schedule = FeeSchedule.builder(3L)
+                .add(null, "99213", JAN_1, DEC_31, 10_000)
+                .add(501L, "99213", JAN_1, DEC_31, 8_500)
+                .build();
+
+        assertEquals(3L, schedule.getVersionId());
+        assertEquals(2, schedule.size());
+        assertEquals(8_500, schedule.rateCents(501L, "99213", LocalDate.of(2024, 5, 10)));
+        // Providers without a contract, and claims without a provider, get the default rate
+        assertEquals(10_000, schedule.rateCents(777L, "99213", LocalDate.of(2024, 5, 10)));
+        assertEquals(10_000, schedule.rateCents(null, "99213", LocalDate.of(2024, 5, 10)));
+        // Codes are normalized like CPT lookups
+        assertEquals(8_500, schedule.rateCents(501L, " 99213 ", LocalDate.of(2024, 5, 10)));
+    }
+
+    @Test
+    void fallsBackToTheDefaultOutsideTheContractedRange() {
+        FeeSchedule schedule = FeeSchedule.builder(1L)
+                .add(null, "99213", JAN_1, DEC_31, 10_000)
+                .add(501L, "99213", JAN_1, JUN_30, 8_500)
+                .build();
+
+        assertEquals(8_500, schedule.rateCents(501L, "99213", JUN_30));
+        assertEquals(10_000, schedule.rateCents(501L, "99213", JUN_30.plusDays(1)));
+        assertEquals(FeeSchedule.NOT_SCHEDULED, schedule.rateCents(501L, "99213", DEC_31.plusDays(1)));
+        assertEquals(FeeSchedule.NOT_SCHEDULED, schedule.rateCents(501L, "99214", JAN_1));
+        assertEquals(FeeSchedule.NOT_SCHEDULED, schedule.rateCents(501L, null, JAN_1));
+    }
+
+    @Test
+    void latestOverlappingRangeWins() {
+        // Added out of order: the builder sorts each provider and code by start date
+        FeeSchedule schedule = FeeSchedule.builder(1L)
+                .add(null, "70450", LocalDate.of(2024, 4, 1), LocalDate.of(2024, 4, 30), 30_000)
+                .add(null, "70450", JAN_1, DEC_31, 25_000)
+                .add(null, "70450", LocalDate.of(2024, 3, 1), null, 27_500)
+                .build();
+
+        assertEquals(25_000, schedule.rateCents(null, "70450", LocalDate.of(2024, 2, 15)));
+        assertEquals(27_500, schedule.rateCents(null, "70450", LocalDate.of(2024, 3, 15)));
+        assertEquals(30_000, schedule.rateCents(null, "70450", LocalDate.of(2024, 4, 15)));
+        assertEquals(27_500, schedule.rateCents(null, "70450", LocalDate.of(2024, 5, 1)));
+        // The open-ended range outlives the closed one
+        assertEquals(27_500, schedule.rateCents(null, "70450", LocalDate.of(2031, 1, 1)));
+        assertEquals(FeeSchedule.NOT_SCHEDULED, schedule.rateCents(null, "70450", JAN_1.minusDays(1)));
+    }
+
+    @Test
+    void allowedAmountIsTheLesserOfBilledAndScheduled() {
+        FeeSchedule schedule = FeeSchedule.builder(1L).add(null, "99213", JAN_1, null, 10_000).build();
+        int codeId = schedule.codeId("99213");
+        int day = (int) JAN_1.toEpochDay();
+
+        assertEquals(9_000, schedule.allowedCents(0L, codeId, day, 9_000));
+        assertEquals(10_000, schedule.allowedCents(0L, codeId, day, 15_000));
+        assertEquals(FeeSchedule.NOT_SCHEDULED, schedule.allowedCents(0L, schedule.codeId("00000"), day, 15_000));
+        assertEquals(-1, schedule.codeId("00000"));
+    }
+
+    @Test
+    void buildsLargeSchedules() {
+        FeeSchedule.Builder builder = FeeSchedule.builder(9L);
+        for (int code = 0; code < 500; code++) {
+            builder.add(null, "C" + code, JAN_1, null, code * 100L);
+            for (long provider = 1; provider <= 5; provider++) {
+                builder.add(provider, "C" + code, JAN_1, JUN_30, code * 100L - provider);
+            }
+        }
+        FeeSchedule schedule = builder.build();
+
+        assertEquals(3000, schedule.size());
+        for (int code = 0; code < 500; code += 37) {
+            assertEquals(code * 100L - 3, schedule.rateCents(3L, "C" + code, JAN_1));
+            assertEquals(code * 100L, schedule.rateCents(3L, "C" + code, DEC_31));
+        }
+    }
+
+    @Test
+    void emptyScheduleHasNoRates() {
+        FeeSchedule schedule = FeeSchedule.empty();
+
+        assertEquals(0, schedule.size());
+        assertEquals(FeeSchedule.NOT_SCHEDULED, schedule.rateCents(1L, "99213", JAN_1));
+    }
+
+    @Test
+    void rejectsProviderIdsOutOfRange() {
+        FeeSchedule.Builder builder = FeeSchedule.builder(1L);
+
+        assertThrows(IllegalArgumentException.class, () -> builder.add(-1L, "99213", JAN_1, null, 100));
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.add(Integer.MAX_VALUE + 1L, "99213", JAN_1, null, 100));
+    }
+}
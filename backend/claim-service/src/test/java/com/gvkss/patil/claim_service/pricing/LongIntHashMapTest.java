@@ -0,0 +1,95 @@
+package com.gvkss.patil.claim_service.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link LongIntHashMap}, checked against a {@link HashMap} through growth and removal.
+ */
+class LongIntHashMapTest {
+
+    @Test
+    void putGetAndReplace() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(1L, 10);
+        map.put(-5L, 20);
+        map.put(Long.MAX_VALUE, 30);
+        map.put(1L, 11);
+
+        assertEquals(3, map.size());
+        assertEquals(11, map.get(1L, -1));
+        assertEquals(20, map.get(-5L, -1));
+        assertEquals(30, map.get(Long.MAX_VALUE, -1));
+        assertEquals(-1, map.get(2L, -1));
+        assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, 1));
+    }
+
+    @Test
+    void growsPastTheExpectedSize() {
+        LongIntHashMap map = new LongIntHashMap(1);
+        // Provider and code keys as the fee schedule builds them: sequential ids in both halves
+        for (int provider = 0; provider < 100; provider++) {
+            for (int code = 0; code < 100; code++) {
+                map.put((long) provider << 32 | code, provider * 100 + code);
+            }
+        }
+
+        assertEquals(10_000, map.size());
+        for (int provider = 0; provider < 100; provider++) {
+            for (int code = 0; code < 100; code++) {
+                assertEquals(provider * 100 + code, map.get((long) provider << 32 | code, -1));
+            }
+        }
+    }
+
+    @Test
+    void removeKeepsLaterEntriesOfTheProbeRunReachable() {
+        LongIntHashMap map = new LongIntHashMap(8);
+        for (long key = 0; key < 8; key++) {
+            map.put(key, (int) key);
+        }
+
+        assertTrue(map.remove(3L));
+        assertFalse(map.remove(3L));
+        assertFalse(map.remove(100L));
+        assertEquals(7, map.size());
+        assertEquals(-1, map.get(3L, -1));
+        for (long key = 0; key < 8; key++) {
+            if (key != 3) {
+                assertEquals((int) key, map.get(key, -1));
+            }
+        }
+    }
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        LongIntHashMap map = new LongIntHashMap(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // A small key space keeps probe runs long and collisions frequent
+            long key = random.nextInt(2_000) * 0x1_0000_0001L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                int value = random.nextInt();
+                map.put(key, value);
+                expected.put(key, value);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long k = 0; k < 2_000; k++) {
+            long key = k * 0x1_0000_0001L;
+            assertEquals(expected.getOrDefault(key, -1), map.get(key, -1));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrency tests for {@link BenefitAccumulatorService} on H2 in PostgreSQL mode.
+ * Two service instances share the database to stand in for two claim-service nodes; their
+ * caches only expire after an hour unless a test builds a node with a shorter TTL.
+ */
+class BenefitAccumulatorServiceTest {
+
+    private static final long PATIENT_ID = 42L;
+    private static final LocalDate TREATMENT_DATE = LocalDate.of(2024, 3, 15);
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private BenefitAccumulatorService nodeA;
+    private BenefitAccumulatorService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V7__Create_benefit_accumulators.sql"))
+                .execute(dataSource);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        nodeA = new BenefitAccumulatorService(jdbcTemplate, transactionManager,
+                new BigDecimal("1500.00"), new BigDecimal("6000.00"), 16, 100, 3600);
+        nodeB = new BenefitAccumulatorService(jdbcTemplate, transactionManager,
+                new BigDecimal("1500.00"), new BigDecimal("6000.00"), 16, 100, 3600);
+    }
+
+    @Test
+    void simultaneousApprovalsNeverOverspend() throws Exception {
+        int claims = 64;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger posted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i <= claims; i++) {
+            InsuranceClaim claim = claim(i, "300.00", "50.00", "400.00");
+            BenefitAccumulatorService node = i % 2 == 0 ? nodeA : nodeB;
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (post(node, claim)) {
+                    posted.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(claims, posted.get());
+        Map<String, Object> counters = jdbcTemplate.queryForMap(
+                "SELECT deductible_met, out_of_pocket_met FROM benefit_accumulators WHERE patient_id = ?", PATIENT_ID);
+        assertEquals(0, new BigDecimal("1500.00").compareTo((BigDecimal) counters.get("deductible_met")));
+        assertEquals(0, new BigDecimal("6000.00").compareTo((BigDecimal) counters.get("out_of_pocket_met")));
+
+        // Every cent on the counters is accounted for by exactly one posting
+        Map<String, Object> postings = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS postings, SUM(deductible_applied) AS deductible, SUM(out_of_pocket_applied) AS out_of_pocket " +
+                "FROM benefit_accumulator_postings WHERE patient_id = ?", PATIENT_ID);
+        assertEquals(claims, ((Number) postings.get("postings")).intValue());
+        assertEquals(0, new BigDecimal("1500.00").compareTo((BigDecimal) postings.get("deductible")));
+        assertEquals(0, new BigDecimal("6000.00").compareTo((BigDecimal) postings.get("out_of_pocket")));
+    }
+
+    @Test
+    void claimIsAppliedOnlyOnce() {
+        InsuranceClaim claim = claim(7, "200.00", "25.00", "0.00");
+
+        assertTrue(post(nodeA, claim));
+        assertFalse(post(nodeB, claim));
+        assertFalse(post(nodeA, claim));
+
+        assertEquals(0, new BigDecimal("200.00").compareTo(nodeA.getAccumulator(PATIENT_ID, 2024).getDeductibleMet()));
+        assertEquals(0, new BigDecimal("225.00").compareTo(nodeB.getAccumulator(PATIENT_ID, 2024).getOutOfPocketMet()));
+    }
+
+    @Test
+    void reversingAClaimGivesItsCostShareBack() {
+        InsuranceClaim first = claim(1, "1000.00", "0.00", "0.00");
+        InsuranceClaim second = claim(2, "300.00", "20.00", "0.00");
+        post(nodeA, first);
+        post(nodeA, second);
+        assertEquals(0, new BigDecimal("1300.00").compareTo(nodeA.getAccumulator(PATIENT_ID, 2024).getDeductibleMet()));
+
+        assertTrue(reverse(nodeA, first));
+        assertFalse(reverse(nodeA, first));
+        assertFalse(reverse(nodeA, claim(3, "10.00", "0.00", "0.00")));
+
+        assertEquals(0, new BigDecimal("300.00").compareTo(nodeA.getAccumulator(PATIENT_ID, 2024).getDeductibleMet()));
+        assertEquals(0, new BigDecimal("320.00").compareTo(nodeA.getAccumulator(PATIENT_ID, 2024).getOutOfPocketMet()));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM benefit_accumulator_postings WHERE patient_id = ?", Integer.class, PATIENT_ID));
+        // A reversed claim can be applied again if it is approved again
+        assertTrue(post(nodeA, first));
+        assertEquals(0, new BigDecimal("1300.00").compareTo(nodeA.getAccumulator(PATIENT_ID, 2024).getDeductibleMet()));
+    }
+
+    @Test
+    void cachedReadsSeeOtherNodesPostingsAfterTheTtl() {
+        BenefitAccumulatorService expiringNode = new BenefitAccumulatorService(jdbcTemplate,
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()),
+                new BigDecimal("1500.00"), new BigDecimal("6000.00"), 16, 100, 0);
+        assertEquals(0, BigDecimal.ZERO.compareTo(nodeB.getAccumulator(PATIENT_ID, 2024).getDeductibleMet()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(expiringNode.getAccumulator(PATIENT_ID, 2024).getDeductibleMet()));
+
+        post(nodeA, claim(1, "100.00", "0.00", "0.00"));
+
+        // The posting node drops its entry on commit; other nodes serve theirs until it expires
+        assertEquals(0, new BigDecimal("100.00").compareTo(nodeA.getAccumulator(PATIENT_ID, 2024).getDeductibleMet()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(nodeB.getAccumulator(PATIENT_ID, 2024).getDeductibleMet()));
+        assertEquals(0, new BigDecimal("100.00").compareTo(expiringNode.getAccumulator(PATIENT_ID, 2024).getDeductibleMet()));
+    }
+
+    private boolean reverse(BenefitAccumulatorService node, InsuranceClaim claim) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> node.reverse(claim)));
+    }
+
+    private boolean post(BenefitAccumulatorService node, InsuranceClaim claim) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> node.post(claim)));
+    }
+
+    private static InsuranceClaim claim(long id, String deductible, String copay, String coinsurance) {
+        return InsuranceClaim.builder()
+                .id(id)
+                .patientId(PATIENT_ID)
+                .treatmentDate(TREATMENT_DATE)
+                .deductibleAmount(new BigDecimal(deductible))
+                .copayAmount(new BigDecimal(copay))
+                .coinsuranceAmount(new BigDecimal(coinsurance))
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.anomaly.ClaimAnomalyScorer.Flag;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link ClaimAnomalyService}: a claim is learned from, and its flags stored, only once
+ * its transaction commits. The database is mocked; flag and snapshot SQL is PostgreSQL-specific.
+ */
+class ClaimAnomalyServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ClaimAnomalyService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        service = new ClaimAnomalyService(jdbcTemplate, true, 0, 0.02, 100, 3, 4.0, 0.995, 5.0, 10,
+                Duration.ofHours(1), Duration.ofDays(7));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void rolledBackClaimsLeaveTheStatisticsAlone() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.score(claim(1, "150.00"));
+        service.score(claim(2, "160.00"));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertEquals(0, service.getStats().getObservations());
+        assertEquals(2, service.getStats().getClaimsScored());
+    }
+
+    @Test
+    void committedClaimsAreLearnedAndTheirFlagsStored() {
+        for (int i = 1; i <= 20; i++) {
+            service.score(claim(i, i % 2 == 0 ? "150.00" : "155.00"));
+        }
+        assertEquals(20, service.getStats().getObservations());
+
+        TransactionSynchronizationManager.initSynchronization();
+        List<Flag> flags = service.score(claim(99, "90000.00"));
+        assertFalse(flags.isEmpty());
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("INSERT INTO claim_anomaly_flags"), anyList(), anyInt(), any());
+        assertEquals(20, service.getStats().getObservations());
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+
+        assertEquals(21, service.getStats().getObservations());
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO claim_anomaly_flags"), anyList(), anyInt(), any());
+    }
+
+    private static InsuranceClaim claim(long id, String amount) {
+        return InsuranceClaim.builder()
+                .id(id)
+                .claimNumber("CLM-" + id)
+                .procedureCode("99213")
+                .totalAmount(new BigDecimal(amount))
+                .build();
+    }
+}
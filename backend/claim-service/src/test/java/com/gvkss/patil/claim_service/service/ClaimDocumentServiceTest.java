@@ -0,0 +1,260 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.dto.StartUploadRequest;
+import com.gvkss.patil.claim_service.dto.UploadSessionResponse;
+import com.gvkss.patil.claim_service.entity.ClaimDocument;
+import com.gvkss.patil.claim_service.entity.DocumentUploadSession;
+import com.gvkss.patil.claim_service.entity.DocumentUploadSession.UploadStatus;
+import com.gvkss.patil.claim_service.repository.ClaimDocumentRepository;
+import com.gvkss.patil.claim_service.repository.ClaimRepository;
+import com.gvkss.patil.claim_service.repository.DocumentUploadSessionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the file handling of {@link ClaimDocumentService}: resumed and re-sent chunks,
+ * deduplication of identical content, retrying a completion whose transaction rolled back, and
+ * removal of objects after commit. The repositories and the document_blobs reference counting
+ * (ON CONFLICT DO UPDATE, UPDATE ... RETURNING) are mocked, as H2 supports neither.
+ */
+class ClaimDocumentServiceTest {
+
+    private static final long CLAIM_ID = 1L;
+
+    @TempDir
+    Path directory;
+
+    private final Map<String, DocumentUploadSession> sessions = new HashMap<>();
+    private final Map<Long, ClaimDocument> documents = new HashMap<>();
+    private JdbcTemplate jdbcTemplate;
+    private ClaimDocumentService service;
+
+    @BeforeEach
+    void setUp() {
+        ClaimRepository claimRepository = mock(ClaimRepository.class);
+        when(claimRepository.existsById(CLAIM_ID)).thenReturn(true);
+
+        DocumentUploadSessionRepository sessionRepository = mock(DocumentUploadSessionRepository.class);
+        when(sessionRepository.save(any())).thenAnswer(invocation -> {
+            DocumentUploadSession session = invocation.getArgument(0);
+            sessions.put(session.getId(), session);
+            return session;
+        });
+        when(sessionRepository.findByIdAndClaimIdForUpdate(anyString(), eq(CLAIM_ID)))
+                .thenAnswer(invocation -> Optional.ofNullable(sessions.get(invocation.<String>getArgument(0))));
+
+        AtomicLong documentIds = new AtomicLong();
+        ClaimDocumentRepository documentRepository = mock(ClaimDocumentRepository.class);
+        when(documentRepository.save(any())).thenAnswer(invocation -> {
+            ClaimDocument document = invocation.getArgument(0);
+            document.setId(documentIds.incrementAndGet());
+            documents.put(document.getId(), document);
+            return document;
+        });
+        when(documentRepository.findByIdAndClaimId(anyLong(), eq(CLAIM_ID)))
+                .thenAnswer(invocation -> Optional.ofNullable(documents.get(invocation.<Long>getArgument(0))));
+
+        jdbcTemplate = mock(JdbcTemplate.class);
+        service = new ClaimDocumentService(claimRepository, documentRepository, sessionRepository, jdbcTemplate,
+                directory.toString(), 1_000_000, "pdf,png", 24);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void resumesInterruptedAndResentChunks() throws Exception {
+        byte[] content = content(250_000, 1);
+        String uploadId = start(content.length);
+
+        // The connection drops 60000 bytes into the first chunk
+        UploadSessionResponse upload = service.uploadChunk(CLAIM_ID, uploadId, "bytes 0-99999/250000",
+                new ByteArrayInputStream(content, 0, 60_000));
+        assertEquals(60_000, upload.getReceivedBytes());
+        assertThrows(RuntimeException.class, () -> chunk(uploadId, content, 70_000, 179_999));
+
+        upload = chunk(uploadId, content, 60_000, 179_999);
+        assertEquals(180_000, upload.getReceivedBytes());
+        assertEquals(UploadStatus.IN_PROGRESS, upload.getStatus());
+
+        // Another node takes over with an overlapping chunk, so the file is hashed from disk
+        ClaimDocumentService otherNode = otherNode();
+        upload = otherNode.uploadChunk(CLAIM_ID, uploadId, "bytes 120000-249999/250000",
+                new ByteArrayInputStream(content, 120_000, 130_000));
+
+        assertEquals(UploadStatus.COMPLETED, upload.getStatus());
+        assertEquals(sha256(content), upload.getDocument().getContentSha256());
+        assertArrayEquals(content, Files.readAllBytes(object(upload)));
+        assertFalse(Files.exists(directory.resolve("uploads").resolve(uploadId + ".part")));
+        assertThrows(RuntimeException.class, () -> chunk(uploadId, content, 0, 99));
+    }
+
+    @Test
+    void deduplicatesIdenticalContent() throws Exception {
+        byte[] content = content(40_000, 2);
+        UploadSessionResponse first = chunk(start(content.length), content, 0, content.length - 1);
+        UploadSessionResponse second = chunk(start(content.length), content, 0, content.length - 1);
+
+        assertEquals(first.getDocument().getContentSha256(), second.getDocument().getContentSha256());
+        assertEquals(documents.get(first.getDocument().getId()).getFilePath(),
+                documents.get(second.getDocument().getId()).getFilePath());
+        assertEquals(List.of(object(first)), files("objects"));
+        assertEquals(List.of(), files("uploads"));
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO document_blobs"),
+                eq(sha256(content)), eq((long) content.length));
+    }
+
+    @Test
+    void retriesACompletionThatRolledBack() throws Exception {
+        byte[] content = content(90_000, 3);
+        String uploadId = start(content.length);
+        chunk(uploadId, content, 0, 49_999);
+
+        TransactionSynchronizationManager.initSynchronization();
+        UploadSessionResponse failed = chunk(uploadId, content, 50_000, 89_999);
+        assertEquals(UploadStatus.COMPLETED, failed.getStatus());
+        // Roll back: the part file stays and the session is back to what was committed
+        TransactionSynchronizationManager.clearSynchronization();
+        assertTrue(Files.exists(directory.resolve("uploads").resolve(uploadId + ".part")));
+        DocumentUploadSession session = sessions.get(uploadId);
+        session.setStatus(UploadStatus.IN_PROGRESS);
+        session.setReceivedBytes(50_000L);
+        session.setDocumentId(null);
+
+        UploadSessionResponse retried = otherNode().uploadChunk(CLAIM_ID, uploadId, "bytes 50000-89999/90000",
+                new ByteArrayInputStream(content, 50_000, 40_000));
+
+        assertEquals(UploadStatus.COMPLETED, retried.getStatus());
+        assertEquals(sha256(content), retried.getDocument().getContentSha256());
+        assertArrayEquals(content, Files.readAllBytes(object(retried)));
+        assertEquals(List.of(), files("uploads"));
+    }
+
+    @Test
+    void deletesTheLastObjectOnlyAfterCommit() throws Exception {
+        byte[] content = content(10_000, 4);
+        UploadSessionResponse upload = chunk(start(content.length), content, 0, content.length - 1);
+        String sha256 = upload.getDocument().getContentSha256();
+        Path object = object(upload);
+        when(jdbcTemplate.queryForList(startsWith("UPDATE document_blobs"), eq(Integer.class), eq(sha256)))
+                .thenReturn(List.of(0));
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM document_blobs"), eq(Integer.class), eq(sha256)))
+                .thenReturn(0);
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.deleteDocument(CLAIM_ID, upload.getDocument().getId());
+        assertTrue(Files.exists(object));
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        assertFalse(Files.exists(object));
+    }
+
+    @Test
+    void keepsAnObjectReferencedAgainBeforeCommit() throws Exception {
+        byte[] content = content(10_000, 5);
+        UploadSessionResponse upload = chunk(start(content.length), content, 0, content.length - 1);
+        String sha256 = upload.getDocument().getContentSha256();
+        when(jdbcTemplate.queryForList(startsWith("UPDATE document_blobs"), eq(Integer.class), eq(sha256)))
+                .thenReturn(List.of(0));
+        // An upload of the same content added a new reference after the delete committed
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM document_blobs"), eq(Integer.class), eq(sha256)))
+                .thenReturn(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.deleteDocument(CLAIM_ID, upload.getDocument().getId());
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        assertTrue(Files.exists(object(upload)));
+    }
+
+    private String start(long size) {
+        return service.startUpload(CLAIM_ID, StartUploadRequest.builder()
+                .fileName("scan.pdf")
+                .documentType(ClaimDocument.DocumentType.MEDICAL_REPORT)
+                .totalSize(size)
+                .uploadedBy(9L)
+                .build()).getUploadId();
+    }
+
+    private UploadSessionResponse chunk(String uploadId, byte[] content, int start, int end) throws IOException {
+        return service.uploadChunk(CLAIM_ID, uploadId, "bytes " + start + "-" + end + "/" + content.length,
+                new ByteArrayInputStream(content, start, end - start + 1));
+    }
+
+    private ClaimDocumentService otherNode() {
+        // Same repositories and storage, no in-memory digests
+        ClaimDocumentRepository documentRepository = mock(ClaimDocumentRepository.class);
+        when(documentRepository.save(any())).thenAnswer(invocation -> {
+            ClaimDocument document = invocation.getArgument(0);
+            document.setId(100L + documents.size());
+            documents.put(document.getId(), document);
+            return document;
+        });
+        DocumentUploadSessionRepository sessionRepository = mock(DocumentUploadSessionRepository.class);
+        when(sessionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(sessionRepository.findByIdAndClaimIdForUpdate(anyString(), eq(CLAIM_ID)))
+                .thenAnswer(invocation -> Optional.ofNullable(sessions.get(invocation.<String>getArgument(0))));
+        return new ClaimDocumentService(mock(ClaimRepository.class), documentRepository, sessionRepository,
+                jdbcTemplate, directory.toString(), 1_000_000, "pdf,png", 24);
+    }
+
+    private Path object(UploadSessionResponse upload) {
+        return directory.resolve(documents.get(upload.getDocument().getId()).getFilePath());
+    }
+
+    private List<Path> files(String subdirectory) throws IOException {
+        Path root = directory.resolve(subdirectory);
+        if (!Files.exists(root)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private static byte[] content(int size, long seed) {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
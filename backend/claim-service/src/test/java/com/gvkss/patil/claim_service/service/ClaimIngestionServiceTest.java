@@ -0,0 +1,149 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.codes.CodeSystem;
+import com.gvkss.patil.claim_service.dto.IngestionJobResponse;
+import com.gvkss.patil.claim_service.dto.IngestionJobResponse.JobStatus;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link ClaimIngestionService} on H2 in PostgreSQL mode with the code dictionary,
+ * anomaly scorer and SLA tracker mocked: ingested claims reach the same hooks as claims created
+ * through the API, and a job whose writer dies fails instead of hanging. Claim numbers come from a
+ * stub allocator, as the sequence functions are PostgreSQL-only.
+ */
+class ClaimIngestionServiceTest {
+
+    private static final Duration JOB_TIMEOUT = Duration.ofSeconds(30);
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private NumberAllocator numberAllocator;
+    private CodeDictionaryService codeDictionaryService;
+    private ClaimAnomalyService claimAnomalyService;
+    private ClaimSlaService claimSlaService;
+    private ClaimIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__Create_claims_table.sql"))
+                .execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        numberAllocator = mock(NumberAllocator.class);
+        when(numberAllocator.allocate(anyString(), anyString(), anyInt())).thenAnswer(invocation ->
+                IntStream.range(0, invocation.<Integer>getArgument(2))
+                        .mapToObj(i -> "CLM-" + UUID.randomUUID())
+                        .toList());
+        codeDictionaryService = mock(CodeDictionaryService.class);
+        claimAnomalyService = mock(ClaimAnomalyService.class);
+        claimSlaService = mock(ClaimSlaService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void ingestedClaimsAreValidatedScoredAndTracked() throws Exception {
+        doThrow(new RuntimeException("Unknown ICD-10 code: S0100XA"))
+                .when(codeDictionaryService).validate(eq(CodeSystem.ICD10), eq("S0100XA"));
+        service = service(500, 8, 2);
+
+        IngestionJobResponse job = await(service.submit837(sample()));
+
+        // PCN-3 and PCN-4 are rejected by the parser, PCN-2 for its diagnosis code
+        assertEquals(JobStatus.COMPLETED_WITH_ERRORS, job.getStatus());
+        assertEquals(1, job.getClaimsInserted());
+        assertEquals(3, job.getClaimsRejected());
+        assertTrue(job.getErrors().contains("Patient control number: PCN-2: Unknown ICD-10 code: S0100XA"),
+                job.getErrors().toString());
+
+        long id = jdbcTemplate.queryForObject("SELECT id FROM insurance_claims", Long.class);
+        ArgumentCaptor<InsuranceClaim> scored = ArgumentCaptor.forClass(InsuranceClaim.class);
+        verify(claimAnomalyService).score(scored.capture());
+        assertEquals(id, scored.getValue().getId());
+        assertEquals("99213", scored.getValue().getProcedureCode());
+        ArgumentCaptor<InsuranceClaim> tracked = ArgumentCaptor.forClass(InsuranceClaim.class);
+        verify(claimSlaService).track(tracked.capture());
+        assertEquals(id, tracked.getValue().getId());
+        assertEquals(InsuranceClaim.ClaimStatus.SUBMITTED, tracked.getValue().getClaimStatus());
+    }
+
+    @Test
+    void failsInsteadOfHangingWhenTheWriterDies() throws Exception {
+        // Errors are not caught per batch, so this ends the only writer
+        when(numberAllocator.allocate(anyString(), anyString(), anyInt())).thenThrow(new AssertionError("writer died"));
+        service = service(1, 1, 1);
+
+        IngestionJobResponse job = await(service.submit837(sample()));
+
+        assertEquals(JobStatus.FAILED, job.getStatus());
+        assertEquals(0, job.getClaimsInserted());
+        assertTrue(job.getErrors().stream().anyMatch(error -> error.contains("writer died")), job.getErrors().toString());
+    }
+
+    @Test
+    void scoringFailuresDoNotFailTheBatch() throws Exception {
+        when(claimAnomalyService.score(any())).thenThrow(new IllegalStateException("scorer down"));
+        service = service(500, 8, 1);
+
+        IngestionJobResponse job = await(service.submit837(sample()));
+
+        assertEquals(2, job.getClaimsInserted());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM insurance_claims", Integer.class));
+    }
+
+    private ClaimIngestionService service(int batchSize, int queueCapacity, int writerThreads) {
+        return new ClaimIngestionService(jdbcTemplate, transactionTemplate, numberAllocator, codeDictionaryService,
+                claimAnomalyService, claimSlaService, batchSize, queueCapacity, writerThreads, 1, 200, 100);
+    }
+
+    private IngestionJobResponse await(IngestionJobResponse submitted) throws InterruptedException {
+        long deadline = System.nanoTime() + JOB_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            IngestionJobResponse job = service.getJob(submitted.getJobId());
+            if (job.getFinishedAt() != null) {
+                return job;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Ingestion job did not finish within " + JOB_TIMEOUT);
+    }
+
+    private static MockMultipartFile sample() throws Exception {
+        return new MockMultipartFile("file", "837p-sample.x12", "text/plain",
+                new ClassPathResource("x12/837p-sample.x12").getContentAsByteArray());
+    }
+}
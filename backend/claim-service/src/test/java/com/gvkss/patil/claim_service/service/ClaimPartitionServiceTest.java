@@ -0,0 +1,205 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for {@link ClaimPartitionService} and the partitioning functions of V2. Partitions,
+ * PL/pgSQL and the claim_numbers trigger need PostgreSQL, so this only runs when pointed at a
+ * database, e.g. {@code mvn test -Dtest=ClaimPartitionServiceTest
+ * -Dclaims.test.url=jdbc:postgresql://localhost:5432/postgres -Dclaims.test.username=postgres
+ * -Dclaims.test.password=1234}. It works in its own schema ({@code claims.test.schema}), which it
+ * drops and recreates.
+ */
+class ClaimPartitionServiceTest {
+
+    private static final String INSERT_CLAIM_SQL =
+            "INSERT INTO insurance_claims (claim_number, patient_id, claim_type, claim_status, total_amount, " +
+            "treatment_date, service_description) VALUES (?, 1, 'MEDICAL', ?, 100.00, ?, 'Consultation') RETURNING id";
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ClaimPartitionService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        String url = System.getProperty("claims.test.url");
+        assumeTrue(url != null, "claims.test.url not set");
+        String schema = System.getProperty("claims.test.schema", "claim_partition_test");
+        String username = System.getProperty("claims.test.username", "postgres");
+        String password = System.getProperty("claims.test.password", "");
+
+        new JdbcTemplate(new DriverManagerDataSource(url, username, password))
+                .execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE; CREATE SCHEMA " + schema);
+        dataSource = new DriverManagerDataSource(url, username, password);
+        Properties properties = new Properties();
+        properties.setProperty("currentSchema", schema);
+        dataSource.setConnectionProperties(properties);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // Run whole, as Flyway does; the functions' bodies contain semicolons
+        for (String migration : List.of("V1__Create_claims_table.sql", "V2__Partition_claims_by_treatment_date.sql")) {
+            jdbcTemplate.execute(new ClassPathResource("db/migration/" + migration).getContentAsString(StandardCharsets.UTF_8));
+        }
+
+        service = new ClaimPartitionService(jdbcTemplate);
+        ReflectionTestUtils.setField(service, "monthsAhead", 3);
+        ReflectionTestUtils.setField(service, "archiveEnabled", true);
+        ReflectionTestUtils.setField(service, "archiveAfterDays", 365);
+        ReflectionTestUtils.setField(service, "archiveBatchSize", 2);
+    }
+
+    @Test
+    void createsAPartitionOnceAndMovesRowsOutOfTheDefault() {
+        long id = insert("CLM-FUTURE", "SUBMITTED", LocalDate.of(2031, 5, 10));
+        assertEquals("insurance_claims_hot_default", partitionOf(id));
+
+        assertTrue(createPartition("2031-05-01", "2031-06-01", "insurance_claims_p2031_05"));
+        assertFalse(createPartition("2031-05-01", "2031-06-01", "insurance_claims_p2031_05"));
+
+        assertEquals("insurance_claims_p2031_05", partitionOf(id));
+        assertEquals(id, claimIdOf("CLM-FUTURE"));
+    }
+
+    @Test
+    void concurrentCallsCreateAPartitionOnce() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        int nodes = 6;
+        CyclicBarrier barrier = new CyclicBarrier(nodes);
+        ExecutorService executor = Executors.newFixedThreadPool(nodes);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int node = 0; node < nodes; node++) {
+                results.add(executor.submit(() -> transactionTemplate.execute(status -> {
+                    await(barrier);
+                    return jdbcTemplate.queryForObject("SELECT ensure_insurance_claims_month(?)", Boolean.class,
+                            Date.valueOf(LocalDate.of(2033, 2, 1)));
+                })));
+            }
+            int created = 0;
+            for (Future<Boolean> result : results) {
+                created += result.get() ? 1 : 0;
+            }
+            assertEquals(1, created);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void archivesClosedOutClaimsAndRestoresReopenedOnes() {
+        LocalDate today = LocalDate.now();
+        long paidLastYear = insert("CLM-1", "PAID", today.minusYears(2));
+        long paidEarlier = insert("CLM-2", "PAID", today.minusYears(3));
+        long rejected = insert("CLM-3", "REJECTED", today.minusYears(2).minusDays(20));
+        long stillOpen = insert("CLM-4", "UNDER_REVIEW", today.minusYears(2));
+        long paidRecently = insert("CLM-5", "PAID", today.minusDays(30));
+
+        // Batches of two, so the loop has to go round more than once
+        assertEquals(3, service.archiveClosedClaims());
+        assertEquals(0, service.archiveClosedClaims());
+
+        for (long id : List.of(paidLastYear, paidEarlier, rejected)) {
+            assertEquals("ARCHIVE", tierOf(id));
+            assertTrue(partitionOf(id).startsWith("insurance_claims_archive_p"), partitionOf(id));
+        }
+        assertEquals("HOT", tierOf(stillOpen));
+        assertEquals("HOT", tierOf(paidRecently));
+
+        InsuranceClaim reopened = InsuranceClaim.builder().id(rejected).treatmentDate(today.minusYears(2).minusDays(20)).build();
+        assertTrue(service.restoreToHot(reopened));
+        assertFalse(service.restoreToHot(reopened));
+        assertEquals("HOT", tierOf(rejected));
+
+        // Every move released and re-took the claim's number
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM claim_numbers", Integer.class));
+        assertEquals(rejected, claimIdOf("CLM-3"));
+    }
+
+    @Test
+    void claimNumbersStayUniqueAcrossPartitionsAndTiers() {
+        LocalDate old = LocalDate.now().minusYears(2);
+        insert("CLM-DUP", "PAID", old);
+        service.archiveClosedClaims();
+
+        assertThrows(DuplicateKeyException.class, () -> insert("CLM-DUP", "SUBMITTED", LocalDate.now()));
+        assertThrows(DuplicateKeyException.class, () -> insert("CLM-DUP", "SUBMITTED", LocalDate.of(2031, 1, 1)));
+
+        long other = insert("CLM-OTHER", "SUBMITTED", LocalDate.now());
+        assertThrows(DuplicateKeyException.class,
+                () -> jdbcTemplate.update("UPDATE insurance_claims SET claim_number = 'CLM-DUP' WHERE id = ?", other));
+        jdbcTemplate.update("UPDATE insurance_claims SET claim_number = 'CLM-RENUMBERED' WHERE id = ?", other);
+        assertEquals(other, claimIdOf("CLM-RENUMBERED"));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM claim_numbers WHERE claim_number = 'CLM-OTHER'", Integer.class));
+
+        jdbcTemplate.update("DELETE FROM insurance_claims WHERE id = ?", other);
+        insert("CLM-RENUMBERED", "SUBMITTED", LocalDate.now());
+    }
+
+    @Test
+    void createsUpcomingMonths() {
+        service.ensureFuturePartitions();
+
+        assertEquals(0, service.ensureFuturePartitions());
+        LocalDate month = LocalDate.now().withDayOfMonth(1).plusMonths(3);
+        String name = String.format("insurance_claims_p%d_%02d", month.getYear(), month.getMonthValue());
+        assertEquals(name, jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, name));
+    }
+
+    private long insert(String claimNumber, String status, LocalDate treatmentDate) {
+        return jdbcTemplate.queryForObject(INSERT_CLAIM_SQL, Long.class, claimNumber, status, Date.valueOf(treatmentDate));
+    }
+
+    private boolean createPartition(String from, String to, String name) {
+        return jdbcTemplate.queryForObject("SELECT create_insurance_claims_partition('HOT', ?::date, ?::date, ?)",
+                Boolean.class, from, to, name);
+    }
+
+    private String partitionOf(long id) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM insurance_claims WHERE id = ?",
+                String.class, id);
+    }
+
+    private String tierOf(long id) {
+        return jdbcTemplate.queryForObject("SELECT storage_tier FROM insurance_claims WHERE id = ?", String.class, id);
+    }
+
+    private long claimIdOf(String claimNumber) {
+        return jdbcTemplate.queryForObject("SELECT claim_id FROM claim_numbers WHERE claim_number = ?",
+                Long.class, claimNumber);
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.dto.UpdateStatusRequest;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim.ClaimStatus;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim.StorageTier;
+import com.gvkss.patil.claim_service.repository.ClaimRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the storage tier handling of {@link ClaimService#updateClaimStatus}. H2 has no
+ * partitioned tables, so insurance_claims is the V1 table with a plain storage_tier column; the
+ * row movement between the HOT and ARCHIVE partitions is left to PostgreSQL.
+ */
+class ClaimServiceTest {
+
+    private static final LocalDate TREATMENT_DATE = LocalDate.of(2022, 3, 15);
+
+    private JdbcTemplate jdbcTemplate;
+    private ClaimRepository claimRepository;
+    private BenefitAccumulatorService benefitAccumulatorService;
+    private ClaimService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__Create_claims_table.sql"))
+                .execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("ALTER TABLE insurance_claims ADD COLUMN storage_tier VARCHAR(10) NOT NULL DEFAULT 'HOT'");
+
+        claimRepository = mock(ClaimRepository.class);
+        when(claimRepository.save(any(InsuranceClaim.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        benefitAccumulatorService = mock(BenefitAccumulatorService.class);
+        service = new ClaimService(claimRepository, mock(NumberAllocator.class), mock(CodeDictionaryService.class),
+                mock(FeeScheduleService.class), benefitAccumulatorService, mock(ClaimAnomalyService.class),
+                mock(ClaimSlaService.class), new ClaimPartitionService(jdbcTemplate));
+    }
+
+    @Test
+    void reopeningAnArchivedClaimMovesItBackToHot() {
+        InsuranceClaim claim = archivedClaim(1L, ClaimStatus.REJECTED);
+
+        service.updateClaimStatus(1L, UpdateStatusRequest.builder().claimStatus(ClaimStatus.SUBMITTED).build());
+
+        assertEquals(StorageTier.HOT, claim.getStorageTier());
+        assertEquals("HOT", tier(1L));
+    }
+
+    @Test
+    void closingAnArchivedClaimAgainKeepsItArchived() {
+        InsuranceClaim claim = archivedClaim(2L, ClaimStatus.PAID);
+
+        service.updateClaimStatus(2L, UpdateStatusRequest.builder()
+                .claimStatus(ClaimStatus.REJECTED).rejectionReason("Duplicate").build());
+
+        assertEquals(StorageTier.ARCHIVE, claim.getStorageTier());
+        assertEquals("ARCHIVE", tier(2L));
+        // The paid claim's cost share is taken back off the accumulators
+        verify(benefitAccumulatorService).reverse(claim);
+    }
+
+    private InsuranceClaim archivedClaim(long id, ClaimStatus status) {
+        jdbcTemplate.update("INSERT INTO insurance_claims (id, claim_number, patient_id, claim_type, claim_status, " +
+                "total_amount, treatment_date, service_description, storage_tier) VALUES (?, ?, 7, 'MEDICAL', ?, 100.00, ?, 'Visit', 'ARCHIVE')",
+                id, "CLM-" + id, status.name(), TREATMENT_DATE);
+        InsuranceClaim claim = InsuranceClaim.builder()
+                .id(id)
+                .claimNumber("CLM-" + id)
+                .patientId(7L)
+                .claimType(InsuranceClaim.ClaimType.MEDICAL)
+                .claimStatus(status)
+                .totalAmount(new BigDecimal("100.00"))
+                .treatmentDate(TREATMENT_DATE)
+                .serviceDescription("Visit")
+                .isEmergency(false)
+                .priority(InsuranceClaim.ClaimPriority.NORMAL)
+                .submittedAt(LocalDateTime.of(2022, 3, 16, 9, 0))
+                .storageTier(StorageTier.ARCHIVE)
+                .build();
+        when(claimRepository.findById(id)).thenReturn(Optional.of(claim));
+        return claim;
+    }
+
+    private String tier(long id) {
+        return jdbcTemplate.queryForObject("SELECT storage_tier FROM insurance_claims WHERE id = ?", String.class, id);
+    }
+}
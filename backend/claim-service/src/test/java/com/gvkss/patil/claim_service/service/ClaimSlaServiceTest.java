@@ -0,0 +1,150 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.client.NotificationClient;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link ClaimSlaService} on H2 in PostgreSQL mode. H2 has no UPDATE ... RETURNING, so the
+ * escalation's WHERE clause is checked through a SELECT with the same parameters; the V9 partial
+ * index is skipped and its column added directly.
+ */
+class ClaimSlaServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 10, 12, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private ClaimSlaService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__Create_claims_table.sql"))
+                .execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("ALTER TABLE insurance_claims ADD COLUMN storage_tier VARCHAR(10) NOT NULL DEFAULT 'HOT'");
+        jdbcTemplate.execute("ALTER TABLE insurance_claims ADD COLUMN sla_escalated_at TIMESTAMP");
+        service = new ClaimSlaService(jdbcTemplate, mock(NotificationClient.class), true, 7, 1, 60_000, 2, 16,
+                Duration.ofMinutes(10));
+    }
+
+    @Test
+    void selectsOnlyOverdueOpenClaims() {
+        insert(1, "SUBMITTED", true, NOW.minusDays(2), null);
+        insert(2, "UNDER_REVIEW", true, NOW.minusHours(12), null);
+        insert(3, "UNDER_REVIEW", false, NOW.minusDays(8), null);
+        insert(4, "SUBMITTED", false, NOW.minusDays(6), null);
+        // Exactly at the deadline counts as overdue
+        insert(5, "SUBMITTED", false, NOW.minusDays(7), null);
+        insert(6, "APPROVED", false, NOW.minusDays(8), null);
+        insert(7, "SUBMITTED", false, NOW.minusDays(8), NOW.minusDays(1));
+        // Overdue, but not among the expired timers
+        insert(8, "SUBMITTED", true, NOW.minusDays(3), null);
+
+        List<Long> overdue = overdue(LongStream.rangeClosed(1, 7).boxed().toList());
+
+        assertEquals(List.of(1L, 3L, 5L), overdue);
+    }
+
+    @Test
+    void tracksTheDeadlineOfOpenClaims() {
+        // Whole minutes, as deadlines are rounded up to the one-minute tick
+        LocalDateTime submittedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        InsuranceClaim claim = InsuranceClaim.builder()
+                .id(1L)
+                .claimStatus(InsuranceClaim.ClaimStatus.SUBMITTED)
+                .isEmergency(false)
+                .submittedAt(submittedAt)
+                .build();
+        service.track(claim);
+
+        assertEquals(submittedAt.plusDays(7), service.getDeadline(1L));
+        claim.setClaimStatus(InsuranceClaim.ClaimStatus.APPROVED);
+        service.track(claim);
+        assertNull(service.getDeadline(1L));
+    }
+
+    @Test
+    void syncPicksUpLowerIdsThatCommitAfterTheLastScan() {
+        LocalDateTime submittedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        insert(10, "SUBMITTED", false, submittedAt, null);
+        insert(11, "SUBMITTED", false, submittedAt, null);
+        insert(12, "UNDER_REVIEW", false, submittedAt, null);
+        service.loadOpenClaims();
+        assertNotNull(service.getDeadline(12L));
+
+        // Allocated before 12 by another writer, committed after the load
+        insert(5, "SUBMITTED", true, submittedAt, null);
+        insert(13, "SUBMITTED", false, submittedAt, null);
+        service.syncNewClaims();
+
+        assertEquals(submittedAt.plusDays(1), service.getDeadline(5L));
+        assertEquals(submittedAt.plusDays(7), service.getDeadline(13L));
+    }
+
+    @Test
+    void syncKeepsTheTimersOfClaimsAlreadyTracked() {
+        LocalDateTime submittedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        service.loadOpenClaims();
+        insert(1, "SUBMITTED", false, submittedAt, null);
+        // Tracked on creation with a later submission time than the row read back below
+        service.track(InsuranceClaim.builder()
+                .id(1L)
+                .claimStatus(InsuranceClaim.ClaimStatus.SUBMITTED)
+                .isEmergency(false)
+                .submittedAt(submittedAt.plusHours(1))
+                .build());
+
+        service.syncNewClaims();
+
+        assertEquals(submittedAt.plusHours(1).plusDays(7), service.getDeadline(1L));
+    }
+
+    @Test
+    void syncSkipsClaimsCreatedBeforeTheOverlapWindow() {
+        LocalDateTime submittedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        service.loadOpenClaims();
+        insert(1, "SUBMITTED", false, submittedAt, null);
+        jdbcTemplate.update("UPDATE insurance_claims SET created_at = ? WHERE id = 1", LocalDateTime.now().minusHours(1));
+
+        service.syncNewClaims();
+
+        // Older than the window, so left to the startup load
+        assertNull(service.getDeadline(1L));
+    }
+
+    private List<Long> overdue(List<Long> ids) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT id FROM insurance_claims WHERE "
+                    + ClaimSlaService.OVERDUE_CLAIMS_PREDICATE + " ORDER BY id");
+            service.bindOverdue(ps, 1, connection, ids, NOW);
+            return ps;
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    private void insert(long id, String status, boolean emergency, LocalDateTime submittedAt, LocalDateTime escalatedAt) {
+        jdbcTemplate.update("INSERT INTO insurance_claims (id, claim_number, patient_id, claim_type, claim_status, " +
+                "total_amount, treatment_date, service_description, is_emergency, submitted_at, sla_escalated_at) " +
+                "VALUES (?, ?, 7, 'MEDICAL', ?, 100.00, ?, 'Visit', ?, ?, ?)",
+                id, "CLM-" + id, status, submittedAt.toLocalDate(), emergency, submittedAt, escalatedAt);
+    }
+}
@@ -0,0 +1,349 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.dto.BatchStatusUpdateRequest;
+import com.gvkss.patil.claim_service.dto.BatchStatusUpdateResponse;
+import com.gvkss.patil.claim_service.dto.StatusTransitionRequest;
+import com.gvkss.patil.claim_service.dto.StatusTransitionResult.Outcome;
+import com.gvkss.patil.claim_service.dto.UpdateStatusRequest;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim.ClaimStatus;
+import com.gvkss.patil.claim_service.entity.InsuranceClaim.StorageTier;
+import com.gvkss.patil.claim_service.repository.ClaimRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.Invocation;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that {@link ClaimStatusBatchService} has the effects of {@link ClaimService#updateClaimStatus}
+ * for every target status: the columns written, COALESCE of notes and approved amount, the move
+ * back to the HOT tier, and the pricing, accumulator and SLA calls. H2 has neither unnest over
+ * several arrays nor UPDATE ... RETURNING, so the database is mocked: the batch statement is
+ * captured and its SET clause compared with the fields a single update changes, and the RETURNING
+ * row mapper is run over a mocked result set. Deadlocks are simulated by the exception Spring
+ * raises for SQLSTATE 40P01; whether the FOR UPDATE really keeps concurrent batches apart needs
+ * PostgreSQL.
+ */
+class ClaimStatusBatchServiceTest {
+
+    private static final Pattern ASSIGNMENT = Pattern.compile("(\\w+) = (COALESCE\\(u\\.(\\w+), c\\.\\w+\\))?");
+
+    private JdbcTemplate jdbcTemplate;
+    private FeeScheduleService feeScheduleService;
+    private BenefitAccumulatorService benefitAccumulatorService;
+    private ClaimSlaService claimSlaService;
+    private ClaimRepository claimRepository;
+    private ClaimService claimService;
+    private ClaimStatusBatchService batchService;
+
+    // Statements and arrays of the current batch call
+    private final List<String> statements = new ArrayList<>();
+    private final Map<Integer, Object[]> arrays = new HashMap<>();
+    private Set<Long> existingIds = Set.of();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        feeScheduleService = mock(FeeScheduleService.class);
+        benefitAccumulatorService = mock(BenefitAccumulatorService.class);
+        claimSlaService = mock(ClaimSlaService.class);
+        claimRepository = mock(ClaimRepository.class);
+        when(claimRepository.save(any(InsuranceClaim.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        claimService = new ClaimService(claimRepository, mock(NumberAllocator.class), mock(CodeDictionaryService.class),
+                feeScheduleService, benefitAccumulatorService, mock(ClaimAnomalyService.class), claimSlaService,
+                mock(ClaimPartitionService.class));
+        batchService = new ClaimStatusBatchService(jdbcTemplate, mock(PlatformTransactionManager.class),
+                feeScheduleService, benefitAccumulatorService, claimSlaService, 2, 100);
+
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenAnswer(invocation -> executeBatchStatement(invocation.getArgument(0), invocation.getArgument(1)));
+    }
+
+    @Test
+    void batchWritesWhatASingleUpdateChanges() throws Exception {
+        for (ClaimStatus status : ClaimStatus.values()) {
+            for (boolean withValues : new boolean[] {true, false}) {
+                String label = status + (withValues ? " with values" : " without values");
+                StatusTransitionRequest transition = StatusTransitionRequest.builder()
+                        .claimId(1L)
+                        .claimStatus(status)
+                        .approvedAmount(withValues ? new BigDecimal("90.00") : null)
+                        .rejectionReason(withValues ? "Not covered" : null)
+                        .notes(withValues ? "Reviewed by phone" : null)
+                        .build();
+
+                // Single update of an archived, unpriced claim
+                InsuranceClaim claim = claim(1L);
+                when(claimRepository.findById(1L)).thenReturn(Optional.of(claim));
+                Map<String, Object> before = columns(claim);
+                claimService.updateClaimStatus(1L, UpdateStatusRequest.builder()
+                        .claimStatus(status)
+                        .approvedAmount(transition.getApprovedAmount())
+                        .rejectionReason(transition.getRejectionReason())
+                        .notes(transition.getNotes())
+                        .build());
+                Set<String> singleColumns = changed(before, columns(claim));
+                List<String> singleCalls = sideEffects();
+
+                // The same transition through the batch
+                existingIds = Set.of(1L);
+                BatchStatusUpdateResponse response = batchService.updateStatuses(batch(transition));
+                assertEquals(Outcome.UPDATED, response.getResults().get(0).getOutcome(), label);
+
+                assertEquals(singleColumns, writtenColumns(statements.get(0), transition), label);
+                assertEquals(singleCalls, sideEffects(), label);
+                // The values bound for the columns match the request
+                assertArrayEquals(new Object[] {1L}, arrays.get(2), label);
+                assertArrayEquals(new Object[] {transition.getApprovedAmount()}, arrays.get(3), label);
+                assertArrayEquals(new Object[] {transition.getRejectionReason()}, arrays.get(4), label);
+                assertArrayEquals(new Object[] {transition.getNotes()}, arrays.get(5), label);
+            }
+        }
+    }
+
+    @Test
+    void reportsMissingDuplicateAndFailedClaims() {
+        existingIds = Set.of(1L, 3L, 4L);
+        BatchStatusUpdateResponse response = batchService.updateStatuses(batch(
+                transition(3L, ClaimStatus.APPROVED),
+                transition(2L, ClaimStatus.APPROVED),
+                transition(1L, ClaimStatus.APPROVED),
+                transition(3L, ClaimStatus.REJECTED),
+                transition(4L, ClaimStatus.APPROVED)));
+
+        assertEquals(List.of(Outcome.UPDATED, Outcome.NOT_FOUND, Outcome.UPDATED, Outcome.DUPLICATE, Outcome.UPDATED),
+                response.getResults().stream().map(result -> result.getOutcome()).toList());
+        assertEquals(3, response.getUpdated());
+        assertEquals(1, response.getNotFound());
+        assertEquals("Claim not found with ID: 2", response.getResults().get(1).getMessage());
+        // Ascending ids in chunks of two: [1, 2] then [3, 4]
+        assertEquals(2, statements.size());
+        assertArrayEquals(new Object[] {3L, 4L}, arrays.get(2));
+
+        // A failing chunk fails its own claims only
+        statements.clear();
+        when(benefitAccumulatorService.postAll(any())).thenThrow(new RuntimeException("Accumulator update conflict"))
+                .thenReturn(0);
+        response = batchService.updateStatuses(batch(
+                transition(1L, ClaimStatus.PAID), transition(2L, ClaimStatus.PAID), transition(3L, ClaimStatus.PAID)));
+
+        assertEquals(List.of(Outcome.FAILED, Outcome.FAILED, Outcome.UPDATED),
+                response.getResults().stream().map(result -> result.getOutcome()).toList());
+        assertEquals("Accumulator update conflict", response.getResults().get(0).getMessage());
+        assertEquals(2, response.getFailed());
+    }
+
+    @Test
+    void locksEachChunkInIdOrderBeforeUpdating() {
+        existingIds = Set.of(1L, 2L, 3L);
+        batchService.updateStatuses(batch(
+                transition(3L, ClaimStatus.APPROVED), transition(1L, ClaimStatus.APPROVED), transition(2L, ClaimStatus.APPROVED)));
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).queryForList(contains("FOR UPDATE"), eq(Long.class), eq((Object) new Long[] {1L, 2L}));
+        order.verify(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowMapper.class));
+        order.verify(jdbcTemplate).queryForList(contains("FOR UPDATE"), eq(Long.class), eq((Object) new Long[] {3L}));
+        order.verify(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowMapper.class));
+    }
+
+    @Test
+    void retriesAChunkThatLostADeadlock() {
+        existingIds = Set.of(1L, 2L);
+        PessimisticLockingFailureException deadlock = new PessimisticLockingFailureException("deadlock detected");
+        when(benefitAccumulatorService.postAll(any())).thenThrow(deadlock).thenReturn(2);
+
+        BatchStatusUpdateResponse response = batchService.updateStatuses(batch(
+                transition(1L, ClaimStatus.APPROVED), transition(2L, ClaimStatus.APPROVED)));
+
+        assertEquals(2, response.getUpdated());
+        assertEquals(2, statements.size());
+        verify(claimSlaService, times(2)).track(any());
+
+        // A chunk that keeps losing fails after the last attempt
+        statements.clear();
+        when(benefitAccumulatorService.postAll(any())).thenThrow(deadlock);
+        response = batchService.updateStatuses(batch(transition(1L, ClaimStatus.PAID)));
+
+        assertEquals(Outcome.FAILED, response.getResults().get(0).getOutcome());
+        assertEquals(3, statements.size());
+    }
+
+    /**
+     * Stand-in for the UPDATE ... RETURNING: capture the statement and its arrays, and map a row
+     * for every requested claim that exists
+     */
+    private List<InsuranceClaim> executeBatchStatement(PreparedStatementCreator creator, RowMapper<InsuranceClaim> mapper)
+            throws Exception {
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            statements.add(invocation.getArgument(0));
+            return mock(PreparedStatement.class);
+        });
+        List<Object[]> created = new ArrayList<>();
+        when(connection.createArrayOf(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            created.add(invocation.getArgument(1));
+            return null;
+        });
+        creator.createPreparedStatement(connection);
+        for (int i = 0; i < created.size(); i++) {
+            arrays.put(i + 2, created.get(i));
+        }
+
+        List<InsuranceClaim> rows = new ArrayList<>();
+        for (Object id : created.get(0)) {
+            if (existingIds.contains((Long) id)) {
+                rows.add(mapper.mapRow(row(claim((Long) id)), rows.size()));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Columns the batch statement changes for this transition; COALESCE keeps the current value
+     * when the request has none
+     */
+    private static Set<String> writtenColumns(String sql, StatusTransitionRequest transition) {
+        String setClause = sql.substring(sql.indexOf(" SET ") + 5, sql.indexOf(" FROM unnest"));
+        Map<String, Object> requested = new HashMap<>();
+        requested.put("approved_amount", transition.getApprovedAmount());
+        requested.put("notes", transition.getNotes());
+        Set<String> columns = new TreeSet<>();
+        Matcher matcher = ASSIGNMENT.matcher(setClause);
+        while (matcher.find()) {
+            if (matcher.group(2) == null || requested.get(matcher.group(3)) != null) {
+                columns.add(matcher.group(1));
+            }
+        }
+        return columns;
+    }
+
+    private static Set<String> changed(Map<String, Object> before, Map<String, Object> after) {
+        Set<String> columns = new TreeSet<>(Set.of("claim_status", "updated_at"));
+        before.forEach((column, value) -> {
+            if (!Objects.equals(value, after.get(column))) {
+                columns.add(column);
+            }
+        });
+        return columns;
+    }
+
+    private static Map<String, Object> columns(InsuranceClaim claim) {
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("reviewed_at", claim.getReviewedAt());
+        columns.put("approved_at", claim.getApprovedAt());
+        columns.put("paid_at", claim.getPaidAt());
+        columns.put("approved_amount", claim.getApprovedAmount());
+        columns.put("rejection_reason", claim.getRejectionReason());
+        columns.put("notes", claim.getNotes());
+        columns.put("storage_tier", claim.getStorageTier());
+        return columns;
+    }
+
+    /**
+     * Calls made on the collaborators since the last check, with batch variants named as single ones
+     */
+    private List<String> sideEffects() {
+        List<String> calls = new ArrayList<>();
+        for (Object collaborator : List.of(feeScheduleService, benefitAccumulatorService, claimSlaService)) {
+            for (Invocation invocation : mockingDetails(collaborator).getInvocations()) {
+                calls.add(invocation.getMethod().getName().replaceFirst("All$", ""));
+            }
+            clearInvocations(collaborator);
+        }
+        return calls;
+    }
+
+    private static InsuranceClaim claim(long id) {
+        return InsuranceClaim.builder()
+                .id(id)
+                .claimNumber("CLM-" + id)
+                .patientId(7L)
+                .providerId(501L)
+                .procedureCode("99213")
+                .claimType(InsuranceClaim.ClaimType.MEDICAL)
+                .claimStatus(ClaimStatus.SUBMITTED)
+                .totalAmount(new BigDecimal("100.00"))
+                .approvedAmount(new BigDecimal("80.00"))
+                .deductibleAmount(new BigDecimal("10.00"))
+                .copayAmount(new BigDecimal("5.00"))
+                .coinsuranceAmount(BigDecimal.ZERO)
+                .treatmentDate(LocalDate.of(2022, 3, 15))
+                .serviceDescription("Visit")
+                .isEmergency(false)
+                .priority(InsuranceClaim.ClaimPriority.NORMAL)
+                .rejectionReason("Earlier reason")
+                .notes("Earlier notes")
+                .submittedAt(LocalDateTime.of(2022, 3, 16, 9, 0))
+                .storageTier(StorageTier.ARCHIVE)
+                .build();
+    }
+
+    private static ResultSet row(InsuranceClaim claim) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(claim.getId());
+        when(rs.getLong("patient_id")).thenReturn(claim.getPatientId());
+        when(rs.getObject("provider_id")).thenReturn(claim.getProviderId());
+        when(rs.getLong("provider_id")).thenReturn(claim.getProviderId());
+        when(rs.getString("procedure_code")).thenReturn(claim.getProcedureCode());
+        when(rs.getDate("treatment_date")).thenReturn(Date.valueOf(claim.getTreatmentDate()));
+        when(rs.getBigDecimal("total_amount")).thenReturn(claim.getTotalAmount());
+        when(rs.getBigDecimal("deductible_amount")).thenReturn(claim.getDeductibleAmount());
+        when(rs.getBigDecimal("copay_amount")).thenReturn(claim.getCopayAmount());
+        when(rs.getBigDecimal("coinsurance_amount")).thenReturn(claim.getCoinsuranceAmount());
+        when(rs.getBoolean("is_emergency")).thenReturn(claim.getIsEmergency());
+        when(rs.getTimestamp("submitted_at")).thenReturn(Timestamp.valueOf(claim.getSubmittedAt()));
+        return rs;
+    }
+
+    private static StatusTransitionRequest transition(long id, ClaimStatus status) {
+        return StatusTransitionRequest.builder().claimId(id).claimStatus(status).build();
+    }
+
+    private BatchStatusUpdateRequest batch(StatusTransitionRequest... transitions) {
+        statements.clear();
+        arrays.clear();
+        return BatchStatusUpdateRequest.builder()
+                .transitions(Arrays.stream(transitions).collect(Collectors.toCollection(ArrayList::new)))
+                .build();
+    }
+}
@@ -0,0 +1,224 @@
+package com.gvkss.patil.claim_service.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link NumberAllocator} over an in-memory stand-in for a PostgreSQL sequence: nextval
+ * and its lock, which is held until commit and shared with resize_number_block(). The SQL itself
+ * (pg_sequences, the resize function) needs PostgreSQL and is not run here.
+ */
+class NumberAllocatorTest {
+
+    private static final String SEQUENCE = "claim_number_seq";
+
+    @Test
+    void refillsWhenABlockRunsOut() {
+        FakeSequence sequence = new FakeSequence(10);
+        NumberAllocator allocator = sequence.allocator(1);
+
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            String number = allocator.next("CLM", SEQUENCE);
+            assertTrue(NumberAllocator.isValid(number), number);
+            values.add(sequenceValue(number));
+        }
+
+        assertEquals(LongStream.rangeClosed(1, 25).boxed().toList(), values);
+        assertEquals(3, sequence.roundTrips);
+    }
+
+    @Test
+    void allocatesSeveralBlocksInOneRoundTrip() {
+        FakeSequence sequence = new FakeSequence(10);
+        NumberAllocator allocator = sequence.allocator(1);
+
+        List<Long> first = sequenceValues(allocator.allocate("CLM", SEQUENCE, 25));
+        // One block to learn the size, then the two still needed together
+        assertEquals(2, sequence.roundTrips);
+        List<Long> second = sequenceValues(allocator.allocate("CLM", SEQUENCE, 30));
+        assertEquals(3, sequence.roundTrips);
+
+        assertEquals(LongStream.rangeClosed(1, 25).boxed().toList(), first);
+        // The five left over from the last block come first
+        assertEquals(LongStream.rangeClosed(26, 55).boxed().toList(), second);
+        assertEquals(56, sequenceValue(allocator.next("CLM", SEQUENCE)));
+    }
+
+    @Test
+    void resizingSkipsBlocksAlreadyHandedOut() {
+        FakeSequence sequence = new FakeSequence(100);
+        NumberAllocator first = sequence.allocator(1);
+        NumberAllocator second = sequence.allocator(1);
+
+        assertEquals(1, sequenceValue(first.next("CLM", SEQUENCE)));
+        sequence.resize(10);
+        long afterResize = sequenceValue(second.next("CLM", SEQUENCE));
+        List<Long> rest = sequenceValues(first.allocate("CLM", SEQUENCE, 99));
+
+        // The first node still owns [1, 101) from before the resize
+        assertEquals(101, afterResize);
+        assertEquals(LongStream.rangeClosed(2, 100).boxed().toList(), rest);
+        assertEquals(102, sequenceValue(second.next("CLM", SEQUENCE)));
+    }
+
+    @Test
+    void nodesSharingASequenceNeverIssueTheSameNumber() throws Exception {
+        FakeSequence sequence = new FakeSequence(50);
+        List<NumberAllocator> nodes = List.of(sequence.allocator(1), sequence.allocator(1));
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(9);
+        try {
+            // Block sizes go up and down while the nodes allocate
+            Future<?> resizer = executor.submit(() -> {
+                long[] sizes = {7, 200, 3, 50};
+                for (int i = 0; running.get(); i++) {
+                    sequence.resize(sizes[i % sizes.length]);
+                    Thread.onSpinWait();
+                }
+            });
+            List<Future<List<String>>> workers = new ArrayList<>();
+            for (int worker = 0; worker < 8; worker++) {
+                NumberAllocator node = nodes.get(worker % 2);
+                workers.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    List<String> numbers = new ArrayList<>();
+                    for (int i = 0; i < 500; i++) {
+                        if (random.nextBoolean()) {
+                            numbers.add(node.next("CLM", SEQUENCE));
+                        } else {
+                            numbers.addAll(node.allocate("CLM", SEQUENCE, 1 + random.nextInt(37)));
+                        }
+                    }
+                    return numbers;
+                }));
+            }
+
+            Set<Long> seen = new HashSet<>();
+            int issued = 0;
+            for (Future<List<String>> worker : workers) {
+                for (String number : worker.get()) {
+                    seen.add(sequenceValue(number));
+                    issued++;
+                }
+            }
+            running.set(false);
+            resizer.get();
+            assertEquals(issued, seen.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Long> sequenceValues(List<String> numbers) {
+        return numbers.stream().map(NumberAllocatorTest::sequenceValue).toList();
+    }
+
+    /**
+     * The sequence value of PREFIX-yyyyMMdd-NNSSSSSSSSSC
+     */
+    private static long sequenceValue(String number) {
+        String tail = number.substring(number.lastIndexOf('-') + 1);
+        return Long.parseLong(tail.substring(2, tail.length() - 1));
+    }
+
+    /**
+     * A sequence as PostgreSQL runs it: the first nextval returns the start value and every later
+     * one adds the increment. nextval locks the sequence until the transaction ends, and
+     * resize_number_block() waits for that lock.
+     */
+    private static final class FakeSequence {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private long increment;
+        private Long lastValue;
+        volatile int roundTrips;
+
+        FakeSequence(long increment) {
+            this.increment = increment;
+        }
+
+        NumberAllocator allocator(int nodeId) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+                @Override
+                public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+                    assertTrue(lock.isHeldByCurrentThread(), "outside a transaction: " + sql);
+                    if (sql.contains("nextval")) {
+                        roundTrips++;
+                        return requiredType.cast(nextval());
+                    }
+                    return requiredType.cast(increment);
+                }
+
+                @Override
+                public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+                    assertTrue(lock.isHeldByCurrentThread(), "outside a transaction: " + sql);
+                    roundTrips++;
+                    List<T> values = new ArrayList<>();
+                    for (int i = 0; i < (Integer) args[1]; i++) {
+                        values.add(elementType.cast(nextval()));
+                    }
+                    return values;
+                }
+            };
+            PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+                @Override
+                public TransactionStatus getTransaction(TransactionDefinition definition) {
+                    lock.lock();
+                    return new SimpleTransactionStatus();
+                }
+
+                @Override
+                public void commit(TransactionStatus status) {
+                    lock.unlock();
+                }
+
+                @Override
+                public void rollback(TransactionStatus status) {
+                    lock.unlock();
+                }
+            };
+            return new NumberAllocator(jdbcTemplate, transactionManager, nodeId);
+        }
+
+        /**
+         * What resize_number_block() does
+         */
+        void resize(long blockSize) {
+            lock.lock();
+            try {
+                if (lastValue != null) {
+                    // RESTART WITH: the next nextval returns exactly this value
+                    lastValue = lastValue + increment - blockSize;
+                }
+                increment = blockSize;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long nextval() {
+            lastValue = lastValue == null ? 1 : lastValue + increment;
+            return lastValue;
+        }
+    }
+}
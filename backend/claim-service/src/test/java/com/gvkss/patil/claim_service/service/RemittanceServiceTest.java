@@ -0,0 +1,127 @@
+package com.gvkss.patil.claim_service.service;
+
+import com.gvkss.patil.claim_service.dto.RemittanceFileResponse;
+import com.gvkss.patil.claim_service.dto.RemittanceRunResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link RemittanceService} on H2 in PostgreSQL mode: every 835 file balances, its BPR02
+ * equal to the sum of its CLP04 payments. H2 has no partial indexes, so the V4 index is skipped and
+ * only its sequence is created; server-side cursors and replica routing are left to PostgreSQL.
+ */
+class RemittanceServiceTest {
+
+    private static final LocalDate CYCLE = LocalDate.of(2024, 5, 10);
+
+    @TempDir
+    Path directory;
+
+    private JdbcTemplate jdbcTemplate;
+    private RemittanceService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__Create_claims_table.sql"))
+                .execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE SEQUENCE remittance_interchange_seq START WITH 1 INCREMENT BY 1");
+        service = new RemittanceService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                directory.toString(), 7, 256, "GVKSSHEALTH", "GVKSS HEALTH PLAN");
+
+        List<Object[]> claims = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            Long provider = id % 4 == 0 ? null : 10 + id % 3;
+            String status = id % 10 == 0 ? "APPROVED" : "PAID";
+            // Most claims paid in the cycle, a few the day after
+            LocalDateTime paidAt = CYCLE.atTime(8, 0).plusMinutes(id * 7).plusDays(id % 25 == 0 ? 1 : 0);
+            BigDecimal total = BigDecimal.valueOf(10_000 + id * 137, 2);
+            BigDecimal approved = id % 3 == 0 ? null : total.subtract(BigDecimal.valueOf(id * 11, 2));
+            claims.add(new Object[] {id, "CLM-" + id, 1000 + id % 17, provider, status, total, approved,
+                    BigDecimal.valueOf(id % 5 * 100, 2), BigDecimal.valueOf(id % 2 * 250, 2),
+                    LocalDate.of(2024, 4, 1).plusDays(id % 30), paidAt});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO insurance_claims (id, claim_number, patient_id, provider_id, claim_type, " +
+                "claim_status, total_amount, approved_amount, deductible_amount, copay_amount, treatment_date, " +
+                "service_description, paid_at) VALUES (?, ?, ?, ?, 'MEDICAL', ?, ?, ?, ?, ?, ?, 'Visit', ?)", claims);
+    }
+
+    @Test
+    void everyFileBalances() throws Exception {
+        RemittanceRunResponse run = service.generate(CYCLE, CYCLE);
+
+        long expectedClaims = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM insurance_claims " +
+                "WHERE claim_status = 'PAID' AND paid_at < ?", Long.class, CYCLE.plusDays(1).atStartOfDay());
+        assertEquals(expectedClaims, run.getTotalClaims());
+        assertEquals(4, run.getFiles().size());
+
+        Set<String> controlNumbers = new HashSet<>();
+        BigDecimal runTotal = BigDecimal.ZERO;
+        for (RemittanceFileResponse file : run.getFiles()) {
+            List<String[]> segments = segments(directory.resolve(file.getFileName()));
+            BigDecimal bpr = null;
+            BigDecimal clpSum = BigDecimal.ZERO;
+            long clpCount = 0;
+            for (String[] segment : segments) {
+                if (segment[0].equals("BPR")) {
+                    bpr = new BigDecimal(segment[2]);
+                } else if (segment[0].equals("CLP")) {
+                    clpSum = clpSum.add(new BigDecimal(segment[4]));
+                    clpCount++;
+                } else if (segment[0].equals("ISA")) {
+                    controlNumbers.add(segment[13]);
+                }
+            }
+            assertEquals(0, clpSum.compareTo(bpr), file.getFileName());
+            assertEquals(0, clpSum.compareTo(file.getTotalPaid()), file.getFileName());
+            assertEquals(file.getClaimCount(), clpCount);
+            runTotal = runTotal.add(clpSum);
+        }
+        assertEquals(0, runTotal.compareTo(run.getTotalPaid()));
+        assertEquals(run.getFiles().size(), controlNumbers.size());
+    }
+
+    @Test
+    void emptyCycleWritesNoFiles() throws Exception {
+        RemittanceRunResponse run = service.generate(CYCLE.minusDays(30), CYCLE.minusDays(20));
+
+        assertEquals(0, run.getTotalClaims());
+        assertTrue(run.getFiles().isEmpty());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static List<String[]> segments(Path file) throws Exception {
+        List<String[]> segments = new ArrayList<>();
+        for (String segment : Files.readString(file, StandardCharsets.US_ASCII).split("~\n?")) {
+            if (!segment.isBlank()) {
+                segments.add(segment.split("\\*", -1));
+            }
+        }
+        return segments;
+    }
+}
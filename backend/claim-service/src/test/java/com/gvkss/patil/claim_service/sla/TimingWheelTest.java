@@ -0,0 +1,127 @@
+package com.gvkss.patil.claim_service.sla;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link TimingWheel}: timers fire on the first tick at or after their deadline, at
+ * every level of the wheel and beyond it, and cancelled or rescheduled timers do not fire early.
+ */
+class TimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final long START = 1_000_000;
+
+    @Test
+    void firesAtTheDeadlineAndNotBefore() {
+        TimingWheel wheel = new TimingWheel(TICK, START, 16);
+        wheel.schedule(1, START + 55);
+
+        List<Long> fired = new ArrayList<>();
+        assertEquals(0, wheel.advance(START + 50, fired::add));
+        assertEquals(START + 60, wheel.deadline(1));
+        assertEquals(1, wheel.advance(START + 60, fired::add));
+        assertEquals(List.of(1L), fired);
+        assertEquals(0, wheel.size());
+        assertEquals(-1, wheel.deadline(1));
+    }
+
+    @Test
+    void passedDeadlineFiresOnTheNextTick() {
+        TimingWheel wheel = new TimingWheel(TICK, START, 16);
+        wheel.schedule(1, START - 5000);
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(START + TICK, fired::add);
+        assertEquals(List.of(1L), fired);
+    }
+
+    @Test
+    void cancelledAndRescheduledTimers() {
+        TimingWheel wheel = new TimingWheel(TICK, START, 16);
+        wheel.schedule(1, START + 100);
+        wheel.schedule(2, START + 100);
+        wheel.schedule(3, START + 100);
+        assertTrue(wheel.cancel(2));
+        assertFalse(wheel.cancel(2));
+        assertFalse(wheel.cancel(99));
+        // Rescheduling replaces the pending timer
+        wheel.schedule(3, START + 5000);
+        assertEquals(2, wheel.size());
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(START + 4990, fired::add);
+        assertEquals(List.of(1L), fired);
+        wheel.advance(START + 5000, fired::add);
+        assertEquals(List.of(1L, 3L), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cascadesAcrossEveryLevel() {
+        TimingWheel wheel = new TimingWheel(TICK, START, 16);
+        long startTick = START / TICK;
+        // Last tick of level 0, first of each coarser level, and past the end of the wheel
+        long[] deltas = {1, 63, 64, 65, 4095, 4096, 4097, 262_143, 262_144, 300_001, 16_777_215, 16_777_216, 20_000_000};
+        for (int i = 0; i < deltas.length; i++) {
+            wheel.schedule(i, (startTick + deltas[i]) * TICK);
+        }
+
+        Map<Long, Long> firedAt = new HashMap<>();
+        List<Long> steps = new ArrayList<>();
+        long tick = startTick;
+        long last = startTick + deltas[deltas.length - 1];
+        while (tick < last) {
+            // Advance in uneven steps so cascades also happen inside a single advance call
+            tick = Math.min(last, tick + 1 + (tick % 7) * 1000);
+            long now = tick;
+            steps.add(now);
+            wheel.advance(now * TICK, id -> firedAt.put(id, now));
+        }
+
+        assertEquals(deltas.length, firedAt.size());
+        for (int i = 0; i < deltas.length; i++) {
+            long due = startTick + deltas[i];
+            long expected = steps.stream().filter(step -> step >= due).findFirst().orElseThrow();
+            assertEquals(expected, firedAt.get((long) i), "timer " + deltas[i]);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void firesEveryTimerOnItsTick() {
+        TimingWheel wheel = new TimingWheel(TICK, START, 16);
+        Random random = new Random(7);
+        Map<Long, Long> deadlines = new HashMap<>();
+        for (long id = 0; id < 5000; id++) {
+            long deadline = START + 1 + random.nextInt(300_000) * TICK;
+            wheel.schedule(id, deadline);
+            deadlines.put(id, deadline);
+        }
+        for (long id = 0; id < 5000; id += 5) {
+            wheel.cancel(id);
+            deadlines.remove(id);
+        }
+        assertEquals(deadlines.size(), wheel.size());
+
+        Map<Long, Long> firedAt = new HashMap<>();
+        for (long now = START; !deadlines.isEmpty() && now <= START + 300_001 * TICK; now += TICK) {
+            long time = now;
+            wheel.advance(time, id -> firedAt.put(id, time));
+        }
+        assertEquals(deadlines.size(), firedAt.size());
+        deadlines.forEach((id, deadline) -> {
+            long at = firedAt.get(id);
+            assertTrue(at >= deadline && at < deadline + TICK, "timer " + id + " fired at " + at + " for " + deadline);
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package com.gvkss.patil.claim_service.x12;
+
+import com.gvkss.patil.claim_service.entity.InsuranceClaim;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link Claim837Parser} over small 837P and 837D interchanges in
+ * {@code src/test/resources/x12}: identifiers, dates, emergency detection, rejections, and the
+ * claim type, which is decided per claim.
+ */
+class Claim837ParserTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+    private static final String ISA = "ISA*00*          *00*          *ZZ*SUBMITTER      *ZZ*GVKSSHEALTH    "
+            + "*240601*1200*^*00501*000000001*0*P*:~";
+
+    @Test
+    void parsesProfessionalClaims() throws Exception {
+        Result result = parse(fixture("837p-sample.x12"));
+
+        assertEquals(2, result.claims.size());
+        InsuranceClaim office = result.claims.get(0);
+        assertEquals(1001L, office.getPatientId());
+        assertEquals(501L, office.getProviderId());
+        assertEquals(77L, office.getDoctorId());
+        assertEquals(InsuranceClaim.ClaimType.MEDICAL, office.getClaimType());
+        assertEquals(InsuranceClaim.ClaimStatus.SUBMITTED, office.getClaimStatus());
+        assertEquals(new BigDecimal("150.00"), office.getTotalAmount());
+        assertEquals(LocalDate.of(2024, 5, 10), office.getTreatmentDate());
+        assertEquals("J069", office.getDiagnosisCode());
+        assertEquals("99213", office.getProcedureCode());
+        assertEquals("837 claim PCN-1: 99213", office.getServiceDescription());
+        assertEquals("Patient control number: PCN-1", office.getNotes());
+        assertFalse(office.getIsEmergency());
+
+        InsuranceClaim emergency = result.claims.get(1);
+        assertTrue(emergency.getIsEmergency());
+        assertEquals(InsuranceClaim.ClaimPriority.HIGH, emergency.getPriority());
+        assertNull(emergency.getDoctorId());
+        // No claim-level date, so the first service line date is used
+        assertEquals(LocalDate.of(2024, 5, 11), emergency.getTreatmentDate());
+        assertEquals("99284", emergency.getProcedureCode());
+        assertEquals("ER VISIT AFTER FALL", emergency.getServiceDescription());
+
+        assertEquals(List.of("PCN-3", "PCN-4"), result.rejected);
+        assertTrue(result.reasons.get(0).contains("NM1*IL"));
+        assertEquals("Treatment date cannot be in the future", result.reasons.get(1));
+    }
+
+    @Test
+    void parsesDentalClaims() throws Exception {
+        Result result = parse(fixture("837d-sample.x12"));
+
+        assertEquals(1, result.claims.size());
+        assertTrue(result.rejected.isEmpty());
+        InsuranceClaim claim = result.claims.get(0);
+        assertEquals(InsuranceClaim.ClaimType.DENTAL, claim.getClaimType());
+        assertEquals(601L, claim.getProviderId());
+        assertEquals("D0120", claim.getProcedureCode());
+        assertEquals("837 claim DCN-1: D0120, D1110", claim.getServiceDescription());
+        assertEquals(LocalDate.of(2024, 5, 20), claim.getTreatmentDate());
+    }
+
+    @Test
+    void dentalLinesDoNotCarryOverToTheNextClaim() throws Exception {
+        String body = "GS*HC*SUBMITTER*GVKSSHEALTH*20240601*1200*1*X*005010X222A1~"
+                + "ST*837*0001*005010X222A1~"
+                + "HL*1**20*1~NM1*85*2*CLINIC*****XX*1234567890~REF*G2*501~"
+                + "HL*2*1*22*0~NM1*IL*1*DOE*JANE****MI*1001~"
+                + "CLM*PCN-1*65.00***11:B:1*Y*A*Y*Y~DTP*472*D8*20240510~LX*1~SV3*AD:D0120*65.00~"
+                + "CLM*PCN-2*150.00***11:B:1*Y*A*Y*Y~DTP*472*D8*20240510~LX*1~SV1*HC:99213*150.00*UN*1~"
+                + "SE*13*0001~GE*1*1~IEA*1*000000001~";
+
+        Result result = parse(ISA + body);
+
+        assertEquals(2, result.claims.size());
+        assertEquals(InsuranceClaim.ClaimType.DENTAL, result.claims.get(0).getClaimType());
+        assertEquals(InsuranceClaim.ClaimType.MEDICAL, result.claims.get(1).getClaimType());
+    }
+
+    private static String fixture(String name) throws Exception {
+        return new ClassPathResource("x12/" + name).getContentAsString(StandardCharsets.US_ASCII);
+    }
+
+    private static Result parse(String interchange) throws InterruptedException {
+        Result result = new Result();
+        X12SegmentReader reader = new X12SegmentReader(ByteBuffer.wrap(interchange.getBytes(StandardCharsets.US_ASCII)));
+        new Claim837Parser(TODAY).parse(reader, result);
+        return result;
+    }
+
+    private static final class Result implements Claim837Parser.Listener {
+
+        final List<InsuranceClaim> claims = new ArrayList<>();
+        final List<String> rejected = new ArrayList<>();
+        final List<String> reasons = new ArrayList<>();
+
+        @Override
+        public void onClaim(InsuranceClaim claim) {
+            claims.add(claim);
+        }
+
+        @Override
+        public void onRejected(String patientControlNumber, long segment, String reason) {
+            rejected.add(patientControlNumber);
+            reasons.add(reason);
+        }
+    }
+}
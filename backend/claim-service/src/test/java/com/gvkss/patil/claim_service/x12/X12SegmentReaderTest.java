@@ -0,0 +1,138 @@
+package com.gvkss.patil.claim_service.x12;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link X12SegmentReader}: delimiters from the ISA header, element and component
+ * access, typed values, malformed input, and closing a reader over a mapped file.
+ */
+class X12SegmentReaderTest {
+
+    private static final String ISA = "ISA*00*          *00*          *ZZ*SUBMITTER      *ZZ*GVKSSHEALTH    "
+            + "*240601*1200*^*00501*000000001*0*P*:~";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsSegmentsElementsAndComponents() {
+        X12SegmentReader reader = reader(ISA + "\r\nCLM*PCN-1*150.00***11:B:1*Y~\n  HI*ABK:J069~");
+
+        assertTrue(reader.next());
+        assertTrue(reader.is("ISA"));
+        assertEquals(17, reader.elementCount());
+        assertEquals("000000001", reader.element(13));
+
+        assertTrue(reader.next());
+        assertTrue(reader.is("CLM"));
+        assertEquals("PCN-1", reader.element(1));
+        assertNull(reader.element(3));
+        assertEquals("11", reader.component(5, 1));
+        assertEquals("1", reader.component(5, 3));
+        assertNull(reader.component(5, 4));
+        assertEquals("PCN-1", reader.component(1, 1));
+        assertNull(reader.element(9));
+        assertTrue(reader.elementEquals(6, "Y"));
+        assertFalse(reader.elementEquals(6, "YES"));
+
+        assertTrue(reader.next());
+        assertEquals("J069", reader.component(1, 2));
+        assertFalse(reader.next());
+        assertEquals(3, reader.segmentCount());
+        assertEquals(reader.size(), reader.position());
+    }
+
+    @Test
+    void takesDelimitersFromTheIsaHeader() {
+        String isa = ISA.replace('*', '|').replace(':', '>').replace('~', '\'');
+        X12SegmentReader reader = reader(isa + "SV1|HC>99213|150.00|UN|1'");
+
+        reader.next();
+        assertTrue(reader.next());
+        assertTrue(reader.is("SV1"));
+        assertEquals("99213", reader.component(1, 2));
+        assertEquals(new BigDecimal("150.00"), reader.decimal(2));
+    }
+
+    @Test
+    void parsesAmountsAndDates() {
+        X12SegmentReader reader = reader(ISA + "DTP*472*D8*20240510*20240510-20240515*2024051*20241340*ABC~");
+        reader.next();
+        reader.next();
+
+        assertEquals(LocalDate.of(2024, 5, 10), reader.date(3));
+        // RD8 ranges read as their start date
+        assertEquals(LocalDate.of(2024, 5, 10), reader.date(4));
+        assertNull(reader.date(5));
+        assertNull(reader.date(20));
+        assertThrows(X12FormatException.class, () -> reader.date(6));
+        assertNull(reader.decimal(20));
+        assertThrows(X12FormatException.class, () -> reader.decimal(7));
+    }
+
+    @Test
+    void growsPastSixtyFourElements() {
+        StringBuilder segment = new StringBuilder("HI");
+        for (int i = 1; i <= 100; i++) {
+            segment.append("*E").append(i);
+        }
+        X12SegmentReader reader = reader(ISA + segment + "~");
+        reader.next();
+        reader.next();
+
+        assertEquals(101, reader.elementCount());
+        assertEquals("E100", reader.element(100));
+    }
+
+    @Test
+    void rejectsInputWithoutAnIsaHeader() {
+        assertThrows(X12FormatException.class, () -> reader("GS*HC*SUBMITTER~" + " ".repeat(120)));
+        assertThrows(X12FormatException.class, () -> reader(ISA.substring(0, 100)));
+        // Long enough, but ISA16 and the segment terminator never come
+        assertThrows(X12FormatException.class, () -> reader(ISA.substring(0, 103) + " ".repeat(10)));
+    }
+
+    @Test
+    void closingReleasesTheMappedFile() throws Exception {
+        Path file = directory.resolve("claims.x12");
+        Files.writeString(file, ISA + "ST*837*0001~SE*2*0001~", StandardCharsets.US_ASCII);
+
+        X12SegmentReader reader = X12SegmentReader.open(file);
+        assertTrue(reader.next());
+        reader.close();
+        reader.close();
+
+        assertFalse(reader.next());
+        assertEquals(0, reader.elementCount());
+        assertNull(reader.element(0));
+        Files.delete(file);
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void openRejectsAFileWithoutAnIsaHeader() throws Exception {
+        Path file = directory.resolve("empty.x12");
+        Files.writeString(file, "not an interchange", StandardCharsets.US_ASCII);
+
+        assertThrows(X12FormatException.class, () -> X12SegmentReader.open(file));
+        Files.delete(file);
+    }
+
+    private static X12SegmentReader reader(String content) {
+        return new X12SegmentReader(ByteBuffer.wrap(content.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+}
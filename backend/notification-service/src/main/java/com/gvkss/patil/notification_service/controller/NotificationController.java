@@ -44,6 +44,15 @@ public class NotificationController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> createNotifications(@RequestBody List<Map<String, Object>> notifications) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Notifications created successfully");
+        response.put("data", Map.of("created", notifications.size()));
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Map<String, Object>> getNotification(@PathVariable Long id) {
         Map<String, Object> response = new HashMap<>();
@@ -0,0 +1,93 @@
+package com.gvkss.patil.patient_service.availability;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Booking Intervals
+ *
+ * The booked intervals of one doctor, ordered by start in a {@link ConcurrentSkipListMap}, so an
+ * overlap check is a lock-free range scan of the few bookings that start less than the longest
+ * booking length before the candidate. Times are plain long ordinals (epoch seconds of local
+ * date-times). Only {@link #tryAdd} takes a lock, to make its check and insert one step.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class BookingIntervals {
+
+    /**
+     * Returned by {@link #findConflict} when nothing overlaps; booking ids are never zero
+     */
+    public static final long NONE = 0L;
+
+    private record Booking(long id, long end) {
+    }
+
+    private final ConcurrentSkipListMap<Long, Booking> byStart = new ConcurrentSkipListMap<>();
+    private volatile long maxLength;
+
+    /**
+     * Id of a booking overlapping [start, end), or {@link #NONE}
+     */
+    public long findConflict(long start, long end) {
+        for (Map.Entry<Long, Booking> entry : byStart.subMap(start - maxLength, true, end, false).entrySet()) {
+            if (entry.getValue().end() > start) {
+                return entry.getValue().id();
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Add a booking unless it overlaps one already held; returns the id it overlaps, or {@link #NONE} once added
+     */
+    public synchronized long tryAdd(long id, long start, long end) {
+        long conflict = findConflict(start, end);
+        if (conflict == NONE) {
+            put(id, start, end);
+        }
+        return conflict;
+    }
+
+    /**
+     * Add a booking without checking for overlaps
+     */
+    public synchronized void add(long id, long start, long end) {
+        put(id, start, end);
+    }
+
+    /**
+     * Remove a booking if it is still held at this start
+     */
+    public void remove(long id, long start) {
+        Booking booking = byStart.get(start);
+        if (booking != null && booking.id() == id) {
+            byStart.remove(start, booking);
+        }
+    }
+
+    /**
+     * Remove every booking overlapping [start, end)
+     */
+    public synchronized void removeOverlapping(long start, long end) {
+        byStart.subMap(start - maxLength, true, end, false).entrySet()
+                .removeIf(entry -> entry.getValue().end() > start);
+    }
+
+    public boolean isEmpty() {
+        return byStart.isEmpty();
+    }
+
+    public int size() {
+        return byStart.size();
+    }
+
+    private void put(long id, long start, long end) {
+        if (end - start > maxLength) {
+            maxLength = end - start;
+        }
+        byStart.put(start, new Booking(id, end));
+    }
+}
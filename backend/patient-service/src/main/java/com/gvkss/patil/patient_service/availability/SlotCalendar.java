@@ -0,0 +1,249 @@
+package com.gvkss.patil.patient_service.availability;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Slot Calendar
+ *
+ * Free time of one doctor over a rolling horizon of days, as a bitset of 5-minute slots: one bit
+ * per slot, 288 slots in five longs per day, set while the slot is inside working hours and not
+ * booked. Times are absolute slot numbers ({@code epochDay * 288 + minuteOfDay / 5}). Free runs
+ * are found a word at a time with trailing-zero counts, so finding the next free slots costs a
+ * handful of long operations per day scanned. A weekly template of working hours lets a
+ * cancellation give back only slots that were workable. Not synchronized.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class SlotCalendar {
+
+    public static final int SLOT_MINUTES = 5;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    public static final int WORDS_PER_DAY = (SLOTS_PER_DAY + 63) >>> 6;
+
+    private final long firstDay;
+    private final int days;
+    private final long[] weekTemplate;
+    private final long[] free;
+
+    /**
+     * @param firstDay     epoch day of the first day held
+     * @param days         number of days held
+     * @param weekTemplate working slots per weekday, {@link #WORDS_PER_DAY} words for each of Monday to Sunday
+     */
+    public SlotCalendar(long firstDay, int days, long[] weekTemplate) {
+        if (weekTemplate.length != 7 * WORDS_PER_DAY) {
+            throw new IllegalArgumentException("Week template must hold " + 7 * WORDS_PER_DAY + " words");
+        }
+        this.firstDay = firstDay;
+        this.days = days;
+        this.weekTemplate = weekTemplate;
+        this.free = new long[days * WORDS_PER_DAY];
+        for (int day = 0; day < days; day++) {
+            System.arraycopy(weekTemplate, weekdayOffset(firstDay + day), free, day * WORDS_PER_DAY, WORDS_PER_DAY);
+        }
+    }
+
+    /**
+     * Mark working slots in a week template; start is rounded up and end down to whole slots
+     */
+    public static void addWorkingHours(long[] weekTemplate, int isoDayOfWeek, LocalTime start, LocalTime end) {
+        int from = (start.toSecondOfDay() / 60 + SLOT_MINUTES - 1) / SLOT_MINUTES;
+        int to = end.equals(LocalTime.MIDNIGHT) ? SLOTS_PER_DAY : end.toSecondOfDay() / 60 / SLOT_MINUTES;
+        int offset = (isoDayOfWeek - 1) * WORDS_PER_DAY;
+        for (int slot = from; slot < to; slot++) {
+            weekTemplate[offset + (slot >>> 6)] |= 1L << slot;
+        }
+    }
+
+    /**
+     * Absolute slot holding a time, rounded down
+     */
+    public static long slotOf(LocalDateTime time) {
+        return time.toLocalDate().toEpochDay() * SLOTS_PER_DAY + time.toLocalTime().toSecondOfDay() / 60 / SLOT_MINUTES;
+    }
+
+    /**
+     * Absolute slot starting at or after a time
+     */
+    public static long slotAtOrAfter(LocalDateTime time) {
+        long slot = slotOf(time);
+        return time.toLocalTime().toSecondOfDay() % (SLOT_MINUTES * 60) == 0 && time.getNano() == 0 ? slot : slot + 1;
+    }
+
+    /**
+     * Start time of an absolute slot
+     */
+    public static LocalDateTime timeOf(long slot) {
+        long day = Math.floorDiv(slot, SLOTS_PER_DAY);
+        int minute = (int) Math.floorMod(slot, SLOTS_PER_DAY) * SLOT_MINUTES;
+        return LocalDate.ofEpochDay(day).atTime(LocalTime.ofSecondOfDay(minute * 60L));
+    }
+
+    /**
+     * Slots needed to cover a number of minutes
+     */
+    public static int slotsFor(int minutes) {
+        return (minutes + SLOT_MINUTES - 1) / SLOT_MINUTES;
+    }
+
+    public long getFirstDay() {
+        return firstDay;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public long getFirstSlot() {
+        return firstDay * SLOTS_PER_DAY;
+    }
+
+    public long getEndSlot() {
+        return (firstDay + days) * SLOTS_PER_DAY;
+    }
+
+    /**
+     * Whether every slot in [from, to) inside the horizon is free
+     */
+    public boolean isFree(long from, long to) {
+        long start = Math.max(from, getFirstSlot());
+        long end = Math.min(to, getEndSlot());
+        for (long slot = start; slot < end; ) {
+            int day = (int) (slot / SLOTS_PER_DAY - firstDay);
+            int lo = (int) (slot % SLOTS_PER_DAY);
+            int hi = (int) Math.min(SLOTS_PER_DAY, end - (firstDay + day) * SLOTS_PER_DAY);
+            int base = day * WORDS_PER_DAY;
+            for (int word = lo >>> 6; word <= (hi - 1) >>> 6; word++) {
+                long mask = rangeMask(word, lo, hi);
+                if ((free[base + word] & mask) != mask) {
+                    return false;
+                }
+            }
+            slot += hi - lo;
+        }
+        return true;
+    }
+
+    /**
+     * Book the slots in [from, to); returns whether they were all free
+     */
+    public boolean reserve(long from, long to) {
+        boolean wasFree = isFree(from, to);
+        update(from, to, false);
+        return wasFree;
+    }
+
+    /**
+     * Give back the slots in [from, to) that fall inside working hours
+     */
+    public void release(long from, long to) {
+        update(from, to, true);
+    }
+
+    /**
+     * Find up to count starts of free runs of the given length in [from, until); within a free
+     * stretch, starts follow each other one length apart. Returns how many were written to out.
+     */
+    public int findFree(long from, long until, int length, int count, long[] out, int offset) {
+        long start = Math.max(from, getFirstSlot());
+        long end = Math.min(until, getEndSlot());
+        int found = 0;
+        while (start < end && found < count) {
+            long dayStart = start - Math.floorMod(start, SLOTS_PER_DAY);
+            int day = (int) (dayStart / SLOTS_PER_DAY - firstDay);
+            int base = day * WORDS_PER_DAY;
+            int lo = (int) (start - dayStart);
+            int hi = (int) Math.min(SLOTS_PER_DAY, end - dayStart);
+            int run = nextSet(base, lo, hi);
+            while (run >= 0 && found < count) {
+                int runEnd = nextClear(base, run, hi);
+                for (int slot = run; slot + length <= runEnd && found < count; slot += length) {
+                    out[offset + found++] = dayStart + slot;
+                }
+                run = nextSet(base, runEnd, hi);
+            }
+            start = dayStart + SLOTS_PER_DAY;
+        }
+        return found;
+    }
+
+    private void update(long from, long to, boolean release) {
+        long start = Math.max(from, getFirstSlot());
+        long end = Math.min(to, getEndSlot());
+        for (long slot = start; slot < end; ) {
+            int day = (int) (slot / SLOTS_PER_DAY - firstDay);
+            int lo = (int) (slot % SLOTS_PER_DAY);
+            int hi = (int) Math.min(SLOTS_PER_DAY, end - (firstDay + day) * SLOTS_PER_DAY);
+            int base = day * WORDS_PER_DAY;
+            int template = weekdayOffset(firstDay + day);
+            for (int word = lo >>> 6; word <= (hi - 1) >>> 6; word++) {
+                long mask = rangeMask(word, lo, hi);
+                if (release) {
+                    free[base + word] |= mask & weekTemplate[template + word];
+                } else {
+                    free[base + word] &= ~mask;
+                }
+            }
+            slot += hi - lo;
+        }
+    }
+
+    /**
+     * First free slot in [from, hi) of a day, or -1
+     */
+    private int nextSet(int base, int from, int hi) {
+        if (from >= hi) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long bits = free[base + word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                return slot < hi ? slot : -1;
+            }
+            if (++word << 6 >= hi) {
+                return -1;
+            }
+            bits = free[base + word];
+        }
+    }
+
+    /**
+     * First busy slot in [from, hi) of a day, or hi
+     */
+    private int nextClear(int base, int from, int hi) {
+        int word = from >>> 6;
+        long bits = ~free[base + word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return Math.min((word << 6) + Long.numberOfTrailingZeros(bits), hi);
+            }
+            if (++word << 6 >= hi) {
+                return hi;
+            }
+            bits = ~free[base + word];
+        }
+    }
+
+    /**
+     * Bits of a word that fall in [lo, hi)
+     */
+    private static long rangeMask(int word, int lo, int hi) {
+        int first = Math.max(lo - (word << 6), 0);
+        int last = Math.min(hi - (word << 6), 64);
+        long upper = last == 64 ? -1L : (1L << last) - 1;
+        return upper & (-1L << first);
+    }
+
+    /**
+     * Offset in the week template of an epoch day's weekday; 1970-01-01 was a Thursday
+     */
+    private static int weekdayOffset(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7L) * WORDS_PER_DAY;
+    }
+}
@@ -0,0 +1,63 @@
+package com.gvkss.patil.patient_service.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Claim Client
+ *
+ * Reads claim data from claim-service. Connect and read timeouts bound every call; failures are
+ * thrown to the caller, which decides whether the claim data is optional.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class ClaimClient {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final RestClient restClient;
+
+    public ClaimClient(@Value("${app.claims.url:http://localhost:8083}") String baseUrl,
+                       @Value("${app.claims.timeout:PT2S}") Duration timeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.restClient = RestClient.builder()
+                .baseUrl(baseUrl)
+                .requestFactory(requestFactory)
+                .build();
+    }
+
+    /**
+     * Claim summaries of a patient (by user ID) submitted before a (submittedAt, id) position, newest first
+     */
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> getClaimsBefore(Long patientUserId, LocalDateTime before, long beforeId, int limit) {
+        Map<String, Object> response = restClient.get()
+                .uri(uri -> uri.path("/api/claims/patient/{patientId}/timeline")
+                        .queryParam("before", before)
+                        .queryParam("beforeId", beforeId)
+                        .queryParam("limit", limit)
+                        .build(patientUserId))
+                .retrieve()
+                .body(RESPONSE_TYPE);
+        if (response == null || !Boolean.TRUE.equals(response.get("success"))) {
+            throw new RuntimeException("Claim service error: " + (response != null ? response.get("message") : "empty response"));
+        }
+        Object data = response.get("data");
+        return data instanceof List ? (List<Map<String, Object>>) data : List.of();
+    }
+}
@@ -0,0 +1,58 @@
+package com.gvkss.patil.patient_service.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notification Client
+ *
+ * Posts notifications to notification-service in batches. Delivery is best effort: failures are
+ * logged and reported to the caller, never thrown.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+@Slf4j
+public class NotificationClient {
+
+    private final RestClient restClient;
+
+    public NotificationClient(@Value("${app.notifications.url:http://localhost:8086}") String baseUrl,
+                              @Value("${app.notifications.timeout:PT5S}") Duration timeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.restClient = RestClient.builder()
+                .baseUrl(baseUrl)
+                .requestFactory(requestFactory)
+                .build();
+    }
+
+    /**
+     * Send a batch of notifications in one request; returns false if it could not be delivered
+     */
+    public boolean sendBatch(List<Map<String, Object>> notifications) {
+        try {
+            restClient.post()
+                    .uri("/api/notifications/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(notifications)
+                    .retrieve()
+                    .toBodilessEntity();
+            return true;
+        } catch (Exception e) {
+            log.warn("Notification batch delivery failed ({} notifications): {}", notifications.size(), e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gvkss.patil.patient_service.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * User Client
+ *
+ * Reads the doctor directory from user-service. Connect and read timeouts bound every call;
+ * failures are thrown to the caller, which decides whether to keep what it read before.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class UserClient {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final RestClient restClient;
+
+    public UserClient(@Value("${app.users.url:http://localhost:8080/api}") String baseUrl,
+                      @Value("${app.users.timeout:PT5S}") Duration timeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.restClient = RestClient.builder()
+                .baseUrl(baseUrl)
+                .requestFactory(requestFactory)
+                .build();
+    }
+
+    /**
+     * ID and specialty of every active doctor
+     */
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> getDoctors() {
+        Map<String, Object> response = restClient.get()
+                .uri("/public/doctors")
+                .retrieve()
+                .body(RESPONSE_TYPE);
+        if (response == null || !Boolean.TRUE.equals(response.get("success"))) {
+            throw new RuntimeException("User service error: " + (response != null ? response.get("message") : "empty response"));
+        }
+        Object data = response.get("data");
+        return data instanceof List ? (List<Map<String, Object>>) data : List.of();
+    }
+}
@@ -0,0 +1,136 @@
+package com.gvkss.patil.patient_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read Replica DataSource Configuration
+ *
+ * Active when app.datasource.replica.enabled is true. Builds separate Hikari pools for the
+ * primary (spring.datasource) and the replica (app.datasource.replica), routes between them with
+ * {@link ReplicaRoutingDataSource} and probes the replica's replay lag in the background. Pool
+ * metrics are published per pool name, routing decisions as datasource.routing.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "enabled", havingValue = "true")
+@Slf4j
+public class ReplicaDataSourceConfig {
+
+    /**
+     * Zero when the replica has replayed everything it received (or is a plain database),
+     * otherwise the age of the last replayed transaction
+     */
+    private static final String REPLICA_LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE((EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint, 0) END";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryPool(DataSourceProperties properties) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("primary");
+        return pool;
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaPool(DataSourceProperties properties,
+                                        @Value("${app.datasource.replica.url}") String url,
+                                        @Value("${app.datasource.replica.username:${spring.datasource.username}}") String username,
+                                        @Value("${app.datasource.replica.password:${spring.datasource.password}}") String password) {
+        HikariDataSource pool = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        pool.setPoolName("replica");
+        pool.setReadOnly(true);
+        // Start even if the replica is down; reads fall back to the primary until it answers
+        pool.setInitializationFailTimeout(-1);
+        return pool;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryPool") HikariDataSource primaryPool,
+                                                             @Qualifier("replicaPool") HikariDataSource replicaPool,
+                                                             MeterRegistry meterRegistry,
+                                                             @Value("${app.datasource.replica.max-lag-ms:5000}") long maxLagMillis,
+                                                             @Value("${app.datasource.replica.stickiness-ms:2000}") long stickinessMillis) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(maxLagMillis, stickinessMillis, meterRegistry);
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Route.PRIMARY, primaryPool,
+                ReplicaRoutingDataSource.Route.REPLICA, replicaPool));
+        routing.setDefaultTargetDataSource(primaryPool);
+        Gauge.builder("datasource.replica.lag", routing, ReplicaRoutingDataSource::getReplicaLagMillis)
+                .description("Replica replay lag in milliseconds, -1 when unreachable")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        return routing;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * Background probe of the replica's lag
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService replicaLagProbe(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                                    @Qualifier("replicaPool") HikariDataSource replicaPool,
+                                                    @Value("${app.datasource.replica.lag-check-interval-ms:2000}") long intervalMillis) {
+        JdbcTemplate replica = new JdbcTemplate(replicaPool);
+        replica.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(intervalMillis)));
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            long previous = replicaRoutingDataSource.getReplicaLagMillis();
+            long lag;
+            try {
+                Long measured = replica.queryForObject(REPLICA_LAG_SQL, Long.class);
+                lag = measured != null ? measured : ReplicaRoutingDataSource.LAG_UNKNOWN;
+            } catch (Exception e) {
+                lag = ReplicaRoutingDataSource.LAG_UNKNOWN;
+                if (previous != ReplicaRoutingDataSource.LAG_UNKNOWN) {
+                    log.warn("Replica unreachable, routing reads to the primary: {}", e.getMessage());
+                }
+            }
+            if (previous == ReplicaRoutingDataSource.LAG_UNKNOWN && lag != ReplicaRoutingDataSource.LAG_UNKNOWN) {
+                log.info("Replica available, lag {} ms", lag);
+            }
+            replicaRoutingDataSource.setReplicaLagMillis(lag);
+            replicaRoutingDataSource.expireWrites();
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+}
@@ -0,0 +1,156 @@
+package com.gvkss.patil.patient_service.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Replica Routing DataSource
+ *
+ * Sends read-only transactions to the replica pool and everything else to the primary. Reads fall
+ * back to the primary while the replica is unreachable or lagging more than the configured
+ * maximum, and for a client that has just committed a write until the replica has had time to
+ * replay it (read-your-writes). Clients are identified by their authenticated principal, or else
+ * by a digest of the Authorization header. Must sit behind a LazyConnectionDataSourceProxy so the
+ * connection is chosen after the transaction's read-only flag is known.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    /**
+     * Replica lag value meaning the replica could not be reached
+     */
+    public static final long LAG_UNKNOWN = -1L;
+
+    private static final Object WRITE_TRACKED = new Object();
+
+    private final long maxLagMillis;
+    private final long stickinessMillis;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private volatile long replicaLagMillis = LAG_UNKNOWN;
+
+    public ReplicaRoutingDataSource(long maxLagMillis, long stickinessMillis, MeterRegistry meterRegistry) {
+        this.maxLagMillis = maxLagMillis;
+        this.stickinessMillis = stickinessMillis;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                trackWrite();
+            }
+            return route(Route.PRIMARY, "read-write");
+        }
+        long lag = replicaLagMillis;
+        if (lag == LAG_UNKNOWN) {
+            return route(Route.PRIMARY, "replica-unavailable");
+        }
+        if (lag > maxLagMillis) {
+            return route(Route.PRIMARY, "replica-lagging");
+        }
+        String client = currentClient();
+        if (client != null) {
+            Long lastWrite = lastWrites.get(client);
+            if (lastWrite != null && System.currentTimeMillis() - lastWrite <= lag + stickinessMillis) {
+                return route(Route.PRIMARY, "read-your-writes");
+            }
+        }
+        return route(Route.REPLICA, "read-only");
+    }
+
+    /**
+     * Latest measured replica lag in milliseconds, or {@link #LAG_UNKNOWN}
+     */
+    public long getReplicaLagMillis() {
+        return replicaLagMillis;
+    }
+
+    public void setReplicaLagMillis(long replicaLagMillis) {
+        this.replicaLagMillis = replicaLagMillis;
+    }
+
+    /**
+     * Forget writes old enough that no read would still be routed to the primary for them
+     */
+    public void expireWrites() {
+        long cutoff = System.currentTimeMillis() - maxLagMillis - stickinessMillis;
+        lastWrites.values().removeIf(writtenAt -> writtenAt < cutoff);
+    }
+
+    /**
+     * Remember the client's write once its transaction commits
+     */
+    private void trackWrite() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(WRITE_TRACKED)) {
+            return;
+        }
+        String client = currentClient();
+        if (client == null) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(WRITE_TRACKED, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastWrites.put(client, System.currentTimeMillis());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(WRITE_TRACKED);
+            }
+        });
+    }
+
+    private Route route(Route route, String reason) {
+        counters.computeIfAbsent(route.name() + '/' + reason, key -> Counter.builder("datasource.routing")
+                .description("Connections handed out per route")
+                .tag("route", route.name().toLowerCase())
+                .tag("reason", reason)
+                .register(meterRegistry)).increment();
+        return route;
+    }
+
+    private static String currentClient() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            String authorization = servletAttributes.getRequest().getHeader(HttpHeaders.AUTHORIZATION);
+            if (authorization != null) {
+                return "token:" + UUID.nameUUIDFromBytes(authorization.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return null;
+    }
+}
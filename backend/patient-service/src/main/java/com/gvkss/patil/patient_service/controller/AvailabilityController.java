@@ -0,0 +1,87 @@
+package com.gvkss.patil.patient_service.controller;
+
+import com.gvkss.patil.patient_service.dto.ApiResponse;
+import com.gvkss.patil.patient_service.dto.AvailabilityStatsResponse;
+import com.gvkss.patil.patient_service.dto.AvailableSlotResponse;
+import com.gvkss.patil.patient_service.service.AppointmentAvailabilityService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Availability Controller for free appointment slots
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/patients/availability")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Doctor Availability", description = "Free appointment slot APIs")
+public class AvailabilityController {
+
+    private final AppointmentAvailabilityService appointmentAvailabilityService;
+
+    /**
+     * Get next free slots of a doctor
+     */
+    @GetMapping("/doctors/{doctorId}")
+    @Operation(summary = "Get free slots for doctor", description = "Next free appointment slots of a doctor, earliest first")
+    public ResponseEntity<ApiResponse<List<AvailableSlotResponse>>> getDoctorSlots(
+            @Parameter(description = "Doctor ID") @PathVariable Long doctorId,
+            @Parameter(description = "Earliest start; defaults to now") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Appointment length in minutes") @RequestParam(defaultValue = "30") int durationMinutes,
+            @Parameter(description = "Number of slots") @RequestParam(defaultValue = "10") int count) {
+        try {
+            List<AvailableSlotResponse> slots = appointmentAvailabilityService.findSlots(doctorId, from, durationMinutes, count);
+            return ResponseEntity.ok(ApiResponse.success(slots, "Available slots retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving available slots for doctor: {}", doctorId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve available slots: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get next free slots across a specialty
+     */
+    @GetMapping("/specialties/{specialty}")
+    @Operation(summary = "Get free slots for specialty", description = "Next free appointment slots with any doctor of a specialty, earliest first")
+    public ResponseEntity<ApiResponse<List<AvailableSlotResponse>>> getSpecialtySlots(
+            @Parameter(description = "Medical specialty") @PathVariable String specialty,
+            @Parameter(description = "Earliest start; defaults to now") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Appointment length in minutes") @RequestParam(defaultValue = "30") int durationMinutes,
+            @Parameter(description = "Number of slots") @RequestParam(defaultValue = "10") int count) {
+        try {
+            List<AvailableSlotResponse> slots = appointmentAvailabilityService.findSlotsForSpecialty(specialty, from, durationMinutes, count);
+            return ResponseEntity.ok(ApiResponse.success(slots, "Available slots retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving available slots for specialty: {}", specialty, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve available slots: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get availability engine statistics
+     */
+    @GetMapping("/stats")
+    @Operation(summary = "Get availability statistics", description = "Doctors, horizon and changes applied by the availability engine")
+    public ResponseEntity<ApiResponse<AvailabilityStatsResponse>> getStats() {
+        try {
+            AvailabilityStatsResponse stats = appointmentAvailabilityService.getStats();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Availability statistics retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving availability statistics", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve availability statistics: " + e.getMessage()));
+        }
+    }
+}
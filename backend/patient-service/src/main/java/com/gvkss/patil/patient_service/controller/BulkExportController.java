@@ -0,0 +1,161 @@
+package com.gvkss.patil.patient_service.controller;
+
+import com.gvkss.patil.patient_service.dto.ApiResponse;
+import com.gvkss.patil.patient_service.dto.BulkExportManifest;
+import com.gvkss.patil.patient_service.dto.BulkExportStatusResponse;
+import com.gvkss.patil.patient_service.dto.BulkExportStatusResponse.ExportStatus;
+import com.gvkss.patil.patient_service.service.BulkExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bulk Export Controller for FHIR bulk data export ($export)
+ *
+ * Kick-off returns 202 with the status URL in Content-Location; the status URL answers 202 while
+ * the export runs and the manifest once it completes, and the files it lists support range requests.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/patients/$export")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Bulk Export", description = "FHIR bulk data export APIs")
+public class BulkExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/fhir+ndjson");
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final BulkExportService bulkExportService;
+
+    /**
+     * Start a bulk export
+     */
+    @GetMapping
+    @Operation(summary = "Start bulk export", description = "Start an asynchronous NDJSON export of patients, encounters and appointments")
+    public ResponseEntity<ApiResponse<BulkExportStatusResponse>> startExport(
+            @Parameter(description = "Comma-separated resource types: Patient, Encounter, Appointment (default all)") @RequestParam(name = "_type", required = false) String types,
+            @Parameter(description = "Only resources updated at or after this instant") @RequestParam(name = "_since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime since,
+            @Parameter(description = "Gzip the output files") @RequestParam(defaultValue = "${app.export.gzip:true}") boolean gzip,
+            HttpServletRequest request) {
+        try {
+            List<String> resourceTypes = types == null || types.isBlank() ? List.of() : Arrays.asList(types.split(","));
+            LocalDateTime sinceLocal = since == null ? null
+                    : since.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            String requestUrl = ServletUriComponentsBuilder.fromRequest(request).toUriString();
+            BulkExportStatusResponse status = bulkExportService.startExport(resourceTypes, sinceLocal, gzip, requestUrl);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.CONTENT_LOCATION, statusUrl(status.getJobId()))
+                    .body(ApiResponse.success(status, "Bulk export started"));
+        } catch (Exception e) {
+            log.error("Error starting bulk export of types: {}", types, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to start bulk export: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the status of a bulk export, or its manifest once complete
+     */
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get bulk export status", description = "202 with progress while running, the manifest when complete")
+    public ResponseEntity<?> getStatus(@Parameter(description = "Export job ID") @PathVariable String jobId) {
+        BulkExportStatusResponse status;
+        try {
+            status = bulkExportService.getStatus(jobId);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        }
+        if (status.getStatus() == ExportStatus.IN_PROGRESS) {
+            long exported = status.getExported().values().stream().mapToLong(Long::longValue).sum();
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header("X-Progress", exported + " resources exported, " + status.getFiles().size() + " of "
+                            + status.getTypes().size() + " types complete")
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(ApiResponse.success(status, "Bulk export in progress"));
+        }
+        if (status.getStatus() != ExportStatus.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Bulk export " + status.getStatus().name().toLowerCase() + ": " + status.getError()));
+        }
+        BulkExportManifest manifest = BulkExportManifest.builder()
+                .transactionTime(status.getTransactionTime().atZone(ZoneId.systemDefault())
+                        .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME))
+                .request(status.getRequest())
+                .requiresAccessToken(true)
+                .output(status.getFiles().stream()
+                        .map(file -> BulkExportManifest.Output.builder()
+                                .type(file.getType())
+                                .url(statusUrl(jobId) + "/" + file.getFileName())
+                                .count(file.getCount())
+                                .build())
+                        .toList())
+                .error(List.of())
+                .build();
+        return ResponseEntity.ok(manifest);
+    }
+
+    /**
+     * Cancel or delete a bulk export
+     */
+    @DeleteMapping("/{jobId}")
+    @Operation(summary = "Delete bulk export", description = "Cancel a running export, or delete a finished one, with its files")
+    public ResponseEntity<ApiResponse<Void>> deleteExport(@Parameter(description = "Export job ID") @PathVariable String jobId) {
+        try {
+            bulkExportService.deleteExport(jobId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("Bulk export deleted"));
+        } catch (Exception e) {
+            log.error("Error deleting bulk export: {}", jobId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to delete bulk export: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Download an export file; Range requests get partial content
+     */
+    @GetMapping("/{jobId}/{fileName:.+}")
+    @Operation(summary = "Download bulk export file", description = "One NDJSON file of a completed export; supports Range requests")
+    public ResponseEntity<Resource> getFile(
+            @Parameter(description = "Export job ID") @PathVariable String jobId,
+            @Parameter(description = "File name from the manifest") @PathVariable String fileName) {
+        Path file;
+        try {
+            file = bulkExportService.getFile(jobId, fileName);
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(fileName.endsWith(".gz") ? GZIP : NDJSON)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(new FileSystemResource(file));
+    }
+
+    private static String statusUrl(String jobId) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/patients/$export/{jobId}")
+                .buildAndExpand(jobId)
+                .toUriString();
+    }
+}
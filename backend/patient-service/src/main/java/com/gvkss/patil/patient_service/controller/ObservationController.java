@@ -0,0 +1,108 @@
+package com.gvkss.patil.patient_service.controller;
+
+import com.gvkss.patil.patient_service.dto.ApiResponse;
+import com.gvkss.patil.patient_service.dto.ObservationBatchRequest;
+import com.gvkss.patil.patient_service.dto.ObservationBucket;
+import com.gvkss.patil.patient_service.dto.ObservationPoint;
+import com.gvkss.patil.patient_service.dto.ObservationStatsResponse;
+import com.gvkss.patil.patient_service.service.ObservationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Observation Controller for vital signs and lab value time series
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/patients/observations")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Observations", description = "Vital signs and lab value time series APIs")
+public class ObservationController {
+
+    private final ObservationService observationService;
+
+    /**
+     * Ingest a batch of device observations
+     */
+    @PostMapping("/batch")
+    @Operation(summary = "Ingest observations", description = "Store a batch of observations reported by a device")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> ingest(@Valid @RequestBody ObservationBatchRequest request) {
+        try {
+            int stored = observationService.ingest(request);
+            return ResponseEntity.ok(ApiResponse.success(Map.of("stored", stored), "Observations stored successfully"));
+        } catch (Exception e) {
+            log.error("Error storing observations from device: {}", request.getDeviceId(), e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to store observations: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get observations of a patient in a time range
+     */
+    @GetMapping("/{patientId}/{metric}")
+    @Operation(summary = "Get observations", description = "Observations of one metric of a patient in [from, to), oldest first")
+    public ResponseEntity<ApiResponse<List<ObservationPoint>>> getObservations(
+            @Parameter(description = "Patient ID") @PathVariable Long patientId,
+            @Parameter(description = "Metric, e.g. heart_rate") @PathVariable String metric,
+            @Parameter(description = "Range start, inclusive") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Range end, exclusive") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            List<ObservationPoint> points = observationService.getObservations(patientId, metric, from, to);
+            return ResponseEntity.ok(ApiResponse.success(points, "Observations retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving {} observations for patient: {}", metric, patientId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve observations: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get downsampled observations of a patient in a time range
+     */
+    @GetMapping("/{patientId}/{metric}/buckets")
+    @Operation(summary = "Get observation buckets", description = "Min, max and average of one metric of a patient per bucket of [from, to)")
+    public ResponseEntity<ApiResponse<List<ObservationBucket>>> getBuckets(
+            @Parameter(description = "Patient ID") @PathVariable Long patientId,
+            @Parameter(description = "Metric, e.g. heart_rate") @PathVariable String metric,
+            @Parameter(description = "Range start, inclusive") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Range end, exclusive") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Bucket width as an ISO-8601 duration") @RequestParam(defaultValue = "PT1H") Duration bucket) {
+        try {
+            List<ObservationBucket> buckets = observationService.getBuckets(patientId, metric, from, to, bucket);
+            return ResponseEntity.ok(ApiResponse.success(buckets, "Observation buckets retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving {} observation buckets for patient: {}", metric, patientId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve observation buckets: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get observation store statistics
+     */
+    @GetMapping("/stats")
+    @Operation(summary = "Get observation statistics", description = "Pending samples, compressed blocks and bytes per sample")
+    public ResponseEntity<ApiResponse<ObservationStatsResponse>> getStats() {
+        try {
+            ObservationStatsResponse stats = observationService.getStats();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Observation statistics retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving observation statistics", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve observation statistics: " + e.getMessage()));
+        }
+    }
+}
@@ -2,9 +2,15 @@ package com.gvkss.patil.patient_service.controller;
 
 import com.gvkss.patil.patient_service.dto.*;
 import com.gvkss.patil.patient_service.entity.Patient;
+import com.gvkss.patil.patient_service.exception.AppointmentConflictException;
 import com.gvkss.patil.patient_service.service.PatientService;
 import com.gvkss.patil.patient_service.service.MedicalRecordService;
 import com.gvkss.patil.patient_service.service.AppointmentService;
+import com.gvkss.patil.patient_service.service.AppointmentReminderService;
+import com.gvkss.patil.patient_service.service.PatientTimelineService;
+import com.gvkss.patil.patient_service.service.MedicalRecordSearchService;
+import com.gvkss.patil.patient_service.service.PatientMatchService;
+import com.gvkss.patil.patient_service.service.PatientImportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -13,10 +19,13 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -34,9 +43,20 @@ import java.util.Map;
 @Tag(name = "Patient Management", description = "Healthcare patient management APIs")
 public class PatientController {
     
+    private static final Map<String, String> HEALTH = Map.of(
+            "status", "UP",
+            "service", "patient-service",
+            "message", "Healthcare Patient Service is running");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+    
     private final PatientService patientService;
     private final MedicalRecordService medicalRecordService;
     private final AppointmentService appointmentService;
+    private final AppointmentReminderService appointmentReminderService;
+    private final PatientTimelineService patientTimelineService;
+    private final MedicalRecordSearchService medicalRecordSearchService;
+    private final PatientMatchService patientMatchService;
+    private final PatientImportService patientImportService;
     
     /**
      * Health check endpoint
@@ -44,11 +64,7 @@ public class PatientController {
     @GetMapping("/health")
     @Operation(summary = "Health check", description = "Check if the patient service is running")
     public ResponseEntity<Map<String, String>> health() {
-        Map<String, String> response = new HashMap<>();
-        response.put("status", "UP");
-        response.put("service", "patient-service");
-        response.put("message", "Healthcare Patient Service is running");
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(HEALTH);
     }
     
     /**
@@ -56,21 +72,14 @@ public class PatientController {
      */
     @GetMapping("/{id}")
     @Operation(summary = "Get patient by ID", description = "Retrieve a specific patient by their ID")
-    public ResponseEntity<Map<String, Object>> getPatientById(
+    public ResponseEntity<ApiResponse<PatientResponse>> getPatientById(
             @Parameter(description = "Patient ID") @PathVariable Long id) {
         try {
             PatientResponse patient = patientService.getPatientById(id);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Patient retrieved successfully");
-            response.put("data", patient);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(patient, "Patient retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving patient: {}", id, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve patient: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve patient: " + e.getMessage()));
         }
     }
     
@@ -79,21 +88,14 @@ public class PatientController {
      */
     @GetMapping("/user/{userId}")
     @Operation(summary = "Get patient by user ID", description = "Retrieve a patient by their user ID")
-    public ResponseEntity<Map<String, Object>> getPatientByUserId(
+    public ResponseEntity<ApiResponse<PatientResponse>> getPatientByUserId(
             @Parameter(description = "User ID") @PathVariable Long userId) {
         try {
             PatientResponse patient = patientService.getPatientByUserId(userId);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Patient retrieved successfully");
-            response.put("data", patient);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(patient, "Patient retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving patient by user ID: {}", userId, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve patient: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve patient: " + e.getMessage()));
         }
     }
     
@@ -102,27 +104,17 @@ public class PatientController {
      */
     @GetMapping
     @Operation(summary = "Get all patients", description = "Retrieve all patients with pagination and sorting")
-    public ResponseEntity<Map<String, Object>> getAllPatients(
+    public ResponseEntity<ApiResponse<List<PatientResponse>>> getAllPatients(
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
             @Parameter(description = "Sort field") @RequestParam(defaultValue = "id") String sortBy,
             @Parameter(description = "Sort direction") @RequestParam(defaultValue = "asc") String sortDir) {
         try {
             Page<PatientResponse> patients = patientService.getAllPatients(page, size, sortBy, sortDir);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Patients retrieved successfully");
-            response.put("data", patients.getContent());
-            response.put("totalElements", patients.getTotalElements());
-            response.put("totalPages", patients.getTotalPages());
-            response.put("currentPage", patients.getNumber());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.page(patients, "Patients retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving patients", e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve patients: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve patients: " + e.getMessage()));
         }
     }
     
@@ -131,7 +123,7 @@ public class PatientController {
      */
     @GetMapping("/doctor/{doctorId}")
     @Operation(summary = "Get patients by doctor ID", description = "Retrieve all patients for a specific doctor")
-    public ResponseEntity<Map<String, Object>> getPatientsByDoctorId(
+    public ResponseEntity<ApiResponse<List<PatientResponse>>> getPatientsByDoctorId(
             @Parameter(description = "Doctor ID") @PathVariable Long doctorId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
@@ -139,20 +131,10 @@ public class PatientController {
             @RequestParam(defaultValue = "asc") String sortDir) {
         try {
             Page<PatientResponse> patients = patientService.getPatientsByDoctorId(doctorId, page, size, sortBy, sortDir);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Doctor patients retrieved successfully");
-            response.put("data", patients.getContent());
-            response.put("totalElements", patients.getTotalElements());
-            response.put("totalPages", patients.getTotalPages());
-            response.put("currentPage", patients.getNumber());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.page(patients, "Doctor patients retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving patients for doctor: {}", doctorId, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve doctor patients: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve doctor patients: " + e.getMessage()));
         }
     }
     
@@ -161,22 +143,15 @@ public class PatientController {
      */
     @PutMapping("/{id}")
     @Operation(summary = "Update patient", description = "Update an existing patient's information")
-    public ResponseEntity<Map<String, Object>> updatePatient(
+    public ResponseEntity<ApiResponse<PatientResponse>> updatePatient(
             @Parameter(description = "Patient ID") @PathVariable Long id,
             @Valid @RequestBody UpdatePatientRequest request) {
         try {
             PatientResponse patient = patientService.updatePatient(id, request);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Patient updated successfully");
-            response.put("data", patient);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(patient, "Patient updated successfully"));
         } catch (Exception e) {
             log.error("Error updating patient: {}", id, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to update patient: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to update patient: " + e.getMessage()));
         }
     }
     
@@ -185,22 +160,15 @@ public class PatientController {
      */
     @PostMapping("/user/{userId}")
     @Operation(summary = "Create patient profile", description = "Create a patient profile for a user")
-    public ResponseEntity<Map<String, Object>> createPatientProfile(
+    public ResponseEntity<ApiResponse<PatientResponse>> createPatientProfile(
             @Parameter(description = "User ID") @PathVariable Long userId,
             @Valid @RequestBody UpdatePatientRequest request) {
         try {
             PatientResponse patient = patientService.createPatient(userId, request);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Patient profile created successfully");
-            response.put("data", patient);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(patient, "Patient profile created successfully"));
         } catch (Exception e) {
             log.error("Error creating patient profile for user: {}", userId, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to create patient profile: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to create patient profile: " + e.getMessage()));
         }
     }
     
@@ -209,20 +177,132 @@ public class PatientController {
      */
     @GetMapping("/statistics")
     @Operation(summary = "Get patient statistics", description = "Get overall patient statistics")
-    public ResponseEntity<Map<String, Object>> getPatientStatistics() {
+    public ResponseEntity<ApiResponse<PatientStatisticsResponse>> getPatientStatistics() {
         try {
             PatientStatisticsResponse statistics = patientService.getPatientStatistics();
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Patient statistics retrieved successfully");
-            response.put("data", statistics);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(statistics, "Patient statistics retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving patient statistics", e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve patient statistics: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve patient statistics: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Recompute patient statistics
+     */
+    @PostMapping("/statistics/recompute")
+    @Operation(summary = "Recompute patient statistics", description = "Rebuild the patient statistics counters from the patients table")
+    public ResponseEntity<ApiResponse<PatientStatisticsResponse>> recomputePatientStatistics() {
+        try {
+            PatientStatisticsResponse statistics = patientService.recomputePatientStatistics();
+            return ResponseEntity.ok(ApiResponse.success(statistics, "Patient statistics recomputed successfully"));
+        } catch (Exception e) {
+            log.error("Error recomputing patient statistics", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to recompute patient statistics: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Bulk import patients
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @Operation(summary = "Bulk import patients", description = "Create patients from a CSV (header row of field names, including userId) or NDJSON upload; rejected rows are reported by line")
+    public ResponseEntity<ApiResponse<PatientImportResponse>> importPatients(
+            @Parameter(description = "text/csv or application/x-ndjson") @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) {
+        try {
+            PatientImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(CSV)
+                    ? PatientImportService.Format.CSV
+                    : PatientImportService.Format.NDJSON;
+            PatientImportResponse result = patientImportService.importPatients(body, format);
+            return ResponseEntity.ok(ApiResponse.success(result, "Patient import completed"));
+        } catch (Exception e) {
+            log.error("Error importing patients", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to import patients: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get probable duplicates of patient
+     */
+    @GetMapping("/{id}/duplicates")
+    @Operation(summary = "Get probable duplicates of patient", description = "Pending duplicate candidates involving a patient, best match first")
+    public ResponseEntity<ApiResponse<List<DuplicateCandidateResponse>>> getPatientDuplicates(
+            @Parameter(description = "Patient ID") @PathVariable Long id) {
+        try {
+            List<DuplicateCandidateResponse> duplicates = patientMatchService.getDuplicateCandidates(id);
+            return ResponseEntity.ok(ApiResponse.success(duplicates, "Duplicate candidates retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving duplicate candidates for patient: {}", id, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve duplicate candidates: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get probable duplicate patients
+     */
+    @GetMapping("/duplicates")
+    @Operation(summary = "Get probable duplicate patients", description = "Pending duplicate candidates across all patients, best match first")
+    public ResponseEntity<ApiResponse<List<DuplicateCandidateResponse>>> getDuplicates(
+            @Parameter(description = "Maximum number of candidates") @RequestParam(defaultValue = "50") int limit) {
+        try {
+            List<DuplicateCandidateResponse> duplicates = patientMatchService.getPendingCandidates(limit);
+            return ResponseEntity.ok(ApiResponse.success(duplicates, "Duplicate candidates retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving duplicate candidates", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve duplicate candidates: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Scan all patients for duplicates
+     */
+    @PostMapping("/duplicates/scan")
+    @Operation(summary = "Scan for duplicate patients", description = "Rebuild the master patient index and find probable duplicates across all patients")
+    public ResponseEntity<ApiResponse<DuplicateScanResponse>> scanDuplicates() {
+        try {
+            DuplicateScanResponse scan = patientMatchService.scanAll();
+            return ResponseEntity.ok(ApiResponse.success(scan, "Duplicate scan completed successfully"));
+        } catch (Exception e) {
+            log.error("Error scanning for duplicate patients", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to scan for duplicate patients: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Dismiss a duplicate candidate
+     */
+    @PostMapping("/duplicates/{patientId}/{duplicateId}/dismiss")
+    @Operation(summary = "Dismiss duplicate candidate", description = "Mark two patients as distinct so the pair is not raised again")
+    public ResponseEntity<ApiResponse<Void>> dismissDuplicate(
+            @Parameter(description = "Patient ID") @PathVariable Long patientId,
+            @Parameter(description = "Other patient ID") @PathVariable Long duplicateId) {
+        try {
+            patientMatchService.dismissCandidate(patientId, duplicateId);
+            return ResponseEntity.ok(ApiResponse.success("Duplicate candidate dismissed successfully"));
+        } catch (Exception e) {
+            log.error("Error dismissing duplicate candidate: {} / {}", patientId, duplicateId, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to dismiss duplicate candidate: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get patient timeline
+     */
+    @GetMapping("/{id}/timeline")
+    @Operation(summary = "Get patient timeline", description = "Profile plus medical records, appointments and claims in one feed, newest first; sources that fail or time out are listed and left out")
+    public ResponseEntity<ApiResponse<PatientTimelineResponse>> getPatientTimeline(
+            @Parameter(description = "Patient ID") @PathVariable Long id,
+            @Parameter(description = "Cursor from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Entries per page") @RequestParam(defaultValue = "20") int limit) {
+        try {
+            PatientTimelineResponse timeline = patientTimelineService.getTimeline(id, cursor, limit);
+            return ResponseEntity.ok(ApiResponse.success(timeline, timeline.isPartial()
+                    ? "Patient timeline retrieved with partial results"
+                    : "Patient timeline retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving timeline for patient: {}", id, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve patient timeline: " + e.getMessage()));
         }
     }
     
@@ -231,7 +311,7 @@ public class PatientController {
      */
     @GetMapping("/{id}/medical-records")
     @Operation(summary = "Get medical records for patient", description = "Retrieve all medical records for a specific patient")
-    public ResponseEntity<Map<String, Object>> getMedicalRecordsByPatientId(
+    public ResponseEntity<ApiResponse<List<MedicalRecordResponse>>> getMedicalRecordsByPatientId(
             @Parameter(description = "Patient ID") @PathVariable Long id,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
@@ -239,20 +319,10 @@ public class PatientController {
             @RequestParam(defaultValue = "asc") String sortDir) {
         try {
             Page<MedicalRecordResponse> records = medicalRecordService.getMedicalRecordsByPatientId(id, page, size, sortBy, sortDir);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Medical records retrieved successfully");
-            response.put("data", records.getContent());
-            response.put("totalElements", records.getTotalElements());
-            response.put("totalPages", records.getTotalPages());
-            response.put("currentPage", records.getNumber());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.page(records, "Medical records retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving medical records for patient: {}", id, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve medical records: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve medical records: " + e.getMessage()));
         }
     }
     
@@ -261,24 +331,54 @@ public class PatientController {
      */
     @PostMapping("/{id}/medical-records")
     @Operation(summary = "Create medical record", description = "Create a new medical record for a patient")
-    public ResponseEntity<Map<String, Object>> createMedicalRecord(
+    public ResponseEntity<ApiResponse<MedicalRecordResponse>> createMedicalRecord(
             @Parameter(description = "Patient ID") @PathVariable Long id,
             @Valid @RequestBody CreateMedicalRecordRequest request) {
         try {
             // Set patient ID from path variable
             request.setPatientId(id);
             MedicalRecordResponse record = medicalRecordService.createMedicalRecord(request);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Medical record created successfully");
-            response.put("data", record);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(record, "Medical record created successfully"));
         } catch (Exception e) {
             log.error("Error creating medical record for patient: {}", id, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to create medical record: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to create medical record: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Search medical records of patient
+     */
+    @GetMapping("/{id}/medical-records/search")
+    @Operation(summary = "Search medical records of patient", description = "Full-text search over one patient's diagnosis, treatment, prescription and notes, best match first")
+    public ResponseEntity<ApiResponse<MedicalRecordSearchResponse>> searchPatientMedicalRecords(
+            @Parameter(description = "Patient ID") @PathVariable Long id,
+            @Parameter(description = "Search text; supports \"phrases\", or and -exclusions") @RequestParam String q,
+            @Parameter(description = "Cursor from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Results per page") @RequestParam(defaultValue = "20") int limit) {
+        try {
+            MedicalRecordSearchResponse results = medicalRecordSearchService.search(q, id, cursor, limit);
+            return ResponseEntity.ok(ApiResponse.success(results, "Medical records searched successfully"));
+        } catch (Exception e) {
+            log.error("Error searching medical records for patient: {}", id, e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to search medical records: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Search medical records
+     */
+    @GetMapping("/medical-records/search")
+    @Operation(summary = "Search medical records", description = "Full-text search over diagnosis, treatment, prescription and notes of all patients, best match first")
+    public ResponseEntity<ApiResponse<MedicalRecordSearchResponse>> searchMedicalRecords(
+            @Parameter(description = "Search text; supports \"phrases\", or and -exclusions") @RequestParam String q,
+            @Parameter(description = "Cursor from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Results per page") @RequestParam(defaultValue = "20") int limit) {
+        try {
+            MedicalRecordSearchResponse results = medicalRecordSearchService.search(q, null, cursor, limit);
+            return ResponseEntity.ok(ApiResponse.success(results, "Medical records searched successfully"));
+        } catch (Exception e) {
+            log.error("Error searching medical records", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to search medical records: " + e.getMessage()));
         }
     }
     
@@ -287,7 +387,7 @@ public class PatientController {
      */
     @GetMapping("/{id}/appointments")
     @Operation(summary = "Get appointments for patient", description = "Retrieve all appointments for a specific patient")
-    public ResponseEntity<Map<String, Object>> getAppointmentsByPatientId(
+    public ResponseEntity<ApiResponse<List<AppointmentResponse>>> getAppointmentsByPatientId(
             @Parameter(description = "Patient ID") @PathVariable Long id,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
@@ -295,20 +395,10 @@ public class PatientController {
             @RequestParam(defaultValue = "asc") String sortDir) {
         try {
             Page<AppointmentResponse> appointments = appointmentService.getAppointmentsByPatientId(id, page, size, sortBy, sortDir);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Appointments retrieved successfully");
-            response.put("data", appointments.getContent());
-            response.put("totalElements", appointments.getTotalElements());
-            response.put("totalPages", appointments.getTotalPages());
-            response.put("currentPage", appointments.getNumber());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.page(appointments, "Appointments retrieved successfully"));
         } catch (Exception e) {
             log.error("Error retrieving appointments for patient: {}", id, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to retrieve appointments: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve appointments: " + e.getMessage()));
         }
     }
     
@@ -316,25 +406,52 @@ public class PatientController {
      * Schedule appointment
      */
     @PostMapping("/{id}/appointments")
-    @Operation(summary = "Schedule appointment", description = "Schedule a new appointment for a patient")
-    public ResponseEntity<Map<String, Object>> scheduleAppointment(
+    @Operation(summary = "Schedule appointment", description = "Schedule a new appointment for a patient; a slot overlapping another booking of the doctor is rejected with 409 and alternative slots")
+    public ResponseEntity<ApiResponse<?>> scheduleAppointment(
             @Parameter(description = "Patient ID") @PathVariable Long id,
             @Valid @RequestBody ScheduleAppointmentRequest request) {
         try {
             // Set patient ID from path variable
             request.setPatientId(id);
             AppointmentResponse appointment = appointmentService.scheduleAppointment(request);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Appointment scheduled successfully");
-            response.put("data", appointment);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResponse.success(appointment, "Appointment scheduled successfully"));
+        } catch (AppointmentConflictException e) {
+            log.info("Appointment for patient {} conflicts with an existing booking: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error("Failed to schedule appointment: " + e.getMessage(), e.getAlternatives()));
         } catch (Exception e) {
             log.error("Error scheduling appointment for patient: {}", id, e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Failed to schedule appointment: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to schedule appointment: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get appointment reminder statistics
+     */
+    @GetMapping("/appointments/reminders/stats")
+    @Operation(summary = "Get reminder statistics", description = "Throughput and lag of the appointment reminder dispatcher")
+    public ResponseEntity<ApiResponse<ReminderStatsResponse>> getReminderStats() {
+        try {
+            ReminderStatsResponse stats = appointmentReminderService.getStats();
+            return ResponseEntity.ok(ApiResponse.success(stats, "Reminder statistics retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving reminder statistics", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to retrieve reminder statistics: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Dispatch due appointment reminders
+     */
+    @PostMapping("/appointments/reminders/dispatch")
+    @Operation(summary = "Dispatch due reminders", description = "Send reminders for due appointments now instead of waiting for the next scheduled run")
+    public ResponseEntity<ApiResponse<ReminderStatsResponse>> dispatchReminders() {
+        try {
+            appointmentReminderService.dispatch();
+            return ResponseEntity.ok(ApiResponse.success(appointmentReminderService.getStats(), "Reminders dispatched successfully"));
+        } catch (Exception e) {
+            log.error("Error dispatching reminders", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to dispatch reminders: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package com.gvkss.patil.patient_service.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Serializer for {@link ApiResponse}.
+ * Field names and success messages are written from pre-encoded {@link SerializedString}s,
+ * and {@code data} is handed straight to the configured serializer for its type,
+ * so no intermediate map is built or walked per request.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public class ApiResponseSerializer extends StdSerializer<ApiResponse<?>> {
+
+    private static final SerializedString SUCCESS = new SerializedString("success");
+    private static final SerializedString MESSAGE = new SerializedString("message");
+    private static final SerializedString DATA = new SerializedString("data");
+    private static final SerializedString TOTAL_ELEMENTS = new SerializedString("totalElements");
+    private static final SerializedString TOTAL_PAGES = new SerializedString("totalPages");
+    private static final SerializedString CURRENT_PAGE = new SerializedString("currentPage");
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ApiResponseSerializer() {
+        super((Class) ApiResponse.class);
+    }
+
+    @Override
+    public void serialize(ApiResponse<?> value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+
+        gen.writeFieldName(SUCCESS);
+        gen.writeBoolean(value.isSuccess());
+
+        gen.writeFieldName(MESSAGE);
+        if (value.getEncodedMessage() != null) {
+            gen.writeString(value.getEncodedMessage());
+        } else {
+            gen.writeString(value.getMessage());
+        }
+
+        // Responses built with data keep the key even when it is null, as the map envelope did
+        if (value.isHasData()) {
+            gen.writeFieldName(DATA);
+            provider.defaultSerializeValue(value.getData(), gen);
+        }
+
+        if (value.getTotalElements() != null) {
+            gen.writeFieldName(TOTAL_ELEMENTS);
+            gen.writeNumber(value.getTotalElements());
+            gen.writeFieldName(TOTAL_PAGES);
+            gen.writeNumber(value.getTotalPages());
+            gen.writeFieldName(CURRENT_PAGE);
+            gen.writeNumber(value.getCurrentPage());
+        }
+
+        gen.writeEndObject();
+    }
+}
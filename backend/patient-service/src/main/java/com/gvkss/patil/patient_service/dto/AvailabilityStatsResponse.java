@@ -0,0 +1,34 @@
+package com.gvkss.patil.patient_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Availability Stats Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityStatsResponse {
+    
+    private boolean loaded;
+    private int doctors;
+    private int specialties;
+    private LocalDate firstDay;
+    private int horizonDays;
+    private LocalDateTime lastRebuiltAt;
+    private long lastRebuildMillis;
+    private long bookingsApplied;
+    private long releasesApplied;
+    private long conflictsRejected;
+}
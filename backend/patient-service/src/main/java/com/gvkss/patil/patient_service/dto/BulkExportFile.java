@@ -0,0 +1,25 @@
+package com.gvkss.patil.patient_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bulk Export File DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkExportFile {
+    
+    private String type;
+    private String fileName;
+    private long count;
+    private long bytes;
+}
@@ -0,0 +1,39 @@
+package com.gvkss.patil.patient_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Bulk Export Manifest DTO, the FHIR bulk data completion response
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkExportManifest {
+    
+    private String transactionTime;
+    private String request;
+    private boolean requiresAccessToken;
+    private List<Output> output;
+    private List<Output> error;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Output {
+        
+        private String type;
+        private String url;
+        private long count;
+    }
+}
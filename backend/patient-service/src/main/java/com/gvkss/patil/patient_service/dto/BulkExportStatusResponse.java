@@ -0,0 +1,40 @@
+package com.gvkss.patil.patient_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk Export Status Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkExportStatusResponse {
+    
+    private String jobId;
+    private String request;
+    private ExportStatus status;
+    private List<String> types;
+    private LocalDateTime since;
+    private boolean gzip;
+    private LocalDateTime transactionTime;
+    private LocalDateTime completedAt;
+    private Map<String, Long> exported;
+    private List<BulkExportFile> files;
+    private String error;
+    
+    public enum ExportStatus {
+        IN_PROGRESS, COMPLETED, FAILED, CANCELLED
+    }
+}
@@ -0,0 +1,29 @@
+package com.gvkss.patil.patient_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Duplicate Candidate Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateCandidateResponse {
+    
+    private Long patientId;
+    private Long duplicateId;
+    private double score;
+    private String reasons;
+    private String status;
+    private LocalDateTime detectedAt;
+}
@@ -0,0 +1,28 @@
+package com.gvkss.patil.patient_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Duplicate Scan Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateScanResponse {
+    
+    private long patients;
+    private long blockingKeys;
+    private long blocks;
+    private long skippedBlocks;
+    private long comparisons;
+    private long candidates;
+    private long durationMillis;
+}
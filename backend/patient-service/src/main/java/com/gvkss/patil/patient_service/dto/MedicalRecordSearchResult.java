@@ -0,0 +1,38 @@
+package com.gvkss.patil.patient_service.dto;
+
+import com.gvkss.patil.patient_service.entity.MedicalRecord;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Medical Record Search Result DTO
+ * 
+ * Highlights are fragments of the record text with matches wrapped in {@code <mark>} tags; the
+ * record text itself is not escaped, so clients must escape it apart from the tags.
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MedicalRecordSearchResult {
+    
+    private Long id;
+    private Long patientId;
+    private Long doctorId;
+    private String recordType;
+    private LocalDate visitDate;
+    private MedicalRecord.RecordStatus status;
+    private float rank;
+    private String diagnosisHighlight;
+    private String treatmentHighlight;
+    private String prescriptionHighlight;
+    private String notesHighlight;
+}
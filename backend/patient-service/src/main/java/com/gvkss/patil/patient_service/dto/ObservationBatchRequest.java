@@ -0,0 +1,31 @@
+package com.gvkss.patil.patient_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Observation Batch Request DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ObservationBatchRequest {
+    
+    @Size(max = 100, message = "Device ID cannot exceed 100 characters")
+    private String deviceId;
+    
+    @NotEmpty(message = "Samples are required")
+    @Size(max = 10000, message = "A batch cannot exceed 10000 samples")
+    private List<@Valid ObservationSampleRequest> samples;
+}
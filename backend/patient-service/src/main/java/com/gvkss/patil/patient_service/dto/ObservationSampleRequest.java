@@ -0,0 +1,36 @@
+package com.gvkss.patil.patient_service.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Observation Sample Request DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ObservationSampleRequest {
+    
+    @NotNull(message = "Patient ID is required")
+    private Long patientId;
+    
+    @NotBlank(message = "Metric is required")
+    @Pattern(regexp = "[A-Za-z0-9_.-]{1,50}", message = "Metric must be 1-50 letters, digits, '_', '.' or '-'")
+    private String metric;
+    
+    @NotNull(message = "Timestamp is required")
+    private LocalDateTime timestamp;
+    
+    @NotNull(message = "Value is required")
+    private Double value;
+}
@@ -0,0 +1,29 @@
+package com.gvkss.patil.patient_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Observation Stats Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ObservationStatsResponse {
+    
+    private long pendingSamples;
+    private long blocks;
+    private long compressedSamples;
+    private long compressedBytes;
+    private double bytesPerSample;
+    private long samplesIngested;
+    private long samplesCompacted;
+    private long compactionRuns;
+}
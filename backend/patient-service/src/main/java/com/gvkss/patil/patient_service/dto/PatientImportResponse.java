@@ -0,0 +1,30 @@
+package com.gvkss.patil.patient_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Patient Import Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientImportResponse {
+    
+    private long rows;
+    private long imported;
+    private long rejected;
+    private List<PatientImportError> errors;
+    private boolean errorsTruncated;
+    private DuplicateScanResponse duplicateScan;
+    private long durationMillis;
+}
@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Patient Response DTO
@@ -25,6 +26,9 @@ public class PatientResponse {
     private Long id;
     private Long userId;
     private String patientNumber;
+    private String firstName;
+    private String lastName;
+    private String phoneNumber;
     private LocalDate dateOfBirth;
     private Patient.Gender gender;
     private String bloodType;
@@ -47,4 +51,7 @@ public class PatientResponse {
     private String genderDisplayName;
     private String statusDisplayName;
     private Integer age;
+    
+    // Probable duplicates found when the profile was created or updated
+    private List<DuplicateCandidateResponse> possibleDuplicates;
 }
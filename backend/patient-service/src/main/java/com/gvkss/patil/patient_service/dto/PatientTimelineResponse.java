@@ -0,0 +1,28 @@
+package com.gvkss.patil.patient_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Patient Timeline Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientTimelineResponse {
+    
+    private PatientResponse patient;
+    private List<TimelineEntry> entries;
+    private String nextCursor;
+    private boolean partial;
+    private List<String> unavailableSources;
+}
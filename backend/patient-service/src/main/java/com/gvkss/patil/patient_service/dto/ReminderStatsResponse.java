@@ -0,0 +1,37 @@
+package com.gvkss.patil.patient_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reminder Stats Response DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderStatsResponse {
+    
+    private boolean enabled;
+    private long leadTimeMinutes;
+    private int batchSize;
+    private long remindersSent;
+    private long batchesSent;
+    private long batchesFailed;
+    private LocalDateTime lastRunAt;
+    private long lastRunMillis;
+    private int lastRunSent;
+    private double lastRunPerSecond;
+    private long lastRunMaxLagMillis;
+    private long maxLagMillis;
+    private long pendingReminders;
+    private long oldestPendingLagMillis;
+}
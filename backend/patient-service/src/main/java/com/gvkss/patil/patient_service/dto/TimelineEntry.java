@@ -0,0 +1,40 @@
+package com.gvkss.patil.patient_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Timeline Entry DTO
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelineEntry {
+    
+    /**
+     * Entry types; at equal times entries are ordered by type, later constants first
+     */
+    public enum EntryType {
+        MEDICAL_RECORD,
+        APPOINTMENT,
+        CLAIM
+    }
+    
+    private EntryType type;
+    private Long id;
+    private LocalDateTime occurredAt;
+    private String reference;
+    private String title;
+    private String status;
+    private String description;
+    private Long doctorId;
+}
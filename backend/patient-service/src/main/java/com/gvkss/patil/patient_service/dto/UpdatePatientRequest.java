@@ -22,6 +22,15 @@ import java.time.LocalDate;
 @AllArgsConstructor
 public class UpdatePatientRequest {
     
+    @Size(max = 50, message = "First name cannot exceed 50 characters")
+    private String firstName;
+    
+    @Size(max = 50, message = "Last name cannot exceed 50 characters")
+    private String lastName;
+    
+    @Pattern(regexp = "^[+]?[0-9]{10,15}$", message = "Invalid phone number format")
+    private String phoneNumber;
+    
     @Past(message = "Date of birth must be in the past")
     private LocalDate dateOfBirth;
     
@@ -58,7 +58,8 @@ public class Appointment {
     @Column(name = "notes", columnDefinition = "TEXT")
     private String notes;
     
-    @Column(name = "reminder_sent")
+    // Only AppointmentReminderService sets this, so entity saves can never clear it
+    @Column(name = "reminder_sent", updatable = false)
     private Boolean reminderSent = false;
     
     @Column(name = "cancellation_reason", columnDefinition = "TEXT")
@@ -36,6 +36,15 @@ public class Patient {
     @Column(name = "patient_number", unique = true, nullable = false, length = 50)
     private String patientNumber;
     
+    @Column(name = "first_name", length = 50)
+    private String firstName;
+    
+    @Column(name = "last_name", length = 50)
+    private String lastName;
+    
+    @Column(name = "phone_number", length = 20)
+    private String phoneNumber;
+    
     @Column(name = "date_of_birth", nullable = false)
     private LocalDate dateOfBirth;
     
@@ -0,0 +1,29 @@
+package com.gvkss.patil.patient_service.exception;
+
+import com.gvkss.patil.patient_service.dto.AvailableSlotResponse;
+
+import java.util.List;
+
+/**
+ * Raised when a booking overlaps another booking of the same doctor
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public class AppointmentConflictException extends RuntimeException {
+
+    private final List<AvailableSlotResponse> alternatives;
+
+    public AppointmentConflictException(String message, List<AvailableSlotResponse> alternatives) {
+        super(message);
+        this.alternatives = alternatives;
+    }
+
+    /**
+     * Free slots of the same doctor to offer instead
+     */
+    public List<AvailableSlotResponse> getAlternatives() {
+        return alternatives;
+    }
+}
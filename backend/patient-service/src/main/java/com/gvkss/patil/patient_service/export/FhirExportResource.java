@@ -0,0 +1,316 @@
+package com.gvkss.patil.patient_service.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * FHIR Export Resource
+ *
+ * The resource types of a bulk export, each with the query that reads its rows and the mapping of
+ * one row to a FHIR R4 resource, written straight to a JSON generator. Patients map to Patient,
+ * medical records to Encounter (with treatment, prescription and notes as extensions) and
+ * appointments to Appointment. Timestamps carry the server's zone offset.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public enum FhirExportResource {
+
+    PATIENT("Patient", "patients", "id, patient_number, first_name, last_name, phone_number, date_of_birth, gender, " +
+            "emergency_contact_name, emergency_contact_phone, emergency_contact_relationship, primary_doctor_id, status, updated_at",
+            null) {
+        @Override
+        public void write(JsonGenerator json, ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeStringField("resourceType", "Patient");
+            writeIdAndMeta(json, rs);
+            json.writeArrayFieldStart("identifier");
+            json.writeStartObject();
+            json.writeStringField("system", PATIENT_NUMBER_SYSTEM);
+            json.writeStringField("value", rs.getString("patient_number"));
+            json.writeEndObject();
+            json.writeEndArray();
+            String status = rs.getString("status");
+            json.writeBooleanField("active", "ACTIVE".equals(status));
+            String firstName = rs.getString("first_name");
+            String lastName = rs.getString("last_name");
+            if (firstName != null || lastName != null) {
+                json.writeArrayFieldStart("name");
+                json.writeStartObject();
+                writeOptional(json, "family", lastName);
+                if (firstName != null) {
+                    json.writeArrayFieldStart("given");
+                    json.writeString(firstName);
+                    json.writeEndArray();
+                }
+                json.writeEndObject();
+                json.writeEndArray();
+            }
+            writePhone(json, rs.getString("phone_number"));
+            json.writeStringField("gender", rs.getString("gender").toLowerCase(Locale.ROOT));
+            json.writeStringField("birthDate", rs.getDate("date_of_birth").toLocalDate().toString());
+            if ("DECEASED".equals(status)) {
+                json.writeBooleanField("deceasedBoolean", true);
+            }
+            String contactName = rs.getString("emergency_contact_name");
+            String contactPhone = rs.getString("emergency_contact_phone");
+            if (contactName != null || contactPhone != null) {
+                json.writeArrayFieldStart("contact");
+                json.writeStartObject();
+                String relationship = rs.getString("emergency_contact_relationship");
+                if (relationship != null) {
+                    json.writeArrayFieldStart("relationship");
+                    writeText(json, relationship);
+                    json.writeEndArray();
+                }
+                if (contactName != null) {
+                    json.writeFieldName("name");
+                    writeText(json, contactName);
+                }
+                writePhone(json, contactPhone);
+                json.writeEndObject();
+                json.writeEndArray();
+            }
+            long doctorId = rs.getLong("primary_doctor_id");
+            if (!rs.wasNull()) {
+                json.writeArrayFieldStart("generalPractitioner");
+                writeReference(json, "Practitioner", doctorId);
+                json.writeEndArray();
+            }
+            json.writeEndObject();
+        }
+    },
+
+    ENCOUNTER("Encounter", "medical_records", "id, patient_id, doctor_id, record_type, visit_date, diagnosis, " +
+            "diagnosis_code, treatment, prescription, notes, status, updated_at",
+            "status <> 'DELETED'") {
+        @Override
+        public void write(JsonGenerator json, ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeStringField("resourceType", "Encounter");
+            writeIdAndMeta(json, rs);
+            json.writeStringField("status", "finished");
+            json.writeObjectFieldStart("class");
+            json.writeStringField("system", ACT_CODE_SYSTEM);
+            json.writeStringField("code", "AMB");
+            json.writeEndObject();
+            json.writeArrayFieldStart("type");
+            writeText(json, rs.getString("record_type"));
+            json.writeEndArray();
+            json.writeFieldName("subject");
+            writeReference(json, "Patient", rs.getLong("patient_id"));
+            json.writeArrayFieldStart("participant");
+            json.writeStartObject();
+            json.writeFieldName("individual");
+            writeReference(json, "Practitioner", rs.getLong("doctor_id"));
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeObjectFieldStart("period");
+            json.writeStringField("start", rs.getDate("visit_date").toLocalDate().toString());
+            json.writeEndObject();
+            String diagnosis = rs.getString("diagnosis");
+            String diagnosisCode = rs.getString("diagnosis_code");
+            if (diagnosis != null || diagnosisCode != null) {
+                json.writeArrayFieldStart("reasonCode");
+                json.writeStartObject();
+                if (diagnosisCode != null) {
+                    json.writeArrayFieldStart("coding");
+                    json.writeStartObject();
+                    json.writeStringField("code", diagnosisCode);
+                    json.writeEndObject();
+                    json.writeEndArray();
+                }
+                writeOptional(json, "text", diagnosis);
+                json.writeEndObject();
+                json.writeEndArray();
+            }
+            String treatment = rs.getString("treatment");
+            String prescription = rs.getString("prescription");
+            String notes = rs.getString("notes");
+            if (treatment != null || prescription != null || notes != null) {
+                json.writeArrayFieldStart("extension");
+                writeExtension(json, "treatment", treatment);
+                writeExtension(json, "prescription", prescription);
+                writeExtension(json, "notes", notes);
+                json.writeEndArray();
+            }
+            json.writeEndObject();
+        }
+    },
+
+    APPOINTMENT("Appointment", "appointments", "id, patient_id, doctor_id, appointment_number, appointment_date, " +
+            "duration_minutes, appointment_type, status, reason, notes, cancellation_reason, updated_at",
+            null) {
+        @Override
+        public void write(JsonGenerator json, ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeStringField("resourceType", "Appointment");
+            writeIdAndMeta(json, rs);
+            json.writeArrayFieldStart("identifier");
+            json.writeStartObject();
+            json.writeStringField("system", APPOINTMENT_NUMBER_SYSTEM);
+            json.writeStringField("value", rs.getString("appointment_number"));
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeStringField("status", appointmentStatus(rs.getString("status")));
+            writeOptionalText(json, "cancelationReason", rs.getString("cancellation_reason"));
+            json.writeFieldName("appointmentType");
+            writeText(json, rs.getString("appointment_type"));
+            writeOptional(json, "description", rs.getString("reason"));
+            LocalDateTime start = rs.getTimestamp("appointment_date").toLocalDateTime();
+            int minutes = rs.getInt("duration_minutes");
+            json.writeStringField("start", instant(start));
+            json.writeStringField("end", instant(start.plusMinutes(minutes)));
+            json.writeNumberField("minutesDuration", minutes);
+            writeOptional(json, "comment", rs.getString("notes"));
+            json.writeArrayFieldStart("participant");
+            writeParticipant(json, "Patient", rs.getLong("patient_id"));
+            writeParticipant(json, "Practitioner", rs.getLong("doctor_id"));
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    };
+
+    private static final String PATIENT_NUMBER_SYSTEM = "urn:gvkss:patient-number";
+    private static final String APPOINTMENT_NUMBER_SYSTEM = "urn:gvkss:appointment-number";
+    private static final String EXTENSION_PREFIX = "urn:gvkss:medical-record:";
+    private static final String ACT_CODE_SYSTEM = "http://terminology.hl7.org/CodeSystem/v3-ActCode";
+    private static final DateTimeFormatter INSTANT = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    private final String resourceType;
+    private final String table;
+    private final String columns;
+    private final String condition;
+
+    FhirExportResource(String resourceType, String table, String columns, String condition) {
+        this.resourceType = resourceType;
+        this.table = table;
+        this.columns = columns;
+        this.condition = condition;
+    }
+
+    /**
+     * Write one row as a resource
+     */
+    public abstract void write(JsonGenerator json, ResultSet rs) throws SQLException, IOException;
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    /**
+     * Query for the rows to export; with since, it takes one timestamp parameter
+     */
+    public String query(boolean since) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM ").append(table);
+        if (condition != null || since) {
+            sql.append(" WHERE ");
+            if (condition != null) {
+                sql.append(condition).append(since ? " AND " : "");
+            }
+            if (since) {
+                sql.append("updated_at >= ?");
+            }
+        }
+        return sql.toString();
+    }
+
+    /**
+     * The resource of a FHIR type name
+     */
+    public static FhirExportResource fromResourceType(String resourceType) {
+        return Arrays.stream(values())
+                .filter(resource -> resource.resourceType.equals(resourceType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported resource type: " + resourceType));
+    }
+
+    private static void writeIdAndMeta(JsonGenerator json, ResultSet rs) throws SQLException, IOException {
+        json.writeStringField("id", Long.toString(rs.getLong("id")));
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        if (updatedAt != null) {
+            json.writeObjectFieldStart("meta");
+            json.writeStringField("lastUpdated", instant(updatedAt.toLocalDateTime()));
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeReference(JsonGenerator json, String type, long id) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("reference", type + "/" + id);
+        json.writeEndObject();
+    }
+
+    private static void writeParticipant(JsonGenerator json, String type, long id) throws IOException {
+        json.writeStartObject();
+        json.writeFieldName("actor");
+        writeReference(json, type, id);
+        json.writeStringField("status", "accepted");
+        json.writeEndObject();
+    }
+
+    private static void writePhone(JsonGenerator json, String phone) throws IOException {
+        if (phone == null) {
+            return;
+        }
+        json.writeArrayFieldStart("telecom");
+        json.writeStartObject();
+        json.writeStringField("system", "phone");
+        json.writeStringField("value", phone);
+        json.writeEndObject();
+        json.writeEndArray();
+    }
+
+    private static void writeText(JsonGenerator json, String text) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("text", text);
+        json.writeEndObject();
+    }
+
+    private static void writeOptionalText(JsonGenerator json, String field, String text) throws IOException {
+        if (text != null) {
+            json.writeFieldName(field);
+            writeText(json, text);
+        }
+    }
+
+    private static void writeOptional(JsonGenerator json, String field, String value) throws IOException {
+        if (value != null) {
+            json.writeStringField(field, value);
+        }
+    }
+
+    private static void writeExtension(JsonGenerator json, String name, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        json.writeStartObject();
+        json.writeStringField("url", EXTENSION_PREFIX + name);
+        json.writeStringField("valueString", value);
+        json.writeEndObject();
+    }
+
+    private static String appointmentStatus(String status) {
+        return switch (status) {
+            case "IN_PROGRESS" -> "arrived";
+            case "COMPLETED" -> "fulfilled";
+            case "CANCELLED" -> "cancelled";
+            case "NO_SHOW" -> "noshow";
+            default -> "booked";
+        };
+    }
+
+    private static String instant(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).format(INSTANT);
+    }
+}
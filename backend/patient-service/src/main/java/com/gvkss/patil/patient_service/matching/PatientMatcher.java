@@ -0,0 +1,201 @@
+package com.gvkss.patil.patient_service.matching;
+
+import com.gvkss.patil.patient_service.entity.Patient;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Patient Matcher
+ *
+ * Blocking keys and fuzzy scoring for the master patient index. Two patients are only compared
+ * when they share a blocking key:
+ * <ul>
+ *   <li>date of birth with the Soundex code of either name, so swapped first and last names still meet</li>
+ *   <li>the phone number's last ten digits</li>
+ *   <li>both name codes with the birth year, for typos in day or month of birth</li>
+ * </ul>
+ * Compared pairs get a weighted score: Jaro-Winkler on names (the better of straight and swapped
+ * order), date of birth (exact, or one field or day/month swapped), phone and gender.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class PatientMatcher {
+
+    private static final double NAME_WEIGHT = 0.45;
+    private static final double BIRTH_DATE_WEIGHT = 0.30;
+    private static final double PHONE_WEIGHT = 0.15;
+    private static final double GENDER_WEIGHT = 0.10;
+    private static final int PHONE_DIGITS = 10;
+    private static final int MIN_PHONE_DIGITS = 7;
+
+    /**
+     * The normalized identity fields of one patient
+     */
+    public record Demographics(long patientId, String firstName, String lastName, LocalDate dateOfBirth,
+                               Patient.Gender gender, String phone) {
+
+        public static Demographics of(long patientId, String firstName, String lastName, LocalDate dateOfBirth,
+                                      Patient.Gender gender, String phoneNumber) {
+            return new Demographics(patientId, normalizeName(firstName), normalizeName(lastName), dateOfBirth,
+                    gender, normalizePhone(phoneNumber));
+        }
+
+        public static Demographics of(Patient patient) {
+            return of(patient.getId(), patient.getFirstName(), patient.getLastName(), patient.getDateOfBirth(),
+                    patient.getGender(), patient.getPhoneNumber());
+        }
+    }
+
+    /**
+     * Score of a compared pair, from 0 to 1, with the fields that agreed
+     */
+    public record Match(double score, String reasons) {
+    }
+
+    private PatientMatcher() {
+    }
+
+    /**
+     * Blocking keys of a patient, sorted; empty when there is nothing to match on
+     */
+    public static List<String> blockingKeys(Demographics patient) {
+        TreeSet<String> keys = new TreeSet<>();
+        String first = Soundex.encode(patient.firstName());
+        String last = Soundex.encode(patient.lastName());
+        if (patient.dateOfBirth() != null) {
+            if (first != null) {
+                keys.add("DN|" + patient.dateOfBirth() + "|" + first);
+            }
+            if (last != null) {
+                keys.add("DN|" + patient.dateOfBirth() + "|" + last);
+            }
+            if (first != null && last != null) {
+                String names = first.compareTo(last) <= 0 ? first + "|" + last : last + "|" + first;
+                keys.add("NY|" + names + "|" + patient.dateOfBirth().getYear());
+            }
+        }
+        if (patient.phone() != null) {
+            keys.add("P|" + patient.phone());
+        }
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * Score two patients, from 0 to 1
+     */
+    public static double similarity(Demographics a, Demographics b) {
+        return NAME_WEIGHT * nameScore(a, b) + BIRTH_DATE_WEIGHT * birthDateScore(a, b)
+                + PHONE_WEIGHT * phoneScore(a, b) + GENDER_WEIGHT * genderScore(a, b);
+    }
+
+    /**
+     * Score two patients and list the fields that agreed
+     */
+    public static Match score(Demographics a, Demographics b) {
+        List<String> reasons = new ArrayList<>();
+        double names = nameScore(a, b);
+        if (names > 0) {
+            reasons.add(String.format(Locale.ROOT, "name %.2f", names));
+        }
+        double birthDate = birthDateScore(a, b);
+        if (birthDate == 1.0) {
+            reasons.add("date of birth");
+        } else if (birthDate > 0) {
+            reasons.add("similar date of birth");
+        }
+        if (phoneScore(a, b) == 1.0) {
+            reasons.add("phone");
+        }
+        if (genderScore(a, b) == 1.0) {
+            reasons.add("gender");
+        }
+        return new Match(similarity(a, b), String.join(", ", reasons));
+    }
+
+    /**
+     * Upper-case letters only, accents removed; null when nothing is left
+     */
+    static String normalizeName(String name) {
+        if (name == null) {
+            return null;
+        }
+        String letters = Normalizer.normalize(name, Normalizer.Form.NFD)
+                .replaceAll("[^\\p{Alpha}]", "")
+                .toUpperCase(Locale.ROOT);
+        return letters.isEmpty() ? null : letters;
+    }
+
+    /**
+     * The last ten digits, so numbers with and without a country code agree; null when too short
+     */
+    static String normalizePhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        String digits = phone.replaceAll("\\D", "");
+        if (digits.length() < MIN_PHONE_DIGITS) {
+            return null;
+        }
+        return digits.length() > PHONE_DIGITS ? digits.substring(digits.length() - PHONE_DIGITS) : digits;
+    }
+
+    /**
+     * The better of straight and swapped first and last names
+     */
+    private static double nameScore(Demographics a, Demographics b) {
+        return Math.max(
+                nameSimilarity(a.firstName(), b.firstName(), a.lastName(), b.lastName()),
+                nameSimilarity(a.firstName(), b.lastName(), a.lastName(), b.firstName()));
+    }
+
+    private static double birthDateScore(Demographics a, Demographics b) {
+        if (a.dateOfBirth() == null || b.dateOfBirth() == null) {
+            return 0.0;
+        }
+        if (a.dateOfBirth().equals(b.dateOfBirth())) {
+            return 1.0;
+        }
+        return nearBirthDate(a.dateOfBirth(), b.dateOfBirth()) ? 0.6 : 0.0;
+    }
+
+    /**
+     * A missing phone neither supports nor contradicts a match
+     */
+    private static double phoneScore(Demographics a, Demographics b) {
+        if (a.phone() == null || b.phone() == null) {
+            return 0.5;
+        }
+        return a.phone().equals(b.phone()) ? 1.0 : 0.0;
+    }
+
+    private static double genderScore(Demographics a, Demographics b) {
+        return a.gender() != null && a.gender() == b.gender() ? 1.0 : 0.0;
+    }
+
+    private static double nameSimilarity(String firstA, String firstB, String lastA, String lastB) {
+        if (firstA == null || firstB == null || lastA == null || lastB == null) {
+            return 0.0;
+        }
+        return (JaroWinkler.similarity(firstA, firstB) + JaroWinkler.similarity(lastA, lastB)) / 2.0;
+    }
+
+    /**
+     * Same year with day and month swapped, or two of year, month and day equal
+     */
+    private static boolean nearBirthDate(LocalDate a, LocalDate b) {
+        if (a.getYear() == b.getYear() && a.getMonthValue() == b.getDayOfMonth() && a.getDayOfMonth() == b.getMonthValue()) {
+            return true;
+        }
+        int equalFields = (a.getYear() == b.getYear() ? 1 : 0)
+                + (a.getMonthValue() == b.getMonthValue() ? 1 : 0)
+                + (a.getDayOfMonth() == b.getDayOfMonth() ? 1 : 0);
+        return equalFields == 2;
+    }
+}
@@ -0,0 +1,53 @@
+package com.gvkss.patil.patient_service.matching;
+
+/**
+ * American Soundex phonetic code: the first letter followed by three digits for the consonant
+ * sounds, so names that sound alike (Smith, Smyth, Schmidt) share a code. Letters separated only
+ * by H or W count once; vowels separate repeated sounds. Non-letters are ignored.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class Soundex {
+
+    //                                     ABCDEFGHIJKLMNOPQRSTUVWXYZ
+    private static final String CODES = "01230120022455012623010202";
+
+    private Soundex() {
+    }
+
+    /**
+     * Soundex code of a name, or null when it has no letters
+     */
+    public static String encode(String name) {
+        if (name == null) {
+            return null;
+        }
+        StringBuilder code = new StringBuilder(4);
+        char previous = 0;
+        for (int i = 0; i < name.length() && code.length() < 4; i++) {
+            char c = Character.toUpperCase(name.charAt(i));
+            if (c < 'A' || c > 'Z') {
+                continue;
+            }
+            char digit = CODES.charAt(c - 'A');
+            if (code.length() == 0) {
+                code.append(c);
+            } else if (digit != '0' && digit != previous) {
+                code.append(digit);
+            }
+            // H and W do not separate equal codes; vowels do
+            if (c != 'H' && c != 'W') {
+                previous = digit;
+            }
+        }
+        if (code.length() == 0) {
+            return null;
+        }
+        while (code.length() < 4) {
+            code.append('0');
+        }
+        return code.toString();
+    }
+}
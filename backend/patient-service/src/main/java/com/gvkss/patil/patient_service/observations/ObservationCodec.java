@@ -0,0 +1,235 @@
+package com.gvkss.patil.patient_service.observations;
+
+import java.util.Arrays;
+
+/**
+ * Observation Codec
+ *
+ * Compresses a time-ordered run of (timestamp, value) samples into one block, Gorilla style.
+ * Timestamps (epoch milliseconds) are stored as delta-of-deltas in variable-width buckets, so a
+ * device reporting on a steady interval costs one bit per timestamp. Values are XORed with the
+ * previous value and only the meaningful bits are stored, reusing the previous leading/trailing
+ * zero window when it still fits, so repeated or slowly changing readings cost one to a dozen
+ * bits. Values round-trip bit for bit, NaN and -0.0 included.
+ *
+ * Block layout: sample count (32 bits), first timestamp and first value (64 bits each), then one
+ * timestamp and one value code per further sample.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+public final class ObservationCodec {
+
+    private ObservationCodec() {
+    }
+
+    /**
+     * Encode count samples; times must be ascending
+     */
+    public static byte[] encode(long[] times, double[] values, int count) {
+        BitWriter out = new BitWriter(16 + count * 2);
+        out.write(count, 32);
+        if (count == 0) {
+            return out.toByteArray();
+        }
+        long previousTime = times[0];
+        long previousDelta = 0;
+        long previousBits = Double.doubleToRawLongBits(values[0]);
+        int previousLeading = Integer.MAX_VALUE;
+        int previousTrailing = 0;
+        out.write(previousTime, 64);
+        out.write(previousBits, 64);
+
+        for (int i = 1; i < count; i++) {
+            long delta = times[i] - previousTime;
+            if (delta < 0) {
+                throw new IllegalArgumentException("Timestamps must be ascending");
+            }
+            long deltaOfDelta = delta - previousDelta;
+            if (deltaOfDelta == 0) {
+                out.write(0b0, 1);
+            } else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+                out.write(0b10, 2);
+                out.write(deltaOfDelta, 7);
+            } else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+                out.write(0b110, 3);
+                out.write(deltaOfDelta, 9);
+            } else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+                out.write(0b1110, 4);
+                out.write(deltaOfDelta, 12);
+            } else if (deltaOfDelta >= Integer.MIN_VALUE && deltaOfDelta <= Integer.MAX_VALUE) {
+                out.write(0b11110, 5);
+                out.write(deltaOfDelta, 32);
+            } else {
+                out.write(0b11111, 5);
+                out.write(deltaOfDelta, 64);
+            }
+            previousTime = times[i];
+            previousDelta = delta;
+
+            long bits = Double.doubleToRawLongBits(values[i]);
+            long xor = bits ^ previousBits;
+            if (xor == 0) {
+                out.write(0b0, 1);
+            } else {
+                // Leading zeros are capped to fit in 5 bits
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (leading >= previousLeading && trailing >= previousTrailing) {
+                    out.write(0b10, 2);
+                    out.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                } else {
+                    int meaningful = 64 - leading - trailing;
+                    out.write(0b11, 2);
+                    out.write(leading, 5);
+                    // 64 meaningful bits do not fit in 6 bits and are written as 0
+                    out.write(meaningful & 63, 6);
+                    out.write(xor >>> trailing, meaningful);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+            previousBits = bits;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Number of samples in a block
+     */
+    public static int count(byte[] block) {
+        return (int) new BitReader(block).read(32);
+    }
+
+    /**
+     * Decode a block into times and values, which must hold at least {@link #count} samples; returns the count
+     */
+    public static int decode(byte[] block, long[] times, double[] values) {
+        BitReader in = new BitReader(block);
+        int count = (int) in.read(32);
+        if (count == 0) {
+            return 0;
+        }
+        long time = in.read(64);
+        long bits = in.read(64);
+        long delta = 0;
+        int leading = 0;
+        int trailing = 0;
+        times[0] = time;
+        values[0] = Double.longBitsToDouble(bits);
+
+        for (int i = 1; i < count; i++) {
+            long deltaOfDelta;
+            if (in.read(1) == 0) {
+                deltaOfDelta = 0;
+            } else if (in.read(1) == 0) {
+                deltaOfDelta = in.readSigned(7);
+            } else if (in.read(1) == 0) {
+                deltaOfDelta = in.readSigned(9);
+            } else if (in.read(1) == 0) {
+                deltaOfDelta = in.readSigned(12);
+            } else if (in.read(1) == 0) {
+                deltaOfDelta = in.readSigned(32);
+            } else {
+                deltaOfDelta = in.read(64);
+            }
+            delta += deltaOfDelta;
+            time += delta;
+            times[i] = time;
+
+            if (in.read(1) == 1) {
+                if (in.read(1) == 1) {
+                    leading = (int) in.read(5);
+                    int meaningful = (int) in.read(6);
+                    if (meaningful == 0) {
+                        meaningful = 64;
+                    }
+                    trailing = 64 - leading - meaningful;
+                }
+                bits ^= in.read(64 - leading - trailing) << trailing;
+            }
+            values[i] = Double.longBitsToDouble(bits);
+        }
+        return count;
+    }
+
+    /**
+     * Appends bit fields, most significant bit first
+     */
+    private static final class BitWriter {
+
+        private long[] words;
+        private int position;
+
+        BitWriter(int expectedWords) {
+            this.words = new long[Math.max(4, expectedWords)];
+        }
+
+        /**
+         * Write the low width bits of value
+         */
+        void write(long value, int width) {
+            if (width == 0) {
+                return;
+            }
+            if (width < 64) {
+                value &= (1L << width) - 1;
+            }
+            int index = position >>> 6;
+            if (index + 1 >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            int free = 64 - (position & 63);
+            if (width <= free) {
+                words[index] |= value << (free - width);
+            } else {
+                words[index] |= value >>> (width - free);
+                words[index + 1] |= value << (64 - (width - free));
+            }
+            position += width;
+        }
+
+        byte[] toByteArray() {
+            byte[] bytes = new byte[(position + 7) >>> 3];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) (words[i >>> 3] >>> (56 - ((i & 7) << 3)));
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Reads bit fields written by {@link BitWriter}
+     */
+    private static final class BitReader {
+
+        private final byte[] bytes;
+        private int position;
+
+        BitReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long read(int width) {
+            long value = 0;
+            int remaining = width;
+            while (remaining > 0) {
+                int index = position >>> 3;
+                int offset = position & 7;
+                int take = Math.min(8 - offset, remaining);
+                int current = index < bytes.length ? bytes[index] & 0xFF : 0;
+                int chunk = (current >>> (8 - offset - take)) & ((1 << take) - 1);
+                value = (value << take) | chunk;
+                position += take;
+                remaining -= take;
+            }
+            return value;
+        }
+
+        long readSigned(int width) {
+            long value = read(width);
+            return (value << (64 - width)) >> (64 - width);
+        }
+    }
+}
@@ -99,4 +99,10 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
      */
     @Query("SELECT a.appointmentDate FROM Appointment a WHERE a.doctorId = :doctorId AND a.appointmentDate BETWEEN :startDate AND :endDate AND a.status IN ('SCHEDULED', 'CONFIRMED', 'IN_PROGRESS')")
     List<LocalDateTime> findBookedTimeSlotsForDoctor(@Param("doctorId") Long doctorId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    /**
+     * Find appointments of a patient before an (appointmentDate, id) position, latest first
+     */
+    @Query("SELECT a FROM Appointment a WHERE a.patientId = :patientId AND (a.appointmentDate < :before OR (a.appointmentDate = :before AND a.id < :beforeId)) ORDER BY a.appointmentDate DESC, a.id DESC")
+    List<Appointment> findAppointmentsByPatientIdBefore(@Param("patientId") Long patientId, @Param("before") LocalDateTime before, @Param("beforeId") Long beforeId, Pageable pageable);
 }
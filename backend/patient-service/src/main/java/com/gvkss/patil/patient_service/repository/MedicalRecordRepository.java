@@ -82,4 +82,10 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
      * Find medical records by diagnosis code
      */
     List<MedicalRecord> findByDiagnosisCode(String diagnosisCode);
+    
+    /**
+     * Find medical records of a patient before a (visitDate, id) position, newest first
+     */
+    @Query("SELECT mr FROM MedicalRecord mr WHERE mr.patientId = :patientId AND (mr.visitDate < :beforeDate OR (mr.visitDate = :beforeDate AND mr.id < :beforeId)) ORDER BY mr.visitDate DESC, mr.id DESC")
+    List<MedicalRecord> findMedicalRecordsByPatientIdBefore(@Param("patientId") Long patientId, @Param("beforeDate") LocalDate beforeDate, @Param("beforeId") Long beforeId, Pageable pageable);
 }
@@ -0,0 +1,535 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.availability.BookingIntervals;
+import com.gvkss.patil.patient_service.availability.SlotCalendar;
+import com.gvkss.patil.patient_service.client.UserClient;
+import com.gvkss.patil.patient_service.dto.AvailabilityStatsResponse;
+import com.gvkss.patil.patient_service.dto.AvailableSlotResponse;
+import com.gvkss.patil.patient_service.entity.Appointment;
+import com.gvkss.patil.patient_service.exception.AppointmentConflictException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Appointment Availability Service
+ *
+ * Answers "next free slots" for a doctor, or for any doctor of a specialty, from in-memory
+ * {@link SlotCalendar} bitsets covering a rolling horizon of days. Calendars are built from
+ * doctor working hours and booked appointments, kept current by the appointment writes of this
+ * node after they commit, and rebuilt from the database on an interval to pick up other nodes'
+ * bookings, new doctors and the next day of the horizon. Doctors and their specialties come from
+ * user-service's directory, read at every rebuild; if user-service cannot be reached the last
+ * directory read is kept, so calendars stay up while it is down. Changes made while a rebuild is reading
+ * the database are journaled and replayed onto the new calendars; booking and releasing slots
+ * are idempotent, so replaying a change the rebuild already saw is harmless.
+ *
+ * Alongside the calendars it keeps each doctor's exact booked intervals in a
+ * {@link BookingIntervals} set, so a booking that overlaps a known one is turned away, with
+ * alternative slots, before it reaches the database. A booking in progress holds its interval
+ * until its transaction completes, which stops two requests on this node from both passing the
+ * check. Other nodes' bookings show up at the next rebuild; until then the exclusion constraint on
+ * appointments is what keeps them apart.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class AppointmentAvailabilityService {
+
+    private static final Set<Appointment.AppointmentStatus> BLOCKING_STATUSES = EnumSet.of(
+            Appointment.AppointmentStatus.SCHEDULED,
+            Appointment.AppointmentStatus.CONFIRMED,
+            Appointment.AppointmentStatus.IN_PROGRESS);
+
+    // Matches the longest appointment ScheduleAppointmentRequest accepts
+    private static final int MAX_DURATION_MINUTES = 240;
+
+    private static final String WORKING_HOURS_SQL =
+            "SELECT doctor_id, day_of_week, start_time, end_time FROM doctor_working_hours";
+    // Starts one day early so bookings running into the first day are seen
+    private static final String BOOKINGS_SQL =
+            "SELECT id, doctor_id, appointment_date, duration_minutes FROM appointments " +
+            "WHERE appointment_date >= ? AND appointment_date < ? " +
+            "AND status IN ('SCHEDULED', 'CONFIRMED', 'IN_PROGRESS')";
+    private static final String CONFLICT_SQL =
+            "SELECT COUNT(*) FROM appointments WHERE doctor_id = ? " +
+            "AND status IN ('SCHEDULED', 'CONFIRMED', 'IN_PROGRESS') " +
+            "AND appointment_date < ? AND appointment_date + duration_minutes * INTERVAL '1' MINUTE > ?";
+
+    private record Doctor(long id, String specialty) {
+    }
+
+    private record DoctorCalendar(long doctorId, String specialty, SlotCalendar calendar) {
+    }
+
+    private record Index(long firstDay, int days, Map<Long, DoctorCalendar> doctors,
+                         Map<String, DoctorCalendar[]> bySpecialty, Map<Long, BookingIntervals> bookings,
+                         LocalDateTime builtAt, long buildMillis) {
+    }
+
+    /**
+     * A booking or release; from and to are slots, start and end are epoch seconds
+     */
+    private record Change(long doctorId, long appointmentId, long from, long to, long start, long end, boolean release) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserClient userClient;
+    private final boolean enabled;
+    private final int horizonDays;
+    private final int maxResults;
+    private final int alternatives;
+    private final long[] defaultWeek;
+    private final Object rebuildLock = new Object();
+    private final ConcurrentLinkedQueue<Change> journal = new ConcurrentLinkedQueue<>();
+    private final LongAdder bookingsApplied = new LongAdder();
+    private final LongAdder releasesApplied = new LongAdder();
+    private final LongAdder conflictsRejected = new LongAdder();
+    private final Map<Long, BookingIntervals> holds = new ConcurrentHashMap<>();
+    private final AtomicLong holdIds = new AtomicLong();
+    private volatile boolean rebuilding;
+    private volatile Index index;
+    private volatile List<Doctor> doctorDirectory;
+
+    public AppointmentAvailabilityService(JdbcTemplate jdbcTemplate,
+                                          UserClient userClient,
+                                          @Value("${app.availability.enabled:true}") boolean enabled,
+                                          @Value("${app.availability.horizon-days:60}") int horizonDays,
+                                          @Value("${app.availability.max-results:100}") int maxResults,
+                                          @Value("${app.availability.alternatives:5}") int alternatives,
+                                          @Value("${app.availability.default-days:MONDAY,TUESDAY,WEDNESDAY,THURSDAY,FRIDAY}") String[] defaultDays,
+                                          @Value("${app.availability.default-start:09:00}") String defaultStart,
+                                          @Value("${app.availability.default-end:17:00}") String defaultEnd) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userClient = userClient;
+        this.enabled = enabled;
+        this.horizonDays = horizonDays;
+        this.maxResults = maxResults;
+        this.alternatives = alternatives;
+        this.defaultWeek = new long[7 * SlotCalendar.WORDS_PER_DAY];
+        for (String day : defaultDays) {
+            SlotCalendar.addWorkingHours(defaultWeek, DayOfWeek.valueOf(day.trim().toUpperCase(Locale.ROOT)).getValue(),
+                    LocalTime.parse(defaultStart), LocalTime.parse(defaultEnd));
+        }
+    }
+
+    /**
+     * Whether an appointment in this status holds its slots
+     */
+    public static boolean isBlocking(Appointment.AppointmentStatus status) {
+        return status != null && BLOCKING_STATUSES.contains(status);
+    }
+
+    /**
+     * Take an appointment's slots once the current transaction commits
+     */
+    public void booked(Appointment appointment) {
+        afterCommit(toChange(appointment, false));
+    }
+
+    /**
+     * Give an appointment's slots back once the current transaction commits
+     */
+    public void released(Appointment appointment) {
+        afterCommit(toChange(appointment, true));
+    }
+
+    /**
+     * Hold a doctor's time for a booking in progress until the current transaction completes;
+     * throws {@link AppointmentConflictException} if it overlaps a booking already known
+     */
+    public void hold(Long doctorId, LocalDateTime startTime, int durationMinutes) {
+        if (!enabled) {
+            return;
+        }
+        long start = second(startTime);
+        long end = start + durationMinutes * 60L;
+        BookingIntervals pending = holds.computeIfAbsent(doctorId, id -> new BookingIntervals());
+        // Negative ids keep holds apart from appointment ids
+        long holdId = -holdIds.incrementAndGet();
+        // Hold first, then look at committed bookings: a booking leaves the holds only after it is
+        // added to the committed set, so one of the two checks always sees it
+        if (pending.tryAdd(holdId, start, end) != BookingIntervals.NONE) {
+            throw conflict(doctorId, startTime, durationMinutes);
+        }
+        boolean held = false;
+        try {
+            Index current = index;
+            BookingIntervals known = current != null ? current.bookings().get(doctorId) : null;
+            if (known != null && known.findConflict(start, end) != BookingIntervals.NONE) {
+                if (overlapsInDatabase(doctorId, startTime, durationMinutes)) {
+                    throw conflict(doctorId, startTime, durationMinutes);
+                }
+                // Cancelled on another node since the last rebuild
+                known.removeOverlapping(start, end);
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        pending.remove(holdId, start);
+                    }
+                });
+                held = true;
+            }
+        } finally {
+            if (!held) {
+                pending.remove(holdId, start);
+            }
+        }
+    }
+
+    /**
+     * Conflict error for a requested booking, with the doctor's next free slots from that time
+     */
+    public AppointmentConflictException conflict(Long doctorId, LocalDateTime startTime, int durationMinutes) {
+        conflictsRejected.increment();
+        List<AvailableSlotResponse> suggestions;
+        try {
+            suggestions = findSlots(doctorId, startTime, durationMinutes, alternatives);
+        } catch (Exception e) {
+            suggestions = List.of();
+        }
+        return new AppointmentConflictException("Doctor " + doctorId + " is already booked at " + startTime, suggestions);
+    }
+
+    /**
+     * Next free slots of a doctor, earliest first
+     */
+    public List<AvailableSlotResponse> findSlots(Long doctorId, LocalDateTime from, int durationMinutes, int count) {
+        Index current = requireIndex();
+        DoctorCalendar doctor = current.doctors().get(doctorId);
+        if (doctor == null) {
+            throw new RuntimeException("Doctor not found with ID: " + doctorId);
+        }
+        validate(durationMinutes, count);
+        int length = SlotCalendar.slotsFor(durationMinutes);
+        int limit = Math.min(count, maxResults);
+        long[] starts = new long[limit];
+        int found;
+        synchronized (doctor.calendar()) {
+            found = doctor.calendar().findFree(startSlot(from), Long.MAX_VALUE, length, limit, starts, 0);
+        }
+        List<AvailableSlotResponse> slots = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            slots.add(toResponse(doctor, starts[i], durationMinutes));
+        }
+        return slots;
+    }
+
+    /**
+     * Next free slots across the doctors of a specialty, earliest first
+     */
+    public List<AvailableSlotResponse> findSlotsForSpecialty(String specialty, LocalDateTime from, int durationMinutes, int count) {
+        Index current = requireIndex();
+        DoctorCalendar[] doctors = current.bySpecialty().get(specialtyKey(specialty));
+        if (doctors == null) {
+            return List.of();
+        }
+        validate(durationMinutes, count);
+        int length = SlotCalendar.slotsFor(durationMinutes);
+        int limit = Math.min(count, maxResults);
+        long[] starts = new long[limit];
+        // Slot number in the high bits and doctor position in the low bits, so one sort orders both
+        long[] candidates = new long[limit * Math.min(doctors.length, 64)];
+        List<AvailableSlotResponse> slots = new ArrayList<>(limit);
+
+        // A day at a time: every slot found on one day is earlier than any on the next
+        long start = startSlot(from);
+        long end = (current.firstDay() + current.days()) * SlotCalendar.SLOTS_PER_DAY;
+        while (start < end && slots.size() < limit) {
+            long dayEnd = start - Math.floorMod(start, SlotCalendar.SLOTS_PER_DAY) + SlotCalendar.SLOTS_PER_DAY;
+            int needed = limit - slots.size();
+            int candidateCount = 0;
+            for (int d = 0; d < doctors.length; d++) {
+                SlotCalendar calendar = doctors[d].calendar();
+                int found;
+                synchronized (calendar) {
+                    found = calendar.findFree(start, dayEnd, length, needed, starts, 0);
+                }
+                if (candidateCount + found > candidates.length) {
+                    candidates = Arrays.copyOf(candidates, Math.max(candidates.length * 2, candidateCount + found));
+                }
+                for (int i = 0; i < found; i++) {
+                    candidates[candidateCount++] = (starts[i] << 20) | d;
+                }
+            }
+            Arrays.sort(candidates, 0, candidateCount);
+            for (int i = 0; i < candidateCount && slots.size() < limit; i++) {
+                slots.add(toResponse(doctors[(int) (candidates[i] & 0xFFFFF)], candidates[i] >>> 20, durationMinutes));
+            }
+            start = dayEnd;
+        }
+        return slots;
+    }
+
+    /**
+     * Get availability engine statistics
+     */
+    public AvailabilityStatsResponse getStats() {
+        Index current = index;
+        AvailabilityStatsResponse.AvailabilityStatsResponseBuilder stats = AvailabilityStatsResponse.builder()
+                .loaded(current != null)
+                .horizonDays(horizonDays)
+                .bookingsApplied(bookingsApplied.sum())
+                .releasesApplied(releasesApplied.sum())
+                .conflictsRejected(conflictsRejected.sum());
+        if (current != null) {
+            stats.doctors(current.doctors().size())
+                    .specialties(current.bySpecialty().size())
+                    .firstDay(LocalDate.ofEpochDay(current.firstDay()))
+                    .lastRebuiltAt(current.builtAt())
+                    .lastRebuildMillis(current.buildMillis());
+        }
+        return stats.build();
+    }
+
+    /**
+     * Build the calendars at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuild the calendars from the database, moving the horizon forward to today
+     */
+    @Scheduled(initialDelayString = "${app.availability.refresh-interval-ms:300000}",
+            fixedDelayString = "${app.availability.refresh-interval-ms:300000}")
+    public void refresh() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        synchronized (rebuildLock) {
+            long started = System.currentTimeMillis();
+            // Anything still journaled committed before this rebuild reads the database
+            journal.clear();
+            rebuilding = true;
+            try {
+                Index built = build(LocalDate.now().toEpochDay(), started);
+                index = built;
+                rebuilding = false;
+                // Changes committed while the database was read; some may already be in the new calendars
+                Change change;
+                while ((change = journal.poll()) != null) {
+                    apply(built, change);
+                }
+                log.info("Availability calendars rebuilt for {} doctors over {} days in {} ms",
+                        built.doctors().size(), built.days(), built.buildMillis());
+            } catch (Exception e) {
+                log.error("Failed to rebuild availability calendars", e);
+            } finally {
+                rebuilding = false;
+            }
+        }
+    }
+
+    /**
+     * Active doctors from user-service, or the last directory read if it cannot be reached; fails
+     * only when no directory has been read yet
+     */
+    private List<Doctor> doctors() {
+        try {
+            List<Doctor> doctors = userClient.getDoctors().stream()
+                    .map(entry -> new Doctor(((Number) entry.get("id")).longValue(), (String) entry.get("specialty")))
+                    .toList();
+            doctorDirectory = doctors;
+            return doctors;
+        } catch (RuntimeException e) {
+            List<Doctor> cached = doctorDirectory;
+            if (cached == null) {
+                throw e;
+            }
+            log.warn("Could not read the doctor directory, keeping the {} doctors read before: {}",
+                    cached.size(), e.getMessage());
+            return cached;
+        }
+    }
+
+    private Index build(long firstDay, long started) {
+        Map<Long, long[]> weeks = new HashMap<>();
+        jdbcTemplate.query(WORKING_HOURS_SQL, rs -> {
+            long[] week = weeks.computeIfAbsent(rs.getLong("doctor_id"), id -> new long[7 * SlotCalendar.WORDS_PER_DAY]);
+            SlotCalendar.addWorkingHours(week, rs.getInt("day_of_week"),
+                    rs.getTime("start_time").toLocalTime(), rs.getTime("end_time").toLocalTime());
+        });
+
+        Map<Long, DoctorCalendar> doctors = new HashMap<>();
+        Map<String, List<DoctorCalendar>> bySpecialty = new HashMap<>();
+        for (Doctor directoryEntry : doctors()) {
+            long doctorId = directoryEntry.id();
+            String specialty = directoryEntry.specialty();
+            DoctorCalendar doctor = new DoctorCalendar(doctorId, specialty,
+                    new SlotCalendar(firstDay, horizonDays, weeks.getOrDefault(doctorId, defaultWeek)));
+            doctors.put(doctorId, doctor);
+            if (specialty != null && !specialty.isBlank()) {
+                bySpecialty.computeIfAbsent(specialtyKey(specialty), key -> new ArrayList<>()).add(doctor);
+            }
+        }
+
+        LocalDate first = LocalDate.ofEpochDay(firstDay);
+        Map<Long, BookingIntervals> bookings = new ConcurrentHashMap<>();
+        jdbcTemplate.query(BOOKINGS_SQL, rs -> {
+            long doctorId = rs.getLong("doctor_id");
+            LocalDateTime startTime = rs.getTimestamp("appointment_date").toLocalDateTime();
+            int minutes = rs.getInt("duration_minutes");
+            long start = second(startTime);
+            bookings.computeIfAbsent(doctorId, id -> new BookingIntervals())
+                    .add(rs.getLong("id"), start, start + minutes * 60L);
+            DoctorCalendar doctor = doctors.get(doctorId);
+            if (doctor != null) {
+                long from = SlotCalendar.slotOf(startTime);
+                doctor.calendar().reserve(from, from + SlotCalendar.slotsFor(minutes));
+            }
+        }, Timestamp.valueOf(first.minusDays(1).atStartOfDay()), Timestamp.valueOf(first.plusDays(horizonDays).atStartOfDay()));
+
+        Map<String, DoctorCalendar[]> specialties = new HashMap<>();
+        bySpecialty.forEach((key, list) -> specialties.put(key, list.toArray(DoctorCalendar[]::new)));
+        return new Index(firstDay, horizonDays, doctors, specialties, bookings, LocalDateTime.now(),
+                System.currentTimeMillis() - started);
+    }
+
+    private void afterCommit(Change change) {
+        if (!enabled || change == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(change);
+                }
+            });
+        } else {
+            record(change);
+        }
+    }
+
+    private void record(Change change) {
+        if (rebuilding) {
+            journal.add(change);
+        }
+        Index current = index;
+        if (current != null) {
+            apply(current, change);
+        }
+    }
+
+    private void apply(Index target, Change change) {
+        if (change.release()) {
+            BookingIntervals booked = target.bookings().get(change.doctorId());
+            if (booked != null) {
+                booked.remove(change.appointmentId(), change.start());
+            }
+        } else {
+            target.bookings().computeIfAbsent(change.doctorId(), id -> new BookingIntervals())
+                    .add(change.appointmentId(), change.start(), change.end());
+        }
+        DoctorCalendar doctor = target.doctors().get(change.doctorId());
+        if (doctor == null) {
+            // Not a known doctor yet; the next rebuild picks the booking up from the database
+            return;
+        }
+        synchronized (doctor.calendar()) {
+            if (change.release()) {
+                doctor.calendar().release(change.from(), change.to());
+            } else {
+                doctor.calendar().reserve(change.from(), change.to());
+            }
+        }
+        (change.release() ? releasesApplied : bookingsApplied).increment();
+    }
+
+    private Change toChange(Appointment appointment, boolean release) {
+        if (appointment.getId() == null || appointment.getDoctorId() == null || appointment.getAppointmentDate() == null) {
+            return null;
+        }
+        int minutes = appointment.getDurationMinutes() != null ? appointment.getDurationMinutes() : 30;
+        long from = SlotCalendar.slotOf(appointment.getAppointmentDate());
+        long start = second(appointment.getAppointmentDate());
+        return new Change(appointment.getDoctorId(), appointment.getId(), from, from + SlotCalendar.slotsFor(minutes),
+                start, start + minutes * 60L, release);
+    }
+
+    private boolean overlapsInDatabase(Long doctorId, LocalDateTime startTime, int durationMinutes) {
+        Long count = jdbcTemplate.queryForObject(CONFLICT_SQL, Long.class, doctorId,
+                Timestamp.valueOf(startTime.plusMinutes(durationMinutes)), Timestamp.valueOf(startTime));
+        return count != null && count > 0;
+    }
+
+    private Index requireIndex() {
+        Index current = index;
+        if (!enabled || current == null) {
+            throw new RuntimeException("Doctor availability is not loaded");
+        }
+        return current;
+    }
+
+    private static void validate(int durationMinutes, int count) {
+        if (durationMinutes < SlotCalendar.SLOT_MINUTES || durationMinutes > MAX_DURATION_MINUTES) {
+            throw new RuntimeException("Duration must be between " + SlotCalendar.SLOT_MINUTES + " and "
+                    + MAX_DURATION_MINUTES + " minutes");
+        }
+        if (count < 1) {
+            throw new RuntimeException("Count must be at least 1");
+        }
+    }
+
+    private static long second(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long startSlot(LocalDateTime from) {
+        LocalDateTime now = LocalDateTime.now();
+        return SlotCalendar.slotAtOrAfter(from == null || from.isBefore(now) ? now : from);
+    }
+
+    private static AvailableSlotResponse toResponse(DoctorCalendar doctor, long slot, int durationMinutes) {
+        LocalDateTime start = SlotCalendar.timeOf(slot);
+        return AvailableSlotResponse.builder()
+                .doctorId(doctor.doctorId())
+                .specialty(doctor.specialty())
+                .startTime(start)
+                .endTime(start.plusMinutes(durationMinutes))
+                .durationMinutes(durationMinutes)
+                .build();
+    }
+
+    private static String specialtyKey(String specialty) {
+        return specialty.trim().toLowerCase(Locale.ROOT);
+    }
+}
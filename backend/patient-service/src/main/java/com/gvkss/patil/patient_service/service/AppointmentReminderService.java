@@ -0,0 +1,243 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.client.NotificationClient;
+import com.gvkss.patil.patient_service.dto.ReminderStatsResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appointment Reminder Service
+ *
+ * Sends a reminder for every scheduled or confirmed appointment starting within the lead time.
+ * Each run pages through the due appointments in (appointment_date, id) keyset order, soonest
+ * first. Every page is claimed with {@code FOR UPDATE SKIP LOCKED}, posted to notification-service
+ * as one batch and marked {@code reminder_sent} with a single UPDATE, all in one transaction. Any
+ * number of nodes can run the dispatcher at once: a page locked by one node is skipped by the
+ * others, and a node that dies mid-batch rolls back and leaves its page to the next run. Delivery
+ * is at least once; a batch is only re-sent if its UPDATE fails after the post succeeded.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class AppointmentReminderService {
+
+    private static final String DUE_FILTER =
+            "reminder_sent = FALSE AND status IN ('SCHEDULED', 'CONFIRMED') " +
+            "AND appointment_date > ? AND appointment_date <= ?";
+    private static final String CLAIM_SQL =
+            "SELECT a.id, a.appointment_number, a.patient_id, a.doctor_id, a.appointment_date, a.duration_minutes, " +
+            "a.appointment_type, a.created_at, (SELECT p.user_id FROM patients p WHERE p.id = a.patient_id) AS user_id " +
+            "FROM appointments a WHERE " + DUE_FILTER + " AND (a.appointment_date, a.id) > (?, ?) " +
+            "ORDER BY a.appointment_date, a.id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String MARK_SENT_SQL =
+            "UPDATE appointments SET reminder_sent = TRUE, updated_at = ? WHERE id = ANY (?)";
+    private static final String PENDING_SQL =
+            "SELECT COUNT(*), MIN(appointment_date) FROM appointments WHERE " + DUE_FILTER;
+
+    private record Reminder(long appointmentId, LocalDateTime appointmentDate, LocalDateTime dueAt,
+                            Map<String, Object> notification) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationClient notificationClient;
+    private final boolean enabled;
+    private final Duration leadTime;
+    private final int batchSize;
+    private final ReentrantLock runLock = new ReentrantLock();
+    private final LongAdder remindersSent = new LongAdder();
+    private final LongAdder batchesSent = new LongAdder();
+    private final LongAdder batchesFailed = new LongAdder();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunMillis;
+    private volatile int lastRunSent;
+    private volatile long lastRunMaxLagMillis;
+
+    public AppointmentReminderService(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      NotificationClient notificationClient,
+                                      @Value("${app.reminders.enabled:true}") boolean enabled,
+                                      @Value("${app.reminders.lead-time:PT24H}") Duration leadTime,
+                                      @Value("${app.reminders.batch-size:100}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.notificationClient = notificationClient;
+        this.enabled = enabled;
+        this.leadTime = leadTime;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Send reminders for every appointment now due, one claimed batch at a time
+     */
+    @Scheduled(initialDelayString = "${app.reminders.interval-ms:60000}",
+            fixedDelayString = "${app.reminders.interval-ms:60000}")
+    public void dispatchDueReminders() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            dispatch();
+        } catch (Exception e) {
+            log.error("Appointment reminder dispatch failed", e);
+        }
+    }
+
+    /**
+     * Run one dispatch pass now; returns the number of reminders sent
+     */
+    public int dispatch() {
+        if (!runLock.tryLock()) {
+            return 0;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime until = now.plus(leadTime);
+            LocalDateTime lastDate = now;
+            long lastId = 0L;
+            int sent = 0;
+            long runMaxLag = 0L;
+            while (true) {
+                LocalDateTime afterDate = lastDate;
+                long afterId = lastId;
+                List<Reminder> batch = new ArrayList<>();
+                Boolean delivered = transactionTemplate.execute(tx -> {
+                    batch.addAll(claim(now, until, afterDate, afterId));
+                    if (batch.isEmpty()) {
+                        return true;
+                    }
+                    if (!notificationClient.sendBatch(batch.stream().map(Reminder::notification).toList())) {
+                        tx.setRollbackOnly();
+                        return false;
+                    }
+                    markSent(batch);
+                    return true;
+                });
+                if (batch.isEmpty()) {
+                    break;
+                }
+                if (!Boolean.TRUE.equals(delivered)) {
+                    // Notification service is unreachable; leave the rest for the next run
+                    batchesFailed.increment();
+                    break;
+                }
+                LocalDateTime sentAt = LocalDateTime.now();
+                for (Reminder reminder : batch) {
+                    runMaxLag = Math.max(runMaxLag, Duration.between(reminder.dueAt(), sentAt).toMillis());
+                }
+                sent += batch.size();
+                remindersSent.add(batch.size());
+                batchesSent.increment();
+
+                Reminder last = batch.get(batch.size() - 1);
+                lastDate = last.appointmentDate();
+                lastId = last.appointmentId();
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+            long runMaxLagMillis = runMaxLag;
+            maxLagMillis.accumulateAndGet(runMaxLagMillis, Math::max);
+            lastRunAt = now;
+            lastRunMillis = System.currentTimeMillis() - started;
+            lastRunSent = sent;
+            lastRunMaxLagMillis = runMaxLagMillis;
+            if (sent > 0) {
+                log.info("Sent {} appointment reminders in {} ms (max lag {} ms)", sent, lastRunMillis, runMaxLagMillis);
+            }
+            return sent;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * Get reminder dispatch statistics
+     */
+    public ReminderStatsResponse getStats() {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp from = Timestamp.valueOf(now);
+        Timestamp until = Timestamp.valueOf(now.plus(leadTime));
+        Object[] pending = jdbcTemplate.queryForObject(PENDING_SQL,
+                (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getTimestamp(2)}, from, until);
+        long pendingCount = (Long) pending[0];
+        Timestamp earliest = (Timestamp) pending[1];
+        // The earliest pending appointment has been due the longest
+        long oldestPendingLag = earliest == null ? 0L
+                : Math.max(0L, Duration.between(earliest.toLocalDateTime().minus(leadTime), now).toMillis());
+        long runMillis = lastRunMillis;
+        return ReminderStatsResponse.builder()
+                .enabled(enabled)
+                .leadTimeMinutes(leadTime.toMinutes())
+                .batchSize(batchSize)
+                .remindersSent(remindersSent.sum())
+                .batchesSent(batchesSent.sum())
+                .batchesFailed(batchesFailed.sum())
+                .lastRunAt(lastRunAt)
+                .lastRunMillis(runMillis)
+                .lastRunSent(lastRunSent)
+                .lastRunPerSecond(runMillis > 0 ? lastRunSent * 1000.0 / runMillis : lastRunSent)
+                .lastRunMaxLagMillis(lastRunMaxLagMillis)
+                .maxLagMillis(maxLagMillis.get())
+                .pendingReminders(pendingCount)
+                .oldestPendingLagMillis(oldestPendingLag)
+                .build();
+    }
+
+    private List<Reminder> claim(LocalDateTime now, LocalDateTime until, LocalDateTime afterDate, long afterId) {
+        return jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> {
+            LocalDateTime appointmentDate = rs.getTimestamp("appointment_date").toLocalDateTime();
+            LocalDateTime createdAt = rs.getTimestamp("created_at").toLocalDateTime();
+            // Booked inside the lead time means due from the moment it was booked
+            LocalDateTime dueAt = appointmentDate.minus(leadTime);
+            if (createdAt.isAfter(dueAt)) {
+                dueAt = createdAt;
+            }
+            Map<String, Object> notification = new HashMap<>();
+            notification.put("type", "APPOINTMENT_REMINDER");
+            notification.put("userId", rs.getObject("user_id") != null ? rs.getLong("user_id") : null);
+            notification.put("patientId", rs.getLong("patient_id"));
+            notification.put("doctorId", rs.getLong("doctor_id"));
+            notification.put("appointmentId", rs.getLong("id"));
+            notification.put("appointmentNumber", rs.getString("appointment_number"));
+            notification.put("appointmentDate", appointmentDate.toString());
+            notification.put("durationMinutes", rs.getInt("duration_minutes"));
+            notification.put("title", "Upcoming appointment");
+            notification.put("message", "Reminder: your " + rs.getString("appointment_type").toLowerCase().replace('_', ' ')
+                    + " appointment " + rs.getString("appointment_number") + " is on " + appointmentDate);
+            return new Reminder(rs.getLong("id"), appointmentDate, dueAt, notification);
+        }, Timestamp.valueOf(now), Timestamp.valueOf(until), Timestamp.valueOf(afterDate), afterId, batchSize);
+    }
+
+    private void markSent(List<Reminder> batch) {
+        Long[] ids = batch.stream().map(Reminder::appointmentId).toArray(Long[]::new);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(MARK_SENT_SQL);
+            ps.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setArray(2, connection.createArrayOf("bigint", ids));
+            return ps;
+        });
+    }
+}
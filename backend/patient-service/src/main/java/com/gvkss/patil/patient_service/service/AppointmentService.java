@@ -6,6 +6,8 @@ import com.gvkss.patil.patient_service.entity.Appointment;
 import com.gvkss.patil.patient_service.repository.AppointmentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -13,10 +15,10 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -32,7 +34,14 @@ import java.util.stream.Collectors;
 @Transactional
 public class AppointmentService {
     
+    private static final String APPOINTMENT_NUMBER_PREFIX = "APT";
+    private static final String APPOINTMENT_NUMBER_SEQUENCE = "appointment_number_seq";
+    // exclusion_violation, raised by the appointments_doctor_no_overlap constraint
+    private static final String EXCLUSION_VIOLATION = "23P01";
+    
     private final AppointmentRepository appointmentRepository;
+    private final NumberAllocator numberAllocator;
+    private final AppointmentAvailabilityService appointmentAvailabilityService;
     
     /**
      * Schedule appointment
@@ -40,6 +49,10 @@ public class AppointmentService {
     public AppointmentResponse scheduleAppointment(ScheduleAppointmentRequest request) {
         log.info("Scheduling appointment for patient: {}", request.getPatientId());
         
+        // Turn away overlaps with known bookings before touching the database
+        int durationMinutes = request.getDurationMinutes() != null ? request.getDurationMinutes() : 30;
+        appointmentAvailabilityService.hold(request.getDoctorId(), request.getAppointmentDate(), durationMinutes);
+        
         // Generate unique appointment number
         String appointmentNumber = generateAppointmentNumber();
         
@@ -49,7 +62,7 @@ public class AppointmentService {
                 .doctorId(request.getDoctorId())
                 .appointmentNumber(appointmentNumber)
                 .appointmentDate(request.getAppointmentDate())
-                .durationMinutes(request.getDurationMinutes() != null ? request.getDurationMinutes() : 30)
+                .durationMinutes(durationMinutes)
                 .appointmentType(request.getAppointmentType())
                 .status(Appointment.AppointmentStatus.SCHEDULED)
                 .reason(request.getReason())
@@ -57,7 +70,8 @@ public class AppointmentService {
                 .reminderSent(false)
                 .build();
         
-        Appointment savedAppointment = appointmentRepository.save(appointment);
+        Appointment savedAppointment = saveBooking(appointment);
+        appointmentAvailabilityService.booked(savedAppointment);
         log.info("Appointment scheduled successfully with ID: {}", savedAppointment.getId());
         
         return convertToResponse(savedAppointment);
@@ -134,6 +148,21 @@ public class AppointmentService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Get appointments for patient before an (appointmentDate, id) position, latest first
+     */
+    @Transactional(readOnly = true)
+    public List<AppointmentResponse> getAppointmentsByPatientIdBefore(Long patientId, LocalDateTime before, Long beforeId, int limit) {
+        log.info("Fetching appointment timeline for patient: {} before {}", patientId, before);
+        
+        List<Appointment> appointments = appointmentRepository.findAppointmentsByPatientIdBefore(
+                patientId, before, beforeId, PageRequest.of(0, limit));
+        
+        return appointments.stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+    }
+    
     /**
      * Update appointment status
      */
@@ -142,6 +171,13 @@ public class AppointmentService {
         
         Appointment existingAppointment = appointmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Appointment not found with ID: " + id));
+        boolean wasBlocking = AppointmentAvailabilityService.isBlocking(existingAppointment.getStatus());
+        boolean isBlocking = AppointmentAvailabilityService.isBlocking(status);
+        if (!wasBlocking && isBlocking) {
+            // Reinstating an appointment takes its time back, which may since have been booked
+            appointmentAvailabilityService.hold(existingAppointment.getDoctorId(),
+                    existingAppointment.getAppointmentDate(), existingAppointment.getDurationMinutes());
+        }
         
         existingAppointment.setStatus(status);
         
@@ -153,7 +189,13 @@ public class AppointmentService {
             existingAppointment.setCancelledAt(LocalDateTime.now());
         }
         
-        Appointment updatedAppointment = appointmentRepository.save(existingAppointment);
+        Appointment updatedAppointment = !wasBlocking && isBlocking ?
+                saveBooking(existingAppointment) : appointmentRepository.save(existingAppointment);
+        if (wasBlocking && !isBlocking) {
+            appointmentAvailabilityService.released(updatedAppointment);
+        } else if (!wasBlocking && isBlocking) {
+            appointmentAvailabilityService.booked(updatedAppointment);
+        }
         log.info("Appointment status updated successfully: {}", updatedAppointment.getId());
         
         return convertToResponse(updatedAppointment);
@@ -167,24 +209,42 @@ public class AppointmentService {
         
         Appointment existingAppointment = appointmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Appointment not found with ID: " + id));
+        boolean wasBlocking = AppointmentAvailabilityService.isBlocking(existingAppointment.getStatus());
         
         existingAppointment.setStatus(Appointment.AppointmentStatus.CANCELLED);
         existingAppointment.setCancellationReason(cancellationReason);
         existingAppointment.setCancelledAt(LocalDateTime.now());
         
         Appointment cancelledAppointment = appointmentRepository.save(existingAppointment);
+        if (wasBlocking) {
+            appointmentAvailabilityService.released(cancelledAppointment);
+        }
         log.info("Appointment cancelled successfully: {}", cancelledAppointment.getId());
         
         return convertToResponse(cancelledAppointment);
     }
     
+    /**
+     * Insert or reinstate a booking, flushing so an overlap caught by the database surfaces as a conflict
+     */
+    private Appointment saveBooking(Appointment appointment) {
+        try {
+            return appointmentRepository.saveAndFlush(appointment);
+        } catch (DataIntegrityViolationException e) {
+            Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+            if (cause instanceof SQLException sqlException && EXCLUSION_VIOLATION.equals(sqlException.getSQLState())) {
+                throw appointmentAvailabilityService.conflict(appointment.getDoctorId(),
+                        appointment.getAppointmentDate(), appointment.getDurationMinutes());
+            }
+            throw e;
+        }
+    }
+    
     /**
      * Generate unique appointment number
      */
     private String generateAppointmentNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmm"));
-        String randomSuffix = UUID.randomUUID().toString().substring(0, 6).toUpperCase();
-        return "APT-" + timestamp + "-" + randomSuffix;
+        return numberAllocator.next(APPOINTMENT_NUMBER_PREFIX, APPOINTMENT_NUMBER_SEQUENCE);
     }
     
     /**
@@ -0,0 +1,331 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.gvkss.patil.patient_service.dto.BulkExportFile;
+import com.gvkss.patil.patient_service.dto.BulkExportStatusResponse;
+import com.gvkss.patil.patient_service.dto.BulkExportStatusResponse.ExportStatus;
+import com.gvkss.patil.patient_service.export.FhirExportResource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk Export Service
+ *
+ * Asynchronous FHIR bulk data export ($export). A job writes one NDJSON file per requested resource
+ * type, optionally gzipped, and the types are exported in parallel on a bounded pool. Each type is
+ * read in its own read-only repeatable-read transaction (so from the replica) through a JDBC cursor
+ * with a fixed fetch size, and every row is written straight to a buffered file channel, so memory
+ * use does not grow with the table. Files are written under a temporary name and renamed when
+ * complete. Jobs are held in memory on the node that runs them, and expire with their files after
+ * the retention period. With a replica configured, the export may trail the primary by up to
+ * app.datasource.replica.max-lag-ms while transactionTime is taken from the primary's clock, so a
+ * row committed just before transactionTime can be missing; incremental clients should pass a
+ * _since that far before the previous transactionTime.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class BulkExportService {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * State of one export job
+     */
+    private static final class ExportJob {
+
+        final String id;
+        final String request;
+        final List<FhirExportResource> resources;
+        final LocalDateTime since;
+        final boolean gzip;
+        final LocalDateTime transactionTime = LocalDateTime.now();
+        final Path directory;
+        final Map<FhirExportResource, AtomicLong> exported = new EnumMap<>(FhirExportResource.class);
+        final Map<FhirExportResource, BulkExportFile> files = new ConcurrentHashMap<>();
+        volatile ExportStatus status = ExportStatus.IN_PROGRESS;
+        volatile LocalDateTime completedAt;
+        volatile String error;
+
+        ExportJob(String id, String request, List<FhirExportResource> resources, LocalDateTime since, boolean gzip, Path directory) {
+            this.id = id;
+            this.request = request;
+            this.resources = resources;
+            this.since = since;
+            this.gzip = gzip;
+            this.directory = directory;
+            resources.forEach(resource -> exported.put(resource, new AtomicLong()));
+        }
+
+        String fileName(FhirExportResource resource) {
+            return resource.getResourceType() + (gzip ? ".ndjson.gz" : ".ndjson");
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+    private final Duration retention;
+    private final int maxActiveJobs;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    public BulkExportService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.export.directory:${java.io.tmpdir}/patient-exports}") Path directory,
+                             @Value("${app.export.fetch-size:1000}") int fetchSize,
+                             @Value("${app.export.retention:PT24H}") Duration retention,
+                             @Value("${app.export.max-active-jobs:4}") int maxActiveJobs,
+                             @Value("${app.export.threads:3}") int threads) {
+        // A copy with a fetch size, so PostgreSQL streams rows through a cursor instead of loading the table
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.directory = directory;
+        this.retention = retention;
+        this.maxActiveJobs = maxActiveJobs;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxActiveJobs * FhirExportResource.values().length), runnable -> {
+                    Thread thread = new Thread(runnable, "bulk-export-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Start an export of the given resource types (all when empty), changed since the given time if any
+     */
+    public BulkExportStatusResponse startExport(List<String> types, LocalDateTime since, boolean gzip, String request) {
+        List<FhirExportResource> resources = types == null || types.isEmpty()
+                ? List.of(FhirExportResource.values())
+                : types.stream().map(String::trim).distinct().map(FhirExportResource::fromResourceType).toList();
+        long active = jobs.values().stream().filter(job -> job.status == ExportStatus.IN_PROGRESS).count();
+        if (active >= maxActiveJobs) {
+            throw new RuntimeException("Too many exports in progress; try again later");
+        }
+
+        String id = UUID.randomUUID().toString();
+        ExportJob job = new ExportJob(id, request, resources, since, gzip, directory.resolve(id));
+        try {
+            Files.createDirectories(job.directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create export directory " + job.directory, e);
+        }
+        jobs.put(id, job);
+        log.info("Starting bulk export {} of {}", id, resources);
+
+        CompletableFuture<?>[] exports = resources.stream()
+                .map(resource -> CompletableFuture.runAsync(() -> export(job, resource), executor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(exports).whenComplete((ignored, failure) -> finish(job, failure));
+        return toResponse(job);
+    }
+
+    /**
+     * Get the status of an export
+     */
+    public BulkExportStatusResponse getStatus(String jobId) {
+        return toResponse(getJob(jobId));
+    }
+
+    /**
+     * Cancel an export, or delete a finished one, with its files
+     */
+    public void deleteExport(String jobId) {
+        ExportJob job = getJob(jobId);
+        if (job.status == ExportStatus.IN_PROGRESS) {
+            job.status = ExportStatus.CANCELLED;
+            job.completedAt = LocalDateTime.now();
+        }
+        jobs.remove(jobId);
+        deleteFiles(job);
+        log.info("Deleted bulk export {}", jobId);
+    }
+
+    /**
+     * Path of a completed export file
+     */
+    public Path getFile(String jobId, String fileName) {
+        ExportJob job = getJob(jobId);
+        if (job.status != ExportStatus.COMPLETED) {
+            throw new RuntimeException("Export is not complete: " + jobId);
+        }
+        return job.files.values().stream()
+                .filter(file -> file.getFileName().equals(fileName))
+                .findFirst()
+                .map(file -> job.directory.resolve(file.getFileName()))
+                .orElseThrow(() -> new RuntimeException("Export file not found: " + fileName));
+    }
+
+    /**
+     * Remove exports finished longer ago than the retention period
+     */
+    @Scheduled(fixedDelayString = "${app.export.cleanup-interval-ms:3600000}")
+    public void removeExpiredExports() {
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            if (job.completedAt == null || job.completedAt.isAfter(expiredBefore)) {
+                return false;
+            }
+            deleteFiles(job);
+            log.info("Expired bulk export {}", job.id);
+            return true;
+        });
+    }
+
+    private void export(ExportJob job, FhirExportResource resource) {
+        String fileName = job.fileName(resource);
+        Path part = job.directory.resolve(fileName + ".part");
+        AtomicLong exported = job.exported.get(resource);
+        String sql = resource.query(job.since != null);
+        Object[] args = job.since != null ? new Object[] {job.since} : new Object[0];
+
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             JsonGenerator json = JSON.createGenerator(output(channel, job.gzip))) {
+            json.setRootValueSeparator(null);
+            transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.query(sql, rs -> {
+                if (job.status != ExportStatus.IN_PROGRESS) {
+                    throw new IllegalStateException("Export " + job.status.name().toLowerCase());
+                }
+                try {
+                    resource.write(json, rs);
+                    json.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                exported.incrementAndGet();
+            }, args));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + part, e);
+        }
+
+        try {
+            Path file = Files.move(part, job.directory.resolve(fileName), StandardCopyOption.ATOMIC_MOVE);
+            job.files.put(resource, BulkExportFile.builder()
+                    .type(resource.getResourceType())
+                    .fileName(fileName)
+                    .count(exported.get())
+                    .bytes(Files.size(file))
+                    .build());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not complete " + part, e);
+        }
+        log.info("Bulk export {} wrote {} {} resources", job.id, exported.get(), resource.getResourceType());
+    }
+
+    private void finish(ExportJob job, Throwable failure) {
+        if (job.status != ExportStatus.IN_PROGRESS) {
+            deleteFiles(job);
+            return;
+        }
+        if (failure != null) {
+            Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+            log.error("Bulk export {} failed", job.id, cause);
+            job.error = cause.getMessage();
+            job.status = ExportStatus.FAILED;
+        } else {
+            job.status = ExportStatus.COMPLETED;
+            log.info("Bulk export {} completed", job.id);
+        }
+        job.completedAt = LocalDateTime.now();
+    }
+
+    private ExportJob getJob(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("Export not found: " + jobId);
+        }
+        return job;
+    }
+
+    private BulkExportStatusResponse toResponse(ExportJob job) {
+        Map<String, Long> exported = new LinkedHashMap<>();
+        List<BulkExportFile> files = new ArrayList<>();
+        for (FhirExportResource resource : job.resources) {
+            exported.put(resource.getResourceType(), job.exported.get(resource).get());
+            BulkExportFile file = job.files.get(resource);
+            if (file != null) {
+                files.add(file);
+            }
+        }
+        return BulkExportStatusResponse.builder()
+                .jobId(job.id)
+                .request(job.request)
+                .status(job.status)
+                .types(job.resources.stream().map(FhirExportResource::getResourceType).toList())
+                .since(job.since)
+                .gzip(job.gzip)
+                .transactionTime(job.transactionTime)
+                .completedAt(job.completedAt)
+                .exported(exported)
+                .files(files)
+                .error(job.error)
+                .build();
+    }
+
+    private static OutputStream output(FileChannel channel, boolean gzip) throws IOException {
+        OutputStream out = Channels.newOutputStream(channel);
+        return new BufferedOutputStream(gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out, BUFFER_SIZE);
+    }
+
+    private static void deleteFiles(ExportJob job) {
+        if (!Files.exists(job.directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(job.directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Could not delete files of bulk export {}", job.id, e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.dto.MedicalRecordSearchResponse;
+import com.gvkss.patil.patient_service.dto.MedicalRecordSearchResult;
+import com.gvkss.patil.patient_service.entity.MedicalRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Medical Record Search Service
+ *
+ * Full-text search over diagnosis, treatment, prescription and notes, backed by the weighted
+ * {@code search_vector} generated column and its GIN index. Queries use web search syntax
+ * (quoted phrases, {@code or}, {@code -word}). Results are ranked by {@code ts_rank_cd} and paged by
+ * a (rank, id) keyset cursor; highlights are built only for the rows of the page, and only for
+ * fields that match.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class MedicalRecordSearchService {
+
+    private static final String HEADLINE_OPTIONS =
+            "StartSel=<mark>, StopSel=</mark>, MaxWords=30, MinWords=10, MaxFragments=2, FragmentDelimiter=\" ... \"";
+
+    private static final String SEARCH_SQL =
+            "WITH query AS (SELECT websearch_to_tsquery('english', ?) AS q) " +
+            "SELECT page.id, page.patient_id, page.doctor_id, page.record_type, page.visit_date, page.status, page.rank, " +
+            highlight("diagnosis") + ", " + highlight("treatment") + ", " +
+            highlight("prescription") + ", " + highlight("notes") + " " +
+            "FROM (" +
+            "  SELECT * FROM (" +
+            "    SELECT m.id, m.patient_id, m.doctor_id, m.record_type, m.visit_date, m.status, " +
+            "           m.diagnosis, m.treatment, m.prescription, m.notes, ts_rank_cd(m.search_vector, query.q) AS rank " +
+            "    FROM medical_records m, query " +
+            "    WHERE m.search_vector @@ query.q AND m.status <> 'DELETED' %s" +
+            "  ) matches %s" +
+            "  ORDER BY matches.rank DESC, matches.id DESC LIMIT ?" +
+            ") page, query " +
+            "ORDER BY page.rank DESC, page.id DESC";
+    private static final String PATIENT_FILTER = "AND m.patient_id = ?";
+    private static final String AFTER_CURSOR = "WHERE matches.rank < ? OR (matches.rank = ? AND matches.id < ?)";
+
+    private record Cursor(float rank, long id) {
+
+        String encode() {
+            ByteBuffer buffer = ByteBuffer.allocate(12).putFloat(rank).putLong(id);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+                return new Cursor(buffer.getFloat(), buffer.getLong());
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid search cursor");
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxLimit;
+
+    public MedicalRecordSearchService(JdbcTemplate jdbcTemplate,
+                                      @Value("${app.search.max-limit:100}") int maxLimit) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Search medical records, optionally of one patient, best match first
+     */
+    @Transactional(readOnly = true)
+    public MedicalRecordSearchResponse search(String query, Long patientId, String cursor, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new RuntimeException("Search query must not be empty");
+        }
+        log.info("Searching medical records{} for: {}", patientId != null ? " of patient " + patientId : "", query);
+        int pageSize = Math.max(1, Math.min(limit, maxLimit));
+        Cursor after = cursor == null || cursor.isBlank() ? null : Cursor.decode(cursor);
+
+        String sql = String.format(SEARCH_SQL, patientId != null ? PATIENT_FILTER : "", after != null ? AFTER_CURSOR : "");
+        List<Object> args = new ArrayList<>();
+        args.add(query);
+        for (int i = 0; i < 4; i++) {
+            args.add(HEADLINE_OPTIONS);
+        }
+        if (patientId != null) {
+            args.add(patientId);
+        }
+        if (after != null) {
+            args.add(after.rank());
+            args.add(after.rank());
+            args.add(after.id());
+        }
+        args.add(pageSize + 1);
+
+        List<MedicalRecordSearchResult> results = jdbcTemplate.query(sql, (rs, rowNum) -> MedicalRecordSearchResult.builder()
+                .id(rs.getLong("id"))
+                .patientId(rs.getLong("patient_id"))
+                .doctorId(rs.getLong("doctor_id"))
+                .recordType(rs.getString("record_type"))
+                .visitDate(rs.getDate("visit_date").toLocalDate())
+                .status(MedicalRecord.RecordStatus.valueOf(rs.getString("status")))
+                .rank(rs.getFloat("rank"))
+                .diagnosisHighlight(rs.getString("diagnosis_highlight"))
+                .treatmentHighlight(rs.getString("treatment_highlight"))
+                .prescriptionHighlight(rs.getString("prescription_highlight"))
+                .notesHighlight(rs.getString("notes_highlight"))
+                .build(), args.toArray());
+
+        String nextCursor = null;
+        if (results.size() > pageSize) {
+            results = new ArrayList<>(results.subList(0, pageSize));
+            MedicalRecordSearchResult last = results.get(pageSize - 1);
+            nextCursor = new Cursor(last.getRank(), last.getId()).encode();
+        }
+        return MedicalRecordSearchResponse.builder()
+                .query(query)
+                .results(results)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Highlighted fragments of a column, or null when the column does not match
+     */
+    private static String highlight(String column) {
+        return "CASE WHEN to_tsvector('english', coalesce(page." + column + ", '')) @@ query.q " +
+               "THEN ts_headline('english', page." + column + ", query.q, ?) END AS " + column + "_highlight";
+    }
+}
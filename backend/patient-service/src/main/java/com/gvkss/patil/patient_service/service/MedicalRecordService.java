@@ -13,6 +13,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -117,6 +118,21 @@ public class MedicalRecordService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Get medical records for patient before a (visitDate, id) position, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<MedicalRecordResponse> getMedicalRecordsByPatientIdBefore(Long patientId, LocalDate beforeDate, Long beforeId, int limit) {
+        log.info("Fetching medical record timeline for patient: {} before {}", patientId, beforeDate);
+        
+        List<MedicalRecord> records = medicalRecordRepository.findMedicalRecordsByPatientIdBefore(
+                patientId, beforeDate, beforeId, PageRequest.of(0, limit));
+        
+        return records.stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+    }
+    
     /**
      * Convert entity to response DTO
      */
@@ -0,0 +1,421 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.dto.ObservationBatchRequest;
+import com.gvkss.patil.patient_service.dto.ObservationBucket;
+import com.gvkss.patil.patient_service.dto.ObservationPoint;
+import com.gvkss.patil.patient_service.dto.ObservationSampleRequest;
+import com.gvkss.patil.patient_service.dto.ObservationStatsResponse;
+import com.gvkss.patil.patient_service.observations.ObservationCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Observation Service
+ *
+ * Stores structured observations (blood pressure, heart rate, lab values, ...) as per-patient time
+ * series. Ingestion appends device batches to observation_samples. The compactor later folds
+ * samples into one {@link ObservationCodec} block per patient, metric and day, merging late samples
+ * into the day's existing block. Compaction claims samples with {@code FOR UPDATE SKIP LOCKED} and
+ * takes the block row lock before rewriting it, so any number of nodes may compact at once.
+ * Queries read blocks and pending samples in one repeatable-read snapshot. Downsampling takes a
+ * block's stored min/max/sum when the whole block falls in one bucket, and decodes it otherwise.
+ * Timestamps are kept to the millisecond.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class ObservationService {
+
+    private static final String INSERT_SAMPLE_SQL =
+            "INSERT INTO observation_samples (patient_id, metric, observed_at, reading, device_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String CLAIM_SAMPLES_SQL =
+            "SELECT id, patient_id, metric, observed_at, reading FROM observation_samples WHERE received_at < ? " +
+            "ORDER BY patient_id, metric, observed_at, id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String DELETE_SAMPLES_SQL =
+            "DELETE FROM observation_samples WHERE id = ANY (?)";
+    private static final String LOCK_BLOCK_SQL =
+            "SELECT data FROM observation_blocks WHERE patient_id = ? AND metric = ? AND block_day = ? FOR UPDATE";
+    private static final String INSERT_BLOCK_SQL =
+            "INSERT INTO observation_blocks (patient_id, metric, block_day, first_at, last_at, sample_count, " +
+            "min_value, max_value, sum_value, data) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String UPDATE_BLOCK_SQL =
+            "UPDATE observation_blocks SET first_at = ?, last_at = ?, sample_count = ?, min_value = ?, max_value = ?, " +
+            "sum_value = ?, data = ?, updated_at = ? WHERE patient_id = ? AND metric = ? AND block_day = ?";
+    private static final String BLOCKS_IN_RANGE_SQL =
+            "SELECT first_at, last_at, sample_count, min_value, max_value, sum_value, data FROM observation_blocks " +
+            "WHERE patient_id = ? AND metric = ? AND block_day >= ? AND block_day <= ? AND last_at >= ? AND first_at < ? " +
+            "ORDER BY block_day";
+    private static final String SAMPLES_IN_RANGE_SQL =
+            "SELECT observed_at, reading FROM observation_samples " +
+            "WHERE patient_id = ? AND metric = ? AND observed_at >= ? AND observed_at < ? ORDER BY observed_at, id";
+    private static final String PENDING_COUNT_SQL = "SELECT COUNT(*) FROM observation_samples";
+    private static final String BLOCK_TOTALS_SQL =
+            "SELECT COUNT(*), COALESCE(SUM(sample_count), 0), COALESCE(SUM(OCTET_LENGTH(data)), 0) FROM observation_blocks";
+
+    private record Sample(long id, long patientId, String metric, long time, double value) {
+    }
+
+    /**
+     * Receives the samples of a range query
+     */
+    private interface SampleSink {
+
+        void sample(long time, double value);
+
+        /**
+         * Offered a block lying wholly inside the range; return true to take its summary instead of its samples
+         */
+        default boolean block(long first, long last, int count, double min, double max, double sum) {
+            return false;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration compactAfter;
+    private final int compactBatchSize;
+    private final int maxPoints;
+    private final int maxBuckets;
+    private final ReentrantLock compactLock = new ReentrantLock();
+    private final LongAdder samplesIngested = new LongAdder();
+    private final LongAdder samplesCompacted = new LongAdder();
+    private final LongAdder compactionRuns = new LongAdder();
+
+    public ObservationService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.observations.compact-after:PT10M}") Duration compactAfter,
+                              @Value("${app.observations.compact-batch-size:10000}") int compactBatchSize,
+                              @Value("${app.observations.max-points:100000}") int maxPoints,
+                              @Value("${app.observations.max-buckets:10000}") int maxBuckets) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.compactAfter = compactAfter;
+        this.compactBatchSize = compactBatchSize;
+        this.maxPoints = maxPoints;
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Store a batch of device samples; returns the number stored
+     */
+    @Transactional
+    public int ingest(ObservationBatchRequest request) {
+        List<ObservationSampleRequest> samples = request.getSamples();
+        for (ObservationSampleRequest sample : samples) {
+            if (!Double.isFinite(sample.getValue())) {
+                throw new RuntimeException("Observation value must be a finite number: " + sample.getMetric());
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_SAMPLE_SQL, samples, 1000, (ps, sample) -> {
+            ps.setLong(1, sample.getPatientId());
+            ps.setString(2, normalizeMetric(sample.getMetric()));
+            ps.setObject(3, toTime(toMillis(sample.getTimestamp())));
+            ps.setDouble(4, sample.getValue());
+            ps.setString(5, request.getDeviceId());
+        });
+        samplesIngested.add(samples.size());
+        log.debug("Stored {} observations from device {}", samples.size(), request.getDeviceId());
+        return samples.size();
+    }
+
+    /**
+     * Fold pending samples into compressed blocks
+     */
+    @Scheduled(initialDelayString = "${app.observations.compact-interval-ms:60000}",
+            fixedDelayString = "${app.observations.compact-interval-ms:60000}")
+    public void compactPendingSamples() {
+        try {
+            int compacted = compact();
+            if (compacted > 0) {
+                log.info("Compacted {} observations", compacted);
+            }
+        } catch (Exception e) {
+            log.error("Observation compaction failed", e);
+        }
+    }
+
+    /**
+     * Compact every sample received more than compact-after ago, one claimed chunk per transaction; returns the number compacted
+     */
+    public int compact() {
+        if (!compactLock.tryLock()) {
+            return 0;
+        }
+        try {
+            LocalDateTime receivedBefore = LocalDateTime.now().minus(compactAfter);
+            int total = 0;
+            while (true) {
+                Integer compacted = transactionTemplate.execute(tx -> compactChunk(receivedBefore));
+                total += compacted;
+                if (compacted < compactBatchSize) {
+                    break;
+                }
+            }
+            compactionRuns.increment();
+            return total;
+        } finally {
+            compactLock.unlock();
+        }
+    }
+
+    /**
+     * Get the samples of a metric in [from, to), oldest first
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public List<ObservationPoint> getObservations(Long patientId, String metric, LocalDateTime from, LocalDateTime to) {
+        log.info("Fetching {} observations for patient: {}", metric, patientId);
+        List<ObservationPoint> points = new ArrayList<>();
+        scan(patientId, normalizeMetric(metric), from, to, (time, value) -> {
+            if (points.size() == maxPoints) {
+                throw new RuntimeException("More than " + maxPoints + " observations in range; request buckets instead");
+            }
+            points.add(ObservationPoint.builder().timestamp(toTime(time)).value(value).build());
+        });
+        // Blocks come in order; pending samples may fall anywhere among them
+        points.sort(Comparator.comparing(ObservationPoint::getTimestamp));
+        return points;
+    }
+
+    /**
+     * Get min, max and average of a metric per bucket of [from, to); empty buckets are left out
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public List<ObservationBucket> getBuckets(Long patientId, String metric, LocalDateTime from, LocalDateTime to, Duration bucket) {
+        log.info("Fetching {} observation buckets for patient: {}", metric, patientId);
+        long start = toMillis(from);
+        long width = bucket.toMillis();
+        if (width <= 0) {
+            throw new RuntimeException("Bucket must be at least one millisecond");
+        }
+        long buckets = Math.max(0L, (toMillis(to) - start + width - 1) / width);
+        if (buckets > maxBuckets) {
+            throw new RuntimeException("More than " + maxBuckets + " buckets in range; use a wider bucket");
+        }
+        long[] counts = new long[(int) buckets];
+        double[] mins = new double[(int) buckets];
+        double[] maxs = new double[(int) buckets];
+        double[] sums = new double[(int) buckets];
+
+        scan(patientId, normalizeMetric(metric), from, to, new SampleSink() {
+            @Override
+            public void sample(long time, double value) {
+                add(Math.toIntExact((time - start) / width), 1, value, value, value);
+            }
+
+            @Override
+            public boolean block(long first, long last, int count, double min, double max, double sum) {
+                int index = Math.toIntExact((first - start) / width);
+                if (index != (last - start) / width) {
+                    return false;
+                }
+                add(index, count, min, max, sum);
+                return true;
+            }
+
+            private void add(int index, long count, double min, double max, double sum) {
+                if (counts[index] == 0) {
+                    mins[index] = min;
+                    maxs[index] = max;
+                } else {
+                    mins[index] = Math.min(mins[index], min);
+                    maxs[index] = Math.max(maxs[index], max);
+                }
+                counts[index] += count;
+                sums[index] += sum;
+            }
+        });
+
+        List<ObservationBucket> result = new ArrayList<>();
+        for (int i = 0; i < buckets; i++) {
+            if (counts[i] > 0) {
+                result.add(ObservationBucket.builder()
+                        .start(toTime(start + i * width))
+                        .count(counts[i])
+                        .min(mins[i])
+                        .max(maxs[i])
+                        .avg(sums[i] / counts[i])
+                        .build());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get observation store statistics
+     */
+    public ObservationStatsResponse getStats() {
+        Long pending = jdbcTemplate.queryForObject(PENDING_COUNT_SQL, Long.class);
+        long[] totals = jdbcTemplate.queryForObject(BLOCK_TOTALS_SQL,
+                (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2), rs.getLong(3)});
+        return ObservationStatsResponse.builder()
+                .pendingSamples(pending != null ? pending : 0L)
+                .blocks(totals[0])
+                .compressedSamples(totals[1])
+                .compressedBytes(totals[2])
+                .bytesPerSample(totals[1] > 0 ? (double) totals[2] / totals[1] : 0.0)
+                .samplesIngested(samplesIngested.sum())
+                .samplesCompacted(samplesCompacted.sum())
+                .compactionRuns(compactionRuns.sum())
+                .build();
+    }
+
+    private int compactChunk(LocalDateTime receivedBefore) {
+        List<Sample> claimed = jdbcTemplate.query(CLAIM_SAMPLES_SQL, (rs, rowNum) -> new Sample(
+                rs.getLong("id"),
+                rs.getLong("patient_id"),
+                rs.getString("metric"),
+                toMillis(rs.getObject("observed_at", LocalDateTime.class)),
+                rs.getDouble("reading")), receivedBefore, compactBatchSize);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        // Claimed in (patient, metric, time) order, so each block's samples are adjacent and blocks are locked in one order
+        int groupStart = 0;
+        for (int i = 1; i <= claimed.size(); i++) {
+            if (i == claimed.size() || !sameBlock(claimed.get(groupStart), claimed.get(i))) {
+                mergeIntoBlock(claimed.subList(groupStart, i));
+                groupStart = i;
+            }
+        }
+        Long[] ids = claimed.stream().map(Sample::id).toArray(Long[]::new);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(DELETE_SAMPLES_SQL);
+            ps.setArray(1, connection.createArrayOf("bigint", ids));
+            return ps;
+        });
+        samplesCompacted.add(claimed.size());
+        return claimed.size();
+    }
+
+    private void mergeIntoBlock(List<Sample> samples) {
+        Sample first = samples.get(0);
+        LocalDate day = dayOf(first.time());
+        byte[] existing = lockBlock(first, day);
+        if (existing == null) {
+            long[] times = samples.stream().mapToLong(Sample::time).toArray();
+            double[] values = samples.stream().mapToDouble(Sample::value).toArray();
+            byte[] data = ObservationCodec.encode(times, values, times.length);
+            double[] summary = summarize(values, values.length);
+            int inserted = jdbcTemplate.update(INSERT_BLOCK_SQL, first.patientId(), first.metric(), day,
+                    toTime(times[0]), toTime(times[times.length - 1]), times.length,
+                    summary[0], summary[1], summary[2], data);
+            if (inserted == 1) {
+                return;
+            }
+            // Another node created the block meanwhile; wait for it and merge into it
+            existing = lockBlock(first, day);
+        }
+
+        int existingCount = ObservationCodec.count(existing);
+        int total = existingCount + samples.size();
+        long[] oldTimes = new long[existingCount];
+        double[] oldValues = new double[existingCount];
+        ObservationCodec.decode(existing, oldTimes, oldValues);
+        long[] times = new long[total];
+        double[] values = new double[total];
+        int o = 0;
+        int n = 0;
+        for (int i = 0; i < total; i++) {
+            if (n == samples.size() || (o < existingCount && oldTimes[o] <= samples.get(n).time())) {
+                times[i] = oldTimes[o];
+                values[i] = oldValues[o++];
+            } else {
+                times[i] = samples.get(n).time();
+                values[i] = samples.get(n++).value();
+            }
+        }
+        double[] summary = summarize(values, total);
+        jdbcTemplate.update(UPDATE_BLOCK_SQL,
+                toTime(times[0]), toTime(times[total - 1]), total,
+                summary[0], summary[1], summary[2], ObservationCodec.encode(times, values, total),
+                LocalDateTime.now(), first.patientId(), first.metric(), day);
+    }
+
+    private byte[] lockBlock(Sample sample, LocalDate day) {
+        List<byte[]> blocks = jdbcTemplate.query(LOCK_BLOCK_SQL, (rs, rowNum) -> rs.getBytes("data"),
+                sample.patientId(), sample.metric(), day);
+        return blocks.isEmpty() ? null : blocks.get(0);
+    }
+
+    private void scan(Long patientId, String metric, LocalDateTime from, LocalDateTime to, SampleSink sink) {
+        long start = toMillis(from);
+        long end = toMillis(to);
+        jdbcTemplate.query(BLOCKS_IN_RANGE_SQL, rs -> {
+            long first = toMillis(rs.getObject("first_at", LocalDateTime.class));
+            long last = toMillis(rs.getObject("last_at", LocalDateTime.class));
+            int count = rs.getInt("sample_count");
+            if (first >= start && last < end && sink.block(first, last, count,
+                    rs.getDouble("min_value"), rs.getDouble("max_value"), rs.getDouble("sum_value"))) {
+                return;
+            }
+            long[] times = new long[count];
+            double[] values = new double[count];
+            ObservationCodec.decode(rs.getBytes("data"), times, values);
+            for (int i = 0; i < count; i++) {
+                if (times[i] >= start && times[i] < end) {
+                    sink.sample(times[i], values[i]);
+                }
+            }
+        }, patientId, metric, from.toLocalDate(), to.toLocalDate(), from, to);
+        jdbcTemplate.query(SAMPLES_IN_RANGE_SQL, rs -> {
+            sink.sample(toMillis(rs.getObject("observed_at", LocalDateTime.class)), rs.getDouble("reading"));
+        }, patientId, metric, from, to);
+    }
+
+    private static boolean sameBlock(Sample a, Sample b) {
+        return a.patientId() == b.patientId() && a.metric().equals(b.metric()) && dayOf(a.time()).equals(dayOf(b.time()));
+    }
+
+    /**
+     * Min, max and sum of values
+     */
+    private static double[] summarize(double[] values, int count) {
+        double min = values[0];
+        double max = values[0];
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+            sum += values[i];
+        }
+        return new double[] {min, max, sum};
+    }
+
+    private static String normalizeMetric(String metric) {
+        return metric.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L), (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private static LocalDate dayOf(long millis) {
+        return LocalDate.ofEpochDay(Math.floorDiv(millis, 86_400_000L));
+    }
+}
@@ -0,0 +1,538 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gvkss.patil.patient_service.dto.DuplicateScanResponse;
+import com.gvkss.patil.patient_service.dto.PatientImportError;
+import com.gvkss.patil.patient_service.dto.PatientImportResponse;
+import com.gvkss.patil.patient_service.dto.UpdatePatientRequest;
+import com.gvkss.patil.patient_service.entity.Patient;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Patient Import Service
+ *
+ * Bulk patient import from CSV (with a header row of request field names) or NDJSON. The upload is
+ * read as a stream in chunks; each chunk is parsed and validated in parallel while the previous one
+ * is loaded. Loading a chunk takes one {@code user_id = ANY (?)} query to reject existing patients,
+ * one allocation of patient numbers, and one transaction that COPYs the rows into a staging table,
+ * moves them into patients with INSERT ... SELECT ... ON CONFLICT DO NOTHING, and updates the
+ * statistics counters and the master patient index. Rejected rows are reported with their line number.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class PatientImportService {
+
+    private static final String PATIENT_COLUMNS = "user_id, patient_number, first_name, last_name, phone_number, " +
+            "date_of_birth, gender, blood_type, height_cm, weight_kg, allergies, medical_conditions, " +
+            "emergency_contact_name, emergency_contact_phone, emergency_contact_relationship, primary_doctor_id, status";
+    private static final String STAGING_COLUMNS = "batch_id, line_number, " + PATIENT_COLUMNS;
+    private static final String EXISTING_USERS_SQL = "SELECT user_id FROM patients WHERE user_id = ANY (?)";
+    private static final String COPY_STAGING_SQL =
+            "COPY patient_import_staging (" + STAGING_COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+    private static final String INSERT_STAGING_SQL =
+            "INSERT INTO patient_import_staging (" + STAGING_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Rows whose user was created since the pre-check are skipped here and reported below
+    private static final String MOVE_STAGING_SQL =
+            "INSERT INTO patients (" + PATIENT_COLUMNS + ") SELECT " + PATIENT_COLUMNS +
+            " FROM patient_import_staging WHERE batch_id = ? ON CONFLICT DO NOTHING";
+    private static final String LOADED_SQL =
+            "SELECT s.line_number, p.id FROM patient_import_staging s " +
+            "JOIN patients p ON p.patient_number = s.patient_number WHERE s.batch_id = ?";
+    private static final String CLEAR_STAGING_SQL = "DELETE FROM patient_import_staging WHERE batch_id = ?";
+
+    private static final String USER_ID = "userId";
+    private static final Set<String> COLUMNS = columns();
+
+    /**
+     * Upload formats
+     */
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * One parsed row: a patient ready to load, or the reason it was rejected
+     */
+    private record ImportRow(long line, Long userId, Patient patient, String error) {
+
+        static ImportRow rejected(long line, Long userId, String error) {
+            return new ImportRow(line, userId, null, error);
+        }
+    }
+
+    /**
+     * Counts and errors of one import
+     */
+    private final class ImportResult {
+
+        long rows;
+        long imported;
+        long rejected;
+        final List<PatientImportError> errors = new ArrayList<>();
+        boolean errorsTruncated;
+
+        void reject(long line, Long userId, String message) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(PatientImportError.builder().line(line).userId(userId).message(message).build());
+            } else {
+                errorsTruncated = true;
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NumberAllocator numberAllocator;
+    private final PatientStatisticsService patientStatisticsService;
+    private final PatientMatchService patientMatchService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final boolean scanDuplicates;
+    private final ForkJoinPool pool;
+
+    public PatientImportService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                NumberAllocator numberAllocator,
+                                PatientStatisticsService patientStatisticsService,
+                                PatientMatchService patientMatchService,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                @Value("${app.patient-import.chunk-size:5000}") int chunkSize,
+                                @Value("${app.patient-import.max-errors:1000}") int maxErrors,
+                                @Value("${app.patient-import.threads:4}") int threads,
+                                @Value("${app.patient-import.scan-duplicates:true}") boolean scanDuplicates) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.numberAllocator = numberAllocator;
+        this.patientStatisticsService = patientStatisticsService;
+        this.patientMatchService = patientMatchService;
+        // Unknown NDJSON fields are row errors rather than silently dropped
+        this.objectMapper = objectMapper.copy().enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+        this.scanDuplicates = scanDuplicates;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Import patients from a CSV or NDJSON stream
+     */
+    public PatientImportResponse importPatients(InputStream input, Format format) {
+        long started = System.nanoTime();
+        ImportResult result = new ImportResult();
+        Set<Long> seenUserIds = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024)) {
+            long[] lineNumber = {0};
+            List<String> header = format == Format.CSV ? readHeader(reader, lineNumber) : null;
+            Future<List<ImportRow>> parsing = null;
+            while (true) {
+                long firstLine = lineNumber[0] + 1;
+                List<String> lines = readChunk(reader, lineNumber);
+                if (lines.isEmpty()) {
+                    break;
+                }
+                // Parse this chunk while the previous one loads
+                Future<List<ImportRow>> next = pool.submit(() -> IntStream.range(0, lines.size())
+                        .parallel()
+                        .mapToObj(i -> parse(firstLine + i, lines.get(i), format, header))
+                        .filter(row -> row != null)
+                        .toList());
+                if (parsing != null) {
+                    load(parsing.get(), seenUserIds, result);
+                }
+                parsing = next;
+            }
+            if (parsing != null) {
+                load(parsing.get(), seenUserIds, result);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read import", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Patient import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Patient import failed", e.getCause());
+        }
+
+        DuplicateScanResponse duplicateScan = null;
+        if (scanDuplicates && result.imported > 0) {
+            try {
+                duplicateScan = patientMatchService.scanAll();
+            } catch (Exception e) {
+                log.warn("Duplicate scan after patient import did not run: {}", e.getMessage());
+            }
+        }
+        PatientImportResponse response = PatientImportResponse.builder()
+                .rows(result.rows)
+                .imported(result.imported)
+                .rejected(result.rejected)
+                .errors(result.errors)
+                .errorsTruncated(result.errorsTruncated)
+                .duplicateScan(duplicateScan)
+                .durationMillis((System.nanoTime() - started) / 1_000_000L)
+                .build();
+        log.info("Patient import finished: {} rows, {} imported, {} rejected in {} ms",
+                response.getRows(), response.getImported(), response.getRejected(), response.getDurationMillis());
+        return response;
+    }
+
+    private List<String> readHeader(BufferedReader reader, long[] lineNumber) throws IOException {
+        String line = reader.readLine();
+        lineNumber[0]++;
+        if (line == null) {
+            throw new RuntimeException("CSV import is empty");
+        }
+        if (line.startsWith("\uFEFF")) {
+            line = line.substring(1);
+        }
+        List<String> header = parseCsvLine(line).stream().map(String::trim).toList();
+        for (String column : header) {
+            if (!COLUMNS.contains(column)) {
+                throw new RuntimeException("Unknown CSV column: " + column);
+            }
+        }
+        if (!header.contains(USER_ID)) {
+            throw new RuntimeException("CSV header has no " + USER_ID + " column");
+        }
+        return header;
+    }
+
+    private List<String> readChunk(BufferedReader reader, long[] lineNumber) throws IOException {
+        List<String> lines = new ArrayList<>(chunkSize);
+        String line;
+        while (lines.size() < chunkSize && (line = reader.readLine()) != null) {
+            lineNumber[0]++;
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Parse and validate one line; null for a blank line
+     */
+    private ImportRow parse(long line, String text, Format format, List<String> header) {
+        if (text.isBlank()) {
+            return null;
+        }
+        Long userId = null;
+        try {
+            ObjectNode node = format == Format.CSV ? csvNode(text, header) : jsonNode(text);
+            JsonNode userIdNode = node.remove(USER_ID);
+            if (userIdNode == null || userIdNode.isNull()) {
+                return ImportRow.rejected(line, null, "userId is required");
+            }
+            userId = userIdNode.isNumber() ? userIdNode.longValue() : Long.parseLong(userIdNode.asText().trim());
+            UpdatePatientRequest request = objectMapper.treeToValue(node, UpdatePatientRequest.class);
+
+            List<String> problems = new ArrayList<>();
+            for (ConstraintViolation<UpdatePatientRequest> violation : validator.validate(request)) {
+                problems.add(violation.getMessage());
+            }
+            if (request.getDateOfBirth() == null) {
+                problems.add("Date of birth is required");
+            }
+            if (request.getGender() == null) {
+                problems.add("Gender is required");
+            }
+            if (!problems.isEmpty()) {
+                return ImportRow.rejected(line, userId, problems.stream().sorted().collect(Collectors.joining("; ")));
+            }
+            return new ImportRow(line, userId, toPatient(userId, request), null);
+        } catch (JsonProcessingException e) {
+            return ImportRow.rejected(line, userId, e.getOriginalMessage());
+        } catch (NumberFormatException e) {
+            return ImportRow.rejected(line, null, "Invalid userId: " + e.getMessage());
+        } catch (RuntimeException e) {
+            return ImportRow.rejected(line, userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Load the valid rows of a chunk and record the rejected ones
+     */
+    private void load(List<ImportRow> rows, Set<Long> seenUserIds, ImportResult result) {
+        result.rows += rows.size();
+        List<ImportRow> valid = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            if (row.error() != null) {
+                result.reject(row.line(), row.userId(), row.error());
+            } else if (!seenUserIds.add(row.userId())) {
+                result.reject(row.line(), row.userId(), "Duplicate userId in import: " + row.userId());
+            } else {
+                valid.add(row);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        Set<Long> existing = existingUserIds(valid);
+        List<ImportRow> fresh = new ArrayList<>(valid.size());
+        for (ImportRow row : valid) {
+            if (existing.contains(row.userId())) {
+                result.reject(row.line(), row.userId(), "Patient profile already exists for user ID: " + row.userId());
+            } else {
+                fresh.add(row);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        List<String> numbers = numberAllocator.allocate(PatientService.PATIENT_NUMBER_PREFIX,
+                PatientService.PATIENT_NUMBER_SEQUENCE, fresh.size());
+        for (int i = 0; i < fresh.size(); i++) {
+            fresh.get(i).patient().setPatientNumber(numbers.get(i));
+        }
+        try {
+            List<ImportRow> skipped = transactionTemplate.execute(tx -> loadChunk(fresh));
+            result.imported += fresh.size() - skipped.size();
+            for (ImportRow row : skipped) {
+                result.reject(row.line(), row.userId(), "Patient profile already exists for user ID: " + row.userId());
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to load patient import rows {} to {}", fresh.get(0).line(),
+                    fresh.get(fresh.size() - 1).line(), e);
+            for (ImportRow row : fresh) {
+                result.reject(row.line(), row.userId(), "Failed to load: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stage, move and index one chunk in the current transaction; returns the rows that were not inserted
+     */
+    private List<ImportRow> loadChunk(List<ImportRow> rows) {
+        String batchId = UUID.randomUUID().toString();
+        List<Object[]> values = rows.stream().map(row -> stagingValues(batchId, row)).toList();
+        boolean copied = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                return false;
+            }
+            StringBuilder csv = new StringBuilder(values.size() * 256);
+            for (Object[] row : values) {
+                appendCsvRow(csv, row);
+            }
+            try {
+                connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING_SQL, new StringReader(csv.toString()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }));
+        if (!copied) {
+            jdbcTemplate.batchUpdate(INSERT_STAGING_SQL, values);
+        }
+
+        jdbcTemplate.update(MOVE_STAGING_SQL, batchId);
+        Map<Long, Long> ids = new HashMap<>();
+        jdbcTemplate.query(LOADED_SQL, rs -> {
+            ids.put(rs.getLong("line_number"), rs.getLong("id"));
+        }, batchId);
+        jdbcTemplate.update(CLEAR_STAGING_SQL, batchId);
+
+        List<Patient> loaded = new ArrayList<>(ids.size());
+        List<ImportRow> skipped = new ArrayList<>();
+        PatientStatisticsService.Contribution delta = PatientStatisticsService.Contribution.NONE;
+        for (ImportRow row : rows) {
+            Long id = ids.get(row.line());
+            if (id == null) {
+                skipped.add(row);
+                continue;
+            }
+            row.patient().setId(id);
+            loaded.add(row.patient());
+            delta = delta.plus(PatientStatisticsService.Contribution.of(row.patient()));
+        }
+        patientStatisticsService.apply(delta);
+        patientMatchService.indexKeys(loaded);
+        return skipped;
+    }
+
+    private Set<Long> existingUserIds(List<ImportRow> rows) {
+        Object[] userIds = rows.stream().map(ImportRow::userId).toArray();
+        Set<Long> existing = new HashSet<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(EXISTING_USERS_SQL);
+            ps.setArray(1, connection.createArrayOf("bigint", userIds));
+            return ps;
+        }, rs -> {
+            existing.add(rs.getLong("user_id"));
+        });
+        return existing;
+    }
+
+    private ObjectNode csvNode(String text, List<String> header) {
+        List<String> values = parseCsvLine(text);
+        if (values.size() != header.size()) {
+            throw new RuntimeException("Expected " + header.size() + " columns, found " + values.size());
+        }
+        ObjectNode node = objectMapper.createObjectNode();
+        for (int i = 0; i < header.size(); i++) {
+            String value = values.get(i).trim();
+            if (!value.isEmpty()) {
+                node.put(header.get(i), value);
+            }
+        }
+        return node;
+    }
+
+    private ObjectNode jsonNode(String text) throws JsonProcessingException {
+        JsonNode node = objectMapper.readTree(text);
+        if (!(node instanceof ObjectNode object)) {
+            throw new RuntimeException("Expected a JSON object");
+        }
+        return object;
+    }
+
+    private static Patient toPatient(Long userId, UpdatePatientRequest request) {
+        return Patient.builder()
+                .userId(userId)
+                .firstName(request.getFirstName())
+                .lastName(request.getLastName())
+                .phoneNumber(request.getPhoneNumber())
+                .dateOfBirth(request.getDateOfBirth())
+                .gender(request.getGender())
+                .bloodType(request.getBloodType())
+                .heightCm(request.getHeightCm())
+                .weightKg(request.getWeightKg())
+                .allergies(request.getAllergies())
+                .medicalConditions(request.getMedicalConditions())
+                .emergencyContactName(request.getEmergencyContactName())
+                .emergencyContactPhone(request.getEmergencyContactPhone())
+                .emergencyContactRelationship(request.getEmergencyContactRelationship())
+                .primaryDoctorId(request.getPrimaryDoctorId())
+                .status(request.getStatus() != null ? request.getStatus() : Patient.PatientStatus.ACTIVE)
+                .build();
+    }
+
+    private static Object[] stagingValues(String batchId, ImportRow row) {
+        Patient patient = row.patient();
+        return new Object[] {batchId, row.line(), patient.getUserId(), patient.getPatientNumber(),
+                patient.getFirstName(), patient.getLastName(), patient.getPhoneNumber(), patient.getDateOfBirth(),
+                patient.getGender().name(), patient.getBloodType(), patient.getHeightCm(), patient.getWeightKg(),
+                patient.getAllergies(), patient.getMedicalConditions(), patient.getEmergencyContactName(),
+                patient.getEmergencyContactPhone(), patient.getEmergencyContactRelationship(),
+                patient.getPrimaryDoctorId(), patient.getStatus().name()};
+    }
+
+    /**
+     * Append one row in COPY csv format: nulls unquoted and empty, everything else quoted
+     */
+    private static void appendCsvRow(StringBuilder csv, Object[] row) {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            if (row[i] == null) {
+                continue;
+            }
+            String text = row[i].toString();
+            csv.append('"');
+            for (int j = 0; j < text.length(); j++) {
+                char c = text.charAt(j);
+                if (c == '"') {
+                    csv.append('"');
+                }
+                csv.append(c);
+            }
+            csv.append('"');
+        }
+        csv.append('\n');
+    }
+
+    /**
+     * Split one CSV line; fields may be quoted, with "" for a quote inside a quoted field
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new RuntimeException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static Set<String> columns() {
+        Set<String> columns = new HashSet<>(List.of(USER_ID));
+        Arrays.stream(UpdatePatientRequest.class.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                .map(Field::getName)
+                .forEach(columns::add);
+        return Set.copyOf(columns);
+    }
+}
@@ -0,0 +1,382 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.dto.DuplicateCandidateResponse;
+import com.gvkss.patil.patient_service.dto.DuplicateScanResponse;
+import com.gvkss.patil.patient_service.entity.Patient;
+import com.gvkss.patil.patient_service.matching.PatientMatcher;
+import com.gvkss.patil.patient_service.matching.PatientMatcher.Demographics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Patient Match Service
+ *
+ * Master patient index. Every patient has a few {@link PatientMatcher} blocking keys in
+ * patient_match_keys, and only patients sharing a key are scored against each other, so the work
+ * grows with the size of the blocks rather than with the square of the population. Blocks larger
+ * than max-block-size (a clinic's shared phone number, say) are skipped. Pairs scoring at least the
+ * threshold are recorded as pending duplicate candidates.
+ *
+ * Creating or updating a patient re-indexes that patient in the same transaction. The batch scan
+ * rebuilds the index for the whole population, builds the blocks in memory and scores them in
+ * parallel; a pair sharing several keys is scored once, in the block of its first shared key.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class PatientMatchService {
+
+    private static final String DEMOGRAPHICS_COLUMNS = "id, first_name, last_name, date_of_birth, gender, phone_number";
+    private static final String DEMOGRAPHICS_BY_IDS_SQL =
+            "SELECT " + DEMOGRAPHICS_COLUMNS + " FROM patients WHERE id = ANY (?)";
+    private static final String DEMOGRAPHICS_PAGE_SQL =
+            "SELECT " + DEMOGRAPHICS_COLUMNS + " FROM patients WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String DELETE_KEYS_SQL = "DELETE FROM patient_match_keys WHERE patient_id = ?";
+    private static final String DELETE_KEYS_UP_TO_SQL = "DELETE FROM patient_match_keys WHERE patient_id <= ?";
+    private static final String INSERT_KEY_SQL = "INSERT INTO patient_match_keys (match_key, patient_id) VALUES (?, ?)";
+    private static final String BLOCK_SIZES_SQL =
+            "SELECT match_key, COUNT(*) AS size FROM patient_match_keys WHERE match_key = ANY (?) GROUP BY match_key";
+    private static final String BLOCK_MEMBERS_SQL =
+            "SELECT DISTINCT patient_id FROM patient_match_keys WHERE match_key = ANY (?) AND patient_id <> ?";
+    private static final String DELETE_PENDING_SQL =
+            "DELETE FROM patient_duplicate_candidates WHERE status = 'PENDING' AND (patient_id = ? OR duplicate_id = ?)";
+    // duplicate_id is the higher id of a pair
+    private static final String DELETE_PENDING_UP_TO_SQL =
+            "DELETE FROM patient_duplicate_candidates WHERE status = 'PENDING' AND duplicate_id <= ?";
+    private static final String INSERT_CANDIDATE_SQL =
+            "INSERT INTO patient_duplicate_candidates (patient_id, duplicate_id, score, reasons, detected_at) " +
+            "VALUES (?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String CANDIDATE_COLUMNS = "patient_id, duplicate_id, score, reasons, status, detected_at";
+    private static final String CANDIDATES_FOR_PATIENT_SQL =
+            "SELECT " + CANDIDATE_COLUMNS + " FROM patient_duplicate_candidates " +
+            "WHERE (patient_id = ? OR duplicate_id = ?) AND status = 'PENDING' ORDER BY score DESC";
+    private static final String PENDING_CANDIDATES_SQL =
+            "SELECT " + CANDIDATE_COLUMNS + " FROM patient_duplicate_candidates " +
+            "WHERE status = 'PENDING' ORDER BY score DESC, patient_id, duplicate_id LIMIT ?";
+    private static final String DISMISS_SQL =
+            "UPDATE patient_duplicate_candidates SET status = 'DISMISSED' WHERE patient_id = ? AND duplicate_id = ?";
+
+    private static final RowMapper<Demographics> DEMOGRAPHICS_MAPPER = (rs, rowNum) -> Demographics.of(
+            rs.getLong("id"),
+            rs.getString("first_name"),
+            rs.getString("last_name"),
+            rs.getDate("date_of_birth").toLocalDate(),
+            Patient.Gender.valueOf(rs.getString("gender")),
+            rs.getString("phone_number"));
+
+    private static final RowMapper<DuplicateCandidateResponse> CANDIDATE_MAPPER = (rs, rowNum) ->
+            DuplicateCandidateResponse.builder()
+                    .patientId(rs.getLong("patient_id"))
+                    .duplicateId(rs.getLong("duplicate_id"))
+                    .score(rs.getDouble("score"))
+                    .reasons(rs.getString("reasons"))
+                    .status(rs.getString("status"))
+                    .detectedAt(rs.getObject("detected_at", LocalDateTime.class))
+                    .build();
+
+    private record Candidate(long patientId, long duplicateId, double score, String reasons) {
+
+        static Candidate of(Demographics a, Demographics b, PatientMatcher.Match match) {
+            return a.patientId() < b.patientId()
+                    ? new Candidate(a.patientId(), b.patientId(), match.score(), match.reasons())
+                    : new Candidate(b.patientId(), a.patientId(), match.score(), match.reasons());
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final double threshold;
+    private final int maxBlockSize;
+    private final int scanThreads;
+    private final int scanPageSize;
+    private final ReentrantLock scanLock = new ReentrantLock();
+
+    public PatientMatchService(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.mpi.threshold:0.85}") double threshold,
+                               @Value("${app.mpi.max-block-size:1000}") int maxBlockSize,
+                               @Value("${app.mpi.scan-threads:4}") int scanThreads,
+                               @Value("${app.mpi.scan-page-size:10000}") int scanPageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.threshold = threshold;
+        this.maxBlockSize = maxBlockSize;
+        this.scanThreads = scanThreads;
+        this.scanPageSize = scanPageSize;
+    }
+
+    /**
+     * Re-index a saved patient and record its probable duplicates; returns its pending candidates
+     */
+    @Transactional
+    public List<DuplicateCandidateResponse> indexPatient(Patient patient) {
+        Demographics demographics = Demographics.of(patient);
+        List<String> keys = PatientMatcher.blockingKeys(demographics);
+        jdbcTemplate.update(DELETE_KEYS_SQL, patient.getId());
+        jdbcTemplate.batchUpdate(INSERT_KEY_SQL, keys, 100, (ps, key) -> {
+            ps.setString(1, key);
+            ps.setLong(2, patient.getId());
+        });
+        jdbcTemplate.update(DELETE_PENDING_SQL, patient.getId(), patient.getId());
+
+        List<String> blocks = new ArrayList<>();
+        queryWithArray(BLOCK_SIZES_SQL, "varchar", keys.toArray(), rs -> {
+            if (rs.getLong("size") <= maxBlockSize) {
+                blocks.add(rs.getString("match_key"));
+            }
+        });
+        if (!blocks.isEmpty()) {
+            List<Object> others = new ArrayList<>();
+            queryWithArray(BLOCK_MEMBERS_SQL, "varchar", blocks.toArray(), rs -> others.add(rs.getLong("patient_id")),
+                    patient.getId());
+            List<Candidate> candidates = new ArrayList<>();
+            if (!others.isEmpty()) {
+                queryWithArray(DEMOGRAPHICS_BY_IDS_SQL, "bigint", others.toArray(), rs -> {
+                    Demographics other = DEMOGRAPHICS_MAPPER.mapRow(rs, 0);
+                    if (PatientMatcher.similarity(demographics, other) >= threshold) {
+                        candidates.add(Candidate.of(demographics, other, PatientMatcher.score(demographics, other)));
+                    }
+                });
+            }
+            insertCandidates(candidates);
+        }
+
+        List<DuplicateCandidateResponse> duplicates = getDuplicateCandidates(patient.getId());
+        if (!duplicates.isEmpty()) {
+            log.warn("Patient {} has {} probable duplicate(s)", patient.getId(), duplicates.size());
+        }
+        return duplicates;
+    }
+
+    /**
+     * Add the blocking keys of newly loaded patients without comparing them; their duplicates are found by the next scan
+     */
+    @Transactional
+    public void indexKeys(List<Patient> patients) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Patient patient : patients) {
+            for (String key : PatientMatcher.blockingKeys(Demographics.of(patient))) {
+                rows.add(new Object[] {key, patient.getId()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_KEY_SQL, rows);
+    }
+
+    /**
+     * Scan the patient population on the configured schedule
+     */
+    @Scheduled(cron = "${app.mpi.scan-cron:-}")
+    public void scheduledScan() {
+        try {
+            scanAll();
+        } catch (Exception e) {
+            log.error("Duplicate patient scan failed", e);
+        }
+    }
+
+    /**
+     * Rebuild the index and the pending duplicate candidates of every patient
+     */
+    public DuplicateScanResponse scanAll() {
+        if (!scanLock.tryLock()) {
+            throw new RuntimeException("A duplicate patient scan is already running");
+        }
+        try {
+            return scan();
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    /**
+     * Get the pending duplicate candidates involving a patient, best match first
+     */
+    @Transactional(readOnly = true)
+    public List<DuplicateCandidateResponse> getDuplicateCandidates(Long patientId) {
+        return jdbcTemplate.query(CANDIDATES_FOR_PATIENT_SQL, CANDIDATE_MAPPER, patientId, patientId);
+    }
+
+    /**
+     * Get the pending duplicate candidates, best match first
+     */
+    @Transactional(readOnly = true)
+    public List<DuplicateCandidateResponse> getPendingCandidates(int limit) {
+        return jdbcTemplate.query(PENDING_CANDIDATES_SQL, CANDIDATE_MAPPER, Math.max(1, Math.min(limit, 1000)));
+    }
+
+    /**
+     * Mark a pair as not duplicates, so it is not raised again
+     */
+    @Transactional
+    public void dismissCandidate(Long patientId, Long duplicateId) {
+        int updated = jdbcTemplate.update(DISMISS_SQL, Math.min(patientId, duplicateId), Math.max(patientId, duplicateId));
+        if (updated == 0) {
+            throw new RuntimeException("Duplicate candidate not found for patients " + patientId + " and " + duplicateId);
+        }
+    }
+
+    private DuplicateScanResponse scan() {
+        long started = System.nanoTime();
+        log.info("Scanning patients for duplicates");
+        List<Demographics> patients = new ArrayList<>();
+        long lastId = 0;
+        while (true) {
+            List<Demographics> page = jdbcTemplate.query(DEMOGRAPHICS_PAGE_SQL, DEMOGRAPHICS_MAPPER, lastId, scanPageSize);
+            patients.addAll(page);
+            if (page.size() < scanPageSize) {
+                break;
+            }
+            lastId = page.get(page.size() - 1).patientId();
+        }
+        if (patients.isEmpty()) {
+            return DuplicateScanResponse.builder().durationMillis((System.nanoTime() - started) / 1_000_000L).build();
+        }
+        // Patients created after this point are indexed by their own transactions; leave them alone
+        long maxId = patients.get(patients.size() - 1).patientId();
+
+        ForkJoinPool pool = new ForkJoinPool(scanThreads);
+        List<List<String>> keys;
+        Map<String, List<Integer>> blocks = new HashMap<>();
+        Set<String> oversized = new HashSet<>();
+        LongAdder comparisons = new LongAdder();
+        ConcurrentLinkedQueue<Candidate> candidates = new ConcurrentLinkedQueue<>();
+        try {
+            keys = pool.submit(() -> patients.parallelStream().map(PatientMatcher::blockingKeys).toList()).get();
+            for (int i = 0; i < patients.size(); i++) {
+                for (String key : keys.get(i)) {
+                    blocks.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                }
+            }
+            blocks.forEach((key, members) -> {
+                if (members.size() > maxBlockSize) {
+                    oversized.add(key);
+                }
+            });
+            pool.submit(() -> blocks.entrySet().parallelStream()
+                    .filter(block -> block.getValue().size() > 1 && !oversized.contains(block.getKey()))
+                    .forEach(block -> compareBlock(block.getKey(), block.getValue(), patients, keys, oversized,
+                            comparisons, candidates)))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Duplicate patient scan interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Duplicate patient scan failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        List<Candidate> found = new ArrayList<>(candidates);
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.update(DELETE_KEYS_UP_TO_SQL, maxId);
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 0; i < patients.size(); i++) {
+                for (String key : keys.get(i)) {
+                    rows.add(new Object[] {key, patients.get(i).patientId()});
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_KEY_SQL, rows);
+            jdbcTemplate.update(DELETE_PENDING_UP_TO_SQL, maxId);
+            insertCandidates(found);
+        });
+
+        DuplicateScanResponse response = DuplicateScanResponse.builder()
+                .patients(patients.size())
+                .blockingKeys(keys.stream().mapToLong(List::size).sum())
+                .blocks(blocks.size())
+                .skippedBlocks(oversized.size())
+                .comparisons(comparisons.sum())
+                .candidates(found.size())
+                .durationMillis((System.nanoTime() - started) / 1_000_000L)
+                .build();
+        log.info("Duplicate patient scan finished: {}", response);
+        return response;
+    }
+
+    private void compareBlock(String key, List<Integer> members, List<Demographics> patients, List<List<String>> keys,
+                              Set<String> oversized, LongAdder comparisons, ConcurrentLinkedQueue<Candidate> candidates) {
+        for (int i = 0; i < members.size(); i++) {
+            int a = members.get(i);
+            for (int j = i + 1; j < members.size(); j++) {
+                int b = members.get(j);
+                if (!key.equals(firstSharedKey(keys.get(a), keys.get(b), oversized))) {
+                    continue;
+                }
+                comparisons.increment();
+                if (PatientMatcher.similarity(patients.get(a), patients.get(b)) >= threshold) {
+                    candidates.add(Candidate.of(patients.get(a), patients.get(b),
+                            PatientMatcher.score(patients.get(a), patients.get(b))));
+                }
+            }
+        }
+    }
+
+    /**
+     * First key in both sorted key lists, skipping oversized blocks
+     */
+    private static String firstSharedKey(List<String> a, List<String> b, Set<String> oversized) {
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            int order = a.get(i).compareTo(b.get(j));
+            if (order == 0 && !oversized.contains(a.get(i))) {
+                return a.get(i);
+            }
+            if (order <= 0) {
+                i++;
+            }
+            if (order >= 0) {
+                j++;
+            }
+        }
+        return null;
+    }
+
+    private void insertCandidates(List<Candidate> candidates) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_CANDIDATE_SQL, candidates, 1000, (ps, candidate) -> {
+            ps.setLong(1, candidate.patientId());
+            ps.setLong(2, candidate.duplicateId());
+            ps.setDouble(3, candidate.score());
+            ps.setString(4, candidate.reasons());
+            ps.setObject(5, now);
+        });
+    }
+
+    private void queryWithArray(String sql, String arrayType, Object[] values,
+                                RowCallbackHandler handler, Object... args) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setArray(1, connection.createArrayOf(arrayType, values));
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 2, args[i]);
+            }
+            return ps;
+        }, handler);
+    }
+}
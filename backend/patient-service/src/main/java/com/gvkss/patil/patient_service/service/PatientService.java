@@ -14,9 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.Period;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -32,7 +30,13 @@ import java.util.stream.Collectors;
 @Transactional
 public class PatientService {
     
+    static final String PATIENT_NUMBER_PREFIX = "PAT";
+    static final String PATIENT_NUMBER_SEQUENCE = "patient_number_seq";
+    
     private final PatientRepository patientRepository;
+    private final NumberAllocator numberAllocator;
+    private final PatientStatisticsService patientStatisticsService;
+    private final PatientMatchService patientMatchService;
     
     /**
      * Get patient by ID
@@ -126,8 +130,18 @@ public class PatientService {
         
         Patient existingPatient = patientRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Patient not found with ID: " + id));
+        PatientStatisticsService.Contribution before = PatientStatisticsService.Contribution.of(existingPatient);
         
         // Update fields if provided
+        if (request.getFirstName() != null) {
+            existingPatient.setFirstName(request.getFirstName());
+        }
+        if (request.getLastName() != null) {
+            existingPatient.setLastName(request.getLastName());
+        }
+        if (request.getPhoneNumber() != null) {
+            existingPatient.setPhoneNumber(request.getPhoneNumber());
+        }
         if (request.getDateOfBirth() != null) {
             existingPatient.setDateOfBirth(request.getDateOfBirth());
         }
@@ -166,9 +180,13 @@ public class PatientService {
         }
         
         Patient updatedPatient = patientRepository.save(existingPatient);
+        patientStatisticsService.record(before, PatientStatisticsService.Contribution.of(updatedPatient));
+        List<DuplicateCandidateResponse> duplicates = patientMatchService.indexPatient(updatedPatient);
         log.info("Patient updated successfully: {}", updatedPatient.getId());
         
-        return convertToResponse(updatedPatient);
+        PatientResponse response = convertToResponse(updatedPatient);
+        response.setPossibleDuplicates(duplicates);
+        return response;
     }
     
     /**
@@ -189,6 +207,9 @@ public class PatientService {
         Patient patient = Patient.builder()
                 .userId(userId)
                 .patientNumber(patientNumber)
+                .firstName(request.getFirstName())
+                .lastName(request.getLastName())
+                .phoneNumber(request.getPhoneNumber())
                 .dateOfBirth(request.getDateOfBirth())
                 .gender(request.getGender())
                 .bloodType(request.getBloodType())
@@ -204,9 +225,15 @@ public class PatientService {
                 .build();
         
         Patient savedPatient = patientRepository.save(patient);
+        patientStatisticsService.record(PatientStatisticsService.Contribution.NONE,
+                PatientStatisticsService.Contribution.of(savedPatient));
+        // The user ID check only catches the same account; the index catches the same person registered twice
+        List<DuplicateCandidateResponse> duplicates = patientMatchService.indexPatient(savedPatient);
         log.info("Patient created successfully with ID: {}", savedPatient.getId());
         
-        return convertToResponse(savedPatient);
+        PatientResponse response = convertToResponse(savedPatient);
+        response.setPossibleDuplicates(duplicates);
+        return response;
     }
     
     /**
@@ -216,28 +243,23 @@ public class PatientService {
     public PatientStatisticsResponse getPatientStatistics() {
         log.info("Fetching patient statistics");
         
-        long totalPatients = patientRepository.count();
-        long activePatients = patientRepository.countByStatus(Patient.PatientStatus.ACTIVE);
-        long inactivePatients = patientRepository.countByStatus(Patient.PatientStatus.INACTIVE);
-        long patientsWithAllergies = patientRepository.findPatientsWithAllergies().size();
-        long patientsWithConditions = patientRepository.findPatientsWithMedicalConditions().size();
+        return patientStatisticsService.getStatistics();
+    }
+    
+    /**
+     * Rebuild patient statistics counters from the patients table
+     */
+    public PatientStatisticsResponse recomputePatientStatistics() {
+        log.info("Recomputing patient statistics");
         
-        return PatientStatisticsResponse.builder()
-                .totalPatients(totalPatients)
-                .activePatients(activePatients)
-                .inactivePatients(inactivePatients)
-                .patientsWithAllergies(patientsWithAllergies)
-                .patientsWithMedicalConditions(patientsWithConditions)
-                .build();
+        return patientStatisticsService.recompute();
     }
     
     /**
      * Generate unique patient number
      */
     private String generatePatientNumber() {
-        String timestamp = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String randomSuffix = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        return "PAT-" + timestamp + "-" + randomSuffix;
+        return numberAllocator.next(PATIENT_NUMBER_PREFIX, PATIENT_NUMBER_SEQUENCE);
     }
     
     /**
@@ -248,6 +270,9 @@ public class PatientService {
                 .id(patient.getId())
                 .userId(patient.getUserId())
                 .patientNumber(patient.getPatientNumber())
+                .firstName(patient.getFirstName())
+                .lastName(patient.getLastName())
+                .phoneNumber(patient.getPhoneNumber())
                 .dateOfBirth(patient.getDateOfBirth())
                 .gender(patient.getGender())
                 .bloodType(patient.getBloodType())
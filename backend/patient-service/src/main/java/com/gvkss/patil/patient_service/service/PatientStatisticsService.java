@@ -0,0 +1,177 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.dto.PatientStatisticsResponse;
+import com.gvkss.patil.patient_service.entity.Patient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Patient Statistics Service
+ *
+ * Keeps the patient statistics in a small striped counters table. Every patient write adds the
+ * difference it makes to the counts to one random stripe, inside the writer's own transaction, so
+ * the counters commit or roll back with the patient row and concurrent writers rarely wait on each
+ * other. Reading the statistics sums a fixed number of rows however many patients there are. The
+ * full aggregate over the patients table is a single FILTER query, used to rebuild the counters.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PatientStatisticsService {
+
+    /**
+     * Number of counter rows; must match the stripes seeded by V3__Create_patient_statistics_counters
+     */
+    static final int STRIPES = 16;
+
+    private static final String SUM_COUNTERS_SQL =
+            "SELECT COUNT(*) AS stripes, " +
+            "COALESCE(SUM(total_patients), 0) AS total_patients, " +
+            "COALESCE(SUM(active_patients), 0) AS active_patients, " +
+            "COALESCE(SUM(inactive_patients), 0) AS inactive_patients, " +
+            "COALESCE(SUM(patients_with_allergies), 0) AS patients_with_allergies, " +
+            "COALESCE(SUM(patients_with_medical_conditions), 0) AS patients_with_medical_conditions " +
+            "FROM patient_statistics_counters";
+    private static final String AGGREGATE_SQL =
+            "SELECT COUNT(*) AS total_patients, " +
+            "COUNT(*) FILTER (WHERE status = 'ACTIVE') AS active_patients, " +
+            "COUNT(*) FILTER (WHERE status = 'INACTIVE') AS inactive_patients, " +
+            "COUNT(*) FILTER (WHERE allergies IS NOT NULL AND allergies <> '') AS patients_with_allergies, " +
+            "COUNT(*) FILTER (WHERE medical_conditions IS NOT NULL AND medical_conditions <> '') AS patients_with_medical_conditions " +
+            "FROM patients";
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE patient_statistics_counters SET total_patients = total_patients + ?, " +
+            "active_patients = active_patients + ?, inactive_patients = inactive_patients + ?, " +
+            "patients_with_allergies = patients_with_allergies + ?, " +
+            "patients_with_medical_conditions = patients_with_medical_conditions + ? " +
+            "WHERE stripe = ?";
+    // Blocks delta updates until the rebuild commits and waits for writers that already hold a stripe
+    private static final String LOCK_COUNTERS_SQL = "LOCK TABLE patient_statistics_counters IN SHARE ROW EXCLUSIVE MODE";
+    private static final String CLEAR_COUNTERS_SQL = "DELETE FROM patient_statistics_counters";
+    private static final String INSERT_STRIPE_SQL =
+            "INSERT INTO patient_statistics_counters (stripe, total_patients, active_patients, inactive_patients, " +
+            "patients_with_allergies, patients_with_medical_conditions) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final RowMapper<PatientStatisticsResponse> STATISTICS_MAPPER = (rs, rowNum) ->
+            PatientStatisticsResponse.builder()
+                    .totalPatients(rs.getLong("total_patients"))
+                    .activePatients(rs.getLong("active_patients"))
+                    .inactivePatients(rs.getLong("inactive_patients"))
+                    .patientsWithAllergies(rs.getLong("patients_with_allergies"))
+                    .patientsWithMedicalConditions(rs.getLong("patients_with_medical_conditions"))
+                    .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The contribution of one patient to each counter
+     */
+    public record Contribution(long total, long active, long inactive, long withAllergies, long withConditions) {
+
+        public static final Contribution NONE = new Contribution(0, 0, 0, 0, 0);
+
+        public static Contribution of(Patient patient) {
+            if (patient == null) {
+                return NONE;
+            }
+            return new Contribution(1,
+                    patient.getStatus() == Patient.PatientStatus.ACTIVE ? 1 : 0,
+                    patient.getStatus() == Patient.PatientStatus.INACTIVE ? 1 : 0,
+                    hasText(patient.getAllergies()) ? 1 : 0,
+                    hasText(patient.getMedicalConditions()) ? 1 : 0);
+        }
+
+        public Contribution plus(Contribution other) {
+            return new Contribution(total + other.total, active + other.active, inactive + other.inactive,
+                    withAllergies + other.withAllergies, withConditions + other.withConditions);
+        }
+
+        public Contribution minus(Contribution other) {
+            return new Contribution(total - other.total, active - other.active, inactive - other.inactive,
+                    withAllergies - other.withAllergies, withConditions - other.withConditions);
+        }
+
+        public boolean isZero() {
+            return total == 0 && active == 0 && inactive == 0 && withAllergies == 0 && withConditions == 0;
+        }
+    }
+
+    /**
+     * Get patient statistics from the counters
+     */
+    @Transactional(readOnly = true)
+    public PatientStatisticsResponse getStatistics() {
+        PatientStatisticsResponse statistics = jdbcTemplate.queryForObject(SUM_COUNTERS_SQL,
+                (rs, rowNum) -> rs.getLong("stripes") == 0 ? null : STATISTICS_MAPPER.mapRow(rs, rowNum));
+        if (statistics == null) {
+            // Counters were never seeded; answer from the patients table instead
+            log.warn("Patient statistics counters are empty, falling back to the full aggregate");
+            return aggregate();
+        }
+        return statistics;
+    }
+
+    /**
+     * Count patients with a single aggregate over the patients table
+     */
+    @Transactional(readOnly = true)
+    public PatientStatisticsResponse aggregate() {
+        return jdbcTemplate.queryForObject(AGGREGATE_SQL, STATISTICS_MAPPER);
+    }
+
+    /**
+     * Record a patient write as the difference between its contributions before and after
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Contribution before, Contribution after) {
+        apply(after.minus(before));
+    }
+
+    /**
+     * Add a delta to one stripe of the counters, in the caller's transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Contribution delta) {
+        if (delta.isZero()) {
+            return;
+        }
+        int stripe = ThreadLocalRandom.current().nextInt(STRIPES);
+        jdbcTemplate.update(APPLY_DELTA_SQL, delta.total(), delta.active(), delta.inactive(),
+                delta.withAllergies(), delta.withConditions(), stripe);
+    }
+
+    /**
+     * Rebuild the counters from the patients table
+     */
+    @Transactional
+    public PatientStatisticsResponse recompute() {
+        log.info("Recomputing patient statistics counters");
+        jdbcTemplate.execute(LOCK_COUNTERS_SQL);
+        // Taken after the lock, so every committed delta is in the snapshot and later ones add on top
+        PatientStatisticsResponse statistics = aggregate();
+        jdbcTemplate.update(CLEAR_COUNTERS_SQL);
+        jdbcTemplate.update(INSERT_STRIPE_SQL, 0, statistics.getTotalPatients(), statistics.getActivePatients(),
+                statistics.getInactivePatients(), statistics.getPatientsWithAllergies(),
+                statistics.getPatientsWithMedicalConditions());
+        for (int stripe = 1; stripe < STRIPES; stripe++) {
+            jdbcTemplate.update(INSERT_STRIPE_SQL, stripe, 0, 0, 0, 0, 0);
+        }
+        log.info("Patient statistics counters rebuilt: {} patients", statistics.getTotalPatients());
+        return statistics;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+}
@@ -0,0 +1,366 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.client.ClaimClient;
+import com.gvkss.patil.patient_service.dto.AppointmentResponse;
+import com.gvkss.patil.patient_service.dto.MedicalRecordResponse;
+import com.gvkss.patil.patient_service.dto.PatientResponse;
+import com.gvkss.patil.patient_service.dto.PatientTimelineResponse;
+import com.gvkss.patil.patient_service.dto.TimelineEntry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Patient Timeline Service
+ *
+ * Builds one feed of a patient's medical records, appointments and claims, newest first. The
+ * profile, records and appointments are read concurrently on a bounded pool, and claims are read
+ * from claim-service as soon as the profile has given the patient's user ID. Every source is read
+ * by keyset from its position in the cursor, one entry more than the page, and the sources are
+ * merged by (time, type, id). A source that fails or misses the deadline is left out and named in
+ * the response, so a slow dependency costs its entries rather than the whole page. Its position
+ * in the next cursor stays where it was, so the entries it missed come on later pages, after
+ * newer entries of the other sources already shown.
+ *
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Service
+@Slf4j
+public class PatientTimelineService {
+
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private static final Comparator<TimelineEntry> NEWEST_FIRST = Comparator
+            .comparing(TimelineEntry::getOccurredAt)
+            .thenComparing(TimelineEntry::getType)
+            .thenComparing(TimelineEntry::getId)
+            .reversed();
+
+    private static final CompletableFuture<List<TimelineEntry>> NONE = CompletableFuture.completedFuture(List.of());
+
+    /**
+     * Position after the last entry a source has given; entries at the same time follow by type,
+     * then id, descending
+     */
+    private record Position(LocalDateTime at, TimelineEntry.EntryType type, long id) {
+
+        static final Position START = new Position(END_OF_TIME, TimelineEntry.EntryType.CLAIM, Long.MAX_VALUE);
+
+        static Position after(TimelineEntry entry) {
+            return new Position(entry.getOccurredAt(), entry.getType(), entry.getId());
+        }
+
+        /**
+         * Entries of a source at exactly this time follow the position only if their id is below this bound
+         */
+        long idBound(TimelineEntry.EntryType source) {
+            int order = source.compareTo(type);
+            return order < 0 ? Long.MAX_VALUE : order > 0 ? 0L : id;
+        }
+
+        /**
+         * Whichever of the two positions is further down the timeline
+         */
+        static Position furthest(Position a, Position b) {
+            return NEWEST_FIRST.compare(a.entry(), b.entry()) >= 0 ? a : b;
+        }
+
+        private TimelineEntry entry() {
+            return TimelineEntry.builder().occurredAt(at).type(type).id(id).build();
+        }
+
+        @Override
+        public String toString() {
+            return at + "|" + type + "|" + id;
+        }
+
+        static Position parse(String position) {
+            String[] parts = position.split("\\|");
+            return new Position(LocalDateTime.parse(parts[0]), TimelineEntry.EntryType.valueOf(parts[1]), Long.parseLong(parts[2]));
+        }
+    }
+
+    /**
+     * Where each source continues from; a source without a position has no entries left
+     */
+    private record Cursor(Map<TimelineEntry.EntryType, Position> positions) {
+
+        private static final String EXHAUSTED = "-";
+
+        static final Cursor START = new Cursor(positions(Position.START));
+
+        Position of(TimelineEntry.EntryType source) {
+            return positions.get(source);
+        }
+
+        String encode() {
+            StringBuilder raw = new StringBuilder();
+            for (TimelineEntry.EntryType source : TimelineEntry.EntryType.values()) {
+                if (!raw.isEmpty()) {
+                    raw.append(';');
+                }
+                Position position = positions.get(source);
+                raw.append(position != null ? position : EXHAUSTED);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return START;
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(";");
+                // One position for every source, as cursors were issued before sources could lag
+                if (parts.length == 1) {
+                    return new Cursor(positions(Position.parse(parts[0])));
+                }
+                TimelineEntry.EntryType[] sources = TimelineEntry.EntryType.values();
+                if (parts.length != sources.length) {
+                    throw new IllegalArgumentException("Invalid timeline cursor");
+                }
+                Map<TimelineEntry.EntryType, Position> positions = new EnumMap<>(TimelineEntry.EntryType.class);
+                for (int i = 0; i < sources.length; i++) {
+                    if (!EXHAUSTED.equals(parts[i])) {
+                        positions.put(sources[i], Position.parse(parts[i]));
+                    }
+                }
+                return new Cursor(positions);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid timeline cursor");
+            }
+        }
+
+        private static Map<TimelineEntry.EntryType, Position> positions(Position position) {
+            Map<TimelineEntry.EntryType, Position> positions = new EnumMap<>(TimelineEntry.EntryType.class);
+            for (TimelineEntry.EntryType source : TimelineEntry.EntryType.values()) {
+                positions.put(source, position);
+            }
+            return positions;
+        }
+    }
+
+    private final PatientService patientService;
+    private final MedicalRecordService medicalRecordService;
+    private final AppointmentService appointmentService;
+    private final ClaimClient claimClient;
+    private final Duration timeout;
+    private final int maxLimit;
+    private final ThreadPoolExecutor executor;
+
+    public PatientTimelineService(PatientService patientService,
+                                  MedicalRecordService medicalRecordService,
+                                  AppointmentService appointmentService,
+                                  ClaimClient claimClient,
+                                  @Value("${app.timeline.timeout:PT3S}") Duration timeout,
+                                  @Value("${app.timeline.max-limit:100}") int maxLimit,
+                                  @Value("${app.timeline.threads:16}") int threads,
+                                  @Value("${app.timeline.queue-capacity:256}") int queueCapacity) {
+        this.patientService = patientService;
+        this.medicalRecordService = medicalRecordService;
+        this.appointmentService = appointmentService;
+        this.claimClient = claimClient;
+        this.timeout = timeout;
+        this.maxLimit = maxLimit;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "patient-timeline-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Get one page of a patient's timeline, newest first, starting after the cursor
+     */
+    public PatientTimelineResponse getTimeline(Long patientId, String cursor, int limit) {
+        log.info("Fetching timeline for patient: {}", patientId);
+        Cursor from = Cursor.decode(cursor);
+        int pageSize = Math.max(1, Math.min(limit, maxLimit));
+        int fetch = pageSize + 1;
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        CompletableFuture<PatientResponse> profile = submit(() -> patientService.getPatientById(patientId));
+        Map<TimelineEntry.EntryType, CompletableFuture<List<TimelineEntry>>> sources = new EnumMap<>(TimelineEntry.EntryType.class);
+        Position records = from.of(TimelineEntry.EntryType.MEDICAL_RECORD);
+        Position appointments = from.of(TimelineEntry.EntryType.APPOINTMENT);
+        Position claims = from.of(TimelineEntry.EntryType.CLAIM);
+        sources.put(TimelineEntry.EntryType.MEDICAL_RECORD, records == null ? NONE
+                : submit(() -> medicalRecordEntries(patientId, records, fetch)));
+        sources.put(TimelineEntry.EntryType.APPOINTMENT, appointments == null ? NONE
+                : submit(() -> appointmentEntries(patientId, appointments, fetch)));
+        // Claims are keyed by the patient's user ID, which only the profile knows
+        sources.put(TimelineEntry.EntryType.CLAIM, claims == null ? NONE
+                : profile.thenCompose(patient -> submit(() -> claimEntries(patient.getUserId(), claims, fetch))));
+
+        PatientResponse patient;
+        try {
+            patient = profile.get(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            sources.values().forEach(source -> source.cancel(true));
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            sources.values().forEach(source -> source.cancel(true));
+            throw new RuntimeException("Patient profile not available within " + timeout.toMillis() + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching patient timeline");
+        }
+
+        List<TimelineEntry> entries = new ArrayList<>();
+        Set<TimelineEntry.EntryType> unavailable = EnumSet.noneOf(TimelineEntry.EntryType.class);
+        for (Map.Entry<TimelineEntry.EntryType, CompletableFuture<List<TimelineEntry>>> source : sources.entrySet()) {
+            try {
+                entries.addAll(source.getValue().get(remainingNanos(deadline), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                source.getValue().cancel(true);
+                unavailable.add(source.getKey());
+                log.warn("Timeline source {} timed out for patient: {}", sourceName(source.getKey()), patientId);
+            } catch (ExecutionException e) {
+                unavailable.add(source.getKey());
+                log.warn("Timeline source {} failed for patient {}: {}", sourceName(source.getKey()), patientId,
+                        e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while fetching patient timeline");
+            }
+        }
+
+        entries.sort(NEWEST_FIRST);
+        // Without a full page every source that answered has given all it had
+        Position pageEnd = null;
+        if (entries.size() > pageSize) {
+            entries = new ArrayList<>(entries.subList(0, pageSize));
+            pageEnd = Position.after(entries.get(pageSize - 1));
+        }
+        Map<TimelineEntry.EntryType, Position> next = new EnumMap<>(TimelineEntry.EntryType.class);
+        for (TimelineEntry.EntryType source : TimelineEntry.EntryType.values()) {
+            Position current = from.of(source);
+            if (current == null) {
+                continue;
+            }
+            if (unavailable.contains(source)) {
+                // Its entries were not read, so it starts from the same place next time
+                next.put(source, current);
+            } else if (pageEnd != null) {
+                // A source that lagged may have filled the page with entries newer than this one's position
+                next.put(source, Position.furthest(current, pageEnd));
+            }
+        }
+        return PatientTimelineResponse.builder()
+                .patient(patient)
+                .entries(entries)
+                .nextCursor(next.isEmpty() ? null : new Cursor(next).encode())
+                .partial(!unavailable.isEmpty())
+                .unavailableSources(unavailable.stream().map(PatientTimelineService::sourceName).toList())
+                .build();
+    }
+
+    private static String sourceName(TimelineEntry.EntryType source) {
+        return switch (source) {
+            case MEDICAL_RECORD -> "medicalRecords";
+            case APPOINTMENT -> "appointments";
+            case CLAIM -> "claims";
+        };
+    }
+
+    private List<TimelineEntry> medicalRecordEntries(Long patientId, Position position, int limit) {
+        // Records are dated, so each sits at the start of its visit day
+        LocalDate day = position.at().toLocalDate();
+        boolean midnight = position.at().toLocalTime().equals(LocalTime.MIDNIGHT);
+        List<MedicalRecordResponse> records = midnight
+                ? medicalRecordService.getMedicalRecordsByPatientIdBefore(patientId, day,
+                        position.idBound(TimelineEntry.EntryType.MEDICAL_RECORD), limit)
+                : medicalRecordService.getMedicalRecordsByPatientIdBefore(patientId, day.plusDays(1), 0L, limit);
+        return records.stream()
+                .map(record -> TimelineEntry.builder()
+                        .type(TimelineEntry.EntryType.MEDICAL_RECORD)
+                        .id(record.getId())
+                        .occurredAt(record.getVisitDate().atStartOfDay())
+                        .title(record.getRecordType())
+                        .status(record.getStatus() != null ? record.getStatus().name() : null)
+                        .description(record.getDiagnosis())
+                        .doctorId(record.getDoctorId())
+                        .build())
+                .toList();
+    }
+
+    private List<TimelineEntry> appointmentEntries(Long patientId, Position position, int limit) {
+        List<AppointmentResponse> appointments = appointmentService.getAppointmentsByPatientIdBefore(
+                patientId, position.at(), position.idBound(TimelineEntry.EntryType.APPOINTMENT), limit);
+        return appointments.stream()
+                .map(appointment -> TimelineEntry.builder()
+                        .type(TimelineEntry.EntryType.APPOINTMENT)
+                        .id(appointment.getId())
+                        .occurredAt(appointment.getAppointmentDate())
+                        .reference(appointment.getAppointmentNumber())
+                        .title(appointment.getTypeDisplayName())
+                        .status(appointment.getStatus() != null ? appointment.getStatus().name() : null)
+                        .description(appointment.getReason())
+                        .doctorId(appointment.getDoctorId())
+                        .build())
+                .toList();
+    }
+
+    private List<TimelineEntry> claimEntries(Long patientUserId, Position position, int limit) {
+        List<Map<String, Object>> claims = claimClient.getClaimsBefore(patientUserId, position.at(),
+                position.idBound(TimelineEntry.EntryType.CLAIM), limit);
+        return claims.stream()
+                .map(claim -> TimelineEntry.builder()
+                        .type(TimelineEntry.EntryType.CLAIM)
+                        .id(((Number) claim.get("id")).longValue())
+                        .occurredAt(LocalDateTime.parse((String) claim.get("submittedAt")))
+                        .reference((String) claim.get("claimNumber"))
+                        .title((String) claim.get("typeDisplayName"))
+                        .status((String) claim.get("claimStatus"))
+                        .description((String) claim.get("diagnosisCode"))
+                        .doctorId(claim.get("doctorId") != null ? ((Number) claim.get("doctorId")).longValue() : null)
+                        .build())
+                .toList();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Timeline pool is saturated"));
+        }
+    }
+
+    private static long remainingNanos(long deadline) {
+        return Math.max(0L, deadline - System.nanoTime());
+    }
+}
@@ -0,0 +1,32 @@
+-- Identity demographics used to match duplicate patient profiles; optional at registration
+ALTER TABLE patients ADD COLUMN IF NOT EXISTS first_name VARCHAR(50);
+ALTER TABLE patients ADD COLUMN IF NOT EXISTS last_name VARCHAR(50);
+ALTER TABLE patients ADD COLUMN IF NOT EXISTS phone_number VARCHAR(20);
+
+-- Master patient index: the blocking keys of each patient. Only patients sharing a key are compared.
+CREATE TABLE IF NOT EXISTS patient_match_keys (
+    match_key VARCHAR(80) NOT NULL,
+    patient_id BIGINT NOT NULL,
+    PRIMARY KEY (match_key, patient_id),
+    FOREIGN KEY (patient_id) REFERENCES patients(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_patient_match_keys_patient_id ON patient_match_keys (patient_id);
+
+-- Probable duplicates, one row per pair with the lower patient id first. Dismissed pairs are kept
+-- so they are not raised again.
+CREATE TABLE IF NOT EXISTS patient_duplicate_candidates (
+    patient_id BIGINT NOT NULL,
+    duplicate_id BIGINT NOT NULL,
+    score DOUBLE PRECISION NOT NULL,
+    reasons VARCHAR(200),
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'DISMISSED')),
+    detected_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (patient_id, duplicate_id),
+    CHECK (patient_id < duplicate_id),
+    FOREIGN KEY (patient_id) REFERENCES patients(id) ON DELETE CASCADE,
+    FOREIGN KEY (duplicate_id) REFERENCES patients(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_patient_duplicate_candidates_duplicate_id ON patient_duplicate_candidates (duplicate_id);
+CREATE INDEX IF NOT EXISTS idx_patient_duplicate_candidates_status_score ON patient_duplicate_candidates (status, score DESC);
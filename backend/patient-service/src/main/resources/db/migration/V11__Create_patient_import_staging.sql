@@ -0,0 +1,27 @@
+-- Staging table for bulk patient imports
+-- Each import chunk is COPYed here under its own batch_id, moved into patients with one
+-- INSERT ... SELECT and deleted again in the same transaction, so rows never outlive the chunk.
+CREATE TABLE IF NOT EXISTS patient_import_staging (
+    batch_id VARCHAR(36) NOT NULL,
+    line_number BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    patient_number VARCHAR(50) NOT NULL,
+    first_name VARCHAR(50),
+    last_name VARCHAR(50),
+    phone_number VARCHAR(20),
+    date_of_birth DATE NOT NULL,
+    gender VARCHAR(10) NOT NULL,
+    blood_type VARCHAR(5),
+    height_cm INTEGER,
+    weight_kg DECIMAL(5,2),
+    allergies TEXT,
+    medical_conditions TEXT,
+    emergency_contact_name VARCHAR(100),
+    emergency_contact_phone VARCHAR(20),
+    emergency_contact_relationship VARCHAR(50),
+    primary_doctor_id BIGINT,
+    status VARCHAR(20) NOT NULL,
+    PRIMARY KEY (batch_id, line_number)
+);
+
+COMMENT ON TABLE patient_import_staging IS 'Transient rows of bulk patient imports, loaded with COPY';
@@ -0,0 +1,38 @@
+-- Block-reserving sequences for patient and appointment numbers
+-- Each nextval reserves INCREMENT BY values, which the patient service hands out in memory.
+-- The service reads the increment in the same transaction as every nextval. Change the block size
+-- with resize_number_block() below, never with a bare ALTER SEQUENCE ... INCREMENT BY.
+CREATE SEQUENCE IF NOT EXISTS patient_number_seq START WITH 1 INCREMENT BY 100 MINVALUE 1 NO CYCLE;
+CREATE SEQUENCE IF NOT EXISTS appointment_number_seq START WITH 1 INCREMENT BY 1000 MINVALUE 1 NO CYCLE;
+
+COMMENT ON SEQUENCE patient_number_seq IS 'Patient number blocks; increment is the block size reserved per call';
+COMMENT ON SEQUENCE appointment_number_seq IS 'Appointment number blocks; increment is the block size reserved per call';
+
+-- Change a number sequence's block size. ALTER SEQUENCE ... INCREMENT BY alone is not enough: the
+-- next nextval would be last_value plus the new increment, inside the block the last caller still
+-- hands out whenever the size goes down. This restarts the sequence past that block, under the
+-- sequence lock that nextval also takes, so every block reserved before and after stays disjoint.
+CREATE OR REPLACE FUNCTION resize_number_block(p_sequence REGCLASS, p_block_size BIGINT)
+RETURNS VOID AS $$
+DECLARE
+    v_last BIGINT;
+    v_increment BIGINT;
+BEGIN
+    IF p_block_size <= 0 THEN
+        RAISE EXCEPTION 'Block size must be positive: %', p_block_size;
+    END IF;
+
+    -- A no-op ALTER takes the lock first, so no reservation happens between the read and the change
+    EXECUTE format('ALTER SEQUENCE %s NO CYCLE', p_sequence);
+    SELECT pg_sequence_last_value(p_sequence), seqincrement
+    INTO v_last, v_increment
+    FROM pg_sequence
+    WHERE seqrelid = p_sequence;
+
+    IF v_last IS NULL THEN
+        EXECUTE format('ALTER SEQUENCE %s INCREMENT BY %s', p_sequence, p_block_size);
+    ELSE
+        EXECUTE format('ALTER SEQUENCE %s INCREMENT BY %s RESTART WITH %s', p_sequence, p_block_size, v_last + v_increment);
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
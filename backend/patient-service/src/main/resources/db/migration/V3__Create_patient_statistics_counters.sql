@@ -0,0 +1,30 @@
+-- Incrementally maintained patient statistics
+-- Each patient write adds its delta to one of a fixed number of stripes, so concurrent writers rarely
+-- contend on the same row; the statistics endpoint sums the stripes. Stripe count must match
+-- PatientStatisticsService.STRIPES.
+CREATE TABLE IF NOT EXISTS patient_statistics_counters (
+    stripe SMALLINT PRIMARY KEY,
+    total_patients BIGINT NOT NULL DEFAULT 0,
+    active_patients BIGINT NOT NULL DEFAULT 0,
+    inactive_patients BIGINT NOT NULL DEFAULT 0,
+    patients_with_allergies BIGINT NOT NULL DEFAULT 0,
+    patients_with_medical_conditions BIGINT NOT NULL DEFAULT 0
+);
+
+-- Seed stripe 0 from the current population and leave the other stripes at zero
+INSERT INTO patient_statistics_counters (stripe, total_patients, active_patients, inactive_patients,
+                                         patients_with_allergies, patients_with_medical_conditions)
+SELECT 0,
+       COUNT(*),
+       COUNT(*) FILTER (WHERE status = 'ACTIVE'),
+       COUNT(*) FILTER (WHERE status = 'INACTIVE'),
+       COUNT(*) FILTER (WHERE allergies IS NOT NULL AND allergies <> ''),
+       COUNT(*) FILTER (WHERE medical_conditions IS NOT NULL AND medical_conditions <> '')
+FROM patients
+ON CONFLICT (stripe) DO NOTHING;
+
+INSERT INTO patient_statistics_counters (stripe)
+SELECT s FROM generate_series(1, 15) AS s
+ON CONFLICT (stripe) DO NOTHING;
+
+COMMENT ON TABLE patient_statistics_counters IS 'Striped running totals behind the patient statistics endpoint';
@@ -0,0 +1,16 @@
+-- Weekly working hours per doctor, read by the appointment availability engine
+-- A doctor may have several rows per weekday (split shifts); doctors without rows get the
+-- default hours from app.availability configuration. An end time of 00:00 means midnight.
+CREATE TABLE IF NOT EXISTS doctor_working_hours (
+    doctor_id BIGINT NOT NULL,
+    day_of_week SMALLINT NOT NULL CHECK (day_of_week BETWEEN 1 AND 7),
+    start_time TIME NOT NULL,
+    end_time TIME NOT NULL,
+    PRIMARY KEY (doctor_id, day_of_week, start_time),
+    CHECK (end_time > start_time OR end_time = '00:00')
+);
+
+-- Availability is rebuilt from future bookings of each doctor
+CREATE INDEX IF NOT EXISTS idx_appointments_doctor_id_appointment_date ON appointments(doctor_id, appointment_date);
+
+COMMENT ON TABLE doctor_working_hours IS 'Weekly working hours per doctor; day_of_week is ISO (1 = Monday)';
@@ -0,0 +1,56 @@
+-- Prevent double booking: no two active appointments of a doctor may overlap in time
+-- appointment_date is a TIMESTAMP without time zone, so the ranges are tsrange rather than tstzrange.
+-- btree_gist lets the plain doctor_id equality sit in the same GiST exclusion constraint as the range.
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- Existing overlaps would stop the constraint from being created. Which booking to keep is a
+-- scheduling decision for staff, and patients must be told, so the migration does not cancel
+-- anything itself: it stops with a report of the conflicting pairs. Resolve them (cancel or
+-- reschedule one booking of each pair) and run the migration again.
+DO $$
+DECLARE
+    conflict_count BIGINT;
+    report TEXT;
+BEGIN
+    WITH active AS (
+        SELECT id, doctor_id,
+               tsrange(appointment_date, appointment_date + duration_minutes * INTERVAL '1 minute') AS booked
+        FROM appointments
+        WHERE status IN ('SCHEDULED', 'CONFIRMED', 'IN_PROGRESS')
+    ),
+    conflicts AS (
+        SELECT earlier.doctor_id, earlier.id AS earlier_id, later.id AS later_id,
+               earlier.booked AS earlier_booked, later.booked AS later_booked
+        FROM active earlier
+        JOIN active later
+          ON later.doctor_id = earlier.doctor_id
+         AND later.id > earlier.id
+         AND later.booked && earlier.booked
+    )
+    SELECT COUNT(*),
+           string_agg(format('doctor %s: appointment %s %s overlaps appointment %s %s',
+                             doctor_id, earlier_id, earlier_booked, later_id, later_booked), E'\n')
+               FILTER (WHERE pair_number <= 50)
+    INTO conflict_count, report
+    FROM (SELECT conflicts.*, row_number() OVER (ORDER BY doctor_id, earlier_id, later_id) AS pair_number
+          FROM conflicts) ranked;
+
+    IF conflict_count > 0 THEN
+        RAISE EXCEPTION 'Cannot prevent overlapping appointments: % pairs of active appointments overlap', conflict_count
+            USING DETAIL = report || CASE WHEN conflict_count > 50 THEN E'\n(first 50 shown)' ELSE '' END,
+                  HINT = 'Cancel or reschedule one appointment of each pair, then run the migration again';
+    END IF;
+END $$;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'appointments_doctor_no_overlap') THEN
+        ALTER TABLE appointments ADD CONSTRAINT appointments_doctor_no_overlap
+            EXCLUDE USING gist (
+                doctor_id WITH =,
+                tsrange(appointment_date, appointment_date + duration_minutes * INTERVAL '1 minute') WITH &&
+            ) WHERE (status IN ('SCHEDULED', 'CONFIRMED', 'IN_PROGRESS'));
+    END IF;
+END $$;
+
+COMMENT ON CONSTRAINT appointments_doctor_no_overlap ON appointments IS 'Active appointments of a doctor never overlap; violations raise SQLSTATE 23P01';
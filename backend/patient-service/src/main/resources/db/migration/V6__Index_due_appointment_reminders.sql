@@ -0,0 +1,5 @@
+-- Due reminders are claimed in (appointment_date, id) order; only unsent, active rows are indexed,
+-- so the index shrinks as reminders go out
+CREATE INDEX IF NOT EXISTS idx_appointments_reminder_due
+    ON appointments (appointment_date, id)
+    WHERE reminder_sent = FALSE AND status IN ('SCHEDULED', 'CONFIRMED');
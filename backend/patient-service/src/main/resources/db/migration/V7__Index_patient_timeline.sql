@@ -0,0 +1,3 @@
+-- The patient timeline pages each source newest first by (date, id) within one patient
+CREATE INDEX IF NOT EXISTS idx_medical_records_patient_timeline ON medical_records (patient_id, visit_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_appointments_patient_timeline ON appointments (patient_id, appointment_date DESC, id DESC);
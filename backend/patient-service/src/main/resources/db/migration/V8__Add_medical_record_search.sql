@@ -0,0 +1,18 @@
+-- Full-text search over medical record text: a stored tsvector kept current by Postgres itself.
+-- Weights rank a diagnosis hit above treatment and prescription hits, and those above notes.
+-- Adding a stored generated column rewrites the table once.
+ALTER TABLE medical_records ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(diagnosis, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(treatment, '')), 'B') ||
+        setweight(to_tsvector('english', coalesce(prescription, '')), 'B') ||
+        setweight(to_tsvector('english', coalesce(notes, '')), 'C')
+    ) STORED;
+
+-- btree_gin lets patient_id share the GIN index with the tsvector. A multicolumn GIN index serves
+-- conditions on any subset of its columns, so one index covers both scoped and global searches.
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+CREATE INDEX IF NOT EXISTS idx_medical_records_search ON medical_records USING gin (patient_id, search_vector);
+
+COMMENT ON COLUMN medical_records.search_vector IS 'Weighted tsvector of diagnosis (A), treatment and prescription (B) and notes (C)';
@@ -0,0 +1,34 @@
+-- Structured observations (vital signs, lab values) as per-patient time series.
+-- Devices append to observation_samples; the compactor moves samples into one compressed block per
+-- patient, metric and day in observation_blocks, and queries read both.
+CREATE TABLE IF NOT EXISTS observation_samples (
+    id BIGSERIAL PRIMARY KEY,
+    patient_id BIGINT NOT NULL,
+    metric VARCHAR(50) NOT NULL,
+    observed_at TIMESTAMP NOT NULL,
+    reading DOUBLE PRECISION NOT NULL,
+    device_id VARCHAR(100),
+    received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (patient_id) REFERENCES patients(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_observation_samples_series ON observation_samples (patient_id, metric, observed_at);
+CREATE INDEX IF NOT EXISTS idx_observation_samples_received_at ON observation_samples (received_at);
+
+-- data holds the samples Gorilla-compressed (delta-of-delta timestamps, XOR values); the summary
+-- columns let coarse downsampling skip decoding
+CREATE TABLE IF NOT EXISTS observation_blocks (
+    patient_id BIGINT NOT NULL,
+    metric VARCHAR(50) NOT NULL,
+    block_day DATE NOT NULL,
+    first_at TIMESTAMP NOT NULL,
+    last_at TIMESTAMP NOT NULL,
+    sample_count INTEGER NOT NULL,
+    min_value DOUBLE PRECISION NOT NULL,
+    max_value DOUBLE PRECISION NOT NULL,
+    sum_value DOUBLE PRECISION NOT NULL,
+    data BYTEA NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (patient_id, metric, block_day),
+    FOREIGN KEY (patient_id) REFERENCES patients(id) ON DELETE CASCADE
+);
@@ -0,0 +1,175 @@
+package com.gvkss.patil.patient_service.availability;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link SlotCalendar} against a plain boolean-per-slot model, plus a benchmark of
+ * next-free-slot queries over a clinic-sized set of doctor calendars.
+ */
+class SlotCalendarTest {
+
+    private static final long FIRST_DAY = LocalDate.of(2024, 3, 4).toEpochDay(); // a Monday
+    private static final int DAYS = 60;
+
+    @Test
+    void workingHoursFollowTheWeekTemplate() {
+        SlotCalendar calendar = new SlotCalendar(FIRST_DAY, DAYS, weekdays(LocalTime.of(9, 0), LocalTime.of(17, 0)));
+        LocalDateTime monday = LocalDate.ofEpochDay(FIRST_DAY).atStartOfDay();
+
+        long[] out = new long[3];
+        int found = calendar.findFree(SlotCalendar.slotOf(monday), Long.MAX_VALUE, 6, 3, out, 0);
+        assertEquals(3, found);
+        assertEquals(monday.withHour(9), SlotCalendar.timeOf(out[0]));
+        assertEquals(monday.withHour(9).withMinute(30), SlotCalendar.timeOf(out[1]));
+        assertEquals(monday.withHour(10), SlotCalendar.timeOf(out[2]));
+
+        // Saturday and Sunday hold no working slots, so Friday's last slot is followed by Monday's first
+        LocalDateTime friday = monday.plusDays(4).withHour(16).withMinute(30);
+        found = calendar.findFree(SlotCalendar.slotOf(friday), Long.MAX_VALUE, 6, 2, out, 0);
+        assertEquals(2, found);
+        assertEquals(friday, SlotCalendar.timeOf(out[0]));
+        assertEquals(monday.plusDays(7).withHour(9), SlotCalendar.timeOf(out[1]));
+    }
+
+    @Test
+    void bookingsHonourTheirDuration() {
+        SlotCalendar calendar = new SlotCalendar(FIRST_DAY, DAYS, weekdays(LocalTime.of(9, 0), LocalTime.of(17, 0)));
+        LocalDateTime nine = LocalDate.ofEpochDay(FIRST_DAY).atTime(9, 0);
+        long from = SlotCalendar.slotOf(nine);
+
+        assertTrue(calendar.reserve(from, from + SlotCalendar.slotsFor(45)));
+        assertFalse(calendar.reserve(from + 6, from + 12), "overlaps the 45-minute booking");
+        assertTrue(calendar.isFree(from + 12, from + 18));
+
+        long[] out = new long[1];
+        calendar.findFree(from, Long.MAX_VALUE, 6, 1, out, 0);
+        assertEquals(nine.plusMinutes(60), SlotCalendar.timeOf(out[0]));
+
+        // Releasing never frees time outside working hours
+        calendar.release(from - 24, from + 12);
+        assertFalse(calendar.isFree(from - 1, from));
+        assertTrue(calendar.isFree(from, from + 12));
+    }
+
+    @Test
+    void matchesBooleanModelUnderRandomBookings() {
+        Random random = new Random(7);
+        long[] week = weekdays(LocalTime.of(8, 0), LocalTime.of(18, 0));
+        SlotCalendar.addWorkingHours(week, 6, LocalTime.of(10, 0), LocalTime.of(13, 0));
+        SlotCalendar calendar = new SlotCalendar(FIRST_DAY, DAYS, week);
+        boolean[] model = new boolean[DAYS * SlotCalendar.SLOTS_PER_DAY];
+        for (int day = 0; day < DAYS; day++) {
+            int weekday = (int) Math.floorMod(FIRST_DAY + day + 3, 7L);
+            for (int slot = 0; slot < SlotCalendar.SLOTS_PER_DAY; slot++) {
+                model[day * SlotCalendar.SLOTS_PER_DAY + slot] =
+                        (week[weekday * SlotCalendar.WORDS_PER_DAY + (slot >>> 6)] & (1L << slot)) != 0;
+            }
+        }
+        long base = calendar.getFirstSlot();
+
+        for (int i = 0; i < 20_000; i++) {
+            int from = random.nextInt(model.length);
+            int to = Math.min(model.length, from + 1 + random.nextInt(48));
+            if (random.nextInt(3) == 0) {
+                calendar.release(base + from, base + to);
+                for (int s = from; s < to; s++) {
+                    int day = s / SlotCalendar.SLOTS_PER_DAY;
+                    int slot = s % SlotCalendar.SLOTS_PER_DAY;
+                    int weekday = (int) Math.floorMod(FIRST_DAY + day + 3, 7L);
+                    model[s] |= (week[weekday * SlotCalendar.WORDS_PER_DAY + (slot >>> 6)] & (1L << slot)) != 0;
+                }
+            } else {
+                boolean expected = true;
+                for (int s = from; s < to; s++) {
+                    expected &= model[s];
+                    model[s] = false;
+                }
+                assertEquals(expected, calendar.reserve(base + from, base + to));
+            }
+
+            int length = 1 + random.nextInt(12);
+            int count = 1 + random.nextInt(8);
+            int queryFrom = random.nextInt(model.length);
+            long[] actual = new long[count];
+            int found = calendar.findFree(base + queryFrom, Long.MAX_VALUE, length, count, actual, 0);
+            long[] expected = naiveFindFree(model, queryFrom, length, count);
+            assertArrayEquals(expected, Arrays.copyOf(actual, found));
+        }
+    }
+
+    @Test
+    void benchmarkNextFreeSlots() {
+        int doctors = 2_000;
+        Random random = new Random(11);
+        long[] week = weekdays(LocalTime.of(9, 0), LocalTime.of(17, 0));
+        SlotCalendar[] calendars = new SlotCalendar[doctors];
+        for (int d = 0; d < doctors; d++) {
+            calendars[d] = new SlotCalendar(FIRST_DAY, DAYS, week);
+            // Fill most of the first fortnight, as a busy practice would be
+            for (int day = 0; day < 14; day++) {
+                long dayStart = (FIRST_DAY + day) * SlotCalendar.SLOTS_PER_DAY;
+                for (int b = 0; b < 14; b++) {
+                    long from = dayStart + 108 + random.nextInt(90);
+                    calendars[d].reserve(from, from + 6);
+                }
+            }
+        }
+
+        long[] out = new long[10];
+        long start = FIRST_DAY * SlotCalendar.SLOTS_PER_DAY;
+        long checksum = 0;
+        for (int i = 0; i < 200_000; i++) {
+            checksum += calendars[i % doctors].findFree(start, Long.MAX_VALUE, 6, 10, out, 0);
+        }
+        int queries = 1_000_000;
+        long started = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            checksum += calendars[i % doctors].findFree(start + (i & 127), Long.MAX_VALUE, 6, 10, out, 0);
+        }
+        long elapsed = System.nanoTime() - started;
+        System.out.printf("SlotCalendar next 10 free 30-minute slots: %d ns per query over %d doctors%n",
+                elapsed / queries, doctors);
+        assertTrue(checksum > 0);
+    }
+
+    private static long[] weekdays(LocalTime start, LocalTime end) {
+        long[] week = new long[7 * SlotCalendar.WORDS_PER_DAY];
+        for (int day = 1; day <= 5; day++) {
+            SlotCalendar.addWorkingHours(week, day, start, end);
+        }
+        return week;
+    }
+
+    private static long[] naiveFindFree(boolean[] model, int from, int length, int count) {
+        long[] found = new long[count];
+        int n = 0;
+        int slot = from;
+        while (slot < model.length && n < count) {
+            if (!model[slot]) {
+                slot++;
+                continue;
+            }
+            int dayEnd = (slot / SlotCalendar.SLOTS_PER_DAY + 1) * SlotCalendar.SLOTS_PER_DAY;
+            int runEnd = slot;
+            while (runEnd < dayEnd && model[runEnd]) {
+                runEnd++;
+            }
+            for (int s = slot; s + length <= runEnd && n < count; s += length) {
+                found[n++] = FIRST_DAY * SlotCalendar.SLOTS_PER_DAY + s;
+            }
+            slot = runEnd;
+        }
+        return Arrays.copyOf(found, n);
+    }
+}
@@ -0,0 +1,47 @@
+package com.gvkss.patil.patient_service.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * claim-, patient- and user-service each carry the same {@link ReplicaRoutingDataSource},
+ * {@link ReplicaDataSourceConfig} and {@link ReplicaRoutingDataSourceTest}, differing only in
+ * their package. This fails when a copy here drifts from one in a sibling service, so a fix made
+ * in one service is made in all three. It needs the whole backend checkout and is skipped in a
+ * service checked out alone.
+ */
+class ReplicaCopiesTest {
+
+    private static final List<String> SERVICES = List.of("claim-service", "patient-service", "user-service");
+    private static final List<String> FILES = List.of(
+            "src/main/java/com/gvkss/patil/%s/config/ReplicaRoutingDataSource.java",
+            "src/main/java/com/gvkss/patil/%s/config/ReplicaDataSourceConfig.java",
+            "src/test/java/com/gvkss/patil/%s/config/ReplicaRoutingDataSourceTest.java",
+            "src/test/java/com/gvkss/patil/%s/config/ReplicaCopiesTest.java");
+
+    @Test
+    void copiesMatchTheSiblingServices() throws IOException {
+        Path backend = Path.of("").toAbsolutePath().getParent();
+        String self = Path.of("").toAbsolutePath().getFileName().toString();
+        for (String file : FILES) {
+            String own = normalized(backend.resolve(self), file);
+            for (String service : SERVICES) {
+                Path sibling = backend.resolve(service);
+                assumeTrue(Files.isDirectory(sibling), service + " not checked out");
+                assertEquals(own, normalized(sibling, file), service + " differs in " + String.format(file, "<service>"));
+            }
+        }
+    }
+
+    private static String normalized(Path service, String file) throws IOException {
+        String packageName = service.getFileName().toString().replace('-', '_');
+        return Files.readString(service.resolve(String.format(file, packageName))).replace(packageName, "<service>");
+    }
+}
@@ -0,0 +1,163 @@
+package com.gvkss.patil.patient_service.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link ReplicaRoutingDataSource} over two H2 databases standing in for the primary and
+ * the replica, behind the same lazy proxy and transaction manager as in production, and for
+ * {@link ReplicaDataSourceConfig} staying out of the way when no replica is configured. Replay lag
+ * is set directly; the lag probe query is PostgreSQL-only.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final long MAX_LAG_MILLIS = 5000;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        routing = new ReplicaRoutingDataSource(MAX_LAG_MILLIS, 60_000, meterRegistry);
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Route.PRIMARY, database("primary"),
+                ReplicaRoutingDataSource.Route.REPLICA, database("replica")));
+        routing.afterPropertiesSet();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        routing.setReplicaLagMillis(0);
+        // The proxy borrows a primary connection once to learn the pool's default settings
+        assertEquals("primary", node());
+        double primaryReads = routed("primary", "read-write");
+
+        assertEquals("replica", readOnly.execute(status -> node()));
+        assertEquals("primary", readWrite.execute(status -> node()));
+        // Outside a transaction nothing is known to be read-only
+        assertEquals("primary", node());
+        assertEquals(1.0, routed("replica", "read-only"));
+        assertEquals(primaryReads + 2, routed("primary", "read-write"));
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhileTheReplicaIsUnavailableOrLagging() {
+        assertEquals("primary", readOnly.execute(status -> node()));
+
+        routing.setReplicaLagMillis(MAX_LAG_MILLIS + 1);
+        assertEquals("primary", readOnly.execute(status -> node()));
+
+        routing.setReplicaLagMillis(MAX_LAG_MILLIS);
+        assertEquals("replica", readOnly.execute(status -> node()));
+        assertEquals(1.0, routed("primary", "replica-unavailable"));
+        assertEquals(1.0, routed("primary", "replica-lagging"));
+    }
+
+    @Test
+    void clientsReadTheirOwnWritesFromThePrimary() {
+        routing.setReplicaLagMillis(0);
+        authenticate("alice");
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = name"));
+
+        assertEquals("primary", readOnly.execute(status -> node()));
+        authenticate("bob");
+        assertEquals("replica", readOnly.execute(status -> node()));
+        assertEquals(1.0, routed("primary", "read-your-writes"));
+    }
+
+    @Test
+    void rolledBackWritesDoNotPinTheClient() {
+        routing.setReplicaLagMillis(0);
+        authenticate("alice");
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE node SET name = name");
+            status.setRollbackOnly();
+        });
+
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void noRoutingWithoutAReplica() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class))
+                .withUserConfiguration(ReplicaDataSourceConfig.class)
+                .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                .withPropertyValues("spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID(),
+                        "spring.datasource.username=sa", "spring.datasource.password=");
+
+        runner.run(context -> {
+            assertThat(context).hasSingleBean(DataSource.class);
+            assertThat(context).doesNotHaveBean(ReplicaRoutingDataSource.class);
+        });
+        runner.withPropertyValues("app.datasource.replica.enabled=true",
+                        "app.datasource.replica.url=jdbc:h2:mem:" + UUID.randomUUID(),
+                        "app.datasource.replica.lag-check-interval-ms=60000")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(ReplicaRoutingDataSource.class);
+                    assertThat(context.getBean(DataSource.class)).isInstanceOf(LazyConnectionDataSourceProxy.class);
+                    // The lag probe cannot run its PostgreSQL query here, so the replica counts as unavailable
+                    assertEquals(ReplicaRoutingDataSource.LAG_UNKNOWN,
+                            context.getBean(ReplicaRoutingDataSource.class).getReplicaLagMillis());
+                });
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private double routed(String route, String reason) {
+        return meterRegistry.get("datasource.routing").tag("route", route).tag("reason", reason).counter().count();
+    }
+
+    private static void authenticate(String user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    private static DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(10))");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,100 @@
+package com.gvkss.patil.patient_service.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gvkss.patil.patient_service.entity.Patient;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link ApiResponseSerializer} writes the same JSON as the HashMap envelopes it replaced,
+ * serialized by plain Jackson.
+ */
+class ApiResponseSerializerTest {
+
+    private static final String AWKWARD = "Said \"urgent\"\\ on\nline two\t\u0001 </script> café 😀";
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void pageMatchesMapEnvelope() throws Exception {
+        List<PatientResponse> patients = List.of(patient(1L, AWKWARD), patient(2L, null));
+        PageImpl<PatientResponse> page = new PageImpl<>(patients, PageRequest.of(0, 2), 5);
+
+        Map<String, Object> old = new HashMap<>();
+        old.put("success", true);
+        old.put("message", "Patients retrieved successfully");
+        old.put("data", patients);
+        old.put("totalElements", page.getTotalElements());
+        old.put("totalPages", page.getTotalPages());
+        old.put("currentPage", page.getNumber());
+
+        assertSameJson(old, ApiResponse.page(page, "Patients retrieved successfully"));
+    }
+
+    @Test
+    void dataIsWrittenEvenWhenNull() throws Exception {
+        Map<String, Object> old = new HashMap<>();
+        old.put("success", true);
+        old.put("message", "Patient retrieved successfully");
+        old.put("data", patient(1L, "Peanuts"));
+        assertSameJson(old, ApiResponse.success(patient(1L, "Peanuts"), "Patient retrieved successfully"));
+
+        old.put("data", null);
+        assertSameJson(old, ApiResponse.success(null, "Patient retrieved successfully"));
+        assertTrue(mapper.writeValueAsString(ApiResponse.success(null, "m")).contains("\"data\":null"));
+    }
+
+    @Test
+    void messagesWithoutDataMatchMapEnvelope() throws Exception {
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        error.put("message", "Failed to retrieve patient: " + AWKWARD);
+        assertSameJson(error, ApiResponse.error("Failed to retrieve patient: " + AWKWARD));
+        assertFalse(mapper.writeValueAsString(ApiResponse.error("x")).contains("data"));
+
+        Map<String, Object> success = new HashMap<>();
+        success.put("success", true);
+        success.put("message", AWKWARD);
+        assertSameJson(success, ApiResponse.success(AWKWARD));
+        // Second time from the pre-encoded message cache
+        assertSameJson(success, ApiResponse.success(AWKWARD));
+    }
+
+    private void assertSameJson(Object expected, ApiResponse<?> actual) throws Exception {
+        String expectedJson = mapper.writeValueAsString(expected);
+        String actualJson = mapper.writeValueAsString(actual);
+        JsonNode expectedTree = mapper.readTree(expectedJson);
+        JsonNode actualTree = mapper.readTree(actualJson);
+        assertEquals(expectedTree, actualTree, () -> "expected " + expectedJson + "\nbut was  " + actualJson);
+    }
+
+    private static PatientResponse patient(Long id, String allergies) {
+        return PatientResponse.builder()
+                .id(id)
+                .userId(100 + id)
+                .patientNumber("PAT-20240301-00000000" + id)
+                .firstName("Asha")
+                .lastName("O'Neil")
+                .dateOfBirth(LocalDate.of(1980, 2, 29))
+                .gender(Patient.Gender.FEMALE)
+                .weightKg(61.5)
+                .allergies(allergies)
+                .status(Patient.PatientStatus.ACTIVE)
+                .createdAt(LocalDateTime.of(2024, 3, 1, 8, 15, 0, 500_000_000))
+                .age(44)
+                .build();
+    }
+}
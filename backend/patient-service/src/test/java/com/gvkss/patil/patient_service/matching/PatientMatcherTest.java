@@ -0,0 +1,83 @@
+package com.gvkss.patil.patient_service.matching;
+
+import com.gvkss.patil.patient_service.entity.Patient;
+import com.gvkss.patil.patient_service.matching.PatientMatcher.Demographics;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link Soundex}, {@link JaroWinkler} and the blocking keys and scores of {@link PatientMatcher}.
+ */
+class PatientMatcherTest {
+
+    private static final LocalDate BIRTH_DATE = LocalDate.of(1984, 3, 7);
+
+    @Test
+    void soundexCodes() {
+        assertEquals("R163", Soundex.encode("Robert"));
+        assertEquals("R163", Soundex.encode("Rupert"));
+        assertEquals("R150", Soundex.encode("Rubin"));
+        assertEquals("A261", Soundex.encode("Ashcraft"));
+        assertEquals("T522", Soundex.encode("Tymczak"));
+        assertEquals("P236", Soundex.encode("Pfister"));
+        assertEquals("H555", Soundex.encode("Honeyman"));
+        assertEquals("S530", Soundex.encode("smith"));
+        assertEquals(Soundex.encode("Smith"), Soundex.encode("Smyth"));
+        assertEquals("O242", Soundex.encode("O'Gallagher"));
+        assertNull(Soundex.encode("--"));
+    }
+
+    @Test
+    void jaroWinklerSimilarity() {
+        assertEquals(0.961, JaroWinkler.similarity("MARTHA", "MARHTA"), 0.001);
+        assertEquals(0.840, JaroWinkler.similarity("DWAYNE", "DUANE"), 0.001);
+        assertEquals(0.813, JaroWinkler.similarity("DIXON", "DICKSONX"), 0.001);
+        assertEquals(1.0, JaroWinkler.similarity("ANNA", "ANNA"));
+        assertEquals(0.0, JaroWinkler.similarity("ABC", "XYZ"));
+        assertEquals(0.0, JaroWinkler.similarity("", "ABC"));
+    }
+
+    @Test
+    void blockingKeysMeetAcrossTyposAndSwaps() {
+        Demographics patient = Demographics.of(1L, "José", "Smith", BIRTH_DATE, Patient.Gender.MALE, "+1 (555) 010-2030");
+        assertEquals("JOSE", patient.firstName());
+        assertEquals("5550102030", patient.phone());
+        assertEquals(List.of("DN|1984-03-07|J200", "DN|1984-03-07|S530", "NY|J200|S530|1984", "P|5550102030"),
+                PatientMatcher.blockingKeys(patient));
+
+        Demographics swapped = Demographics.of(2L, "Smith", "Jose", BIRTH_DATE, Patient.Gender.MALE, null);
+        Demographics wrongDay = Demographics.of(3L, "Jose", "Smyth", BIRTH_DATE.withDayOfMonth(17), Patient.Gender.MALE, null);
+        assertTrue(PatientMatcher.blockingKeys(swapped).contains("DN|1984-03-07|S530"));
+        assertTrue(PatientMatcher.blockingKeys(wrongDay).contains("NY|J200|S530|1984"));
+        assertEquals(List.of(), PatientMatcher.blockingKeys(Demographics.of(4L, null, null, BIRTH_DATE, Patient.Gender.MALE, "12")));
+    }
+
+    @Test
+    void scoresSeparateDuplicatesFromNamesakes() {
+        Demographics patient = Demographics.of(1L, "Katherine", "Johnson", BIRTH_DATE, Patient.Gender.FEMALE, "5550102030");
+
+        PatientMatcher.Match typo = PatientMatcher.score(patient,
+                Demographics.of(2L, "Kathrine", "Jonson", BIRTH_DATE, Patient.Gender.FEMALE, "5550102030"));
+        PatientMatcher.Match swapped = PatientMatcher.score(patient,
+                Demographics.of(3L, "Johnson", "Katherine", BIRTH_DATE, Patient.Gender.FEMALE, null));
+        PatientMatcher.Match dayMonthSwapped = PatientMatcher.score(patient,
+                Demographics.of(4L, "Katherine", "Johnson", LocalDate.of(1984, 7, 3), Patient.Gender.FEMALE, "5550102030"));
+        PatientMatcher.Match namesake = PatientMatcher.score(patient,
+                Demographics.of(5L, "Kevin", "Johnson", BIRTH_DATE, Patient.Gender.MALE, "5559998877"));
+        PatientMatcher.Match stranger = PatientMatcher.score(patient,
+                Demographics.of(6L, "Maria", "Garcia", LocalDate.of(1990, 1, 1), Patient.Gender.FEMALE, null));
+
+        assertTrue(typo.score() >= 0.95, typo.toString());
+        assertTrue(swapped.score() >= 0.9, swapped.toString());
+        assertTrue(dayMonthSwapped.score() >= 0.85, dayMonthSwapped.toString());
+        assertTrue(namesake.score() < 0.7, namesake.toString());
+        assertTrue(stranger.score() < 0.5, stranger.toString());
+        assertEquals("name 0.94, date of birth, phone, gender", typo.reasons());
+    }
+}
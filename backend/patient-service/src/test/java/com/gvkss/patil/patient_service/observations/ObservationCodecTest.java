@@ -0,0 +1,97 @@
+package com.gvkss.patil.patient_service.observations;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link ObservationCodec}: bit-exact round trips over random and edge-case series, and
+ * the compression reached on realistic vital signs.
+ */
+class ObservationCodecTest {
+
+    private static final double[] SPECIAL_VALUES = {0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, 1e-300, 98.6};
+
+    @Test
+    void roundTripsRandomSeries() {
+        Random random = new Random(11);
+        for (int run = 0; run < 500; run++) {
+            int count = random.nextInt(300);
+            long[] times = new long[count];
+            double[] values = new double[count];
+            long time = random.nextLong() >> 2;
+            for (int i = 0; i < count; i++) {
+                switch (random.nextInt(5)) {
+                    case 0 -> time += 1_000;
+                    case 1 -> time += random.nextInt(5_000);
+                    case 2 -> time += random.nextInt(Integer.MAX_VALUE);
+                    case 3 -> time += random.nextLong() >>> 30;
+                    default -> { }
+                }
+                times[i] = time;
+                values[i] = switch (random.nextInt(4)) {
+                    case 0 -> SPECIAL_VALUES[random.nextInt(SPECIAL_VALUES.length)];
+                    case 1 -> Double.longBitsToDouble(random.nextLong());
+                    case 2 -> i > 0 ? values[i - 1] : 0.0;
+                    default -> Math.round(random.nextGaussian() * 1000) / 10.0;
+                };
+            }
+            assertRoundTrip(times, values);
+        }
+    }
+
+    @Test
+    void roundTripsEdgeCases() {
+        assertRoundTrip(new long[0], new double[0]);
+        assertRoundTrip(new long[] {Long.MIN_VALUE}, new double[] {Double.NaN});
+        assertRoundTrip(new long[] {Long.MIN_VALUE + 1, 0, Long.MAX_VALUE, Long.MAX_VALUE}, new double[] {-0.0, 0.0, -0.0, -0.0});
+        assertRoundTrip(new long[] {0, Long.MAX_VALUE - 1, Long.MAX_VALUE}, new double[] {1.0, 2.0, 3.0});
+        assertRoundTrip(new long[] {5, 5, 5, 5}, new double[] {Double.longBitsToDouble(1), Double.longBitsToDouble(-1L),
+                Double.longBitsToDouble(Long.MIN_VALUE | 1), Double.longBitsToDouble(1)});
+    }
+
+    @Test
+    void compressesRealisticVitals() {
+        Random random = new Random(5);
+        int count = 86_400 / 15;
+        long[] times = new long[count];
+        double[] heartRate = new double[count];
+        double[] temperature = new double[count];
+        long time = 1_704_067_200_000L;
+        double rate = 72;
+        for (int i = 0; i < count; i++) {
+            // A monitor every 15 s, sometimes a few milliseconds late
+            time += random.nextInt(20) == 0 ? 15_000 + random.nextInt(40) : 15_000;
+            times[i] = time;
+            rate = Math.max(40, Math.min(160, rate + random.nextInt(3) - 1));
+            heartRate[i] = rate;
+            temperature[i] = Math.round((36.8 + random.nextGaussian() * 0.1) * 10) / 10.0;
+        }
+
+        double heartRateBytes = (double) ObservationCodec.encode(times, heartRate, count).length / count;
+        double temperatureBytes = (double) ObservationCodec.encode(times, temperature, count).length / count;
+        System.out.printf("Compressed %d samples: heart rate %.2f bytes/sample, temperature %.2f bytes/sample (raw 16)%n",
+                count, heartRateBytes, temperatureBytes);
+        assertRoundTrip(times, heartRate);
+        assertRoundTrip(times, temperature);
+        assertTrue(heartRateBytes < 2.0, "heart rate took " + heartRateBytes + " bytes/sample");
+        assertTrue(temperatureBytes < 6.0, "temperature took " + temperatureBytes + " bytes/sample");
+    }
+
+    private static void assertRoundTrip(long[] times, double[] values) {
+        byte[] block = ObservationCodec.encode(times, values, times.length);
+        assertEquals(times.length, ObservationCodec.count(block));
+        long[] decodedTimes = new long[times.length];
+        double[] decodedValues = new double[times.length];
+        assertEquals(times.length, ObservationCodec.decode(block, decodedTimes, decodedValues));
+        assertArrayEquals(times, decodedTimes);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decodedValues[i]), "value " + i);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.client.UserClient;
+import com.gvkss.patil.patient_service.dto.AvailableSlotResponse;
+import com.gvkss.patil.patient_service.entity.Appointment;
+import com.gvkss.patil.patient_service.exception.AppointmentConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Concurrency tests for the double-booking guard of {@link AppointmentAvailabilityService} on H2
+ * in PostgreSQL mode. H2 has no exclusion constraints, so any overlap left in the table would have
+ * been let through by the in-memory guard alone. The constraint itself (V5, and the conflict the
+ * service maps from its violation) is not exercised here and needs PostgreSQL. The doctor
+ * directory comes from a mocked user-service client.
+ */
+class AppointmentAvailabilityServiceTest {
+
+    private static final long[] DOCTORS = {101L, 102L, 103L};
+    private static final String INSERT_APPOINTMENT_SQL =
+            "INSERT INTO appointments (patient_id, doctor_id, appointment_number, appointment_date, duration_minutes, " +
+            "appointment_type, status) VALUES (?, ?, ?, ?, ?, 'CONSULTATION', 'SCHEDULED')";
+    private static final String OVERLAPS_SQL =
+            "SELECT COUNT(*) FROM appointments a JOIN appointments b " +
+            "ON a.doctor_id = b.doctor_id AND a.id < b.id " +
+            "AND a.appointment_date < b.appointment_date + b.duration_minutes * INTERVAL '1' MINUTE " +
+            "AND b.appointment_date < a.appointment_date + a.duration_minutes * INTERVAL '1' MINUTE " +
+            "WHERE a.status = 'SCHEDULED' AND b.status = 'SCHEDULED'";
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private UserClient userClient;
+    private AppointmentAvailabilityService service;
+    private LocalDateTime dayStart;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = TestDatabase.create("V4__Create_doctor_working_hours.sql");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        userClient = mock(UserClient.class);
+        when(userClient.getDoctors()).thenReturn(directory("Cardiology", DOCTORS));
+        jdbcTemplate.update("INSERT INTO patients (id, user_id, patient_number, date_of_birth, gender) " +
+                "VALUES (1, 1, 'PAT-1', DATE '1980-01-01', 'FEMALE')");
+        for (long doctorId : DOCTORS) {
+            // Every day, so the test does not depend on the weekday it runs on
+            for (int day = 1; day <= 7; day++) {
+                jdbcTemplate.update("INSERT INTO doctor_working_hours VALUES (?, ?, TIME '08:00:00', TIME '18:00:00')",
+                        doctorId, day);
+            }
+        }
+
+        service = new AppointmentAvailabilityService(jdbcTemplate, userClient, true, 14, 100, 5,
+                new String[] {"MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY"}, "09:00", "17:00");
+        service.load();
+        dayStart = LocalDate.now().plusDays(2).atTime(8, 0);
+    }
+
+    @Test
+    void conflictOffersAlternatives() {
+        book(DOCTORS[0], dayStart.plusHours(1), 30);
+
+        AppointmentConflictException conflict = null;
+        try {
+            book(DOCTORS[0], dayStart.plusHours(1).plusMinutes(15), 30);
+        } catch (AppointmentConflictException e) {
+            conflict = e;
+        }
+        assertTrue(conflict != null, "overlapping booking must be rejected");
+        assertFalse(conflict.getAlternatives().isEmpty());
+        assertEquals(dayStart.plusHours(1).plusMinutes(30), conflict.getAlternatives().get(0).getStartTime());
+
+        // Back to back is not an overlap, and another doctor is unaffected
+        book(DOCTORS[0], dayStart.plusHours(1).plusMinutes(30), 30);
+        book(DOCTORS[1], dayStart.plusHours(1), 30);
+        assertEquals(0L, jdbcTemplate.queryForObject(OVERLAPS_SQL, Long.class));
+    }
+
+    @Test
+    void cancelledTimeCanBeBookedAgain() {
+        long id = book(DOCTORS[0], dayStart.plusHours(2), 60);
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.update("UPDATE appointments SET status = 'CANCELLED' WHERE id = ?", id);
+            service.released(appointment(id, DOCTORS[0], dayStart.plusHours(2), 60));
+        });
+        book(DOCTORS[0], dayStart.plusHours(2).plusMinutes(30), 30);
+    }
+
+    @Test
+    void concurrentBookingsNeverOverlap() throws Exception {
+        int threads = 16;
+        int attemptsPerThread = 400;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    long doctorId = DOCTORS[random.nextInt(DOCTORS.length)];
+                    // Ten hours a day for two days, on a 5-minute grid with 15 to 60 minute bookings
+                    LocalDateTime startTime = dayStart.plusDays(random.nextInt(2)).plusMinutes(5L * random.nextInt(108));
+                    int minutes = 15 * (1 + random.nextInt(4));
+                    try {
+                        book(doctorId, startTime, minutes);
+                        booked.incrementAndGet();
+                    } catch (AppointmentConflictException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        // Rebuilds race the bookings, as the scheduled refresh would
+        Future<?> rebuilder = executor.submit(() -> {
+            start.await();
+            while (running.get()) {
+                service.refresh();
+                Thread.sleep(5);
+            }
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        running.set(false);
+        rebuilder.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        assertEquals(threads * attemptsPerThread, booked.get() + rejected.get());
+        assertTrue(booked.get() > 0 && rejected.get() > 0, "the schedule should both fill up and turn bookings away");
+        assertEquals(booked.get(), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM appointments", Integer.class));
+        assertEquals(0L, jdbcTemplate.queryForObject(OVERLAPS_SQL, Long.class));
+    }
+
+    @Test
+    void keepsTheLastDoctorDirectoryWhileUserServiceIsDown() {
+        for (int day = 1; day <= 7; day++) {
+            jdbcTemplate.update("INSERT INTO doctor_working_hours VALUES (104, ?, TIME '08:00:00', TIME '18:00:00')", day);
+        }
+        when(userClient.getDoctors()).thenReturn(directory("Neurology", 104L));
+        service.refresh();
+        assertEquals(List.of(104L), doctorsOf(service.findSlotsForSpecialty("neurology", dayStart, 30, 3)));
+        assertTrue(service.findSlotsForSpecialty("Cardiology", dayStart, 30, 3).isEmpty());
+
+        when(userClient.getDoctors()).thenThrow(new RuntimeException("Connection refused"));
+        service.refresh();
+
+        // The rebuild went ahead with the directory read before, picking up this booking
+        book(104L, dayStart, 30);
+        service.refresh();
+        assertEquals(dayStart.plusMinutes(30), service.findSlots(104L, dayStart, 30, 1).get(0).getStartTime());
+        assertEquals(List.of(104L), doctorsOf(service.findSlotsForSpecialty("Neurology", dayStart, 30, 3)));
+    }
+
+    @Test
+    void noCalendarsUntilTheDirectoryIsRead() {
+        UserClient unavailable = mock(UserClient.class);
+        when(unavailable.getDoctors()).thenThrow(new RuntimeException("Connection refused"));
+        AppointmentAvailabilityService cold = new AppointmentAvailabilityService(jdbcTemplate, unavailable, true, 14, 100, 5,
+                new String[] {"MONDAY"}, "09:00", "17:00");
+        cold.load();
+
+        assertFalse(cold.getStats().isLoaded());
+    }
+
+    private static List<Map<String, Object>> directory(String specialty, long... doctorIds) {
+        return Arrays.stream(doctorIds)
+                .<Map<String, Object>>mapToObj(id -> Map.of("id", id, "specialty", specialty))
+                .toList();
+    }
+
+    private static List<Long> doctorsOf(List<AvailableSlotResponse> slots) {
+        return slots.stream().map(AvailableSlotResponse::getDoctorId).distinct().toList();
+    }
+
+    private long book(long doctorId, LocalDateTime startTime, int minutes) {
+        return transactionTemplate.execute(tx -> {
+            service.hold(doctorId, startTime, minutes);
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(INSERT_APPOINTMENT_SQL, new String[] {"id"});
+                ps.setLong(1, 1L);
+                ps.setLong(2, doctorId);
+                ps.setString(3, UUID.randomUUID().toString());
+                ps.setTimestamp(4, Timestamp.valueOf(startTime));
+                ps.setInt(5, minutes);
+                return ps;
+            }, keys);
+            long id = keys.getKey().longValue();
+            service.booked(appointment(id, doctorId, startTime, minutes));
+            return id;
+        });
+    }
+
+    private static Appointment appointment(long id, long doctorId, LocalDateTime startTime, int minutes) {
+        return Appointment.builder()
+                .id(id)
+                .doctorId(doctorId)
+                .appointmentDate(startTime)
+                .durationMinutes(minutes)
+                .status(Appointment.AppointmentStatus.SCHEDULED)
+                .build();
+    }
+}
@@ -0,0 +1,139 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.client.NotificationClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link AppointmentReminderService} on H2 in PostgreSQL mode, with several dispatchers
+ * standing in for patient-service nodes sharing one database. H2 accepts FOR UPDATE SKIP LOCKED but
+ * locks rows its own way, so these show that no reminder is sent twice under H2's locking, not
+ * PostgreSQL's; whether the due-reminder query uses the partial index of V6 is not covered either.
+ */
+class AppointmentReminderServiceTest {
+
+    private static final int DUE = 1_000;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private final Map<Long, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = TestDatabase.create();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO patients (id, user_id, patient_number, date_of_birth, gender) " +
+                "VALUES (1, 42, 'PAT-1', DATE '1980-01-01', 'FEMALE')");
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < DUE; i++) {
+            // Many share a start time, so paging has to break ties on id
+            insert(now.plusMinutes(10 + i / 7), "SCHEDULED");
+        }
+        insert(now.plusHours(30), "SCHEDULED");
+        insert(now.minusHours(1), "SCHEDULED");
+        insert(now.plusHours(2), "CANCELLED");
+    }
+
+    @Test
+    void concurrentDispatchersSendEachReminderOnce() throws Exception {
+        int nodes = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(nodes);
+        CountDownLatch start = new CountDownLatch(1);
+        List<AppointmentReminderService> dispatchers = new ArrayList<>();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int n = 0; n < nodes; n++) {
+            AppointmentReminderService dispatcher = dispatcher(new RecordingClient(false), 25);
+            dispatchers.add(dispatcher);
+            results.add(executor.submit(() -> {
+                start.await();
+                return dispatcher.dispatch();
+            }));
+        }
+        start.countDown();
+        int sent = 0;
+        for (Future<Integer> result : results) {
+            sent += result.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        // A row skipped while another node held it is picked up on the next pass
+        for (AppointmentReminderService dispatcher : dispatchers) {
+            sent += dispatcher.dispatch();
+        }
+
+        assertEquals(DUE, sent);
+        assertEquals(DUE, deliveries.size());
+        assertTrue(deliveries.values().stream().allMatch(count -> count.get() == 1), "a reminder was sent twice");
+        assertEquals(DUE, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM appointments WHERE reminder_sent", Integer.class));
+        assertEquals(0L, dispatchers.get(0).getStats().getPendingReminders());
+    }
+
+    @Test
+    void failedDeliveryLeavesRemindersPending() {
+        AppointmentReminderService failing = dispatcher(new RecordingClient(true), 100);
+        assertEquals(0, failing.dispatch());
+        assertEquals(1L, failing.getStats().getBatchesFailed());
+        assertEquals(DUE, failing.getStats().getPendingReminders());
+
+        AppointmentReminderService working = dispatcher(new RecordingClient(false), 100);
+        assertEquals(DUE, working.dispatch());
+        assertEquals(10L, working.getStats().getBatchesSent());
+        assertEquals(0, working.dispatch());
+    }
+
+    private AppointmentReminderService dispatcher(NotificationClient client, int batchSize) {
+        return new AppointmentReminderService(jdbcTemplate, new DataSourceTransactionManager(dataSource), client,
+                true, Duration.ofHours(24), batchSize);
+    }
+
+    private void insert(LocalDateTime appointmentDate, String status) {
+        jdbcTemplate.update("INSERT INTO appointments (patient_id, doctor_id, appointment_number, appointment_date, " +
+                        "appointment_type, status) VALUES (1, 7, ?, ?, 'CONSULTATION', ?)",
+                UUID.randomUUID().toString(), Timestamp.valueOf(appointmentDate), status);
+    }
+
+    private class RecordingClient extends NotificationClient {
+
+        private final boolean failing;
+
+        RecordingClient(boolean failing) {
+            super("http://localhost:0", Duration.ofSeconds(1));
+            this.failing = failing;
+        }
+
+        @Override
+        public boolean sendBatch(List<Map<String, Object>> notifications) {
+            if (failing) {
+                return false;
+            }
+            for (Map<String, Object> notification : notifications) {
+                assertEquals(42L, notification.get("userId"));
+                deliveries.computeIfAbsent((Long) notification.get("appointmentId"), id -> new AtomicInteger())
+                        .incrementAndGet();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gvkss.patil.patient_service.dto.BulkExportFile;
+import com.gvkss.patil.patient_service.dto.BulkExportStatusResponse;
+import com.gvkss.patil.patient_service.dto.BulkExportStatusResponse.ExportStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link BulkExportService} on H2 in PostgreSQL mode: the NDJSON files of an export, plain
+ * and gzipped, with type and _since filters, and deletion of exports with their files. H2 returns
+ * whole result sets whatever the fetch size, so that memory stays flat on a large table (which
+ * relies on PostgreSQL's cursor in a transaction) is not covered, nor are replica reads.
+ */
+class BulkExportServiceTest {
+
+    private static final int PATIENTS = 500;
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    @TempDir
+    Path directory;
+
+    private JdbcTemplate jdbcTemplate;
+    private BulkExportService service;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = TestDatabase.create("V10__Create_master_patient_index.sql");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        service = new BulkExportService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                directory, 50, Duration.ofHours(1), 2, 3);
+
+        List<Object[]> patients = new ArrayList<>();
+        List<Object[]> records = new ArrayList<>();
+        List<Object[]> appointments = new ArrayList<>();
+        for (long id = 1; id <= PATIENTS; id++) {
+            // Every tenth patient changed recently, the rest a year earlier
+            LocalDateTime updatedAt = id % 10 == 0 ? UPDATED.plusDays(1) : UPDATED.minusYears(1);
+            patients.add(new Object[] {id, id, "PAT-" + id, "Name" + id, "Family" + id, "555" + id,
+                    LocalDate.of(1950, 1, 1).plusDays(id * 37), id % 2 == 0 ? "FEMALE" : "MALE",
+                    id % 50 == 0 ? "DECEASED" : "ACTIVE", updatedAt});
+            for (int r = 0; r < 2; r++) {
+                records.add(new Object[] {id, 100 + id % 7, "CONSULTATION", LocalDate.of(2024, 1, 1).plusDays(id % 90),
+                        "Hypertension \"stage 1\"", "I10", r == 1 && id % 25 == 0 ? "DELETED" : "ACTIVE", updatedAt});
+            }
+            appointments.add(new Object[] {id, 100 + id % 7, "APT-" + id, UPDATED.plusHours(id), "CONSULTATION",
+                    id % 3 == 0 ? "CANCELLED" : "SCHEDULED", updatedAt});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO patients (id, user_id, patient_number, first_name, last_name, phone_number, " +
+                "date_of_birth, gender, status, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", patients);
+        jdbcTemplate.batchUpdate("INSERT INTO medical_records (patient_id, doctor_id, record_type, visit_date, diagnosis, " +
+                "diagnosis_code, status, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", records);
+        jdbcTemplate.batchUpdate("INSERT INTO appointments (patient_id, doctor_id, appointment_number, appointment_date, " +
+                "appointment_type, status, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)", appointments);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void exportsEveryResourceType() throws Exception {
+        for (boolean gzip : new boolean[] {false, true}) {
+            BulkExportStatusResponse status = await(service.startExport(List.of(), null, gzip, "test"));
+            assertEquals(ExportStatus.COMPLETED, status.getStatus(), status.getError());
+            assertEquals(Map.of("Patient", (long) PATIENTS, "Encounter", 2L * PATIENTS - PATIENTS / 25,
+                    "Appointment", (long) PATIENTS), status.getExported());
+            assertEquals(3, status.getFiles().size());
+
+            List<JsonNode> patients = read(status, "Patient");
+            assertEquals(PATIENTS, patients.size());
+            JsonNode patient = patients.stream().filter(p -> p.get("id").asText().equals("50")).findFirst().orElseThrow();
+            assertEquals("PAT-50", patient.at("/identifier/0/value").asText());
+            assertEquals("Family50", patient.at("/name/0/family").asText());
+            assertEquals("female", patient.get("gender").asText());
+            assertTrue(patient.get("deceasedBoolean").asBoolean());
+
+            List<JsonNode> encounters = read(status, "Encounter");
+            assertEquals(2 * PATIENTS - PATIENTS / 25, encounters.size());
+            assertTrue(encounters.stream().allMatch(e -> e.at("/subject/reference").asText().startsWith("Patient/")));
+            assertEquals("Hypertension \"stage 1\"", encounters.get(0).at("/reasonCode/0/text").asText());
+
+            List<JsonNode> appointments = read(status, "Appointment");
+            assertEquals(PATIENTS / 3, appointments.stream().filter(a -> a.get("status").asText().equals("cancelled")).count());
+            assertTrue(status.getFiles().get(0).getFileName().endsWith(gzip ? ".ndjson.gz" : ".ndjson"));
+        }
+    }
+
+    @Test
+    void filtersByTypeAndSince() throws Exception {
+        BulkExportStatusResponse status = await(service.startExport(List.of("Patient", "Appointment"), UPDATED, false, "test"));
+        assertEquals(ExportStatus.COMPLETED, status.getStatus(), status.getError());
+        assertEquals(List.of("Patient", "Appointment"), status.getTypes());
+        assertEquals(PATIENTS / 10, read(status, "Patient").size());
+        assertEquals(PATIENTS / 10, read(status, "Appointment").size());
+
+        assertThrows(IllegalArgumentException.class, () -> service.startExport(List.of("Observation"), null, false, "test"));
+    }
+
+    @Test
+    void deletingAnExportRemovesItsFiles() throws Exception {
+        BulkExportStatusResponse status = await(service.startExport(List.of(), null, true, "test"));
+        Path file = service.getFile(status.getJobId(), status.getFiles().get(0).getFileName());
+        assertTrue(Files.exists(file));
+        assertThrows(RuntimeException.class, () -> service.getFile(status.getJobId(), "../../etc/passwd"));
+
+        service.deleteExport(status.getJobId());
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(directory.resolve(status.getJobId())));
+        assertThrows(RuntimeException.class, () -> service.getStatus(status.getJobId()));
+    }
+
+    private BulkExportStatusResponse await(BulkExportStatusResponse started) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofMinutes(1).toNanos();
+        BulkExportStatusResponse status = started;
+        while (status.getStatus() == ExportStatus.IN_PROGRESS && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            status = service.getStatus(started.getJobId());
+        }
+        return status;
+    }
+
+    private List<JsonNode> read(BulkExportStatusResponse status, String type) throws IOException {
+        BulkExportFile file = status.getFiles().stream().filter(f -> f.getType().equals(type)).findFirst().orElseThrow();
+        Path path = service.getFile(status.getJobId(), file.getFileName());
+        assertEquals(Files.size(path), file.getBytes());
+        List<JsonNode> resources = new ArrayList<>();
+        try (InputStream in = file.getFileName().endsWith(".gz")
+                ? new GZIPInputStream(Files.newInputStream(path)) : Files.newInputStream(path);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode resource = objectMapper.readTree(line);
+                assertEquals(type, resource.get("resourceType").asText());
+                resources.add(resource);
+            }
+        }
+        assertEquals(file.getCount(), resources.size());
+        return resources;
+    }
+}
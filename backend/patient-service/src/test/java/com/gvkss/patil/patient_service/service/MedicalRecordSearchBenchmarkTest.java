@@ -0,0 +1,120 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.dto.MedicalRecordSearchResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Benchmark of {@link MedicalRecordSearchService} over a synthetic corpus, 10M records by default.
+ * Full-text search needs PostgreSQL, so this only runs when pointed at a database, e.g.
+ * {@code mvn test -Dtest=MedicalRecordSearchBenchmarkTest -Dsearch.benchmark.url=jdbc:postgresql://localhost:5432/postgres
+ * -Dsearch.benchmark.username=postgres -Dsearch.benchmark.password=1234}. It works in its own schema
+ * ({@code search.benchmark.schema}), which it drops and recreates; {@code search.benchmark.records}
+ * sets the corpus size.
+ */
+class MedicalRecordSearchBenchmarkTest {
+
+    private static final int PATIENTS = 200_000;
+    private static final int CHUNK = 1_000_000;
+    private static final int RUNS = 20;
+
+    // Skewed towards the first terms, so some are very common and some rare
+    private static final String TERMS = "ARRAY['hypertension','diabetes','asthma','migraine','bronchitis','pneumonia'," +
+            "'arthritis','anemia','influenza','dermatitis','gastritis','sinusitis','tonsillitis','otitis','conjunctivitis'," +
+            "'hypothyroidism','hyperlipidemia','obesity','insomnia','anxiety','depression','fracture','sprain','laceration'," +
+            "'concussion','appendicitis','cholecystitis','pancreatitis','hepatitis','nephrolithiasis','cystitis','gout'," +
+            "'psoriasis','eczema','urticaria','angina','arrhythmia','tachycardia','bradycardia','embolism','thrombosis'," +
+            "'stroke','epilepsy','neuropathy','sciatica','scoliosis','osteoporosis','tendinitis','bursitis','glaucoma']";
+    private static final String TREATMENTS = "ARRAY['rest','physiotherapy','surgery','dressing','immobilization'," +
+            "'inhaler','nebulization','hydration','diet','exercise','counselling','splint','cast','suture','injection'," +
+            "'infusion','monitoring','referral','observation','vaccination']";
+    private static final String DRUGS = "ARRAY['amoxicillin','metformin','lisinopril','atorvastatin','omeprazole'," +
+            "'salbutamol','ibuprofen','paracetamol','prednisolone','levothyroxine','amlodipine','sertraline','warfarin'," +
+            "'insulin','azithromycin','cetirizine','losartan','gabapentin','tramadol','furosemide']";
+
+    private static final String INSERT_RECORDS_SQL =
+            "INSERT INTO medical_records (patient_id, doctor_id, record_type, visit_date, diagnosis, treatment, prescription, notes) " +
+            "SELECT 1 + (g % " + PATIENTS + "), 1 + (g % 500), 'CONSULTATION', DATE '2015-01-01' + (g % 3650), " +
+            "t[1 + floor(power(random(), 3) * 50)::int] || ' with ' || t[1 + floor(random() * 50)::int] || ' suspected', " +
+            "r[1 + floor(power(random(), 2) * 20)::int] || ' and ' || r[1 + floor(random() * 20)::int] || ' for ' || (2 + g % 12) || ' weeks', " +
+            "d[1 + floor(power(random(), 2) * 20)::int] || ' ' || (5 * (1 + g % 20)) || 'mg twice daily', " +
+            "'Patient reports ' || t[1 + floor(random() * 50)::int] || ' history; follow up visit ' || (g % 100000) " +
+            "FROM generate_series(?, ?) g, " +
+            "(SELECT " + TERMS + " AS t, " + TREATMENTS + " AS r, " + DRUGS + " AS d) vocabulary";
+
+    @Test
+    void benchmarkSearch() {
+        String url = System.getProperty("search.benchmark.url");
+        assumeTrue(url != null, "search.benchmark.url not set");
+        String schema = System.getProperty("search.benchmark.schema", "search_benchmark");
+        int records = Integer.getInteger("search.benchmark.records", 10_000_000);
+        String username = System.getProperty("search.benchmark.username", "postgres");
+        String password = System.getProperty("search.benchmark.password", "");
+
+        new JdbcTemplate(new DriverManagerDataSource(url, username, password))
+                .execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE; CREATE SCHEMA " + schema);
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, username, password);
+        Properties properties = new Properties();
+        properties.setProperty("currentSchema", schema + ",public");
+        dataSource.setConnectionProperties(properties);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__Create_patient_tables.sql")).execute(dataSource);
+        long started = System.nanoTime();
+        jdbcTemplate.update("INSERT INTO patients (id, user_id, patient_number, date_of_birth, gender) " +
+                "SELECT g, g, 'PAT-' || g, DATE '1950-01-01' + (g % 20000), CASE WHEN g % 2 = 0 THEN 'MALE' ELSE 'FEMALE' END " +
+                "FROM generate_series(1, ?) g", PATIENTS);
+        for (int from = 1; from <= records; from += CHUNK) {
+            jdbcTemplate.update(INSERT_RECORDS_SQL, from, Math.min(records, from + CHUNK - 1));
+        }
+        System.out.printf("Loaded %d medical records in %d s%n", records, (System.nanoTime() - started) / 1_000_000_000L);
+
+        // Adding the generated column and GIN index to the loaded table, as the migration would in production
+        started = System.nanoTime();
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V8__Add_medical_record_search.sql"))
+                .execute(dataSource);
+        jdbcTemplate.execute("ANALYZE medical_records");
+        System.out.printf("V8 migration (tsvector column and GIN index) took %d s%n",
+                (System.nanoTime() - started) / 1_000_000_000L);
+
+        MedicalRecordSearchService service = new MedicalRecordSearchService(jdbcTemplate, 100);
+        List<String> queries = List.of("glaucoma", "hypertension", "\"twice daily\" warfarin", "asthma or eczema",
+                "fracture -cast", "bursitis tendinitis physiotherapy");
+        for (String query : queries) {
+            MedicalRecordSearchResponse first = service.search(query, null, null, 20);
+            assertFalse(first.getResults().isEmpty(), "no results for " + query);
+            report(query, "all patients, first page", () -> service.search(query, null, null, 20));
+            if (first.getNextCursor() != null) {
+                report(query, "all patients, second page", () -> service.search(query, null, first.getNextCursor(), 20));
+            }
+            long patientId = first.getResults().get(0).getPatientId();
+            report(query, "one patient", () -> {
+                MedicalRecordSearchResponse scoped = service.search(query, patientId, null, 20);
+                assertTrue(scoped.getResults().stream().allMatch(result -> result.getPatientId() == patientId));
+            });
+        }
+    }
+
+    private static void report(String query, String scope, Runnable search) {
+        long[] millis = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long started = System.nanoTime();
+            search.run();
+            millis[i] = (System.nanoTime() - started) / 1_000_000L;
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-36s %-28s median %5d ms  p95 %5d ms%n", "'" + query + "'", scope,
+                millis[RUNS / 2], millis[RUNS * 95 / 100]);
+    }
+}
@@ -0,0 +1,208 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.dto.ObservationBatchRequest;
+import com.gvkss.patil.patient_service.dto.ObservationBucket;
+import com.gvkss.patil.patient_service.dto.ObservationPoint;
+import com.gvkss.patil.patient_service.dto.ObservationSampleRequest;
+import com.gvkss.patil.patient_service.dto.ObservationStatsResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link ObservationService} on H2 in PostgreSQL mode: range and bucket queries agree with
+ * the raw samples before, between and after compactions, including late samples merged into existing
+ * blocks and several compactors running at once. Concurrent compaction runs on H2's row locks, not
+ * PostgreSQL's FOR UPDATE SKIP LOCKED, and the size of the stored blocks in bytea is not measured.
+ */
+class ObservationServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final int DAYS = 3;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private final List<ObservationSampleRequest> heartRate = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = TestDatabase.create("V9__Create_observation_store.sql");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO patients (id, user_id, patient_number, date_of_birth, gender) VALUES " +
+                "(1, 42, 'PAT-1', DATE '1980-01-01', 'FEMALE'), (2, 43, 'PAT-2', DATE '1975-01-01', 'MALE')");
+
+        // Every 30 s with some jitter, so timestamps are distinct and mostly regular
+        Random random = new Random(9);
+        double rate = 70;
+        for (LocalDateTime time = START; time.isBefore(START.plusDays(DAYS)); time = time.plusSeconds(30)) {
+            rate = Math.max(45, Math.min(150, rate + random.nextInt(5) - 2));
+            LocalDateTime observedAt = random.nextInt(10) == 0 ? time.plusNanos(random.nextInt(900) * 1_000_000L) : time;
+            heartRate.add(sample(1L, "heart_rate", observedAt, rate));
+        }
+    }
+
+    @Test
+    void queriesMatchRawSamplesAcrossCompactions() {
+        ObservationService service = service(700);
+        List<ObservationSampleRequest> shuffled = new ArrayList<>(heartRate);
+        Collections.shuffle(shuffled, new Random(1));
+        int half = shuffled.size() / 2;
+        ingest(service, shuffled.subList(0, half));
+        // Another patient and metric in the same days must not leak into the series
+        ingest(service, List.of(sample(2L, "heart_rate", START.plusHours(1), 200.0),
+                sample(1L, "spo2", START.plusHours(1), 97.0)));
+        assertMatchesRaw(service, shuffled.subList(0, half));
+
+        assertEquals(half + 2, service.compact());
+        assertEquals(0L, service.getStats().getPendingSamples());
+        assertMatchesRaw(service, shuffled.subList(0, half));
+
+        // Late samples land in days that already have blocks, and are read from both tables until compacted
+        ingest(service, shuffled.subList(half, shuffled.size()));
+        assertMatchesRaw(service, heartRate);
+        assertEquals(shuffled.size() - half, service.compact());
+        assertMatchesRaw(service, heartRate);
+
+        ObservationStatsResponse stats = service.getStats();
+        assertEquals(DAYS + 2L, stats.getBlocks());
+        assertEquals(heartRate.size() + 2L, stats.getCompressedSamples());
+        assertTrue(stats.getBytesPerSample() < 3.0, "bytes per sample " + stats.getBytesPerSample());
+        assertEquals(List.of(200.0), service.getObservations(2L, "HEART_RATE", START, START.plusDays(1))
+                .stream().map(ObservationPoint::getValue).toList());
+    }
+
+    @Test
+    void concurrentCompactorsCompactEachSampleOnce() throws Exception {
+        ingest(service(500), heartRate);
+        int nodes = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(nodes);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int n = 0; n < nodes; n++) {
+            ObservationService compactor = service(300);
+            results.add(executor.submit(() -> {
+                start.await();
+                return compactor.compact();
+            }));
+        }
+        start.countDown();
+        int compacted = 0;
+        for (Future<Integer> result : results) {
+            compacted += result.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        ObservationService service = service(500);
+        assertEquals(heartRate.size(), compacted);
+        assertEquals(0L, service.getStats().getPendingSamples());
+        assertEquals((long) heartRate.size(), service.getStats().getCompressedSamples());
+        assertMatchesRaw(service, heartRate);
+    }
+
+    @Test
+    void rejectsOversizedQueries() {
+        ObservationService service = new ObservationService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                Duration.ofSeconds(-1), 1000, 100, 10);
+        ingest(service, heartRate.subList(0, 500));
+        assertThrows(RuntimeException.class, () -> service.getObservations(1L, "heart_rate", START, START.plusDays(1)));
+        assertThrows(RuntimeException.class,
+                () -> service.getBuckets(1L, "heart_rate", START, START.plusDays(1), Duration.ofHours(1)));
+        assertEquals(1, service.getBuckets(1L, "heart_rate", START, START.plusDays(1), Duration.ofHours(6)).size());
+    }
+
+    private void assertMatchesRaw(ObservationService service, List<ObservationSampleRequest> raw) {
+        List<ObservationSampleRequest> expected = raw.stream()
+                .sorted(Comparator.comparing(ObservationSampleRequest::getTimestamp))
+                .toList();
+        LocalDateTime from = START.plusHours(5).plusMinutes(17);
+        LocalDateTime to = START.plusDays(2).plusHours(3);
+        List<ObservationPoint> points = service.getObservations(1L, "heart_rate", from, to);
+        List<ObservationSampleRequest> inRange = expected.stream()
+                .filter(s -> !s.getTimestamp().isBefore(from) && s.getTimestamp().isBefore(to))
+                .toList();
+        assertEquals(inRange.size(), points.size());
+        for (int i = 0; i < points.size(); i++) {
+            assertEquals(inRange.get(i).getTimestamp(), points.get(i).getTimestamp());
+            assertEquals(inRange.get(i).getValue(), points.get(i).getValue());
+        }
+
+        // Whole days (blocks summarized) and unaligned buckets (blocks decoded)
+        assertBuckets(service, expected, START.minusDays(1), START.plusDays(DAYS + 1), Duration.ofDays(1));
+        assertBuckets(service, expected, from, to, Duration.ofMinutes(45));
+        assertBuckets(service, expected, START, START.plusDays(DAYS), Duration.ofHours(5));
+    }
+
+    private void assertBuckets(ObservationService service, List<ObservationSampleRequest> raw,
+                               LocalDateTime from, LocalDateTime to, Duration width) {
+        List<ObservationBucket> expected = new ArrayList<>();
+        for (LocalDateTime start = from; start.isBefore(to); start = start.plus(width)) {
+            LocalDateTime bucketStart = start;
+            LocalDateTime bucketEnd = start.plus(width).isBefore(to) ? start.plus(width) : to;
+            List<Double> values = raw.stream()
+                    .filter(s -> !s.getTimestamp().isBefore(bucketStart) && s.getTimestamp().isBefore(bucketEnd))
+                    .map(ObservationSampleRequest::getValue)
+                    .toList();
+            if (!values.isEmpty()) {
+                expected.add(ObservationBucket.builder()
+                        .start(bucketStart)
+                        .count(values.size())
+                        .min(Collections.min(values))
+                        .max(Collections.max(values))
+                        .avg(values.stream().mapToDouble(Double::doubleValue).average().orElseThrow())
+                        .build());
+            }
+        }
+        List<ObservationBucket> actual = service.getBuckets(1L, "heart_rate", from, to, width);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(expected.get(i).getStart(), actual.get(i).getStart());
+            assertEquals(expected.get(i).getCount(), actual.get(i).getCount());
+            assertEquals(expected.get(i).getMin(), actual.get(i).getMin());
+            assertEquals(expected.get(i).getMax(), actual.get(i).getMax());
+            assertEquals(expected.get(i).getAvg(), actual.get(i).getAvg(), 1e-9);
+        }
+    }
+
+    private ObservationService service(int compactBatchSize) {
+        // Negative compact-after so samples are compactable as soon as they are stored
+        return new ObservationService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                Duration.ofSeconds(-1), compactBatchSize, 1_000_000, 10_000);
+    }
+
+    private static void ingest(ObservationService service, List<ObservationSampleRequest> samples) {
+        for (int from = 0; from < samples.size(); from += 1000) {
+            service.ingest(ObservationBatchRequest.builder()
+                    .deviceId("monitor-7")
+                    .samples(new ArrayList<>(samples.subList(from, Math.min(samples.size(), from + 1000))))
+                    .build());
+        }
+    }
+
+    private static ObservationSampleRequest sample(Long patientId, String metric, LocalDateTime timestamp, double value) {
+        return ObservationSampleRequest.builder()
+                .patientId(patientId)
+                .metric(metric)
+                .timestamp(timestamp)
+                .value(value)
+                .build();
+    }
+}
@@ -0,0 +1,207 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gvkss.patil.patient_service.dto.PatientImportError;
+import com.gvkss.patil.patient_service.dto.PatientImportResponse;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link PatientImportService} on H2 in PostgreSQL mode, where the staging table is filled
+ * with batch inserts instead of COPY: per-row errors, duplicates within the upload and against
+ * existing patients, and the counters and match keys of the loaded patients. The COPY path, and so
+ * the quoting of the CSV it is fed, only runs against PostgreSQL and is not covered here.
+ */
+class PatientImportServiceTest {
+
+    private static final String[] SYLLABLES = {"ka", "ri", "mo", "tan", "se", "lu", "var", "di", "pe", "no", "sha",
+            "gor", "el", "vi", "bra", "tu", "ham", "ock", "zi", "len", "mar", "qu", "ost", "fe"};
+    private static final String HEADER = "userId,firstName,lastName,phoneNumber,dateOfBirth,gender,allergies,status";
+
+    private JdbcTemplate jdbcTemplate;
+    private PatientImportService service;
+    private final AtomicLong statisticsTotal = new AtomicLong();
+    private final AtomicLong statisticsWithAllergies = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = TestDatabase.create("V10__Create_master_patient_index.sql",
+                "V11__Create_patient_import_staging.sql");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        AtomicLong numbers = new AtomicLong();
+        NumberAllocator numberAllocator = mock(NumberAllocator.class);
+        when(numberAllocator.allocate(anyString(), anyString(), anyInt())).thenAnswer(invocation ->
+                LongStream.range(0, invocation.<Integer>getArgument(2))
+                        .mapToObj(i -> "PAT-" + numbers.incrementAndGet())
+                        .toList());
+        PatientStatisticsService statistics = mock(PatientStatisticsService.class);
+        doAnswer(invocation -> {
+            PatientStatisticsService.Contribution delta = invocation.getArgument(0);
+            statisticsTotal.addAndGet(delta.total());
+            statisticsWithAllergies.addAndGet(delta.withAllergies());
+            return null;
+        }).when(statistics).apply(any());
+
+        service = new PatientImportService(jdbcTemplate, transactionManager, numberAllocator, statistics,
+                new PatientMatchService(jdbcTemplate, transactionManager, 0.85, 1000, 2, 10_000),
+                new ObjectMapper().findAndRegisterModules(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                1000, 50, 4, true);
+
+        jdbcTemplate.update("INSERT INTO patients (id, user_id, patient_number, date_of_birth, gender) " +
+                "VALUES (1000000, 77, 'PAT-EXISTING', DATE '1970-01-01', 'MALE')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void importsCsvAndReportsRejectedRows() {
+        List<String> lines = new ArrayList<>(List.of(HEADER));
+        int valid = 0;
+        int withAllergies = 0;
+        Random random = new Random(5);
+        String lastName9 = null;
+        for (int userId = 1; userId <= 5000; userId++) {
+            if (userId == 77) {
+                continue;
+            }
+            String lastName = name(random, 3);
+            lastName9 = userId == 9 ? lastName : lastName9;
+            String allergies = userId % 4 == 0 ? "\"Penicillin, \"\"latex\"\"\"" : "";
+            lines.add(userId + "," + name(random, 2) + "," + lastName + "," + (6_000_000_000L + random.nextInt(1_000_000_000)) +
+                    "," + LocalDate.of(1940, 1, 1).plusDays(random.nextInt(60 * 365)) + "," +
+                    (userId % 2 == 0 ? "FEMALE" : "MALE") + "," + allergies + ",");
+            valid++;
+            withAllergies += userId % 4 == 0 ? 1 : 0;
+        }
+        int existingLine = lines.size() + 1;
+        lines.add("77,Existing,Patient,,1970-01-01,MALE,,");
+        int duplicateLine = lines.size() + 1;
+        lines.add("10,Again,Family10,,1980-01-01,MALE,,");
+        lines.add("");
+        int badPhoneLine = lines.size() + 1;
+        lines.add("6001,Bad,Phone,12ab,1980-01-01,MALE,,");
+        int noGenderLine = lines.size() + 1;
+        lines.add("6002,No,Gender,,1980-01-01,,,");
+        int shortLine = lines.size() + 1;
+        lines.add("6003,Short");
+        int badDateLine = lines.size() + 1;
+        lines.add("6004,Bad,Date,,1980-13-45,MALE,,");
+        int badUserLine = lines.size() + 1;
+        lines.add("x6005,Bad,User,,1980-01-01,MALE,,");
+
+        PatientImportResponse result = service.importPatients(stream(lines), PatientImportService.Format.CSV);
+
+        assertEquals(valid + 7, result.getRows());
+        assertEquals(valid, result.getImported());
+        assertEquals(7, result.getRejected());
+        Map<Long, PatientImportError> errors = result.getErrors().stream()
+                .collect(Collectors.toMap(PatientImportError::getLine, error -> error));
+        assertEquals(7, errors.size());
+        assertTrue(errors.get((long) existingLine).getMessage().contains("already exists"));
+        assertTrue(errors.get((long) duplicateLine).getMessage().contains("Duplicate userId"));
+        assertEquals("Invalid phone number format", errors.get((long) badPhoneLine).getMessage());
+        assertEquals("Gender is required", errors.get((long) noGenderLine).getMessage());
+        assertTrue(errors.get((long) shortLine).getMessage().contains("Expected 8 columns"));
+        assertEquals(6004L, errors.get((long) badDateLine).getUserId());
+        assertTrue(errors.get((long) badUserLine).getMessage().startsWith("Invalid userId"));
+
+        assertEquals(valid + 1L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM patients", Long.class));
+        assertEquals("Penicillin, \"latex\"", jdbcTemplate.queryForObject(
+                "SELECT allergies FROM patients WHERE user_id = 4", String.class));
+        assertEquals(lastName9, jdbcTemplate.queryForObject(
+                "SELECT last_name FROM patients WHERE user_id = 9", String.class));
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM patient_import_staging", Long.class));
+        assertEquals(valid, statisticsTotal.get());
+        assertEquals(withAllergies, statisticsWithAllergies.get());
+        assertNotNull(result.getDuplicateScan());
+        assertEquals(valid + 1L, result.getDuplicateScan().getPatients());
+        assertTrue(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT patient_id) FROM patient_match_keys", Long.class) >= valid);
+
+        // Importing the same file again only finds existing patients
+        PatientImportResponse again = service.importPatients(stream(lines), PatientImportService.Format.CSV);
+        assertEquals(0, again.getImported());
+        assertEquals(valid + 7, again.getRejected());
+        assertEquals(50, again.getErrors().size());
+        assertTrue(again.isErrorsTruncated());
+    }
+
+    @Test
+    void importsNdjson() {
+        List<String> lines = List.of(
+                "{\"userId\": 1, \"firstName\": \"Asha\", \"lastName\": \"Rao\", \"dateOfBirth\": \"1990-05-04\", \"gender\": \"FEMALE\", \"heightCm\": 160}",
+                "{\"userId\": \"2\", \"dateOfBirth\": \"1985-01-01\", \"gender\": \"MALE\", \"status\": \"INACTIVE\"}",
+                "{\"userId\": 3, \"dateOfBirth\": \"1985-01-01\", \"gender\": \"MALE\", \"shoeSize\": 44}",
+                "{\"userId\": 4, \"dateOfBirth\": \"1985-01-01\", \"gender\": \"MALE\", \"heightCm\": 20}",
+                "{\"userId\": 5, \"dateOfBirth\": ",
+                "[1, 2]");
+
+        PatientImportResponse result = service.importPatients(stream(lines), PatientImportService.Format.NDJSON);
+
+        assertEquals(6, result.getRows());
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(3L, 4L, 5L, 6L), result.getErrors().stream().map(PatientImportError::getLine).toList());
+        assertTrue(result.getErrors().get(0).getMessage().contains("shoeSize"), result.getErrors().get(0).getMessage());
+        assertEquals("Height must be at least 50 cm", result.getErrors().get(1).getMessage());
+        assertEquals("INACTIVE", jdbcTemplate.queryForObject("SELECT status FROM patients WHERE user_id = 2", String.class));
+        assertEquals(160, jdbcTemplate.queryForObject("SELECT height_cm FROM patients WHERE user_id = 1", Integer.class));
+    }
+
+    @Test
+    void rejectsUnknownCsvColumns() {
+        assertThrows(RuntimeException.class, () -> service.importPatients(
+                stream(List.of("userId,shoeSize", "1,44")), PatientImportService.Format.CSV));
+        assertThrows(RuntimeException.class, () -> service.importPatients(
+                stream(List.of("firstName,lastName", "A,B")), PatientImportService.Format.CSV));
+    }
+
+    @Test
+    void parsesQuotedCsvFields() {
+        assertEquals(List.of("a", "b, c", "say \"hi\"", ""), PatientImportService.parseCsvLine("a,\"b, c\",\"say \"\"hi\"\"\","));
+        assertThrows(RuntimeException.class, () -> PatientImportService.parseCsvLine("a,\"b"));
+    }
+
+    private static String name(Random random, int syllables) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static ByteArrayInputStream stream(List<String> lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,182 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.dto.DuplicateCandidateResponse;
+import com.gvkss.patil.patient_service.dto.DuplicateScanResponse;
+import com.gvkss.patil.patient_service.entity.Patient;
+import com.gvkss.patil.patient_service.matching.PatientMatcher;
+import com.gvkss.patil.patient_service.matching.PatientMatcher.Demographics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link PatientMatchService} on H2 in PostgreSQL mode: the blocked batch scan against
+ * comparing every pair, and incremental indexing of new and updated patients. How the key lookups
+ * perform on PostgreSQL's indexes at production size is not covered.
+ */
+class PatientMatchServiceTest {
+
+    private static final int PATIENTS = 4_000;
+    private static final int DUPLICATES = 200;
+    private static final String[] FIRST_NAMES = {"James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael",
+            "Linda", "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas",
+            "Sarah", "Charles", "Karen", "Priya", "Arjun", "Wei", "Mei", "Carlos", "Sofia", "Ahmed", "Fatima"};
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller",
+            "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas",
+            "Taylor", "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris", "Sanchez", "Clark",
+            "Patel", "Sharma", "Kumar", "Chen", "Wang", "Nguyen", "Kim", "Singh", "Khan", "Ali", "Reddy", "Rao"};
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private PatientMatchService service;
+    private final List<Demographics> population = new ArrayList<>();
+    private final Set<List<Long>> injected = new HashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = TestDatabase.create("V10__Create_master_patient_index.sql");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        service = new PatientMatchService(jdbcTemplate, new DataSourceTransactionManager(dataSource), 0.85, 1000, 4, 700);
+
+        Random random = new Random(17);
+        for (long id = 1; id <= PATIENTS; id++) {
+            insert(new Demographics(id,
+                    FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                    LocalDate.of(1940, 1, 1).plusDays(random.nextInt(60 * 365)),
+                    random.nextBoolean() ? Patient.Gender.MALE : Patient.Gender.FEMALE,
+                    random.nextInt(4) == 0 ? null : String.valueOf(6_000_000_000L + random.nextInt(1_000_000_000))));
+        }
+        // The same people registered again, with the mistakes registration desks make
+        for (long id = PATIENTS + 1; id <= PATIENTS + DUPLICATES; id++) {
+            Demographics original = population.get(random.nextInt(PATIENTS));
+            String first = original.firstName();
+            String last = original.lastName();
+            LocalDate birthDate = original.dateOfBirth();
+            String phone = original.phone();
+            switch ((int) (id % 4)) {
+                // Swapped letters in short names like Rao are too different to call; leave out the phone instead
+                case 0 -> {
+                    if (last.length() >= 5) {
+                        last = transpose(last, random);
+                    } else {
+                        phone = null;
+                    }
+                }
+                case 1 -> {
+                    first = original.lastName();
+                    last = original.firstName();
+                }
+                case 2 -> {
+                    if (birthDate.getDayOfMonth() <= 12 && birthDate.getDayOfMonth() != birthDate.getMonthValue()) {
+                        birthDate = LocalDate.of(birthDate.getYear(), birthDate.getDayOfMonth(), birthDate.getMonthValue());
+                    } else {
+                        birthDate = birthDate.withDayOfMonth(birthDate.getDayOfMonth() % 28 + 1);
+                    }
+                }
+                default -> phone = null;
+            }
+            insert(new Demographics(id, first, last, birthDate, original.gender(), phone));
+            // A different birth date only scores as a duplicate when the phone number backs it up
+            if (id % 4 != 2 || phone != null) {
+                injected.add(List.of(original.patientId(), id));
+            }
+        }
+    }
+
+    @Test
+    void scanFindsWhatComparingEveryPairFinds() {
+        DuplicateScanResponse scan = service.scanAll();
+        assertEquals(PATIENTS + DUPLICATES, scan.getPatients());
+        assertEquals(0, scan.getSkippedBlocks());
+
+        Set<List<Long>> found = new HashSet<>();
+        for (DuplicateCandidateResponse candidate : service.getPendingCandidates(1000)) {
+            found.add(List.of(candidate.getPatientId(), candidate.getDuplicateId()));
+        }
+        assertEquals(scan.getCandidates(), found.size());
+
+        Set<List<Long>> everyPair = new HashSet<>();
+        for (int i = 0; i < population.size(); i++) {
+            for (int j = i + 1; j < population.size(); j++) {
+                if (PatientMatcher.similarity(population.get(i), population.get(j)) >= 0.85) {
+                    everyPair.add(List.of(population.get(i).patientId(), population.get(j).patientId()));
+                }
+            }
+        }
+        long pairs = (long) population.size() * (population.size() - 1) / 2;
+        System.out.printf("Scanned %d patients: %d comparisons instead of %d, %d candidates (%d by comparing every pair)%n",
+                scan.getPatients(), scan.getComparisons(), pairs, found.size(), everyPair.size());
+
+        assertEquals(everyPair, found);
+        assertTrue(found.containsAll(injected), "missed injected duplicates");
+        assertTrue(scan.getComparisons() * 50 < pairs, "comparisons " + scan.getComparisons());
+
+        // A second scan gives the same result
+        assertEquals(found.size(), service.scanAll().getCandidates());
+        assertEquals(found.size(), service.getPendingCandidates(1000).size());
+    }
+
+    @Test
+    void indexingMaintainsCandidatesIncrementally() {
+        service.scanAll();
+        Demographics original = population.get(10);
+
+        Patient duplicate = insert(new Demographics(PATIENTS + DUPLICATES + 1, original.firstName(),
+                transpose(original.lastName(), new Random(3)), original.dateOfBirth(), original.gender(), original.phone()));
+        List<DuplicateCandidateResponse> candidates = service.indexPatient(duplicate);
+        assertTrue(candidates.stream().anyMatch(c -> c.getPatientId() == original.patientId()), candidates.toString());
+
+        // Once they no longer look alike, the candidate goes away
+        duplicate.setFirstName("Zebulon");
+        duplicate.setPhoneNumber(null);
+        assertTrue(service.indexPatient(duplicate).stream().noneMatch(c -> c.getPatientId() == original.patientId()));
+
+        // A dismissed pair stays dismissed through re-indexing and scans
+        duplicate.setFirstName(original.firstName());
+        assertTrue(service.indexPatient(duplicate).stream().anyMatch(c -> c.getPatientId() == original.patientId()));
+        service.dismissCandidate(duplicate.getId(), original.patientId());
+        assertTrue(service.getDuplicateCandidates(duplicate.getId()).stream().noneMatch(c -> c.getPatientId() == original.patientId()));
+        service.indexPatient(duplicate);
+        service.scanAll();
+        assertTrue(service.getDuplicateCandidates(duplicate.getId()).stream().noneMatch(c -> c.getPatientId() == original.patientId()));
+    }
+
+    private Patient insert(Demographics patient) {
+        jdbcTemplate.update("INSERT INTO patients (id, user_id, patient_number, first_name, last_name, phone_number, " +
+                        "date_of_birth, gender) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                patient.patientId(), patient.patientId(), "PAT-" + patient.patientId(), patient.firstName(),
+                patient.lastName(), patient.phone(), patient.dateOfBirth(), patient.gender().name());
+        population.add(Demographics.of(patient.patientId(), patient.firstName(), patient.lastName(),
+                patient.dateOfBirth(), patient.gender(), patient.phone()));
+        return Patient.builder()
+                .id(patient.patientId())
+                .firstName(patient.firstName())
+                .lastName(patient.lastName())
+                .dateOfBirth(patient.dateOfBirth())
+                .gender(patient.gender())
+                .phoneNumber(patient.phone())
+                .build();
+    }
+
+    private static String transpose(String name, Random random) {
+        int i = 1 + random.nextInt(name.length() - 2);
+        char[] chars = name.toCharArray();
+        char c = chars[i];
+        chars[i] = chars[i + 1];
+        chars[i + 1] = c;
+        return new String(chars);
+    }
+}
@@ -0,0 +1,155 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.dto.PatientStatisticsResponse;
+import com.gvkss.patil.patient_service.entity.Patient;
+import com.gvkss.patil.patient_service.service.PatientStatisticsService.Contribution;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link PatientStatisticsService} on H2 in PostgreSQL mode: the striped counters agree
+ * with the full aggregate over the patients table after concurrent writes, updates, deletes and
+ * rolled-back transactions. H2 cannot run V3's seeding inserts (ON CONFLICT with a target) or
+ * LOCK TABLE, so the stripes are seeded here and {@code recompute()}, whose table lock keeps a
+ * rebuild consistent with writers still in flight, is only exercised against PostgreSQL.
+ */
+class PatientStatisticsServiceTest {
+
+    private static final String INSERT_PATIENT_SQL =
+            "INSERT INTO patients (id, user_id, patient_number, date_of_birth, gender, status, allergies, medical_conditions) " +
+            "VALUES (?, ?, ?, DATE '1980-01-01', 'FEMALE', ?, ?, ?)";
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private PatientStatisticsService service;
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = TestDatabase.create();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE patient_statistics_counters (stripe SMALLINT PRIMARY KEY, " +
+                "total_patients BIGINT NOT NULL DEFAULT 0, active_patients BIGINT NOT NULL DEFAULT 0, " +
+                "inactive_patients BIGINT NOT NULL DEFAULT 0, patients_with_allergies BIGINT NOT NULL DEFAULT 0, " +
+                "patients_with_medical_conditions BIGINT NOT NULL DEFAULT 0)");
+        for (int stripe = 0; stripe < PatientStatisticsService.STRIPES; stripe++) {
+            jdbcTemplate.update("INSERT INTO patient_statistics_counters (stripe) VALUES (?)", stripe);
+        }
+        service = new PatientStatisticsService(jdbcTemplate);
+    }
+
+    @Test
+    void countersMatchTheAggregateAfterConcurrentWrites() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < 8; writer++) {
+                writers.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 100; i++) {
+                        Patient patient = patient(random);
+                        boolean rollBack = random.nextInt(5) == 0;
+                        transactionTemplate.executeWithoutResult(status -> {
+                            insert(patient);
+                            service.record(Contribution.NONE, Contribution.of(patient));
+                            if (rollBack) {
+                                status.setRollbackOnly();
+                            }
+                        });
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertSameStatistics(service.aggregate(), service.getStatistics());
+        assertEquals(PatientStatisticsService.STRIPES,
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM patient_statistics_counters", Integer.class));
+    }
+
+    @Test
+    void updatesAndDeletesMoveTheCounters() {
+        Patient patient = Patient.builder().id(ids.incrementAndGet()).status(Patient.PatientStatus.ACTIVE)
+                .allergies("Penicillin").build();
+        transactionTemplate.executeWithoutResult(status -> {
+            insert(patient);
+            service.record(Contribution.NONE, Contribution.of(patient));
+        });
+
+        Contribution before = Contribution.of(patient);
+        patient.setStatus(Patient.PatientStatus.INACTIVE);
+        patient.setAllergies("");
+        patient.setMedicalConditions("Asthma");
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE patients SET status = ?, allergies = ?, medical_conditions = ? WHERE id = ?",
+                    patient.getStatus().name(), patient.getAllergies(), patient.getMedicalConditions(), patient.getId());
+            service.record(before, Contribution.of(patient));
+        });
+        PatientStatisticsResponse updated = service.getStatistics();
+        assertSameStatistics(service.aggregate(), updated);
+        assertEquals(1, updated.getInactivePatients());
+        assertEquals(0, updated.getPatientsWithAllergies());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM patients WHERE id = ?", patient.getId());
+            service.record(Contribution.of(patient), Contribution.NONE);
+        });
+        assertSameStatistics(service.aggregate(), service.getStatistics());
+        assertEquals(0, service.getStatistics().getTotalPatients());
+    }
+
+    @Test
+    void fallsBackToTheAggregateWhenTheCountersWereNeverSeeded() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 5; i++) {
+                insert(patient(ThreadLocalRandom.current()));
+            }
+        });
+        jdbcTemplate.update("DELETE FROM patient_statistics_counters");
+
+        assertEquals(5, service.getStatistics().getTotalPatients());
+        assertSameStatistics(service.aggregate(), service.getStatistics());
+    }
+
+    private Patient patient(ThreadLocalRandom random) {
+        Patient.PatientStatus[] statuses = Patient.PatientStatus.values();
+        return Patient.builder()
+                .id(ids.incrementAndGet())
+                .status(statuses[random.nextInt(statuses.length)])
+                .allergies(random.nextInt(3) == 0 ? "Latex" : random.nextBoolean() ? "" : null)
+                .medicalConditions(random.nextInt(4) == 0 ? "Diabetes" : null)
+                .build();
+    }
+
+    private void insert(Patient patient) {
+        jdbcTemplate.update(INSERT_PATIENT_SQL, patient.getId(), patient.getId(), "PAT-" + patient.getId(),
+                patient.getStatus().name(), patient.getAllergies(), patient.getMedicalConditions());
+    }
+
+    private static void assertSameStatistics(PatientStatisticsResponse expected, PatientStatisticsResponse actual) {
+        assertEquals(expected.getTotalPatients(), actual.getTotalPatients(), "total");
+        assertEquals(expected.getActivePatients(), actual.getActivePatients(), "active");
+        assertEquals(expected.getInactivePatients(), actual.getInactivePatients(), "inactive");
+        assertEquals(expected.getPatientsWithAllergies(), actual.getPatientsWithAllergies(), "with allergies");
+        assertEquals(expected.getPatientsWithMedicalConditions(), actual.getPatientsWithMedicalConditions(), "with conditions");
+    }
+}
@@ -0,0 +1,245 @@
+package com.gvkss.patil.patient_service.service;
+
+import com.gvkss.patil.patient_service.client.ClaimClient;
+import com.gvkss.patil.patient_service.dto.AppointmentResponse;
+import com.gvkss.patil.patient_service.dto.MedicalRecordResponse;
+import com.gvkss.patil.patient_service.dto.PatientResponse;
+import com.gvkss.patil.patient_service.dto.PatientTimelineResponse;
+import com.gvkss.patil.patient_service.dto.TimelineEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link PatientTimelineService}: cursor paging over sources with many equal times, and
+ * partial results that can be resumed when claim-service is slow or down. The sources answer keyset queries from in-memory lists.
+ */
+class PatientTimelineServiceTest {
+
+    private static final long PATIENT_ID = 1L;
+    private static final long USER_ID = 42L;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    private final List<MedicalRecordResponse> records = new ArrayList<>();
+    private final List<AppointmentResponse> appointments = new ArrayList<>();
+    private final List<Map<String, Object>> claims = new ArrayList<>();
+    private final AtomicLong claimDelayMillis = new AtomicLong();
+    private final AtomicBoolean claimsDown = new AtomicBoolean();
+    private PatientTimelineService service;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(3);
+        for (long id = 1; id <= 60; id++) {
+            records.add(MedicalRecordResponse.builder()
+                    .id(id).patientId(PATIENT_ID).recordType("CONSULTATION")
+                    .visitDate(FIRST_DAY.plusDays(random.nextInt(10)))
+                    .build());
+        }
+        for (long id = 1; id <= 80; id++) {
+            // Whole hours, and some at midnight, so they tie with records and claims
+            appointments.add(AppointmentResponse.builder()
+                    .id(id).patientId(PATIENT_ID).appointmentNumber("APT-" + id)
+                    .appointmentDate(FIRST_DAY.plusDays(random.nextInt(10)).atTime(random.nextInt(3) * 8, 0))
+                    .build());
+        }
+        for (long id = 1; id <= 70; id++) {
+            Map<String, Object> claim = new HashMap<>();
+            claim.put("id", id);
+            claim.put("claimNumber", "CLM-" + id);
+            claim.put("claimStatus", "SUBMITTED");
+            claim.put("submittedAt", FIRST_DAY.plusDays(random.nextInt(10)).atTime(random.nextInt(2) * 8, 0).toString());
+            claims.add(claim);
+        }
+
+        PatientService patientService = mock(PatientService.class);
+        when(patientService.getPatientById(PATIENT_ID))
+                .thenReturn(PatientResponse.builder().id(PATIENT_ID).userId(USER_ID).build());
+
+        MedicalRecordService medicalRecordService = mock(MedicalRecordService.class);
+        when(medicalRecordService.getMedicalRecordsByPatientIdBefore(eq(PATIENT_ID), any(), anyLong(), anyInt()))
+                .thenAnswer(call -> {
+                    LocalDate before = call.getArgument(1);
+                    long beforeId = call.getArgument(2);
+                    return records.stream()
+                            .filter(r -> r.getVisitDate().isBefore(before)
+                                    || (r.getVisitDate().equals(before) && r.getId() < beforeId))
+                            .sorted((a, b) -> a.getVisitDate().equals(b.getVisitDate())
+                                    ? Long.compare(b.getId(), a.getId()) : b.getVisitDate().compareTo(a.getVisitDate()))
+                            .limit((int) call.getArgument(3))
+                            .toList();
+                });
+
+        AppointmentService appointmentService = mock(AppointmentService.class);
+        when(appointmentService.getAppointmentsByPatientIdBefore(eq(PATIENT_ID), any(), anyLong(), anyInt()))
+                .thenAnswer(call -> {
+                    LocalDateTime before = call.getArgument(1);
+                    long beforeId = call.getArgument(2);
+                    return appointments.stream()
+                            .filter(a -> a.getAppointmentDate().isBefore(before)
+                                    || (a.getAppointmentDate().equals(before) && a.getId() < beforeId))
+                            .sorted((a, b) -> a.getAppointmentDate().equals(b.getAppointmentDate())
+                                    ? Long.compare(b.getId(), a.getId()) : b.getAppointmentDate().compareTo(a.getAppointmentDate()))
+                            .limit((int) call.getArgument(3))
+                            .toList();
+                });
+
+        ClaimClient claimClient = mock(ClaimClient.class);
+        when(claimClient.getClaimsBefore(eq(USER_ID), any(), anyLong(), anyInt()))
+                .thenAnswer(call -> {
+                    Thread.sleep(claimDelayMillis.get());
+                    if (claimsDown.get()) {
+                        throw new IllegalStateException("claim-service unavailable");
+                    }
+                    LocalDateTime before = call.getArgument(1);
+                    long beforeId = call.getArgument(2);
+                    return claims.stream()
+                            .filter(c -> submittedAt(c).isBefore(before)
+                                    || (submittedAt(c).equals(before) && (Long) c.get("id") < beforeId))
+                            .sorted((a, b) -> submittedAt(a).equals(submittedAt(b))
+                                    ? Long.compare((Long) b.get("id"), (Long) a.get("id")) : submittedAt(b).compareTo(submittedAt(a)))
+                            .limit((int) call.getArgument(3))
+                            .toList();
+                });
+
+        service = new PatientTimelineService(patientService, medicalRecordService, appointmentService, claimClient,
+                Duration.ofMillis(500), 100, 4, 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void pagesCoverEveryEntryOnceInOrder() {
+        List<TimelineEntry> all = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            PatientTimelineResponse page = service.getTimeline(PATIENT_ID, cursor, 7);
+            assertFalse(page.isPartial());
+            assertEquals(USER_ID, page.getPatient().getUserId());
+            for (TimelineEntry entry : page.getEntries()) {
+                assertTrue(seen.add(entry.getType() + "-" + entry.getId()), "entry repeated: " + entry);
+            }
+            all.addAll(page.getEntries());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(records.size() + appointments.size() + claims.size(), all.size());
+        assertEquals(30, pages);
+        for (int i = 1; i < all.size(); i++) {
+            assertFalse(all.get(i).getOccurredAt().isAfter(all.get(i - 1).getOccurredAt()), "out of order at " + i);
+        }
+    }
+
+    @Test
+    void slowClaimServiceGivesPartialResults() {
+        claimDelayMillis.set(2_000);
+        PatientTimelineResponse page = service.getTimeline(PATIENT_ID, null, 20);
+        assertTrue(page.isPartial());
+        assertEquals(List.of("claims"), page.getUnavailableSources());
+        assertEquals(20, page.getEntries().size());
+        assertTrue(page.getEntries().stream().noneMatch(entry -> entry.getType() == TimelineEntry.EntryType.CLAIM));
+
+        // Page size is capped at max-limit
+        claimDelayMillis.set(0);
+        PatientTimelineResponse full = service.getTimeline(PATIENT_ID, null, 500);
+        assertFalse(full.isPartial());
+        assertEquals(100, full.getEntries().size());
+        assertTrue(full.getEntries().stream().anyMatch(entry -> entry.getType() == TimelineEntry.EntryType.CLAIM));
+        assertNotNull(full.getNextCursor());
+    }
+
+    @Test
+    void claimsMissedByPartialPagesComeOnLaterPages() {
+        List<TimelineEntry> all = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        String cursor = null;
+        claimsDown.set(true);
+        PatientTimelineResponse page;
+        do {
+            page = service.getTimeline(PATIENT_ID, cursor, 50);
+            assertTrue(page.isPartial());
+            assertEquals(List.of("claims"), page.getUnavailableSources());
+            collect(page, all, seen);
+            cursor = page.getNextCursor();
+            // The last page is short, but the claims are still to come
+            assertNotNull(cursor);
+        } while (page.getEntries().size() == 50);
+        assertEquals(records.size() + appointments.size(), all.size());
+
+        claimsDown.set(false);
+        do {
+            page = service.getTimeline(PATIENT_ID, cursor, 50);
+            assertFalse(page.isPartial());
+            assertTrue(page.getEntries().stream().allMatch(entry -> entry.getType() == TimelineEntry.EntryType.CLAIM));
+            collect(page, all, seen);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(records.size() + appointments.size() + claims.size(), all.size());
+    }
+
+    @Test
+    void partialPageInTheMiddleDoesNotSkipClaims() {
+        PatientTimelineResponse first = service.getTimeline(PATIENT_ID, null, 30);
+        List<TimelineEntry> all = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        collect(first, all, seen);
+
+        claimsDown.set(true);
+        PatientTimelineResponse partial = service.getTimeline(PATIENT_ID, first.getNextCursor(), 30);
+        assertTrue(partial.isPartial());
+        collect(partial, all, seen);
+
+        claimsDown.set(false);
+        String cursor = partial.getNextCursor();
+        while (cursor != null) {
+            PatientTimelineResponse page = service.getTimeline(PATIENT_ID, cursor, 30);
+            assertFalse(page.isPartial());
+            collect(page, all, seen);
+            cursor = page.getNextCursor();
+        }
+
+        assertEquals(records.size() + appointments.size() + claims.size(), all.size());
+    }
+
+    private static void collect(PatientTimelineResponse page, List<TimelineEntry> all, Set<String> seen) {
+        for (TimelineEntry entry : page.getEntries()) {
+            assertTrue(seen.add(entry.getType() + "-" + entry.getId()), "entry repeated: " + entry);
+        }
+        all.addAll(page.getEntries());
+    }
+
+    private static LocalDateTime submittedAt(Map<String, Object> claim) {
+        return LocalDateTime.parse((String) claim.get("submittedAt"));
+    }
+}
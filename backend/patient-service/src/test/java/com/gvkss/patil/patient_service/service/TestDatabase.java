@@ -0,0 +1,37 @@
+package com.gvkss.patil.patient_service.service;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Throwaway H2 databases in PostgreSQL mode for the service tests, built from the real Flyway
+ * migrations. H2 parses most of the SQL the services send but is not PostgreSQL: it has no
+ * exclusion constraints, tsvector or COPY, its row locks (FOR UPDATE SKIP LOCKED) and isolation
+ * levels behave differently under load, and it ignores planner-dependent choices such as partial
+ * and GIN indexes. Each test class says which of these it cannot cover.
+ */
+final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    /**
+     * A fresh database with the patient tables (V1) and the given later migrations applied in order.
+     * Lock waits are long, so tests that race several writers wait instead of failing.
+     */
+    static DriverManagerDataSource create(String... migrations) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000", "sa", "");
+        Resource[] scripts = Stream.concat(Stream.of("V1__Create_patient_tables.sql"), Arrays.stream(migrations))
+                .map(migration -> new ClassPathResource("db/migration/" + migration))
+                .toArray(Resource[]::new);
+        new ResourceDatabasePopulator(scripts).execute(dataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,47 @@
+package com.gvkss.patil.user_service.controller;
+
+import com.gvkss.patil.user_service.dto.ApiResponse;
+import com.gvkss.patil.user_service.dto.DoctorDirectoryEntry;
+import com.gvkss.patil.user_service.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Doctor directory controller.
+ * Lists active doctors and their specialties for other services, such as patient-service's
+ * appointment availability, so they do not read the user tables directly.
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/public/doctors")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Doctor Directory", description = "Active doctors and their specialties")
+public class DoctorDirectoryController {
+    
+    private final UserService userService;
+    
+    /**
+     * Get every active doctor with their specialty
+     * 
+     * @return Doctor IDs and specialties
+     */
+    @GetMapping
+    @Operation(summary = "Get active doctors (public)", description = "Retrieve the ID and specialty of every active doctor")
+    public ResponseEntity<ApiResponse<List<DoctorDirectoryEntry>>> getDoctors() {
+        List<DoctorDirectoryEntry> doctors = userService.getDoctorDirectory();
+        log.debug("Doctor directory request: {} doctors", doctors.size());
+        return ResponseEntity.ok(ApiResponse.success(doctors, "Doctors retrieved successfully"));
+    }
+}
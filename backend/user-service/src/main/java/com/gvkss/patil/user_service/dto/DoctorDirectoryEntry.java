@@ -0,0 +1,29 @@
+package com.gvkss.patil.user_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for one active doctor in the directory other services read.
+ * Carries only what they need to offer appointments: the user ID and specialty.
+ * 
+ * @author gvkss team
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorDirectoryEntry {
+    
+    /**
+     * Doctor's user ID
+     */
+    private Long id;
+    
+    /**
+     * Medical specialty, if set
+     */
+    private String specialty;
+}
@@ -1,5 +1,6 @@
 package com.gvkss.patil.user_service.repository;
 
+import com.gvkss.patil.user_service.dto.DoctorDirectoryEntry;
 import com.gvkss.patil.user_service.entity.User;
 import com.gvkss.patil.user_service.enums.UserStatus;
 import org.springframework.data.domain.Page;
@@ -152,6 +153,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u JOIN u.userRoles ur JOIN ur.role r WHERE r.code = :roleCode AND ur.isActive = true")
     Page<User> findByRoleCode(@Param("roleCode") String roleCode, Pageable pageable);
     
+    /**
+     * Find the ID and specialty of every active user holding the doctor role
+     * 
+     * @return Doctor directory entries
+     */
+    @Query("SELECT DISTINCT new com.gvkss.patil.user_service.dto.DoctorDirectoryEntry(u.id, u.specialty) " +
+           "FROM User u JOIN u.userRoles ur JOIN ur.role r " +
+           "WHERE r.code = 'doctor' AND ur.isActive = true AND u.status = 'ACTIVE'")
+    List<DoctorDirectoryEntry> findDoctorDirectory();
+    
     /**
      * Find users by multiple role codes
      * 
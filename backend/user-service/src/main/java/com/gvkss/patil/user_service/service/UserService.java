@@ -1,5 +1,6 @@
 package com.gvkss.patil.user_service.service;
 
+import com.gvkss.patil.user_service.dto.DoctorDirectoryEntry;
 import com.gvkss.patil.user_service.dto.UserResponse;
 import com.gvkss.patil.user_service.entity.Department;
 import com.gvkss.patil.user_service.entity.Role;
@@ -56,6 +57,16 @@ public class UserService {
         return users.map(this::convertToUserResponse);
     }
     
+    /**
+     * Get the ID and specialty of every active doctor
+     * 
+     * @return Doctor directory entries
+     */
+    @Transactional(readOnly = true)
+    public List<DoctorDirectoryEntry> getDoctorDirectory() {
+        return userRepository.findDoctorDirectory();
+    }
+    
     /**
      * Get user by ID
      * 